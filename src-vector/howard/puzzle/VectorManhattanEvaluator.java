@@ -0,0 +1,186 @@
+package howard.puzzle;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Class for evaluating the manhattan distance of whole boards with the vector API, as many tiles
+ * at once as the widest vector of ints of the processor holds, eight with 256-bit registers.
+ * The goal positions of the numbers are computed in the lanes when the goal is the blank first
+ * or blank last goal, whose tiles are in order, and gathered from a table of goal rows and
+ * columns otherwise. The numbers of a packed state are shifted out of its two halves in the
+ * lanes too, so a packed state is never unpacked tile by tile.
+ *
+ * This class is kept in its own source directory and compiled with the jdk.incubator.vector
+ * module, so the other sources build without it. It is only loaded, by name, when it was compiled
+ * and the runtime has the module, see ManhattanEvaluator.forGoal.
+ *
+ * @author Shaun Howard
+ */
+public class VectorManhattanEvaluator implements ManhattanEvaluator {
+
+  /** The widest vectors of ints of the processor. */
+  private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+  /** The shift dividing by the columns, after multiplying by the magic number. */
+  private static final int MAGIC_SHIFT = 16;
+
+  /** The number of positions of the board. */
+  private final int cells;
+
+  /** The number of columns of the board. */
+  private final int columns;
+
+  /** The row of each position, up to a whole number of vectors. */
+  private final int[] positionRows;
+
+  /** The column of each position, up to a whole number of vectors. */
+  private final int[] positionColumns;
+
+  /** The number subtracted from a tile for its goal position, -1 when the goal positions are gathered. */
+  private final int goalOffset;
+
+  /** The number multiplied by a goal position before shifting it to its row. */
+  private final int magic;
+
+  /** The goal row of each number. */
+  private final int[] goalRows;
+
+  /** The goal column of each number. */
+  private final int[] goalColumns;
+
+  /** The shift of the number at each position of a packed state out of its half. */
+  private final int[] shifts;
+
+  /** Whether the number at each position of a packed state is in the high half. */
+  private final boolean[] highHalves;
+
+  /** Whether each position is on the board. */
+  private final boolean[] onBoard;
+
+  /** The numbers of a packed state, or the last numbers of a board, padded with zeros to a whole vector. */
+  private final int[] numbers;
+
+  /**
+   * Constructor for an evaluator of a goal configuration.
+   *
+   * @param goal - the goal configuration
+   */
+  public VectorManhattanEvaluator(GoalConfiguration goal) {
+    this.cells = goal.getCells();
+    this.columns = goal.getColumns();
+
+    /* The positions of whole vectors, the ones past the board are masked off. */
+    int length = SPECIES.loopBound(cells + SPECIES.length() - 1);
+    this.positionRows = new int[length];
+    this.positionColumns = new int[length];
+    this.shifts = new int[length];
+    this.highHalves = new boolean[length];
+    this.onBoard = new boolean[length];
+    this.numbers = new int[length];
+    for (int position = 0; position < length; position++) {
+      positionRows[position] = position / columns;
+      positionColumns[position] = position % columns;
+      shifts[position] = (position % 8) * 4;
+      highHalves[position] = position >= 8;
+      onBoard[position] = position < cells;
+    }
+
+    /* The goal rows and columns of the numbers, for gathering. */
+    this.goalRows = new int[cells];
+    this.goalColumns = new int[cells];
+    for (int number = 0; number < cells; number++) {
+      goalRows[number] = goal.getRow(number);
+      goalColumns[number] = goal.getColumn(number);
+    }
+
+    /* Compute the goal positions in the lanes when the tiles are in order and the division is exact. */
+    this.magic = ((1 << MAGIC_SHIFT) + columns - 1) / columns;
+    this.goalOffset = computable(goal, 0) ? 0 : computable(goal, 1) ? 1 : -1;
+  }
+
+  /**
+   * Checks whether the goal position of each tile is its number less an offset, with the
+   * rows found by multiplying by the magic number and shifting.
+   *
+   * @param goal - the goal configuration
+   * @param offset - the offset of the tiles
+   * @return whether the goal positions can be computed in the lanes
+   */
+  private boolean computable(GoalConfiguration goal, int offset) {
+    for (int number = 1; number < cells; number++) {
+      int position = number - offset;
+      if (goal.getPosition(number) != position || (position * magic) >>> MAGIC_SHIFT != position / columns) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public int distance(int[] numbers) {
+    IntVector sum = IntVector.zero(SPECIES);
+    for (int position = 0; position < cells; position += SPECIES.length()) {
+
+      /* The last positions are copied to the padded array, so every load is of a whole vector. */
+      int[] tiles = numbers;
+      if (position + SPECIES.length() > cells) {
+        System.arraycopy(numbers, position, this.numbers, position, cells - position);
+        tiles = this.numbers;
+      }
+      sum = sum.add(distances(IntVector.fromArray(SPECIES, tiles, position), tiles, position));
+    }
+    return sum.reduceLanes(VectorOperators.ADD);
+  }
+
+  public int distance(long packed) {
+    IntVector low = IntVector.broadcast(SPECIES, (int) packed);
+    IntVector high = IntVector.broadcast(SPECIES, (int) (packed >>> 32));
+    IntVector sum = IntVector.zero(SPECIES);
+    for (int position = 0; position < cells; position += SPECIES.length()) {
+
+      /* Shift the number of each position out of the half it is in. */
+      IntVector tiles = low.blend(high, VectorMask.fromArray(SPECIES, highHalves, position))
+                           .lanewise(VectorOperators.LSHR, IntVector.fromArray(SPECIES, shifts, position))
+                           .and(0xF);
+
+      /* The goal positions are gathered by the numbers in the array. */
+      if (goalOffset < 0) {
+        tiles.intoArray(numbers, position);
+      }
+      sum = sum.add(distances(tiles, numbers, position));
+    }
+    return sum.reduceLanes(VectorOperators.ADD);
+  }
+
+  /**
+   * Returns the distances of the tiles of one vector of positions from their goal positions.
+   *
+   * @param tiles - the numbers at the positions
+   * @param numbers - the array of the numbers, for gathering the goal positions
+   * @param position - the first position of the vector
+   * @return the distance of each tile, zero for the zero (blank space) and the positions off the board
+   */
+  private IntVector distances(IntVector tiles, int[] numbers, int position) {
+    VectorMask<Integer> counted = VectorMask.fromArray(SPECIES, onBoard, position)
+                                            .and(tiles.compare(VectorOperators.NE, 0));
+
+    /* The goal rows and columns of the tiles. */
+    IntVector rows;
+    IntVector columns;
+    if (goalOffset >= 0) {
+      IntVector goals = tiles.sub(goalOffset);
+      rows = goals.mul(magic).lanewise(VectorOperators.LSHR, MAGIC_SHIFT);
+      columns = goals.sub(rows.mul(this.columns));
+    } else { //Otherwise, gather them from the tables of the goal.
+      rows = IntVector.fromArray(SPECIES, goalRows, 0, numbers, position);
+      columns = IntVector.fromArray(SPECIES, goalColumns, 0, numbers, position);
+    }
+
+    /* Add the row and column differences of the tiles counted. */
+    IntVector distances = rows.sub(IntVector.fromArray(SPECIES, positionRows, position)).abs()
+                              .add(columns.sub(IntVector.fromArray(SPECIES, positionColumns, position)).abs());
+    return IntVector.zero(SPECIES).blend(distances, counted);
+  }
+}
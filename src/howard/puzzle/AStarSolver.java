@@ -0,0 +1,282 @@
+package howard.puzzle;
+
+/**
+ * Class for solving the N = n x n - 1 puzzle optimally using A* search over packed states.
+ * States are explored in order of f = g + h, where g is the length of the path to the state and
+ * h its heuristic estimate, so the first path to reach the goal state is a shortest one.
+ *
+ * The search makes no puzzle state or node objects. Every generated state is a node of a node
+ * pool, a structure of arrays holding the packed state, path length, parent node and move into
+ * the state, and the open list is a bucket queue of node numbers by f value, with ties going to
+ * the deepest, most recently generated node. Since f values are small integers, adding and
+ * polling a node take constant time.
+ *
+ * The heuristic is the manhattan distance by default, or the one named by "-Dpuzzle.heuristic"
+ * (manhattan, linear, walking or pattern). The manhattan distance of a new state is found from
+ * that of its parent by the distance the moved tile gains or loses, using a table of distances
+ * on the packed state; other heuristics estimate the unpacked board of the new state from that
+ * of its parent. With a consistent heuristic explored states never have to be explored again,
+ * and with an inconsistent one an explored state reached by a shorter path is explored again,
+ * so the solution stays optimal.
+ * Puzzles of up to 16 positions are searched, larger puzzles do not fit into packed states.
+ *
+ * @author Shaun Howard
+ */
+public class AStarSolver extends PuzzleSolver {
+
+  /** An instance of the A* solver for solving the puzzle. */
+  private static AStarSolver instance = new AStarSolver();
+
+  /** The number of nodes explored between checks of the memory limit, deadline and cancellation. */
+  private static final int CHECK_INTERVAL = 256;
+
+  /** The nodes of the generated states. */
+  private NodePool pool = new NodePool();
+
+  /** The open list of node numbers, ordered by f value. */
+  private BucketQueue open = new BucketQueue();
+
+  /** The heuristic used to estimate the distance of states to the goal state. */
+  private Heuristic heuristic = Heuristic.fromProperty();
+
+  /** Nullary constructor. */
+  AStarSolver() {
+
+  }
+
+  /**
+   * Returns the instance of this solver.
+   *
+   * @return the instance of the A* solver
+   */
+  public static AStarSolver getInstance() {
+    return instance;
+  }
+
+  /**
+   * Returns the heuristic used to estimate the distance of states to the goal state.
+   *
+   * @return the heuristic of this solver
+   */
+  public Heuristic getHeuristic() {
+    return heuristic;
+  }
+
+  /**
+   * Sets the heuristic used to estimate the distance of states to the goal state.
+   * The heuristic has to be admissible for the solutions to be optimal.
+   *
+   * @param heuristic - the heuristic to estimate states with
+   */
+  public void setHeuristic(Heuristic heuristic) {
+    this.heuristic = heuristic;
+  }
+
+  /**
+   * Makes the table of the manhattan distance of every number from every position.
+   *
+   * @param goal - the goal configuration of the puzzle
+   * @return the distance of number n at position p, at index n * cells + p
+   */
+  static int[] distances(GoalConfiguration goal) {
+    int cells = goal.getCells();
+    int[] distances = new int[cells * cells];
+
+    /* The zero (blank space) does not count towards the distance, so its row stays zero. */
+    for (int number = 1; number < cells; number++) {
+      for (int position = 0; position < cells; position++) {
+        distances[number * cells + position] = Math.abs(position / goal.getColumns() - goal.getRow(number))
+                                                 + Math.abs(position % goal.getColumns() - goal.getColumn(number));
+      }
+    }
+
+    return distances;
+  }
+
+  /**
+   * Performs the A* search from the given state, using packed states.
+   *
+   * @param state - the puzzle state to search from
+   * @return the moves from the state to the goal state, or null when the goal state was not found
+   */
+  private String search(PuzzleState state) {
+
+    /* Packs the states of this puzzle shape. */
+    GoalConfiguration goalConfiguration = state.getGoal();
+    PackedState packer = new PackedState(state.getRows(), state.getColumns());
+    int cells = packer.getCells();
+    int[] distances = distances(goalConfiguration);
+
+    /* The packed input state and goal state. */
+    long start = packer.pack(state);
+    long goalState = packer.goal(goalConfiguration);
+
+    /* The manhattan distance is found on the packed states, other heuristics estimate the unpacked boards. */
+    boolean manhattan = heuristic == ManhattanHeuristic.getInstance();
+    int[] numbers = new int[cells];
+
+    /* The estimate of the input state. */
+    int h;
+    if (manhattan) {
+      h = ManhattanEvaluator.forGoal(goalConfiguration).distance(start);
+    } else { //Otherwise, estimate the board of the input state.
+
+      PackedState.unpack(start, numbers);
+      h = heuristic.estimate(goalConfiguration, numbers);
+    }
+
+    /* Clear the pool and open list to free memory. */
+    pool.clear();
+    open.clear();
+
+    /* Add the input state to the pool and open list, its move is never read. */
+    open.add(pool.add(start, 0, -1, 0), h, 0);
+
+    /* Explore nodes in order of f value while the open list has nodes. */
+    while (!open.isEmpty()) {
+
+      /* Poll the node with the lowest f value, its heuristic estimate is the rest of the f value. */
+      int f = open.peekF();
+      int node = open.poll();
+
+      /* Skip nodes that were explored by a shorter path already. */
+      if (pool.isClosed(node)) {
+        continue;
+      }
+      pool.close(node);
+      expanded++;
+
+      /* The state, path length and estimate of the node. */
+      long packed = pool.getState(node);
+      int g = pool.getCost(node);
+      h = f - g;
+
+      /* When the state is the goal state, follow the parents back to the input state. */
+      if (packed == goalState) {
+        return followParents(node);
+      }
+
+      /* Make sure program doesn't run over memory limit, deadline or cancellation. */
+      if (expanded % CHECK_INTERVAL == 0) {
+        searchDepth = g;
+        if (isOutOfMemory() || shouldStop()) {
+          return null;
+        }
+      }
+
+      /* The position of the zero (blank space) and the move that would undo the move into the state. */
+      int zero = PackedState.zero(packed);
+      int back = node == 0 ? -1 : pool.getMove(node) ^ 1;
+
+      /* Try to move zero (blank space) up, down, left and right in the puzzle. */
+      for (int move = 0; move < PackedState.MOVES.length; move++) {
+
+        /* The position the zero moves to, skipping moves off the board and back to the parent. */
+        int target = packer.neighbor(zero, move);
+        if (target < 0 || move == back) {
+          continue;
+        }
+
+        /* Make the new state, the tile at the target moves into the old zero position. */
+        long newState = PackedState.move(packed, zero, target);
+        int newH;
+        if (manhattan) {
+          int number = PackedState.get(packed, target);
+          newH = h + distances[number * cells + zero] - distances[number * cells + target];
+        } else { //Otherwise, estimate the new board from that of the parent.
+
+          PackedState.unpack(newState, numbers);
+          newH = heuristic.estimate(goalConfiguration, numbers, target, zero, h);
+        }
+
+        /* Checks if the state is new or reached by a shorter path, which reopens an explored state. */
+        int child = pool.find(newState);
+        if (child < 0) {
+          child = pool.add(newState, g + 1, node, move);
+        } else if (g + 1 < pool.getCost(child)) {
+          pool.set(child, g + 1, node, move);
+        } else { //Otherwise, a path as short to the state is known.
+
+          continue;
+        }
+
+        /* Add the node to the open list. */
+        open.add(child, g + 1 + newH, g + 1);
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * Follows the parents of the nodes back from the goal node to the input node.
+   *
+   * @param node - the number of the goal node
+   * @return the moves from the input state to the goal state
+   */
+  private String followParents(int node) {
+
+    /* Builder to make a string of move sequence. */
+    StringBuilder builder = new StringBuilder();
+
+    /* Add the move into each node until the input node is reached. */
+    for (; pool.getParent(node) >= 0; node = pool.getParent(node)) {
+      builder.append(PackedState.MOVES[pool.getMove(node)]);
+    }
+
+    /* Reverses the moves to order them from the input state to the goal state. */
+    return builder.reverse().toString();
+  }
+
+  /**
+   * Solves the input puzzle using A* search.
+   * Also tracks the amount of time taken to solve puzzle.
+   *
+   * @param puzzle - the puzzle to solve with A* search
+   * @return the string sequence of moves from initial puzzle state to goal puzzle state
+   */
+  public String solve(Puzzle puzzle) {
+
+    /* Gets the start time of the search. */
+    long startTime = System.currentTimeMillis();
+
+    /* Initializes goal state to not found. */
+    goal = null;
+    expanded = 0;
+
+    /* The puzzle states must fit into packed states. */
+    if (!PackedState.fits(puzzle.getRows(), puzzle.getColumns())) {
+      moves = null;
+      time = System.currentTimeMillis() - startTime;
+      return "The A* solver needs a puzzle of at most " + PackedState.MAX_CELLS + " positions!";
+    }
+
+    /* Creates a new state from the input puzzle for solving. */
+    PuzzleState state = new PuzzleState(puzzle);
+
+    /* Performs A* search on the initial, randomized puzzle state. */
+    String path;
+    try {
+      path = search(state);
+    } finally {
+
+      /* Free the memory of the pool and open list, also when the search ran out of memory. */
+      pool.clear();
+      open.clear();
+    }
+
+    /* Makes the states of the path for printing, when the goal state was found. */
+    if (path != null) {
+      for (int i = 0; i < path.length(); i++) {
+        state = PuzzleState.move(state, path.charAt(i));
+      }
+      goal = state;
+    }
+
+    /* Gets the difference between end time and start time to find total time taken to solve puzzle. */
+    time = System.currentTimeMillis() - startTime;
+
+    /* Returns the sequence of moves from initial, randomized puzzle state to goal state. */
+    return getSequence();
+  }
+}
@@ -1,7 +1,9 @@
 package howard.puzzle;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.Queue;
 import java.util.Set;
 
@@ -10,6 +12,20 @@ import java.util.Set;
  * This class extends puzzle solver since it solves the n x n puzzle. 
  * A queue is used to approach the breadth-first search tree.
  * 
+ * Puzzles of up to 16 positions are searched with packed states. Only the move into each
+ * visited state is kept, two bits in the slot of the state in the visited table, and the
+ * path is found by undoing the moves from the goal state, so no puzzle state objects are
+ * made during the search. For puzzles small enough to number every reachable state, such as
+ * the 8-puzzle, the visited table is a dense bit set indexed by the rank of the state, and a
+ * hash table is used otherwise. The packed states wait in a ring buffer queue that is worked off
+ * one layer of the tree at a time, so the depth is known without storing it in every state.
+ * When an off-heap byte budget is set, with "-Dpuzzle.offHeap=8g" or setOffHeapBudget, the hash table
+ * and queue are kept in direct memory of that many bytes instead, two thirds for the table and a
+ * third for the queue, so searches of tens of gigabytes of states make no garbage to collect.
+ * When checkpoints are set, the compact bfs writes its depth, table and queue to a checkpoint
+ * every interval and when it stops early, and goes on from there in resume mode.
+ * Larger puzzles are searched with puzzle state objects.
+ * 
  * @author Shaun Howard
  */
 public class BFSSolver extends PuzzleSolver{
@@ -21,10 +37,28 @@ public class BFSSolver extends PuzzleSolver{
   private Set<PuzzleState> stateSet = new HashSet<PuzzleState>();
   
   /** A first - in - first - out queue (FIFO) to store the puzzle states for bfs. */
-  private Queue<PuzzleState> stateQueue = new LinkedList<PuzzleState>();
+  private Queue<PuzzleState> stateQueue = new ArrayDeque<PuzzleState>();
+  
+  /** The system property of the off-heap byte budget, such as 512m or 8g. */
+  public static final String OFF_HEAP_PROPERTY = "puzzle.offHeap";
+  
+  /** A table of the packed states visited by the compact bfs, with the move into each state. */
+  private StateTable visited = new HashStateTable();
+  
+  /** A first - in - first - out queue (FIFO) to store the packed states for the compact bfs. */
+  private StateQueue packedQueue = new LongQueue();
+  
+  /** The bytes of direct memory for the table and queue of the compact bfs, 0 to keep them on the heap. */
+  private long offHeapBudget = parseBytes(System.getProperty(OFF_HEAP_PROPERTY, "0"));
+  
+  /** The number of packed states moved between the queue and the buffers at once. */
+  private static final int CHUNK = 1024;
+  
+  /** The depth of the last layer searched by the compact bfs. */
+  private int depth;
   
   /** Nullary constructor. */
-  private BFSSolver() {
+  BFSSolver() {
     
   }
   
@@ -37,6 +71,55 @@ public class BFSSolver extends PuzzleSolver{
     return instance;
   }
   
+  /**
+   * Reads a number of bytes, with an optional suffix k, m, g or t for kilobytes, megabytes,
+   * gigabytes or terabytes.
+   * 
+   * @param bytes - the number of bytes, such as 512m or 8g
+   * @return the number of bytes
+   */
+  public static long parseBytes(String bytes) {
+    String trimmed = bytes.trim().toLowerCase();
+    
+    /* The power of 1024 of the suffix, if any. */
+    int power = "kmgt".indexOf(trimmed.isEmpty() ? ' ' : trimmed.charAt(trimmed.length() - 1)) + 1;
+    if (power > 0) {
+      trimmed = trimmed.substring(0, trimmed.length() - 1);
+    }
+    
+    /* Make sure the number of bytes is not negative. */
+    long number = Long.parseLong(trimmed);
+    if (number < 0) {
+      throw new IllegalArgumentException("Number of bytes must not be negative: " + bytes);
+    }
+    
+    return number << (10 * power);
+  }
+  
+  /**
+   * Sets the bytes of direct memory for the table and queue of the compact bfs. Direct memory is
+   * capped by the "-XX:MaxDirectMemorySize" option of the Java virtual machine, the heap size by default.
+   * 
+   * @param bytes - the number of bytes, 0 to keep the table and queue on the heap
+   */
+  public void setOffHeapBudget(long bytes) {
+    
+    /* Make sure the budget is not negative. */
+    if (bytes < 0) {
+      throw new IllegalArgumentException("Off-heap budget must not be negative: " + bytes);
+    }
+    this.offHeapBudget = bytes;
+  }
+  
+  /**
+   * Returns the bytes of direct memory for the table and queue of the compact bfs.
+   * 
+   * @return the number of bytes, 0 when the table and queue are kept on the heap
+   */
+  public long getOffHeapBudget() {
+    return offHeapBudget;
+  }
+  
   /**
    * Begins the breadth-first search within a given puzzle state.
    * 
@@ -64,6 +147,7 @@ public class BFSSolver extends PuzzleSolver{
       
       /* Poll the queue to get the next state at end of queue. */
       state = stateQueue.poll();
+      expanded++;
       
       /* When the state is the goal state, leave search loop. */
       if (state.isGoalState()) {
@@ -73,8 +157,9 @@ public class BFSSolver extends PuzzleSolver{
         break;
       }
       
-      /* Make sure program doesn't run over memory limit. */
-      if (Runtime.getRuntime().freeMemory() < (.0001) * Runtime.getRuntime().totalMemory()){
+      /* Make sure program doesn't run over memory limit, deadline or cancellation. */
+      searchDepth = state.getLevel();
+      if (isOutOfMemory() || shouldStop()){
         break;
       }
       
@@ -132,6 +217,265 @@ public class BFSSolver extends PuzzleSolver{
     }
   }
   
+  /**
+   * Returns the depth of the last layer of the tree searched by the compact bfs.
+   * 
+   * @return the depth of the last layer searched
+   */
+  public int getDepth() {
+    return depth;
+  }
+  
+  /**
+   * Begins the breadth-first search within a given puzzle state, using packed states.
+   * 
+   * @param state - the puzzle state to perform bfs on
+   * @return the moves from the state to the goal state, or null when the goal state was not found
+   */
+  private String compactBfs(PuzzleState state) {
+    
+    /* Packs the states of this puzzle size. */
+    PackedState packer = new PackedState(state.getRows(), state.getColumns());
+    
+    /* The packed input state and goal state. */
+    long start = packer.pack(state);
+    long goalState = packer.goal(state.getGoal());
+    
+    /* Number the states densely when they fit, otherwise hash them, off the heap when there is a budget. */
+    PermutationIndexer indexer = new PermutationIndexer(state.getGoal());
+    if (DenseStateTable.fits(indexer)) {
+      visited = new DenseStateTable(indexer);
+      packedQueue = new LongQueue();
+    } else if (offHeapBudget > 0) {
+      visited = new OffHeapStateTable(offHeapBudget / 3 * 2);
+      packedQueue = new OffHeapLongQueue(offHeapBudget / 3);
+    } else { //Otherwise, hash the packed states on the heap.
+      
+      visited = new HashStateTable();
+      packedQueue = new LongQueue();
+    }
+    
+    /* Clear the queue to free memory. */
+    packedQueue.clear();
+    
+    /* The checkpoint file of this search, null when no checkpoints are written. */
+    File file = checkpoints != null ? checkpoints.getFile("bfs", state) : null;
+    
+    /* The number of states of the current layer left in the queue, read from the checkpoint in resume mode. */
+    long layer = -1;
+    if (file != null && checkpoints.isResume()) {
+      layer = readCheckpoint(file, state, start, goalState);
+    }
+    
+    /* Checks if the search starts over. */
+    if (layer < 0) {
+      
+      /* Add the input state to the table and queue, its move is never read. */
+      visited.add(start, 0);
+      packedQueue.add(start);
+      depth = 0;
+      layer = 1;
+    }
+    
+    /* Start the interval of the first checkpoint. */
+    if (file != null) {
+      checkpoints.start();
+    }
+    
+    /* Buffers for a chunk of the current layer and the new states made from it. */
+    long[] chunk = new long[CHUNK];
+    long[] newStates = new long[CHUNK * PackedState.MOVES.length];
+    
+    /* Perform breadth-first search one layer at a time while packed states exist in the queue. */
+    for (; !packedQueue.isEmpty(); depth++, layer = packedQueue.size()) {
+      
+      /* Work off the states of this layer chunk by chunk, the new states form the next layer. */
+      while (layer > 0) {
+        
+        /* Drain the next chunk of the layer from the queue. */
+        int count = packedQueue.drain(chunk, (int) Math.min(CHUNK, layer));
+        layer -= count;
+        
+        /* The number of new states made from this chunk. */
+        int added = 0;
+        
+        for (int i = 0; i < count; i++) {
+          long packed = chunk[i];
+          expanded++;
+          
+          /* When the state is the goal state, follow the moves back to the input state. */
+          if (packed == goalState) {
+            if (file != null) {
+              checkpoints.delete(file);
+            }
+            return followMoves(packer, start, goalState);
+          }
+          
+          /* The position of the zero (blank space) in the state. */
+          int zero = PackedState.zero(packed);
+          
+          /* Try to move zero (blank space) up, down, left and right in the puzzle. */
+          for (int move = 0; move < PackedState.MOVES.length; move++) {
+            
+            /* The position the zero moves to, skipping moves off the board. */
+            int target = packer.neighbor(zero, move);
+            if (target < 0) {
+              continue;
+            }
+            
+            /* Make the new state. */
+            long newState = PackedState.move(packed, zero, target);
+            
+            /* Keeps the new state for the next layer, if it is not in the table. */
+            if (visited.add(newState, move)) {
+              newStates[added++] = newState;
+            }
+          }
+        }
+        
+        /* Add the new states to the queue at once. */
+        packedQueue.addAll(newStates, added);
+        
+        /* Checks if program runs over memory limit, off-heap budget, deadline or cancellation. */
+        searchDepth = depth;
+        boolean stop = isOutOfMemory() || shouldStop();
+        if (!stop && (visited.isFull() || packedQueue.isFull())) {
+          stop = giveUp(SolveResult.Status.OUT_OF_RESOURCES);
+        }
+        
+        /* Write a checkpoint when one is due, and before stopping, so the search can go on later. */
+        if (file != null && (stop || checkpoints.isDue())) {
+          writeCheckpoint(file, state, start, goalState, layer);
+        }
+        if (stop) {
+          return null;
+        }
+      }
+    }
+    
+    /* The search ended without reaching the goal state, so there is nothing to resume. */
+    if (file != null) {
+      checkpoints.delete(file);
+    }
+    
+    return null;
+  }
+  
+  /**
+   * Writes the depth, the number of states expanded, the visited table and the queue of the
+   * compact bfs to a checkpoint. When the checkpoint cannot be written, the search goes on.
+   * 
+   * @param file - the checkpoint file
+   * @param state - the input state of the search
+   * @param start - the packed input state
+   * @param goalState - the packed goal state
+   * @param layer - the number of states of the current layer left in the queue
+   */
+  private void writeCheckpoint(File file, PuzzleState state, long start, long goalState, long layer) {
+    try (CheckpointWriter out = new CheckpointWriter(file)) {
+      
+      /* Write the puzzle of the search and the kind of table. */
+      out.writeInt(state.getRows());
+      out.writeInt(state.getColumns());
+      out.writeLong(start);
+      out.writeLong(goalState);
+      out.writeByte(visited instanceof DenseStateTable ? 1 : 0);
+      
+      /* Write where the search is. */
+      out.writeInt(depth);
+      out.writeLong(layer);
+      out.writeLong(expanded);
+      
+      /* Write the visited states and the queue. */
+      visited.write(out);
+      packedQueue.write(out);
+      out.commit();
+    } catch (IOException ioe) { //Catch exception when writing the checkpoint.
+      System.err.println("Could not save the checkpoint to " + file + ": " + ioe.getMessage());
+    }
+    
+    /* Start the interval of the next checkpoint, also after a failed one. */
+    checkpoints.start();
+  }
+  
+  /**
+   * Reads the depth, the number of states expanded, the visited table and the queue of the
+   * compact bfs from a checkpoint of the same search, into the empty table and queue.
+   * 
+   * @param file - the checkpoint file
+   * @param state - the input state of the search
+   * @param start - the packed input state
+   * @param goalState - the packed goal state
+   * @return the number of states of the current layer left in the queue, -1 when the search starts over
+   */
+  private long readCheckpoint(File file, PuzzleState state, long start, long goalState) {
+    
+    /* Checks if there is a checkpoint. */
+    if (!file.isFile()) {
+      return -1;
+    }
+    
+    try (CheckpointReader in = new CheckpointReader(file)) {
+      
+      /* Make sure the checkpoint is of this search and kind of table. */
+      if (in.readInt() != state.getRows() || in.readInt() != state.getColumns() || in.readLong() != start
+          || in.readLong() != goalState || in.readByte() != (visited instanceof DenseStateTable ? 1 : 0)) {
+        System.err.println("The checkpoint " + file + " is of another search, starting over");
+        return -1;
+      }
+      
+      /* Read where the search is. */
+      depth = in.readInt();
+      long layer = in.readLong();
+      expanded = in.readLong();
+      
+      /* Read the visited states and the queue. */
+      visited.read(in);
+      packedQueue.read(in);
+      
+      return layer;
+    } catch (IOException ioe) { //Catch exception when reading the checkpoint, the search starts over.
+      System.err.println("Could not resume from the checkpoint " + file + ": " + ioe.getMessage());
+      visited.clear();
+      packedQueue.clear();
+      expanded = 0;
+      return -1;
+    }
+  }
+  
+  /**
+   * Follows the moves in the visited table back from the goal state to the input state.
+   * 
+   * @param packer - the packer of the puzzle states
+   * @param start - the packed input state
+   * @param goalState - the packed goal state
+   * @return the moves from the input state to the goal state
+   */
+  private String followMoves(PackedState packer, long start, long goalState) {
+    
+    /* Builder to make a string of move sequence. */
+    StringBuilder builder = new StringBuilder();
+    
+    /* Undo moves from the goal state until the input state is reached. */
+    for (long packed = goalState; packed != start; ) {
+      
+      /* The move into this state. */
+      int move = visited.getMoveInto(packed);
+      builder.append(PackedState.MOVES[move]);
+      
+      /* Undo the move by moving the zero the opposite way. */
+      int zero = PackedState.zero(packed);
+      packed = PackedState.move(packed, zero, packer.neighbor(zero, move ^ 1));
+    }
+    
+    /* Free the memory of the table and queue. */
+    visited.clear();
+    packedQueue.clear();
+    
+    /* Reverses the moves to order them from the input state to the goal state. */
+    return builder.reverse().toString();
+  }
+  
   /**
    * Solves the input puzzle using breadth-first search.
    * Also tracks the amount of time taken to solve puzzle. 
@@ -146,12 +490,49 @@ public class BFSSolver extends PuzzleSolver{
     
     /* Initializes goal state to not found. */
     goal = null;
+    expanded = 0;
     
     /* Creates a new state from the input puzzle for solving. */
     PuzzleState state = new PuzzleState(puzzle);
     
-    /* Performs breadth-first search on the initial, randomized puzzle state. */
-    bfs(state);   
+    /* Checks if the puzzle states fit into packed states. */
+    if (PackedState.fits(puzzle.getRows(), puzzle.getColumns())) {
+      
+      /* Performs compact breadth-first search on the initial, randomized puzzle state. */
+      String path;
+      try {
+        path = compactBfs(state);
+      } catch (OutOfMemoryError oome) { //Catch running out of memory, the goal state was not found.
+        path = null;
+        giveUp(SolveResult.Status.OUT_OF_RESOURCES);
+      } finally {
+        
+        /* Free the memory of the table and queue, also when the search ran out of memory. */
+        visited.clear();
+        packedQueue.clear();
+      }
+      
+      /* Makes the states of the path for printing, when the goal state was found. */
+      if (path != null) {
+        for (int i = 0; i < path.length(); i++) {
+          state = PuzzleState.move(state, path.charAt(i));
+        }
+        goal = state;
+      }
+    } else { //Otherwise, search with puzzle state objects.
+      
+      /* Performs breadth-first search on the initial, randomized puzzle state. */
+      try {
+        bfs(state);
+      } catch (OutOfMemoryError oome) { //Catch running out of memory, the goal state was not found.
+        goal = null;
+        giveUp(SolveResult.Status.OUT_OF_RESOURCES);
+        
+        /* Free the memory of the hash set and queue. */
+        stateSet.clear();
+        stateQueue.clear();
+      }
+    }
     
     /* Gets the difference between end time and start time to find total time taken to solve puzzle. */
     time = System.currentTimeMillis() - startTime;
@@ -0,0 +1,1316 @@
+package howard.puzzle;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Class for benchmarking the puzzle solvers on a fixed set of puzzles.
+ * A corpus of 3 x 3, 2 x 4, 4 x 4, 3 x 4 and 4 x 5 puzzles is made from a seed and saved to a file.
+ * The 3 x 3 and 2 x 4 puzzles are grouped by the length of their shortest solution, looked up in
+ * the distance table, and picked uniformly among all states of that length. The 4 x 4 puzzles are
+ * scrambled by random walks and grouped by the length of their shortest solution, found by IDA*
+ * with the walking distance. The larger puzzles are grouped by the length of the random walk that
+ * scrambled them, since their shortest solutions take too long to find.
+ * Every puzzle is solved to the goal state with the zero (blank space) in the top left corner.
+ * The solvers are then run on every puzzle of the corpus within a time limit, and the median and
+ * 99th percentile of the time and the states expanded, and the median peak of the heap above the
+ * heap in use before each solve, of each group are written to a report.
+ * Both files are tab separated text, so reports of two runs can be compared line by line,
+ * and a report can be compared against a saved baseline report.
+ * 
+ * The heuristics can be compared on a corpus as well: the time to estimate a state in full and
+ * incrementally from its previous state is measured, and the states expanded by an optimal
+ * (weight 1) A* search with each heuristic show how much better informed it is.
+ * The ways of keeping the distances of the pattern databases are compared the same way, along
+ * with the memory of the databases and their mean estimate.
+ * 
+ * The re-expansions of the iterative deepening searches can be compared as well: plain IDA*, IDA*
+ * with a transposition table and fringe search solve every puzzle, and the states they expand are
+ * set against the distinct states among them. The move orderings of the depth-first searches are
+ * compared by the states expanded in all and in the last iteration, the one that finds the goal state.
+ * 
+ * The manhattan distance evaluators of whole boards are compared on random boards of each shape,
+ * as arrays of numbers and, for the shapes that pack, as packed states. The first rounds warm up
+ * the compiler and the median of the rest is printed, in nanoseconds per board. The vector
+ * evaluator is only timed when the runtime is started with "--add-modules jdk.incubator.vector".
+ * 
+ * The startup of the puzzle maker is timed by running it in a new runtime on a few small puzzles,
+ * without class data sharing, with the archive of the Java runtime, and with an archive of the
+ * classes of the puzzle maker made by its training run. The time to the first line printed, to
+ * the first solution and to the end of the run are measured from starting the runtime.
+ * 
+ * Usage:
+ * "generate corpus-file seed puzzles-per-group" makes a corpus,
+ * "run corpus-file report-file [solvers] [baseline-file]" runs the solvers, a comma separated
+ * list of search types, every registered one when none are given, on the corpus and writes the report, and
+ * "heuristics corpus-file [heuristics] [timeout-ms]" compares the heuristics, a comma separated list
+ * of heuristic names, and
+ * "patterns corpus-file [compressions] [timeout-ms]" compares the ways of keeping the pattern
+ * database distances, a comma separated list such as "full,mod3,min4", and
+ * "reexpansions corpus-file [timeout-ms]" compares the iterative deepening searches, and
+ * "ordering corpus-file [orders] [timeout-ms]" compares the move orderings, a comma separated list
+ * of move ordering names, and
+ * "evaluators [shapes] [boards]" compares the manhattan distance evaluators, a comma separated
+ * list of shapes such as "4x4,5x5", and
+ * "startup jar-file [archive-file] [runs]" times runs of the puzzle maker of the jar file.
+ * 
+ * @author Shaun Howard
+ */
+public class Benchmark {
+  
+  /** The first line of a corpus file, with the version of its format. */
+  public static final String CORPUS_HEADER = "npuzzle-corpus\t2";
+  
+  /** The first line of a report file, with the version of its format. */
+  public static final String REPORT_HEADER = "npuzzle-report\t4";
+  
+  /** The time limit of each solve of a run in milliseconds, so the slow solvers give up on the harder groups. */
+  public static final long RUN_TIMEOUT = 10000;
+  
+  /** The rows and columns of the puzzles grouped by their shortest solution length. */
+  private static final int[][] EXACT_SHAPES = {{3, 3}, {2, 4}};
+  
+  /** The shortest solution lengths of the groups of the exact shapes. */
+  private static final int[] OPTIMAL_LENGTHS = {4, 8, 12, 16, 20, 24, 28};
+  
+  /** The rows and columns of the puzzles grouped by the shortest solution length of a search. */
+  private static final int[][] SEARCHED_SHAPES = {{4, 4}};
+  
+  /** The shortest solution lengths of the groups of the searched shapes. */
+  private static final int[] SEARCHED_LENGTHS = {10, 20, 30, 40, 50};
+  
+  /** The rows and columns of the puzzles grouped by their random walk length. */
+  private static final int[][] WALK_SHAPES = {{3, 4}, {4, 5}};
+  
+  /** The random walk lengths of the groups of the walk shapes. */
+  private static final int[] WALK_LENGTHS = {10, 20, 30, 40, 50};
+  
+  /** The heuristics compared when none are given. */
+  public static final String DEFAULT_HEURISTICS = "manhattan,linear,walking";
+  
+  /** The time limit of each search of the heuristic comparison in milliseconds, when none is given. */
+  public static final long DEFAULT_HEURISTIC_TIMEOUT = 10000;
+  
+  /** The iterative deepening searches compared by their re-expansions, plain IDA* being IDA* without a table. */
+  private static final String[] DEEPENING_SEARCHES = {"idastar", "idastar-tt", "fringe"};
+  
+  /** The ways of keeping the pattern database distances compared when none are given. */
+  public static final String DEFAULT_COMPRESSIONS = "full,mod3,min4,min16";
+  
+  /** The move orderings compared when none are given. */
+  public static final String DEFAULT_ORDERINGS = "fixed,heuristic,history";
+  
+  /** The shapes the evaluators are compared on when none are given. */
+  public static final String DEFAULT_EVALUATOR_SHAPES = "4x4,5x5";
+  
+  /** The number of random boards of each shape the evaluators are compared on, when none is given. */
+  public static final int DEFAULT_EVALUATOR_BOARDS = 4096;
+  
+  /** The number of rounds of evaluating every board, and the first of them that is timed. */
+  private static final int EVALUATOR_ROUNDS = 25;
+  private static final int EVALUATOR_WARMUP = 5;
+  
+  /** The inputs of the puzzle maker whose startup is timed. */
+  private static final String[] STARTUP_INPUTS = {"3x3 astar goal", "3x3 table goal", "4x4 wastar goal"};
+  
+  /** The number of runs of each input and runtime setting when none is given. */
+  public static final int DEFAULT_STARTUP_RUNS = 10;
+  
+  /** The seed of the puzzles of the startup runs, so every run solves the same puzzle. */
+  private static final long STARTUP_SEED = 1;
+  
+  /** The start of the line the puzzle maker prints once the puzzle is solved. */
+  private static final String SOLVED_LINE = "This solving technique took";
+  
+  /** The number of times every board is evaluated in a round. */
+  private static final int EVALUATOR_REPEATS = 50;
+  
+  /** The number of times every state of a group is estimated to time a heuristic. */
+  private static final int ESTIMATE_REPEATS = 20000;
+  
+  /** The number of bytes of a megabyte. */
+  private static final double MEGABYTE = 1024.0 * 1024.0;
+  
+  /** The change of a median time that counts as a regression, 10 percent. */
+  private static final double TIME_TOLERANCE = 1.10;
+  
+  /** The smallest change of a median time in milliseconds that counts as a regression, below timer noise. */
+  private static final double TIME_NOISE = 0.5;
+  
+  /** Nullary constructor. */
+  private Benchmark() {
+    
+  }
+  
+  /**
+   * Runs the benchmark.
+   * 
+   * @param args - "generate" or "run" followed by its arguments
+   */
+  public static void main(String[] args) {
+    try {
+      
+      /* Checks which command is entered. */
+      if (args.length == 4 && args[0].equals("generate")) {
+        generate(args[1], Long.parseLong(args[2]), Integer.parseInt(args[3]));
+      } else if (args.length >= 3 && args.length <= 5 && args[0].equals("run")) {
+        run(args[1], args[2], args.length > 3 ? args[3] : defaultSolvers(), args.length > 4 ? args[4] : null);
+      } else if (args.length >= 2 && args.length <= 4 && args[0].equals("heuristics")) {
+        compareHeuristics(args[1], args.length > 2 ? args[2] : DEFAULT_HEURISTICS,
+                          args.length > 3 ? Long.parseLong(args[3]) : DEFAULT_HEURISTIC_TIMEOUT);
+      } else if (args.length >= 2 && args.length <= 4 && args[0].equals("patterns")) {
+        comparePatterns(args[1], args.length > 2 ? args[2] : DEFAULT_COMPRESSIONS,
+                        args.length > 3 ? Long.parseLong(args[3]) : DEFAULT_HEURISTIC_TIMEOUT);
+      } else if (args.length >= 2 && args.length <= 3 && args[0].equals("reexpansions")) {
+        compareReexpansions(args[1], args.length > 2 ? Long.parseLong(args[2]) : DEFAULT_HEURISTIC_TIMEOUT);
+      } else if (args.length >= 2 && args.length <= 4 && args[0].equals("ordering")) {
+        compareOrderings(args[1], args.length > 2 ? args[2] : DEFAULT_ORDERINGS,
+                         args.length > 3 ? Long.parseLong(args[3]) : DEFAULT_HEURISTIC_TIMEOUT);
+      } else if (args.length >= 1 && args.length <= 3 && args[0].equals("evaluators")) {
+        compareEvaluators(args.length > 1 ? args[1] : DEFAULT_EVALUATOR_SHAPES,
+                          args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_EVALUATOR_BOARDS);
+      } else if (args.length >= 2 && args.length <= 4 && args[0].equals("startup")) {
+        compareStartup(args[1], args.length > 2 ? args[2] : null,
+                       args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_STARTUP_RUNS);
+      } else { //Otherwise, the arguments were entered incorrectly.
+        
+        System.err.println("Usage: generate corpus-file seed puzzles-per-group");
+        System.err.println("   or: run corpus-file report-file [solvers] [baseline-file]");
+        System.err.println("   or: heuristics corpus-file [heuristics] [timeout-ms]");
+        System.err.println("   or: patterns corpus-file [compressions] [timeout-ms]");
+        System.err.println("   or: reexpansions corpus-file [timeout-ms]");
+        System.err.println("   or: ordering corpus-file [orders] [timeout-ms]");
+        System.err.println("   or: evaluators [shapes] [boards]");
+        System.err.println("   or: startup jar-file [archive-file] [runs]");
+        System.exit(1);
+      }
+    } catch (IOException ioe) { //Catch exception when reading or writing the files.
+      System.err.println("Benchmark failed: " + ioe.getMessage());
+      System.exit(1);
+    }
+  }
+  
+  /**
+   * Makes a corpus of puzzles and writes it to a file.
+   * 
+   * @param file - the name of the corpus file
+   * @param seed - the seed of the puzzles
+   * @param count - the number of puzzles of each group
+   * @throws IOException when the file cannot be written
+   */
+  public static void generate(String file, long seed, int count) throws IOException {
+    
+    /* The random number generator picking the puzzles. */
+    SplittableRandom random = new SplittableRandom(seed);
+    
+    try (PrintWriter out = new PrintWriter(new FileWriter(file))) {
+      
+      /* Write the header. */
+      out.println(CORPUS_HEADER);
+      out.println("# seed " + seed + ", " + count + " puzzles per group");
+      out.println("shape\tgroup\texact\tnumbers");
+      
+      /* Pick the puzzles of the exact shapes by their shortest solution length. */
+      for (int[] shape : EXACT_SHAPES) {
+        writeExactGroups(out, random, GoalConfiguration.blankFirst(shape[0], shape[1]), count);
+      }
+      
+      /* Pick the puzzles of the searched shapes by the shortest solution length of random walks. */
+      Scrambler scrambler = new Scrambler(random.nextLong());
+      for (int[] shape : SEARCHED_SHAPES) {
+        writeSearchedGroups(out, random, scrambler, GoalConfiguration.blankFirst(shape[0], shape[1]), count);
+      }
+      
+      /* Scramble the puzzles of the walk shapes with random walks of each length. */
+      for (int[] shape : WALK_SHAPES) {
+        GoalConfiguration goal = GoalConfiguration.blankFirst(shape[0], shape[1]);
+        Puzzle puzzle = new Puzzle();
+        for (int length : WALK_LENGTHS) {
+          for (int i = 0; i < count; i++) {
+            puzzle.initialize(goal);
+            scrambler.walk(puzzle, length);
+            int[] numbers = new int[goal.getCells()];
+            for (int position = 0; position < numbers.length; position++) {
+              numbers[position] = puzzle.getNumber(position / goal.getColumns(), position % goal.getColumns());
+            }
+            writeLine(out, goal.getShape(), length, false, numbers);
+          }
+        }
+      }
+    }
+  }
+  
+  /**
+   * Writes the groups of puzzles of a shape picked uniformly by their shortest solution length.
+   * 
+   * @param out - the writer of the corpus file
+   * @param random - the random number generator picking the puzzles
+   * @param goal - the goal configuration of the puzzles
+   * @param count - the number of puzzles of each group
+   */
+  private static void writeExactGroups(PrintWriter out, SplittableRandom random, GoalConfiguration goal, int count) {
+    
+    /* Collect the ranks of the states by their shortest solution length. */
+    PermutationIndexer indexer = new PermutationIndexer(goal);
+    DistanceTable table = DistanceTable.getInstance(goal);
+    Map<Integer, List<Long>> byLength = new HashMap<Integer, List<Long>>();
+    for (int length : OPTIMAL_LENGTHS) {
+      byLength.put(length, new ArrayList<Long>());
+    }
+    for (long rank = 0; rank < indexer.size(); rank++) {
+      List<Long> ranks = byLength.get(table.distance(indexer.unrank(rank)));
+      if (ranks != null) {
+        ranks.add(rank);
+      }
+    }
+    
+    /* Pick the puzzles of each length uniformly. */
+    for (int length : OPTIMAL_LENGTHS) {
+      List<Long> ranks = byLength.get(length);
+      for (int i = 0; i < count && i < ranks.size(); i++) {
+        
+        /* Swap a random remaining rank to the front. */
+        int j = i + random.nextInt(ranks.size() - i);
+        Long swap = ranks.get(i);
+        ranks.set(i, ranks.get(j));
+        ranks.set(j, swap);
+        
+        /* Write the numbers of the state. */
+        long packed = indexer.unrank(ranks.get(i));
+        int[] numbers = new int[goal.getCells()];
+        for (int position = 0; position < numbers.length; position++) {
+          numbers[position] = PackedState.get(packed, position);
+        }
+        writeLine(out, goal.getShape(), length, true, numbers);
+      }
+    }
+  }
+  
+  /**
+   * Writes the groups of puzzles of a shape too large for a distance table, grouped by the length of
+   * their shortest solution. Puzzles are scrambled by random walks of the length of the group to
+   * twice that, and kept when IDA* finds a shortest solution of the length of the group. A walk
+   * keeps the parity of its length, so only walks of the parity of the group are made, and boards
+   * estimated above the length are thrown away without a search.
+   * 
+   * @param out - the writer of the corpus file
+   * @param random - the random number generator picking the walk lengths
+   * @param scrambler - the scrambler making the random walks
+   * @param goal - the goal configuration of the puzzles
+   * @param count - the number of puzzles of each group
+   */
+  private static void writeSearchedGroups(PrintWriter out, SplittableRandom random, Scrambler scrambler,
+                                          GoalConfiguration goal, int count) {
+    
+    /* Search with a solver of its own, so the settings of the shared solver are left alone. */
+    Heuristic heuristic = WalkingDistanceHeuristic.getInstance();
+    IDAStarSolver solver = (IDAStarSolver) SolverRegistry.newSolver("idastar");
+    solver.setVerbose(false);
+    solver.setHeuristic(heuristic);
+    
+    Puzzle puzzle = new Puzzle();
+    for (int length : SEARCHED_LENGTHS) {
+      for (int found = 0; found < count;) {
+        
+        /* Scramble the puzzle, and throw it away when it is surely farther than the length. */
+        puzzle.initialize(goal);
+        scrambler.walk(puzzle, length + 2 * random.nextInt(length / 2 + 1));
+        PuzzleState state = new PuzzleState(puzzle);
+        if (heuristic.estimate(state) > length) {
+          continue;
+        }
+        
+        /* Keep the puzzle when its shortest solution has the length of the group. */
+        SolveResult result = solver.solve(puzzle, 0, null, null);
+        if (result.getMoves() != null && result.getMoves().length() == length) {
+          writeLine(out, goal.getShape(), length, true, state.getNumbers());
+          found++;
+        }
+      }
+    }
+  }
+  
+  /**
+   * Writes a puzzle of a corpus.
+   * 
+   * @param out - the writer of the corpus file
+   * @param shape - the rows and columns of the puzzle, such as 3x4
+   * @param group - the solution length of the group of the puzzle
+   * @param exact - whether the length is the shortest solution length, or the random walk length
+   * @param numbers - the numbers of the puzzle in reading order
+   */
+  private static void writeLine(PrintWriter out, String shape, int group, boolean exact, int[] numbers) {
+    StringBuilder builder = new StringBuilder();
+    builder.append(shape).append('\t').append(group).append('\t').append(exact).append('\t');
+    for (int i = 0; i < numbers.length; i++) {
+      builder.append(i == 0 ? "" : ",").append(numbers[i]);
+    }
+    out.println(builder);
+  }
+  
+  /**
+   * Runs solvers on every puzzle of a corpus and writes a report.
+   * When a solver leaves puzzles of a group unsolved, it skips the longer groups of that shape.
+   * 
+   * @param corpusFile - the name of the corpus file
+   * @param reportFile - the name of the report file
+   * @param solverNames - the search types of the solvers, separated by commas
+   * @param baselineFile - the name of the baseline report to compare to, null for none
+   * @throws IOException when a file cannot be read or written
+   */
+  public static void run(String corpusFile, String reportFile, String solverNames, String baselineFile)
+      throws IOException {
+    
+    /* Read the groups of puzzles of the corpus. */
+    List<Group> groups = readCorpus(corpusFile);
+    
+    /* The pools of the heap, for measuring the peak of the heap during each solve. */
+    List<MemoryPoolMXBean> heapPools = new ArrayList<MemoryPoolMXBean>();
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP) {
+        heapPools.add(pool);
+      }
+    }
+    
+    /* The lines of the report. */
+    List<String> lines = new ArrayList<String>();
+    lines.add(REPORT_HEADER);
+    lines.add("solver\tshape\tgroup\texact\tpuzzles\tsolved\tmedian_ms\tp99_ms\tmedian_nodes\tp99_nodes"
+                + "\tmedian_length\tmedian_peak_heap_mb");
+    
+    for (String name : solverNames.split(",")) {
+      
+      /* Make sure the solver exists. */
+      PuzzleSolver solver = SolverRegistry.get(name);
+      if (solver == null) {
+        throw new IllegalArgumentException("No solver of search type " + name + ", try " + SolverRegistry.getNames());
+      }
+      
+      /* Turn off printing, so only the search is timed. */
+      boolean verbose = solver.isVerbose();
+      solver.setVerbose(false);
+      
+      /* Warm up the solver on the first group of each shape, so the timed solves run compiled code. */
+      for (int i = 0; i < groups.size(); i++) {
+        if (i == 0 || !groups.get(i).shape.equals(groups.get(i - 1).shape)) {
+          for (int[][] puzzleArray : groups.get(i).puzzles) {
+            Puzzle puzzle = Puzzle.getInstance();
+            puzzle.initialize(puzzleArray, groups.get(i).goal);
+            solver.solve(puzzle, RUN_TIMEOUT, null, null);
+          }
+        }
+      }
+      
+      /* The shape of the puzzles the solver gave up on, null for none. */
+      String failedShape = null;
+      
+      for (Group group : groups) {
+        
+        /* Skip the longer groups of a shape the solver could not solve. */
+        if (group.shape.equals(failedShape)) {
+          continue;
+        }
+        
+        /* The measures of each puzzle of the group. */
+        int n = group.puzzles.size();
+        long[] times = new long[n];
+        long[] expanded = new long[n];
+        long[] lengths = new long[n];
+        long[] peaks = new long[n];
+        int solved = 0;
+        
+        for (int i = 0; i < n; i++) {
+          
+          /* Make the puzzle. */
+          Puzzle puzzle = Puzzle.getInstance();
+          puzzle.initialize(group.puzzles.get(i), group.goal);
+          
+          /* Collect the garbage of the last solve, so it is not collected while this solve is timed. */
+          System.gc();
+          
+          /* Solve the puzzle within the time limit, measuring the time and the peak of the heap. */
+          long before = resetPeaks(heapPools);
+          long start = System.nanoTime();
+          SolveResult result;
+          try {
+            result = solver.solve(puzzle, RUN_TIMEOUT, null, null);
+          } catch (OutOfMemoryError oome) { //Catch running out of memory, the puzzle is unsolved.
+            result = new SolveResult(SolveResult.Status.OUT_OF_RESOURCES, null, solver.getExpanded(), 0, RUN_TIMEOUT);
+          }
+          times[i] = System.nanoTime() - start;
+          peaks[i] = Math.max(0, peakUsed(heapPools) - before);
+          expanded[i] = result.getExpanded();
+          
+          /* Count the puzzle as solved when moves were found. */
+          if (result.getMoves() != null) {
+            lengths[solved++] = result.getMoves().length();
+          }
+        }
+        
+        /* Add the line of the group. */
+        lines.add(String.format(Locale.ROOT, "%s\t%s\t%d\t%b\t%d\t%d\t%.3f\t%.3f\t%d\t%d\t%d\t%.3f",
+                                name, group.shape, group.length, group.exact, n, solved,
+                                percentile(times, n, 0.5) / 1e6, percentile(times, n, 0.99) / 1e6,
+                                percentile(expanded, n, 0.5), percentile(expanded, n, 0.99),
+                                percentile(lengths, solved, 0.5), percentile(peaks, n, 0.5) / MEGABYTE));
+        
+        /* Give up on the longer groups when puzzles were left unsolved. */
+        if (solved < n) {
+          failedShape = group.shape;
+        }
+      }
+      
+      /* Turn printing back to what it was. */
+      solver.setVerbose(verbose);
+    }
+    
+    /* Write the report. */
+    try (PrintWriter out = new PrintWriter(new FileWriter(reportFile))) {
+      for (String line : lines) {
+        out.println(line);
+        System.out.println(line);
+      }
+    }
+    
+    /* Compare the report to the baseline, if one is given. */
+    if (baselineFile != null) {
+      compare(readReport(baselineFile), lines);
+    }
+  }
+  
+  /**
+   * Compares heuristics on every puzzle of a corpus and prints a line for every group: the
+   * nanoseconds to estimate the states one move from the puzzles in full and incrementally, and
+   * the time, states expanded and solution length of an optimal A* search with the heuristic.
+   * When a search leaves puzzles of a group unsolved in its time limit, the longer groups of
+   * that shape are skipped.
+   * 
+   * @param corpusFile - the name of the corpus file
+   * @param heuristicNames - the names of the heuristics, separated by commas
+   * @param timeout - the time limit of each search in milliseconds
+   * @throws IOException when the corpus cannot be read
+   */
+  public static void compareHeuristics(String corpusFile, String heuristicNames, long timeout) throws IOException {
+    
+    /* Read the groups of puzzles of the corpus. */
+    List<Group> groups = readCorpus(corpusFile);
+    
+    /* Search optimally with the weighted A* solver, and put its settings back afterwards. */
+    WeightedAStarSolver solver = WeightedAStarSolver.getInstance();
+    Heuristic solverHeuristic = solver.getHeuristic();
+    double solverWeight = solver.getWeight();
+    solver.setWeight(1);
+    
+    System.out.println("heuristic\tshape\tgroup\texact\tpuzzles\tsolved\tmedian_ms\tmedian_nodes\tmedian_length"
+                         + "\tfull_ns\tincremental_ns");
+    try {
+      for (String name : heuristicNames.split(",")) {
+        
+        /* Make sure the heuristic exists. */
+        Heuristic heuristic = Heuristic.forName(name);
+        if (heuristic == null) {
+          throw new IllegalArgumentException("No heuristic named " + name + ", try " + Arrays.toString(Heuristic.NAMES));
+        }
+        solver.setHeuristic(heuristic);
+        
+        /* The shape of the puzzles the search gave up on, null for none. */
+        String failedShape = null;
+        
+        for (Group group : groups) {
+          
+          /* Skip the longer groups of a shape the search could not solve. */
+          if (group.shape.equals(failedShape)) {
+            continue;
+          }
+          
+          /* Time the estimates of the states one move from the puzzles of the group. */
+          long[] costs = timeEstimates(heuristic, group);
+          
+          /* Solve the puzzles of the group. */
+          int n = group.puzzles.size();
+          long[] medians = solveGroup(solver, group, timeout);
+          
+          System.out.println(String.format(Locale.ROOT, "%s\t%s\t%d\t%b\t%d\t%d\t%d\t%d\t%d\t%.1f\t%.1f",
+                                           name, group.shape, group.length, group.exact, n, medians[0],
+                                           medians[1], medians[2], medians[3], costs[0] / 10.0, costs[1] / 10.0));
+          
+          /* Give up on the longer groups when puzzles were left unsolved. */
+          if (medians[0] < n) {
+            failedShape = group.shape;
+          }
+        }
+      }
+    } finally {
+      
+      /* Put the settings of the solver back. */
+      solver.setHeuristic(solverHeuristic);
+      solver.setWeight(solverWeight);
+    }
+  }
+  
+  /**
+   * Compares the ways of keeping the distances of the pattern databases on every puzzle of a
+   * corpus, and prints a line for every group: the bytes of the databases of its goal, their mean
+   * estimate of the puzzles, the time to estimate a state in full and incrementally, and the
+   * time, states expanded and solution length of the median puzzle solved by an optimal (weight 1)
+   * A* search. The groups of more than 16 positions are skipped, since their databases take
+   * too long to build for a benchmark, and when a search leaves puzzles of a group unsolved in
+   * its time limit, the longer groups of that shape are skipped.
+   * 
+   * @param corpusFile - the name of the corpus file
+   * @param compressions - the ways of keeping the distances, separated by commas
+   * @param timeout - the time limit of each search in milliseconds
+   * @throws IOException when the corpus cannot be read
+   */
+  public static void comparePatterns(String corpusFile, String compressions, long timeout) throws IOException {
+    
+    /* Read the groups of puzzles of the corpus. */
+    List<Group> groups = readCorpus(corpusFile);
+    
+    /* Search optimally with the weighted A* solver, and put its settings back afterwards. */
+    WeightedAStarSolver solver = WeightedAStarSolver.getInstance();
+    Heuristic solverHeuristic = solver.getHeuristic();
+    double solverWeight = solver.getWeight();
+    solver.setWeight(1);
+    
+    System.out.println("compression\tshape\tgroup\texact\tpuzzles\tbytes\tmean_estimate\tsolved\tmedian_ms"
+                         + "\tmedian_nodes\tmedian_length\tfull_ns\tincremental_ns");
+    try {
+      for (String compression : compressions.split(",")) {
+        PatternHeuristic heuristic = PatternHeuristic.getInstance(compression);
+        solver.setHeuristic(heuristic);
+        
+        /* The shape of the puzzles the search gave up on, null for none. */
+        String failedShape = null;
+        
+        for (Group group : groups) {
+          
+          /* Skip the larger shapes, and the longer groups of a shape the search could not solve. */
+          if (group.goal.getCells() > PackedState.MAX_CELLS || group.shape.equals(failedShape)) {
+            continue;
+          }
+          
+          /* The memory of the databases of the goal, made or read before anything is timed. */
+          long bytes = 0;
+          for (PatternDatabase database : heuristic.getDatabases(group.goal)) {
+            bytes += database.getBytes();
+          }
+          
+          /* The mean estimate of the puzzles, the higher the better informed. */
+          int n = group.puzzles.size();
+          long estimates = 0;
+          for (int[][] puzzleArray : group.puzzles) {
+            Puzzle puzzle = new Puzzle();
+            puzzle.initialize(puzzleArray, group.goal);
+            estimates += heuristic.estimate(new PuzzleState(puzzle));
+          }
+          
+          /* Time the estimates of the states one move from the puzzles of the group, then solve them. */
+          long[] costs = timeEstimates(heuristic, group);
+          long[] medians = solveGroup(solver, group, timeout);
+          
+          System.out.println(String.format(Locale.ROOT, "%s\t%s\t%d\t%b\t%d\t%d\t%.2f\t%d\t%d\t%d\t%d\t%.1f\t%.1f",
+                                           compression, group.shape, group.length, group.exact, n, bytes,
+                                           (double) estimates / n, medians[0], medians[1], medians[2], medians[3],
+                                           costs[0] / 10.0, costs[1] / 10.0));
+          
+          /* Give up on the longer groups when puzzles were left unsolved. */
+          if (medians[0] < n) {
+            failedShape = group.shape;
+          }
+        }
+      }
+    } finally {
+      
+      /* Put the settings of the solver back. */
+      solver.setHeuristic(solverHeuristic);
+      solver.setWeight(solverWeight);
+    }
+  }
+  
+  /**
+   * Solves every puzzle of a group with a solver.
+   * 
+   * @param solver - the solver, with its heuristic and weight set
+   * @param group - the group of puzzles
+   * @param timeout - the time limit of each search in milliseconds
+   * @return the puzzles solved, and the median milliseconds, states expanded and solution length
+   */
+  private static long[] solveGroup(WeightedAStarSolver solver, Group group, long timeout) {
+    int n = group.puzzles.size();
+    long[] times = new long[n];
+    long[] expanded = new long[n];
+    long[] lengths = new long[n];
+    int solved = 0;
+    for (int i = 0; i < n; i++) {
+      Puzzle puzzle = new Puzzle();
+      puzzle.initialize(group.puzzles.get(i), group.goal);
+      SolveResult result;
+      try {
+        result = solver.solve(puzzle, timeout, null, null);
+      } catch (OutOfMemoryError oome) { //Catch running out of memory, the puzzle is unsolved.
+        result = new SolveResult(SolveResult.Status.OUT_OF_RESOURCES, null, solver.getExpanded(), 0, timeout);
+      }
+      times[i] = result.getTime();
+      expanded[i] = result.getExpanded();
+      if (result.getMoves() != null) {
+        lengths[solved++] = result.getMoves().length();
+      }
+    }
+    return new long[] {solved, percentile(times, n, 0.5), percentile(expanded, n, 0.5), percentile(lengths, solved, 0.5)};
+  }
+  
+  /**
+   * Compares the re-expansions of the iterative deepening searches on every puzzle of a corpus
+   * and prints a line for every group: the time, states expanded and distinct states expanded of
+   * the median puzzle, and the ratio of all states expanded to all distinct states of the group.
+   * When a search leaves puzzles of a group unsolved in its time limit, the longer groups of that
+   * shape are skipped.
+   * 
+   * @param corpusFile - the name of the corpus file
+   * @param timeout - the time limit of each search in milliseconds
+   * @throws IOException when the corpus cannot be read
+   */
+  public static void compareReexpansions(String corpusFile, long timeout) throws IOException {
+    
+    /* Read the groups of puzzles of the corpus. */
+    List<Group> groups = readCorpus(corpusFile);
+    
+    /* Count the distinct states of IDA*, and put its settings back afterwards. */
+    IDAStarSolver idaStar = IDAStarSolver.getInstance();
+    long tableBytes = idaStar.getTranspositionBytes();
+    idaStar.setCountDistinct(true);
+    
+    System.out.println("search\tshape\tgroup\texact\tpuzzles\tsolved\tmedian_ms\tmedian_nodes\tmedian_distinct"
+                         + "\treexpansion_ratio");
+    try {
+      for (String name : DEEPENING_SEARCHES) {
+        
+        /* Pick the solver and the table of the search. */
+        IDAStarSolver solver = name.equals("fringe") ? IDAStarSolver.getFringeInstance() : idaStar;
+        if (solver == idaStar) {
+          idaStar.setTranspositionBytes(name.equals("idastar") ? 0 : tableBytes);
+        }
+        
+        /* The shape of the puzzles the search gave up on, null for none. */
+        String failedShape = null;
+        
+        for (Group group : groups) {
+          
+          /* Skip the longer groups of a shape the search could not solve, and the shapes it cannot pack. */
+          if (group.shape.equals(failedShape) || group.goal.getCells() > PackedState.MAX_CELLS) {
+            continue;
+          }
+          
+          /* Solve the puzzles of the group. */
+          int n = group.puzzles.size();
+          long[] times = new long[n];
+          long[] expanded = new long[n];
+          long[] distinct = new long[n];
+          long totalExpanded = 0;
+          long totalDistinct = 0;
+          int solved = 0;
+          for (int i = 0; i < n; i++) {
+            Puzzle puzzle = new Puzzle();
+            puzzle.initialize(group.puzzles.get(i), group.goal);
+            SolveResult result;
+            try {
+              result = solver.solve(puzzle, timeout, null, null);
+            } catch (OutOfMemoryError oome) { //Catch running out of memory, the puzzle is unsolved.
+              result = new SolveResult(SolveResult.Status.OUT_OF_RESOURCES, null, solver.getExpanded(), 0, timeout);
+            }
+            times[i] = result.getTime();
+            expanded[i] = result.getExpanded();
+            distinct[i] = solver.getDistinct();
+            totalExpanded += expanded[i];
+            totalDistinct += distinct[i];
+            if (result.getMoves() != null) {
+              solved++;
+            }
+          }
+          
+          System.out.println(String.format(Locale.ROOT, "%s\t%s\t%d\t%b\t%d\t%d\t%d\t%d\t%d\t%.2f",
+                                           name, group.shape, group.length, group.exact, n, solved,
+                                           percentile(times, n, 0.5), percentile(expanded, n, 0.5),
+                                           percentile(distinct, n, 0.5),
+                                           totalDistinct == 0 ? 0 : (double) totalExpanded / totalDistinct));
+          
+          /* Give up on the longer groups when puzzles were left unsolved. */
+          if (solved < n) {
+            failedShape = group.shape;
+          }
+        }
+      }
+    } finally {
+      
+      /* Put the settings of the solver back. */
+      idaStar.setTranspositionBytes(tableBytes);
+      idaStar.setCountDistinct(false);
+    }
+  }
+  
+  /**
+   * Compares move orderings of the depth-first solver and IDA* on every puzzle of a corpus and
+   * prints a line for every group: the time, states expanded and states expanded in the last
+   * iteration of the median puzzle. When a search leaves puzzles of a group unsolved in its time
+   * limit, the longer groups of that shape are skipped.
+   * 
+   * @param corpusFile - the name of the corpus file
+   * @param orderingNames - the names of the move orderings, separated by commas
+   * @param timeout - the time limit of each search in milliseconds
+   * @throws IOException when the corpus cannot be read
+   */
+  public static void compareOrderings(String corpusFile, String orderingNames, long timeout) throws IOException {
+    
+    /* Read the groups of puzzles of the corpus. */
+    List<Group> groups = readCorpus(corpusFile);
+    
+    /* Put the orderings of the solvers back afterwards. */
+    DFSSolver dfs = DFSSolver.getInstance();
+    IDAStarSolver idaStar = IDAStarSolver.getInstance();
+    MoveOrdering dfsOrdering = dfs.getMoveOrdering();
+    MoveOrdering idaStarOrdering = idaStar.getMoveOrdering();
+    
+    System.out.println("search\tordering\tshape\tgroup\texact\tpuzzles\tsolved\tmedian_ms\tmedian_nodes"
+                         + "\tmedian_last_nodes");
+    try {
+      for (String search : new String[] {"dfs", "idastar"}) {
+        for (String name : orderingNames.split(",")) {
+          
+          /* Make sure the ordering exists. */
+          MoveOrdering ordering = MoveOrdering.forName(name);
+          if (ordering == null) {
+            throw new IllegalArgumentException("No move ordering named " + name + ", try "
+                                                 + Arrays.toString(MoveOrdering.NAMES));
+          }
+          PuzzleSolver solver;
+          if (search.equals("dfs")) {
+            dfs.setMoveOrdering(ordering);
+            solver = dfs;
+          } else { //Otherwise, IDA* is compared.
+            
+            idaStar.setMoveOrdering(ordering);
+            solver = idaStar;
+          }
+          boolean verbose = solver.isVerbose();
+          solver.setVerbose(false);
+          
+          /* The shape of the puzzles the search gave up on, null for none. */
+          String failedShape = null;
+          
+          for (Group group : groups) {
+            
+            /* Skip the longer groups of a shape the search could not solve, and the shapes IDA* cannot pack. */
+            if (group.shape.equals(failedShape)
+                || (solver == idaStar && group.goal.getCells() > PackedState.MAX_CELLS)) {
+              continue;
+            }
+            
+            /* Solve the puzzles of the group. */
+            int n = group.puzzles.size();
+            long[] times = new long[n];
+            long[] expanded = new long[n];
+            long[] last = new long[n];
+            int solved = 0;
+            for (int i = 0; i < n; i++) {
+              Puzzle puzzle = new Puzzle();
+              puzzle.initialize(group.puzzles.get(i), group.goal);
+              SolveResult result;
+              try {
+                result = solver.solve(puzzle, timeout, null, null);
+              } catch (OutOfMemoryError oome) { //Catch running out of memory, the puzzle is unsolved.
+                result = new SolveResult(SolveResult.Status.OUT_OF_RESOURCES, null, solver.getExpanded(), 0, timeout);
+              }
+              times[i] = result.getTime();
+              expanded[i] = result.getExpanded();
+              last[i] = solver == dfs ? dfs.getLastIterationExpanded() : idaStar.getLastIterationExpanded();
+              if (result.getMoves() != null) {
+                solved++;
+              }
+            }
+            
+            System.out.println(String.format(Locale.ROOT, "%s\t%s\t%s\t%d\t%b\t%d\t%d\t%d\t%d\t%d",
+                                             search, name, group.shape, group.length, group.exact, n, solved,
+                                             percentile(times, n, 0.5), percentile(expanded, n, 0.5),
+                                             percentile(last, n, 0.5)));
+            
+            /* Give up on the longer groups when puzzles were left unsolved. */
+            if (solved < n) {
+              failedShape = group.shape;
+            }
+          }
+          solver.setVerbose(verbose);
+        }
+      }
+    } finally {
+      
+      /* Put the orderings of the solvers back. */
+      dfs.setMoveOrdering(dfsOrdering);
+      idaStar.setMoveOrdering(idaStarOrdering);
+    }
+  }
+  
+  /**
+   * Compares the manhattan distance evaluators on random boards of each shape, to the blank first
+   * and blank last goals, and prints a line for every evaluator, shape, goal and kind of board:
+   * the median nanoseconds to evaluate a board and how many times faster it is than the scalar
+   * evaluator. The evaluators must agree on the distance of every board.
+   * 
+   * @param shapes - the shapes of the boards, such as "4x4", separated by commas
+   * @param count - the number of random boards of each shape
+   */
+  public static void compareEvaluators(String shapes, int count) {
+    SplittableRandom random = new SplittableRandom(count);
+    if (!ManhattanEvaluator.isVectorAvailable()) {
+      System.err.println("The vector evaluator is not timed, compile src-vector and start the runtime with --add-modules "
+                           + ManhattanEvaluator.VECTOR_MODULE);
+    }
+    
+    System.out.println("evaluator\tshape\tgoal\tboards\tpacked\tmedian_ns\tspeedup");
+    for (String shape : shapes.split(",")) {
+      int[] dimensions = GoalConfiguration.parseShape(shape);
+      for (String name : new String[] {"first", "last"}) {
+        GoalConfiguration goal = GoalConfiguration.of(name, dimensions[0], dimensions[1]);
+        int cells = goal.getCells();
+        
+        /* Random boards of the shape, any arrangement of the numbers will do for timing. */
+        int[][] boards = new int[count][];
+        long[] packed = new long[count];
+        for (int i = 0; i < count; i++) {
+          boards[i] = goal.getNumbers();
+          for (int position = cells - 1; position > 0; position--) {
+            int other = random.nextInt(position + 1);
+            int number = boards[i][position];
+            boards[i][position] = boards[i][other];
+            boards[i][other] = number;
+          }
+          for (int position = 0; position < cells && cells <= PackedState.MAX_CELLS; position++) {
+            packed[i] |= (long) boards[i][position] << (4 * position);
+          }
+        }
+        
+        /* The scalar evaluator, and the vector evaluator when the runtime has it. */
+        List<ManhattanEvaluator> evaluators = new ArrayList<ManhattanEvaluator>();
+        evaluators.add(new ScalarManhattanEvaluator(goal));
+        ManhattanEvaluator evaluator = ManhattanEvaluator.forGoal(goal);
+        if (!(evaluator instanceof ScalarManhattanEvaluator)) {
+          evaluators.add(evaluator);
+        }
+        
+        for (boolean pack : new boolean[] {false, true}) {
+          
+          /* Only the shapes of up to 16 positions pack. */
+          if (pack && cells > PackedState.MAX_CELLS) {
+            continue;
+          }
+          
+          long scalarTime = 0;
+          long scalarSum = 0;
+          for (ManhattanEvaluator timed : evaluators) {
+            long[] times = new long[EVALUATOR_ROUNDS - EVALUATOR_WARMUP];
+            long sum = 0;
+            for (int round = 0; round < EVALUATOR_ROUNDS; round++) {
+              sum = 0;
+              long start = System.nanoTime();
+              for (int repeat = 0; repeat < EVALUATOR_REPEATS; repeat++) {
+                for (int i = 0; i < count; i++) {
+                  sum += pack ? timed.distance(packed[i]) : timed.distance(boards[i]);
+                }
+              }
+              if (round >= EVALUATOR_WARMUP) {
+                times[round - EVALUATOR_WARMUP] = System.nanoTime() - start;
+              }
+            }
+            long time = percentile(times, times.length, 0.5);
+            
+            /* Make sure the evaluators agree, which also keeps the sums alive. */
+            if (timed == evaluators.get(0)) {
+              scalarTime = time;
+              scalarSum = sum;
+            } else if (sum != scalarSum) {
+              throw new IllegalStateException("The evaluators disagree on " + shape + " boards: " + sum + " != " + scalarSum);
+            }
+            
+            System.out.println(String.format(Locale.ROOT, "%s\t%s\t%s\t%d\t%b\t%.2f\t%.2f",
+                                             timed instanceof ScalarManhattanEvaluator ? "scalar" : "vector",
+                                             shape, name, count, pack,
+                                             (double) time / ((long) EVALUATOR_REPEATS * count),
+                                             (double) scalarTime / time));
+          }
+        }
+      }
+    }
+  }
+  
+  /**
+   * Times runs of the puzzle maker of a jar file, each in a new runtime, and prints a line for
+   * every input and runtime setting: the median milliseconds from starting the runtime to the
+   * first line printed, to the solution, and to the end of the run. The runtimes are started
+   * without class data sharing, with the default archive of the Java runtime and, when an
+   * archive file is given, with that archive. The properties of this runtime starting with
+   * "puzzle." are passed on, so the runs use the same tables.
+   * 
+   * @param jarFile - the name of the jar file of the puzzle maker
+   * @param archiveFile - the name of the class data sharing archive, null for none
+   * @param runs - the number of runs of each input and setting
+   * @throws IOException when a runtime cannot be started
+   */
+  public static void compareStartup(String jarFile, String archiveFile, int runs) throws IOException {
+    
+    /* The runtime settings compared, the archive only when it exists. */
+    List<String[]> settings = new ArrayList<String[]>();
+    settings.add(new String[] {"off", "-Xshare:off"});
+    settings.add(new String[] {"default", "-Xshare:auto"});
+    if (archiveFile != null) {
+      if (!new File(archiveFile).isFile()) {
+        throw new IOException("No archive " + archiveFile + ", make it with: java -XX:ArchiveClassesAtExit="
+                              + archiveFile + " -jar " + jarFile + " train");
+      }
+      settings.add(new String[] {"archive", "-XX:SharedArchiveFile=" + archiveFile});
+    }
+    
+    /* The settings of this runtime passed on to every run. */
+    List<String> properties = new ArrayList<String>();
+    properties.add("-D" + Puzzle.SEED_PROPERTY + "=" + STARTUP_SEED);
+    for (String name : System.getProperties().stringPropertyNames()) {
+      if (name.startsWith("puzzle.") && !name.equals(Puzzle.SEED_PROPERTY)) {
+        properties.add("-D" + name + "=" + System.getProperty(name));
+      }
+    }
+    String java = new File(new File(System.getProperty("java.home"), "bin"), "java").getPath();
+    
+    System.out.println("input\tsharing\truns\tfirst_output_ms\tsolution_ms\texit_ms");
+    for (String input : STARTUP_INPUTS) {
+      for (String[] setting : settings) {
+        long[] firstOutputs = new long[runs];
+        long[] solutions = new long[runs];
+        long[] exits = new long[runs];
+        for (int run = 0; run < runs; run++) {
+          List<String> command = new ArrayList<String>();
+          command.add(java);
+          command.add(setting[1]);
+          command.addAll(properties);
+          command.add("-jar");
+          command.add(jarFile);
+          
+          /* Start the runtime and enter the input. */
+          long start = System.nanoTime();
+          Process process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.DISCARD).start();
+          try (PrintWriter in = new PrintWriter(process.getOutputStream())) {
+            in.println(input);
+          }
+          
+          /* Read the output to the end, noting when the first line and the solution are printed. */
+          try (BufferedReader out = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = out.readLine()) != null) {
+              long time = System.nanoTime() - start;
+              if (firstOutputs[run] == 0) {
+                firstOutputs[run] = time;
+              }
+              if (solutions[run] == 0 && line.startsWith(SOLVED_LINE)) {
+                solutions[run] = time;
+              }
+            }
+          }
+          try {
+            process.waitFor();
+          } catch (InterruptedException ie) { //Catch interruption while waiting, the run is stopped.
+            process.destroy();
+            Thread.currentThread().interrupt();
+            return;
+          }
+          exits[run] = System.nanoTime() - start;
+        }
+        
+        System.out.println(String.format(Locale.ROOT, "%s\t%s\t%d\t%.1f\t%.1f\t%.1f", input, setting[0], runs,
+                                         percentile(firstOutputs, runs, 0.5) / 1e6,
+                                         percentile(solutions, runs, 0.5) / 1e6,
+                                         percentile(exits, runs, 0.5) / 1e6));
+      }
+    }
+  }
+  
+  /**
+   * Times a heuristic on the states one move from the puzzles of a group, estimating each
+   * state in full and incrementally from the puzzle it was made from.
+   * 
+   * @param heuristic - the heuristic to time
+   * @param group - the group of puzzles
+   * @return the tenths of nanoseconds of a full and of an incremental estimate
+   */
+  private static long[] timeEstimates(Heuristic heuristic, Group group) {
+    
+    /* The states one move from the puzzles, and the estimates of the puzzles they were made from. */
+    List<PuzzleState> states = new ArrayList<PuzzleState>();
+    List<Integer> previousEstimates = new ArrayList<Integer>();
+    for (int[][] puzzleArray : group.puzzles) {
+      Puzzle puzzle = new Puzzle();
+      puzzle.initialize(puzzleArray, group.goal);
+      PuzzleState state = new PuzzleState(puzzle);
+      int estimate = heuristic.estimate(state);
+      for (PuzzleState next : new PuzzleState[] {PuzzleState.moveUp(state), PuzzleState.moveDown(state),
+                                                 PuzzleState.moveLeft(state), PuzzleState.moveRight(state)}) {
+        if (next != null) {
+          states.add(next);
+          previousEstimates.add(estimate);
+        }
+      }
+    }
+    
+    /* The sum of the estimates, printed so the estimates cannot be optimized away. */
+    long sum = 0;
+    
+    /* Estimate every state in full, then incrementally, the first round warming up. */
+    long[] costs = new long[2];
+    for (int round = 0; round < 2; round++) {
+      long start = System.nanoTime();
+      for (int repeat = 0; repeat < ESTIMATE_REPEATS; repeat++) {
+        for (PuzzleState state : states) {
+          sum += heuristic.estimate(state);
+        }
+      }
+      costs[0] = (System.nanoTime() - start) * 10 / ((long) ESTIMATE_REPEATS * states.size());
+      start = System.nanoTime();
+      for (int repeat = 0; repeat < ESTIMATE_REPEATS; repeat++) {
+        for (int k = 0; k < states.size(); k++) {
+          sum += heuristic.estimate(states.get(k), previousEstimates.get(k));
+        }
+      }
+      costs[1] = (System.nanoTime() - start) * 10 / ((long) ESTIMATE_REPEATS * states.size());
+    }
+    
+    /* Keep the sum alive. */
+    if (sum == Long.MIN_VALUE) {
+      System.out.println(sum);
+    }
+    
+    return costs;
+  }
+  
+  /**
+   * Starts the peak usage of the heap pools over from their usage now.
+   * 
+   * @param heapPools - the memory pools of the heap
+   * @return the bytes of the heap in use now
+   */
+  private static long resetPeaks(List<MemoryPoolMXBean> heapPools) {
+    long used = 0;
+    for (MemoryPoolMXBean pool : heapPools) {
+      pool.resetPeakUsage();
+      used += pool.getUsage().getUsed();
+    }
+    return used;
+  }
+  
+  /**
+   * Sums the peak usage of the heap pools since they were last reset. The pools peak at different
+   * times, so the sum is at most a little above the peak of the whole heap.
+   * 
+   * @param heapPools - the memory pools of the heap
+   * @return the bytes of the peak usage of the heap pools
+   */
+  private static long peakUsed(List<MemoryPoolMXBean> heapPools) {
+    long used = 0;
+    for (MemoryPoolMXBean pool : heapPools) {
+      used += pool.getPeakUsage().getUsed();
+    }
+    return used;
+  }
+  
+  /**
+   * Returns the solvers run when none are given, every registered search type. Each solve has a
+   * time limit, so the slow searches give up on the harder groups instead of holding up the run.
+   * 
+   * @return the search types separated by commas
+   */
+  public static String defaultSolvers() {
+    return String.join(",", SolverRegistry.getNames());
+  }
+  
+  /**
+   * Returns a percentile of the first values of an array, by the nearest rank.
+   * 
+   * @param values - the values, which are sorted in place
+   * @param count - the number of values to use from the start of the array
+   * @param fraction - the percentile as a fraction, 0.5 for the median
+   * @return the value at the percentile, 0 when there are no values
+   */
+  private static long percentile(long[] values, int count, double fraction) {
+    
+    /* There is no percentile of no values. */
+    if (count == 0) {
+      return 0;
+    }
+    
+    Arrays.sort(values, 0, count);
+    return values[Math.max(0, (int) Math.ceil(fraction * count) - 1)];
+  }
+  
+  /**
+   * Prints the change of every group of a report from the baseline report, marking regressions:
+   * fewer puzzles solved, more states expanded, or a median time more than 10 percent
+   * and half a millisecond slower.
+   * 
+   * @param baseline - the lines of the baseline report by solver, shape and group
+   * @param lines - the lines of the new report
+   */
+  private static void compare(Map<String, String[]> baseline, List<String> lines) {
+    System.out.println("solver\tshape\tgroup\tsolved\tmedian_ms\tmedian_nodes\tmedian_peak_heap_mb\tstatus");
+    
+    /* Compare the group lines, skipping the two header lines. */
+    for (String line : lines.subList(2, lines.size())) {
+      String[] now = line.split("\t");
+      String[] old = baseline.get(key(now));
+      
+      /* Groups that are not in the baseline are new. */
+      if (old == null) {
+        System.out.println(now[0] + "\t" + now[1] + "\t" + now[2] + "\t\t\t\t\tnew");
+        continue;
+      }
+      
+      /* Checks if the group got worse. */
+      boolean regression = Integer.parseInt(now[5]) < Integer.parseInt(old[5])
+                             || Long.parseLong(now[8]) > Long.parseLong(old[8])
+                             || Double.parseDouble(now[6]) > Math.max(TIME_TOLERANCE * Double.parseDouble(old[6]),
+                                                                      Double.parseDouble(old[6]) + TIME_NOISE);
+      
+      System.out.println(now[0] + "\t" + now[1] + "\t" + now[2] + "\t" + old[5] + " -> " + now[5]
+                           + "\t" + old[6] + " -> " + now[6] + "\t" + old[8] + " -> " + now[8]
+                           + "\t" + old[11] + " -> " + now[11] + "\t" + (regression ? "REGRESSION" : "ok"));
+    }
+  }
+  
+  /**
+   * Returns the key of a line of a report, its solver, shape and group.
+   * 
+   * @param fields - the fields of the line
+   * @return the key of the line
+   */
+  private static String key(String[] fields) {
+    return fields[0] + "\t" + fields[1] + "\t" + fields[2];
+  }
+  
+  /**
+   * Reads the group lines of a report.
+   * 
+   * @param file - the name of the report file
+   * @return the fields of the lines by solver, shape and group
+   * @throws IOException when the file cannot be read or is not a report
+   */
+  private static Map<String, String[]> readReport(String file) throws IOException {
+    Map<String, String[]> report = new HashMap<String, String[]>();
+    try (BufferedReader in = new BufferedReader(new FileReader(file))) {
+      
+      /* Make sure the file is a report of this version. */
+      if (!REPORT_HEADER.equals(in.readLine())) {
+        throw new IOException(file + " is not a report of version " + REPORT_HEADER);
+      }
+      
+      /* Skip the column names and read the group lines. */
+      in.readLine();
+      for (String line = in.readLine(); line != null; line = in.readLine()) {
+        String[] fields = line.split("\t");
+        report.put(key(fields), fields);
+      }
+    }
+    return report;
+  }
+  
+  /**
+   * Reads the groups of puzzles of a corpus.
+   * 
+   * @param file - the name of the corpus file
+   * @return the groups of puzzles, in the order of the file
+   * @throws IOException when the file cannot be read or is not a corpus
+   */
+  private static List<Group> readCorpus(String file) throws IOException {
+    List<Group> groups = new ArrayList<Group>();
+    try (BufferedReader in = new BufferedReader(new FileReader(file))) {
+      
+      /* Make sure the file is a corpus of this version. */
+      if (!CORPUS_HEADER.equals(in.readLine())) {
+        throw new IOException(file + " is not a corpus of version " + CORPUS_HEADER);
+      }
+      
+      /* Skip the comments and column names, and read the puzzles. */
+      for (String line = in.readLine(); line != null; line = in.readLine()) {
+        if (line.startsWith("#") || line.startsWith("shape")) {
+          continue;
+        }
+        String[] fields = line.split("\t");
+        String shape = fields[0];
+        int length = Integer.parseInt(fields[1]);
+        boolean exact = Boolean.parseBoolean(fields[2]);
+        
+        /* Start a new group when the shape or length changes. */
+        Group group = groups.isEmpty() ? null : groups.get(groups.size() - 1);
+        if (group == null || !group.shape.equals(shape) || group.length != length || group.exact != exact) {
+          int[] rowsColumns = GoalConfiguration.parseShape(shape);
+          group = new Group(GoalConfiguration.blankFirst(rowsColumns[0], rowsColumns[1]), length, exact);
+          groups.add(group);
+        }
+        
+        /* Read the numbers of the puzzle. */
+        String[] numbers = fields[3].split(",");
+        int columns = group.goal.getColumns();
+        int[][] puzzleArray = new int[group.goal.getRows()][columns];
+        for (int position = 0; position < numbers.length; position++) {
+          puzzleArray[position / columns][position % columns] = Integer.parseInt(numbers[position]);
+        }
+        group.puzzles.add(puzzleArray);
+      }
+    }
+    return groups;
+  }
+  
+  /**
+   * Class for a group of puzzles of a corpus, of one shape and solution length.
+   */
+  private static class Group {
+    
+    /** The goal configuration of the puzzles. */
+    private final GoalConfiguration goal;
+    
+    /** The rows and columns of the puzzles, such as 3x4. */
+    private final String shape;
+    
+    /** The solution length of the puzzles. */
+    private final int length;
+    
+    /** Whether the length is the shortest solution length, or the random walk length. */
+    private final boolean exact;
+    
+    /** The numbers of the puzzles. */
+    private final List<int[][]> puzzles = new ArrayList<int[][]>();
+    
+    /**
+     * Constructor for an empty group.
+     * 
+     * @param goal - the goal configuration of the puzzles
+     * @param length - the solution length of the puzzles
+     * @param exact - whether the length is the shortest solution length
+     */
+    private Group(GoalConfiguration goal, int length, boolean exact) {
+      this.goal = goal;
+      this.shape = goal.getShape();
+      this.length = length;
+      this.exact = exact;
+    }
+  }
+}
@@ -0,0 +1,188 @@
+package howard.puzzle;
+
+import java.util.Arrays;
+
+/**
+ * Class for a priority queue of ints with small integer priorities, kept in buckets.
+ * Each item is added with an f value and a g value, g at most f, and the items leave the queue
+ * in order of lowest f, then highest g, then last in first out. There is a stack of items for
+ * every pair of f and g, so adding is a push and polling is a pop from the lowest non-empty
+ * bucket, which only moves forward in f while the added f values do not go below it, as in an
+ * A* search with a consistent heuristic. No comparisons or heap reordering are needed.
+ *
+ * @author Shaun Howard
+ */
+public final class BucketQueue {
+
+  /** The number of f values the arrays are made for at first. */
+  private static final int MIN_F_VALUES = 64;
+
+  /** The number of slots of a bucket when its first item is added. */
+  private static final int MIN_BUCKET = 16;
+
+  /** The stacks of items by bucket, f * (f + 1) / 2 + g, null for an empty bucket. */
+  private int[][] items;
+
+  /** The number of items of each bucket. */
+  private int[] sizes;
+
+  /** The highest g value that may have items for each f value, -1 for none. */
+  private int[] top;
+
+  /** The lowest f value that may have items. */
+  private int minF;
+
+  /** The number of items in the queue. */
+  private long size;
+
+  /** Nullary constructor. */
+  public BucketQueue() {
+    clear();
+  }
+
+  /**
+   * Returns the number of items in the queue.
+   *
+   * @return the number of items
+   */
+  public long size() {
+    return size;
+  }
+
+  /**
+   * Returns whether the queue has no items.
+   *
+   * @return whether the queue is empty
+   */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Removes all items, shrinking the arrays to free memory.
+   */
+  public void clear() {
+    items = new int[bucket(MIN_F_VALUES, 0)][];
+    sizes = new int[items.length];
+    top = new int[MIN_F_VALUES];
+    Arrays.fill(top, -1);
+    minF = 0;
+    size = 0;
+  }
+
+  /**
+   * Returns the bucket of an f value and g value.
+   *
+   * @param f - the f value
+   * @param g - the g value, at most f
+   * @return the number of the bucket
+   */
+  private static int bucket(int f, int g) {
+    return f * (f + 1) / 2 + g;
+  }
+
+  /**
+   * Adds an item to the queue.
+   *
+   * @param item - the item to add
+   * @param f - the f value of the item, the first priority, lowest first
+   * @param g - the g value of the item, from 0 to f, the second priority, highest first
+   */
+  public void add(int item, int f, int g) {
+
+    /* Make sure the item has a bucket. */
+    if (g < 0 || g > f) {
+      throw new IllegalArgumentException("g value " + g + " is not between 0 and f value " + f);
+    }
+
+    /* Grow the arrays when the f value is beyond them. */
+    if (f >= top.length) {
+      grow(f);
+    }
+
+    /* Grow the bucket when it is full, and push the item. */
+    int bucket = bucket(f, g);
+    if (items[bucket] == null) {
+      items[bucket] = new int[MIN_BUCKET];
+    } else if (sizes[bucket] == items[bucket].length) {
+      items[bucket] = Arrays.copyOf(items[bucket], sizes[bucket] * 2);
+    }
+    items[bucket][sizes[bucket]++] = item;
+
+    /* Move the lowest f value and highest g value to the item. */
+    if (size == 0 || f < minF) {
+      minF = f;
+    }
+    top[f] = Math.max(top[f], g);
+    size++;
+  }
+
+  /**
+   * Returns the f value of the next item to leave the queue.
+   *
+   * @return the lowest f value of the items
+   */
+  public int peekF() {
+    advance();
+    return minF;
+  }
+
+  /**
+   * Removes the item of lowest f value, highest g value, which was added last.
+   *
+   * @return the item removed
+   */
+  public int poll() {
+    advance();
+    int bucket = bucket(minF, top[minF]);
+    size--;
+    return items[bucket][--sizes[bucket]];
+  }
+
+  /**
+   * Moves the lowest f value and its highest g value to the next non-empty bucket,
+   * freeing the buckets of the f values that are passed.
+   */
+  private void advance() {
+
+    /* Make sure there is an item to find. */
+    if (size == 0) {
+      throw new IllegalStateException("Queue is empty");
+    }
+
+    /* Step down the g values, and up the f values when they run out. */
+    while (top[minF] < 0 || sizes[bucket(minF, top[minF])] == 0) {
+      if (top[minF] > 0) {
+        top[minF]--;
+      } else { //Otherwise, free the buckets of this f value and go on to the next.
+
+        for (int g = 0; g <= minF; g++) {
+          items[bucket(minF, g)] = null;
+        }
+        top[minF] = -1;
+        minF++;
+      }
+    }
+  }
+
+  /**
+   * Grows the arrays to hold the buckets of an f value.
+   *
+   * @param f - the f value the arrays must hold
+   */
+  private void grow(int f) {
+
+    /* Double the f values until the f value fits. */
+    int length = top.length;
+    while (length <= f) {
+      length *= 2;
+    }
+
+    /* Copy the buckets into the larger arrays. */
+    items = Arrays.copyOf(items, bucket(length, 0));
+    sizes = Arrays.copyOf(sizes, items.length);
+    int old = top.length;
+    top = Arrays.copyOf(top, length);
+    Arrays.fill(top, old, length, -1);
+  }
+}
@@ -0,0 +1,29 @@
+package howard.puzzle;
+
+/**
+ * Class for cancelling a running solve from another thread.
+ * The solver checks the token while it searches and stops soon after it is cancelled.
+ * 
+ * @author Shaun Howard
+ */
+public class CancellationToken {
+  
+  /** Whether the solve is cancelled. */
+  private volatile boolean cancelled;
+  
+  /**
+   * Cancels the solve. The token stays cancelled.
+   */
+  public void cancel() {
+    cancelled = true;
+  }
+  
+  /**
+   * Returns whether the solve is cancelled.
+   * 
+   * @return whether the solve is cancelled
+   */
+  public boolean isCancelled() {
+    return cancelled;
+  }
+}
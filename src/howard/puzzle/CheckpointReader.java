@@ -0,0 +1,146 @@
+package howard.puzzle;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Class for reading a checkpoint of a search from a file channel.
+ * Bytes are read from the channel into a direct buffer in large blocks as the values need them.
+ *
+ * @author Shaun Howard
+ */
+public final class CheckpointReader implements Closeable {
+
+  /** The channel of the checkpoint file. */
+  private final FileChannel channel;
+
+  /** The buffer of bytes read from the channel but not yet used. */
+  private final ByteBuffer buffer = ByteBuffer.allocateDirect(CheckpointWriter.BUFFER_SIZE).order(ByteOrder.nativeOrder());
+
+  /**
+   * Constructor for a reader, reading the magic number and version of the checkpoint.
+   *
+   * @param file - the checkpoint file
+   * @throws IOException when the file cannot be read or is not a checkpoint of this version
+   */
+  public CheckpointReader(File file) throws IOException {
+    channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+    buffer.flip();
+
+    /* Make sure the file is a checkpoint of this format. */
+    try {
+      if (readInt() != Checkpoints.MAGIC || readInt() != Checkpoints.VERSION) {
+        throw new IOException("Not a checkpoint of version " + Checkpoints.VERSION + ": " + file);
+      }
+    } catch (IOException ioe) { //Catch exception when reading the header, to close the channel.
+      channel.close();
+      throw ioe;
+    }
+  }
+
+  /**
+   * Makes sure the buffer holds a number of bytes, reading more from the channel when needed.
+   *
+   * @param bytes - the number of bytes needed, at most the size of the buffer
+   * @throws IOException when the channel cannot be read or the checkpoint ends
+   */
+  private void ensure(int bytes) throws IOException {
+    if (buffer.remaining() >= bytes) {
+      return;
+    }
+
+    /* Keep the bytes not yet used and fill up the buffer after them. */
+    buffer.compact();
+    while (buffer.position() < bytes) {
+      if (channel.read(buffer) < 0) {
+        throw new EOFException("Checkpoint ended early");
+      }
+    }
+    buffer.flip();
+  }
+
+  /**
+   * Reads a byte.
+   *
+   * @return the byte, from 0 to 255
+   * @throws IOException when the channel cannot be read or the checkpoint ends
+   */
+  public int readByte() throws IOException {
+    ensure(1);
+    return buffer.get() & 0xFF;
+  }
+
+  /**
+   * Reads an int.
+   *
+   * @return the int
+   * @throws IOException when the channel cannot be read or the checkpoint ends
+   */
+  public int readInt() throws IOException {
+    ensure(Integer.BYTES);
+    return buffer.getInt();
+  }
+
+  /**
+   * Reads a long.
+   *
+   * @return the long
+   * @throws IOException when the channel cannot be read or the checkpoint ends
+   */
+  public long readLong() throws IOException {
+    ensure(Long.BYTES);
+    return buffer.getLong();
+  }
+
+  /**
+   * Reads longs into an array.
+   *
+   * @param values - the array to read into
+   * @param offset - the index to read the first long into
+   * @param count - the number of longs to read
+   * @throws IOException when the channel cannot be read or the checkpoint ends
+   */
+  public void readLongs(long[] values, int offset, int count) throws IOException {
+
+    /* Copy as many longs as the buffer holds at a time. */
+    for (int done = 0; done < count; ) {
+      ensure(Long.BYTES);
+      int part = Math.min(count - done, buffer.remaining() / Long.BYTES);
+      buffer.asLongBuffer().get(values, offset + done, part);
+      buffer.position(buffer.position() + part * Long.BYTES);
+      done += part;
+    }
+  }
+
+  /**
+   * Reads bytes into an array, filling it.
+   *
+   * @param values - the array to read into
+   * @throws IOException when the channel cannot be read or the checkpoint ends
+   */
+  public void readBytes(byte[] values) throws IOException {
+
+    /* Copy as many bytes as the buffer holds at a time. */
+    for (int done = 0; done < values.length; ) {
+      ensure(1);
+      int part = Math.min(values.length - done, buffer.remaining());
+      buffer.get(values, done, part);
+      done += part;
+    }
+  }
+
+  /**
+   * Closes the channel.
+   *
+   * @throws IOException when the channel cannot be closed
+   */
+  public void close() throws IOException {
+    channel.close();
+  }
+}
@@ -0,0 +1,184 @@
+package howard.puzzle;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Class for writing a checkpoint of a search to a file channel.
+ * Values are gathered in a direct buffer and written to the channel when it is full, so
+ * tables of many gigabytes are written in large blocks. The checkpoint is written to a
+ * temporary file next to the checkpoint file and moved over it when committed, so a search
+ * that dies while writing leaves its last checkpoint whole.
+ *
+ * @author Shaun Howard
+ */
+public final class CheckpointWriter implements Closeable {
+
+  /** The number of bytes of the buffer. */
+  public static final int BUFFER_SIZE = 1 << 20;
+
+  /** The checkpoint file written when committed. */
+  private final File file;
+
+  /** The temporary file written first. */
+  private final File temporary;
+
+  /** The channel of the temporary file. */
+  private final FileChannel channel;
+
+  /** The buffer of bytes not yet written to the channel. */
+  private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.nativeOrder());
+
+  /** Whether the checkpoint was committed. */
+  private boolean committed;
+
+  /**
+   * Constructor for a writer, writing the magic number and version of the checkpoint.
+   *
+   * @param file - the checkpoint file
+   * @throws IOException when the temporary file cannot be written
+   */
+  public CheckpointWriter(File file) throws IOException {
+    this.file = file;
+    this.temporary = new File(file.getPath() + ".tmp");
+
+    /* Make the checkpoint directory when it does not exist. */
+    File directory = file.getAbsoluteFile().getParentFile();
+    if (directory != null) {
+      Files.createDirectories(directory.toPath());
+    }
+
+    channel = FileChannel.open(temporary.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                               StandardOpenOption.TRUNCATE_EXISTING);
+    writeInt(Checkpoints.MAGIC);
+    writeInt(Checkpoints.VERSION);
+  }
+
+  /**
+   * Makes sure the buffer has room for a number of bytes, writing it out when needed.
+   *
+   * @param bytes - the number of bytes needed, at most the size of the buffer
+   * @throws IOException when the channel cannot be written
+   */
+  private void ensure(int bytes) throws IOException {
+    if (buffer.remaining() < bytes) {
+      flush();
+    }
+  }
+
+  /**
+   * Writes a byte.
+   *
+   * @param value - the byte to write
+   * @throws IOException when the channel cannot be written
+   */
+  public void writeByte(int value) throws IOException {
+    ensure(1);
+    buffer.put((byte) value);
+  }
+
+  /**
+   * Writes an int.
+   *
+   * @param value - the int to write
+   * @throws IOException when the channel cannot be written
+   */
+  public void writeInt(int value) throws IOException {
+    ensure(Integer.BYTES);
+    buffer.putInt(value);
+  }
+
+  /**
+   * Writes a long.
+   *
+   * @param value - the long to write
+   * @throws IOException when the channel cannot be written
+   */
+  public void writeLong(long value) throws IOException {
+    ensure(Long.BYTES);
+    buffer.putLong(value);
+  }
+
+  /**
+   * Writes the longs of an array.
+   *
+   * @param values - the array of longs
+   * @param offset - the index of the first long to write
+   * @param count - the number of longs to write
+   * @throws IOException when the channel cannot be written
+   */
+  public void writeLongs(long[] values, int offset, int count) throws IOException {
+
+    /* Copy as many longs as fit into the buffer at a time. */
+    for (int done = 0; done < count; ) {
+      ensure(Long.BYTES);
+      int part = Math.min(count - done, buffer.remaining() / Long.BYTES);
+      buffer.asLongBuffer().put(values, offset + done, part);
+      buffer.position(buffer.position() + part * Long.BYTES);
+      done += part;
+    }
+  }
+
+  /**
+   * Writes the bytes of an array.
+   *
+   * @param values - the array of bytes
+   * @throws IOException when the channel cannot be written
+   */
+  public void writeBytes(byte[] values) throws IOException {
+
+    /* Copy as many bytes as fit into the buffer at a time. */
+    for (int done = 0; done < values.length; ) {
+      ensure(1);
+      int part = Math.min(values.length - done, buffer.remaining());
+      buffer.put(values, done, part);
+      done += part;
+    }
+  }
+
+  /**
+   * Writes all buffered bytes to the channel.
+   *
+   * @throws IOException when the channel cannot be written
+   */
+  private void flush() throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+
+  /**
+   * Writes out the checkpoint, forces it to the disk and moves it over the last checkpoint.
+   *
+   * @throws IOException when the checkpoint cannot be written or moved
+   */
+  public void commit() throws IOException {
+    flush();
+    channel.force(true);
+    channel.close();
+    Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+               StandardCopyOption.ATOMIC_MOVE);
+    committed = true;
+  }
+
+  /**
+   * Closes the channel, deleting the temporary file when the checkpoint was not committed.
+   *
+   * @throws IOException when the channel cannot be closed
+   */
+  public void close() throws IOException {
+    if (!committed) {
+      channel.close();
+      Files.deleteIfExists(temporary.toPath());
+    }
+  }
+}
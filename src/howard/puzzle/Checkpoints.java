@@ -0,0 +1,164 @@
+package howard.puzzle;
+
+import java.io.File;
+
+/**
+ * Class for the settings of the checkpoints of long searches. A search that runs for hours keeps
+ * all of its work in memory, so it writes a checkpoint to a file of the checkpoint directory
+ * every interval and when it stops early, such as when it runs out of memory. A checkpoint
+ * replaces the last one of the same solver and puzzle, and is deleted when the search ends.
+ * In resume mode, a search that finds a checkpoint of its puzzle goes on from there instead
+ * of starting over. Only the breadth-first, depth-first and IDA* solvers write checkpoints.
+ *
+ * The settings are read from the system properties "puzzle.checkpoint" (the directory, no
+ * checkpoints without it), "puzzle.checkpointInterval" (milliseconds) and "puzzle.resume".
+ * Each solver keeps its own settings, since they hold the time of its next checkpoint.
+ *
+ * @author Shaun Howard
+ */
+public class Checkpoints {
+
+  /** The system property naming the directory of the checkpoint files. */
+  public static final String DIRECTORY_PROPERTY = "puzzle.checkpoint";
+
+  /** The system property of the milliseconds between checkpoints. */
+  public static final String INTERVAL_PROPERTY = "puzzle.checkpointInterval";
+
+  /** The system property turning on resume mode. */
+  public static final String RESUME_PROPERTY = "puzzle.resume";
+
+  /** The default milliseconds between checkpoints, ten minutes. */
+  public static final long DEFAULT_INTERVAL = 10 * 60 * 1000;
+
+  /** The magic number at the start of a checkpoint file. */
+  public static final int MAGIC = 0x4E50434B;
+
+  /** The version of the checkpoint file format. */
+  public static final int VERSION = 2;
+
+  /** The directory of the checkpoint files. */
+  private final File directory;
+
+  /** The milliseconds between checkpoints. */
+  private final long interval;
+
+  /** Whether searches go on from the checkpoint of their puzzle. */
+  private final boolean resume;
+
+  /** The time in milliseconds of the next checkpoint. */
+  private long next;
+
+  /**
+   * Constructor for the settings of checkpoints.
+   *
+   * @param directory - the directory of the checkpoint files
+   * @param interval - the milliseconds between checkpoints
+   * @param resume - whether searches go on from the checkpoint of their puzzle
+   */
+  public Checkpoints(File directory, long interval, boolean resume) {
+
+    /* Make sure the interval is positive. */
+    if (interval <= 0) {
+      throw new IllegalArgumentException("Checkpoint interval must be positive: " + interval);
+    }
+
+    this.directory = directory;
+    this.interval = interval;
+    this.resume = resume;
+  }
+
+  /**
+   * Returns the settings of checkpoints given by the system properties.
+   *
+   * @return the settings, or null when no checkpoint directory is given
+   */
+  public static Checkpoints fromProperties() {
+
+    /* No checkpoints are written without a directory. */
+    String directory = System.getProperty(DIRECTORY_PROPERTY);
+    if (directory == null) {
+      return null;
+    }
+
+    return new Checkpoints(new File(directory), Long.getLong(INTERVAL_PROPERTY, DEFAULT_INTERVAL),
+                           Boolean.getBoolean(RESUME_PROPERTY));
+  }
+
+  /**
+   * Returns the directory of the checkpoint files.
+   *
+   * @return the checkpoint directory
+   */
+  public File getDirectory() {
+    return directory;
+  }
+
+  /**
+   * Returns the milliseconds between checkpoints.
+   *
+   * @return the checkpoint interval
+   */
+  public long getInterval() {
+    return interval;
+  }
+
+  /**
+   * Returns whether searches go on from the checkpoint of their puzzle.
+   *
+   * @return whether resume mode is on
+   */
+  public boolean isResume() {
+    return resume;
+  }
+
+  /**
+   * Starts the interval of the next checkpoint, when a search starts and after each checkpoint
+   * is written, so a search spends at least the interval searching between checkpoints.
+   */
+  public void start() {
+    next = System.currentTimeMillis() + interval;
+  }
+
+  /**
+   * Checks whether a checkpoint is due.
+   *
+   * @return whether the search has to write a checkpoint
+   */
+  public boolean isDue() {
+    return System.currentTimeMillis() >= next;
+  }
+
+  /**
+   * Returns the checkpoint file of a solver and an input state, named by the shape, goal and a hash of the numbers.
+   * The checkpoint itself holds the whole input state, so a hash collision is noticed when it is read.
+   *
+   * @param solver - the name of the solver
+   * @param state - the input state of the search
+   * @return the checkpoint file
+   */
+  public File getFile(String solver, PuzzleState state) {
+
+    /* Hash the numbers of the state in reading order. */
+    long hash = 0;
+    for (int i = 0; i < state.getRows(); i++) {
+      for (int j = 0; j < state.getColumns(); j++) {
+        hash = hash * 0x100000001B3L + state.getNumber(i, j) + 1;
+      }
+    }
+
+    GoalConfiguration goal = state.getGoal();
+    return new File(directory, solver + "-" + goal.getShape() + "-" + goal.getName() + "-"
+                      + Long.toHexString(hash) + ".ckpt");
+  }
+
+  /**
+   * Deletes the checkpoint of a search that ended, so it is not resumed.
+   *
+   * @param file - the checkpoint file
+   */
+  public void delete(File file) {
+    if (file.isFile() && !file.delete()) {
+      System.err.println("Could not delete the checkpoint " + file);
+    }
+  }
+}
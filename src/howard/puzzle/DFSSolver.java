@@ -1,5 +1,7 @@
 package howard.puzzle;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -8,6 +10,14 @@ import java.util.Set;
  * This class extends puzzle solver since it solves the n x n puzzle. 
  * A queue is used to approach the depth-first search tree.
  * 
+ * When checkpoints are set, the search writes its depth limit and the moves from the input state
+ * to the current state to a checkpoint every interval and when it stops early. In resume mode, it
+ * goes on from the checkpoint with that depth limit, skipping the moves searched before it.
+ * 
+ * The moves of each state are tried in the fixed order up, down, left and right by default, or in
+ * the order of a move ordering, which tries the moves that lower the manhattan distance first or
+ * learns from earlier iterations which moves lead closest to the goal state.
+ * 
  * @author Shaun Howard
  */
 public class DFSSolver extends PuzzleSolver{
@@ -18,11 +28,62 @@ public class DFSSolver extends PuzzleSolver{
   /** The maximum depth of the dfs. */
   public static final int MAX_DEPTH = 30;
   
+  /** The rows the zero (blank space) moves by each move. */
+  private static final int[] ROW_STEPS = {-1, 1, 0, 0};
+  
+  /** The columns the zero (blank space) moves by each move. */
+  private static final int[] COLUMN_STEPS = {0, 0, -1, 1};
+  
+  /** The number of states expanded between checks whether a checkpoint is due, minus one. */
+  private static final int CHECK_MASK = (1 << 12) - 1;
+  
+  /** The depth limit of the current iteration. */
+  private int limit;
+  
+  /** The moves from the input state to the current state, by level. */
+  private int[] path = new int[MAX_DEPTH + 1];
+  
+  /** The order in which the moves of each state are tried. */
+  private MoveOrdering ordering = MoveOrdering.fromProperty();
+  
+  /** The keys of the moves of the state of each level, by level * 4 + move. */
+  private int[] keys = new int[(MAX_DEPTH + 1) * PackedState.MOVES.length];
+  
+  /** The moves of the state of each level in the order to try them, from level * 4 on. */
+  private int[] orders = new int[(MAX_DEPTH + 1) * PackedState.MOVES.length];
+  
+  /** The smallest manhattan distance reached below the state of each level so far. */
+  private int[] bestReached = new int[MAX_DEPTH + 1];
+  
+  /** The move that led to the smallest manhattan distance below the state of each level so far, -1 for none. */
+  private int[] bestMoves = new int[MAX_DEPTH + 1];
+  
+  /** The number of states expanded in the last iteration. */
+  private long lastIteration;
+  
+  /** The moves to the state of the checkpoint the search goes on from, null when not resuming. */
+  private int[] resumePath;
+  
+  /** The smallest manhattan distances reached below the states of the checkpoint path. */
+  private int[] resumeReached;
+  
+  /** The moves that led to them, -1 for none. */
+  private int[] resumeMoves;
+  
+  /** The input state of the search. */
+  private PuzzleState root;
+  
+  /** The checkpoint file of the search, null when no checkpoints are written. */
+  private File checkpointFile;
+  
+  /** Whether the checkpoint of the stopped search was written. */
+  private boolean stopSaved;
+  
   /** An instance of the depth-first solver for solving the puzzle. */
   private static DFSSolver instance = new DFSSolver();
   
   /** Nullary constructor. */
-  private DFSSolver(){
+  DFSSolver(){
     
   }
   
@@ -35,6 +96,34 @@ public class DFSSolver extends PuzzleSolver{
     return instance;
   }
   
+  /**
+   * Sets the order in which the moves of each state are tried.
+   * 
+   * @param ordering - the move ordering
+   */
+  public void setMoveOrdering(MoveOrdering ordering) {
+    this.ordering = ordering;
+  }
+  
+  /**
+   * Returns the order in which the moves of each state are tried.
+   * 
+   * @return the move ordering
+   */
+  public MoveOrdering getMoveOrdering() {
+    return ordering;
+  }
+  
+  /**
+   * Returns the number of states expanded in the last iteration of the last search, the one
+   * that reached the goal state when it was found.
+   * 
+   * @return the states expanded in the last iteration
+   */
+  public long getLastIterationExpanded() {
+    return lastIteration;
+  }
+  
   /**
    * Recursive method for exploring puzzle states in tree with dfs.
    * 
@@ -49,21 +138,57 @@ public class DFSSolver extends PuzzleSolver{
     /* Add this state to the state set. */
     stateSet.add(state);
     
+    /* The first depth limit, the one of the checkpoint in resume mode. */
+    root = state;
+    stopSaved = false;
+    resumePath = null;
+    checkpointFile = checkpoints != null ? checkpoints.getFile("dfs", state) : null;
+    ordering.clear(state.getRows() * state.getColumns());
+    int first = 1;
+    if (checkpointFile != null) {
+      if (checkpoints.isResume()) {
+        first = Math.max(1, readCheckpoint());
+      }
+      checkpoints.start();
+    }
+    
     /* Explore states until limit is reached using recursion. */
-    for(int i = 1; i <= depthLimit; i++){
+    for(int i = first; i <= depthLimit; i++){
+      
+      /* Order the moves by what the last iteration learned. */
+      if (i > first) {
+        ordering.nextIteration();
+      }
       
       /* Call the depth-first search on this state at the given level, i. */
-      dfs(state, i);
+      searchDepth = i;
+      limit = i;
+      long before = expanded;
+      dfs(state, i, ordering.usesEstimates() ? manhattan(state) : 0);
+      lastIteration = expanded - before;
+      resumePath = null;
       
       /* When goal is found, exit recursive state. */
       if(goal != null)
-        return;
+        break;
       
-      /* Make sure program does not exceed memory limit. */
-      if (Runtime.getRuntime().freeMemory() < (.0001) * Runtime.getRuntime().totalMemory()){
+      /* Make sure program does not exceed memory limit, deadline or cancellation. */
+      if (isOutOfMemory() || shouldStop()){
+        
+        /* Write a checkpoint of the next depth limit, when none was written while stopping. */
+        if (checkpointFile != null && !stopSaved) {
+          limit = i + 1;
+          ordering.nextIteration();
+          writeCheckpoint(0);
+        }
         return;
       }
     }
+    
+    /* The search ended, so there is nothing to resume. */
+    if (checkpointFile != null) {
+      checkpoints.delete(checkpointFile);
+    }
   }
   
   /**
@@ -71,12 +196,33 @@ public class DFSSolver extends PuzzleSolver{
    * 
    * @param state - the state to explore
    * @param depth - the depth of the exploration in the dfs tree
+   * @param h - the manhattan distance of the state, when the move ordering uses estimates
+   * @return the smallest manhattan distance of the states explored, when the move ordering uses estimates
    */
-  void dfs(PuzzleState state,int depth){
+  int dfs(PuzzleState state, int depth, int h){
     
     /* When depth is negative, end recursion. */
     if(depth < 0)
-      return;
+      return h;
+    
+    /* The number of moves from the input state to this state. */
+    int level = limit - depth;
+    
+    /* Checks if the search has to stop. */
+    boolean stop = shouldStop();
+    
+    /* Write a checkpoint at this state when one is due, and before stopping, so the search can go on later. */
+    if (checkpointFile != null && !stopSaved && (stop || ((expanded & CHECK_MASK) == 0 && checkpoints.isDue()))) {
+      writeCheckpoint(level);
+      stopSaved = stop;
+    }
+    
+    /* When the search has to stop, end recursion. */
+    if(stop)
+      return h;
+    
+    /* Count the state as expanded. */
+    expanded++;
     
     /* When input state is the goal state, set it goal to input state. */
     if(state.isGoalState()){
@@ -85,92 +231,257 @@ public class DFSSolver extends PuzzleSolver{
     
     /* When the goal state is saved, end recursion, goal has been found. */
     if(goal != null)
-      return;
+      return h;
     
-    /* A new puzzle state for depth-first search. */
-    PuzzleState newState;
+    /* The key of each move, the change of the manhattan distance when the ordering uses estimates. */
+    int offset = level * PackedState.MOVES.length;
+    for (int move = 0; move < PackedState.MOVES.length; move++) {
+      keys[offset + move] = delta(state, move);
+    }
     
-    /* Try to move zero (blank space) up in the puzzle and set the new state if moves. */
-    newState = PuzzleState.moveUp(state);
+    /* Put the moves in the order to try them. */
+    int zero = state.getZeroRow() * state.getColumns() + state.getZeroColumn();
+    int count = ordering.order(level, zero, keys, orders, offset);
     
-    /* Checks if new state exists and is not in state set. */
-    if(newState != null && !stateSet.contains(newState)){
-      
-      /* Add the new state to the state set. */
-      stateSet.add(newState);
-      
-      /* Call recursive dfs method to explore next level of states in tree. */
-      dfs(newState, depth - 1);
-      
-      /* When goal exists, leave recursive search. */
-      if(goal != null)
-        return;
-      
-      /* Remove the new state from the set to save memory. */
-      stateSet.remove(newState);
-    }
+    /* The smallest manhattan distance below the state, and the move that led to it. */
+    bestReached[level] = h;
+    bestMoves[level] = -1;
     
-    /* Try to move zero (blank space) down in the puzzle and set the new state if moves. */
-    newState = PuzzleState.moveDown(state);
+    /* The first move to try, skipping the moves searched before the checkpoint when resuming. */
+    int first = 0;
+    if (resumePath != null) {
+      if (level < resumePath.length) {
+        while (first < count && orders[offset + first] != resumePath[level]) {
+          first++;
+        }
+        bestReached[level] = resumeReached[level];
+        bestMoves[level] = resumeMoves[level];
+      } else { //Otherwise, the state of the checkpoint is reached and the search goes on as usual.
+        
+        resumePath = null;
+      }
+    }
     
-    /* Checks if new state exists and is not in state set. */
-    if(newState!=null && !stateSet.contains(newState)){
+    /* Try to move zero (blank space) in the order of the moves. */
+    for (int k = first; k < count; k++) {
+      int move = orders[offset + k];
       
-      /* Add the new state to the state set. */
-      stateSet.add(newState);
+      /* A new puzzle state for depth-first search. */
+      PuzzleState newState = PuzzleState.move(state, PackedState.MOVES[move]);
       
-      /* Call recursive dfs method to explore next level of states in tree. */
-      dfs(newState, depth - 1);
-      
-      /* When goal exists, leave recursive search. */
-      if(goal != null)
-        return;
-      
-      /* Remove the new state from the set to save memory. */
-      stateSet.remove(newState);
+      /* Checks if new state is not in state set. */
+      if(!stateSet.contains(newState)){
+        
+        /* Add the new state to the state set, and its move to the path. */
+        stateSet.add(newState);
+        path[level] = move;
+        
+        /* Call recursive dfs method to explore next level of states in tree. */
+        int reached = dfs(newState, depth - 1, h + keys[offset + move]);
+        
+        /* When goal exists, leave recursive search. */
+        if(goal != null)
+          return 0;
+        
+        /* Remove the new state from the set to save memory. */
+        stateSet.remove(newState);
+        
+        /* Keep the move that led closest to the goal state. */
+        if (reached < bestReached[level] || bestMoves[level] < 0) {
+          bestReached[level] = Math.min(bestReached[level], reached);
+          bestMoves[level] = move;
+        }
+      }
     }
     
-    /* Try to move zero (blank space) left in the puzzle and set the new state if moves. */
-    newState = PuzzleState.moveLeft(state);
+    /* Learn the move that led closest to the goal state. */
+    if (bestMoves[level] >= 0 && ordering.learns()) {
+      ordering.reward(level, zero, bestMoves[level], depth);
+    }
     
-    /* Checks if new state exists and is not in state set. */
-    if(newState!=null && !stateSet.contains(newState)){
-      
-      /* Add the new state to the state set. */
-      stateSet.add(newState);
-      
-      /* Call recursive dfs method to explore next level of states in tree. */
-      dfs(newState, depth - 1);
+    return bestReached[level];
+  }
+  
+  /**
+   * Returns the change of the manhattan distance of a state by a move, the distance the
+   * moved tile gets closer to its goal position, when the move ordering uses estimates.
+   * 
+   * @param state - the state to move in
+   * @param move - the move of the zero (blank space)
+   * @return the change of the manhattan distance, 0 when the ordering does not use estimates,
+   *         or MoveOrdering.SKIP when the zero would leave the board
+   */
+  private int delta(PuzzleState state, int move) {
+    
+    /* The row and column the zero moves to. */
+    int row = state.getZeroRow() + ROW_STEPS[move];
+    int column = state.getZeroColumn() + COLUMN_STEPS[move];
+    
+    /* Checks if the zero stays on the board. */
+    if (row < 0 || row >= state.getRows() || column < 0 || column >= state.getColumns()) {
+      return MoveOrdering.SKIP;
+    }
+    if (!ordering.usesEstimates()) {
+      return 0;
+    }
+    
+    /* The tile at the new zero position moves into the old one. */
+    GoalConfiguration goalConfiguration = state.getGoal();
+    int number = state.getNumber(row, column);
+    return Math.abs(state.getZeroRow() - goalConfiguration.getRow(number))
+             + Math.abs(state.getZeroColumn() - goalConfiguration.getColumn(number))
+             - Math.abs(row - goalConfiguration.getRow(number)) - Math.abs(column - goalConfiguration.getColumn(number));
+  }
+  
+  /**
+   * Returns the manhattan distance of a state, the sum of the distances of the tiles to their goal positions.
+   * 
+   * @param state - the state to estimate
+   * @return the manhattan distance
+   */
+  private static int manhattan(PuzzleState state) {
+    GoalConfiguration goalConfiguration = state.getGoal();
+    int h = 0;
+    for (int i = 0; i < state.getRows(); i++) {
+      for (int j = 0; j < state.getColumns(); j++) {
+        int number = state.getNumber(i, j);
+        if (number != 0) {
+          h += Math.abs(i - goalConfiguration.getRow(number)) + Math.abs(j - goalConfiguration.getColumn(number));
+        }
+      }
+    }
+    return h;
+  }
+  
+  /**
+   * Writes the depth limit, the number of states expanded, the statistics of the move ordering and
+   * the moves from the input state to the current state, with the best moves below them so far, to a checkpoint. When the checkpoint cannot be written, the search goes on.
+   * 
+   * @param level - the number of moves from the input state to the current state
+   */
+  private void writeCheckpoint(int level) {
+    try (CheckpointWriter out = new CheckpointWriter(checkpointFile)) {
       
-      /* When goal exists, leave recursive search. */
-      if(goal != null)
-        return;
+      /* Write the puzzle of the search. */
+      writeState(out, root);
       
-      /* Remove the new state from the set to save memory. */
-      stateSet.remove(newState);
+      /* Write where the search is. */
+      out.writeInt(limit);
+      out.writeLong(expanded);
+      ordering.write(out);
+      out.writeInt(level);
+      for (int i = 0; i < level; i++) {
+        out.writeByte(path[i]);
+        out.writeInt(bestReached[i]);
+        out.writeByte(bestMoves[i] + 1);
+      }
+      out.commit();
+    } catch (IOException ioe) { //Catch exception when writing the checkpoint.
+      System.err.println("Could not save the checkpoint to " + checkpointFile + ": " + ioe.getMessage());
     }
     
-    /* Try to move zero (blank space) right in the puzzle and set the new state if moves. */
-    newState = PuzzleState.moveRight(state);
+    /* Start the interval of the next checkpoint, also after a failed one. */
+    checkpoints.start();
+  }
+  
+  /**
+   * Reads the depth limit, the number of states expanded, the statistics of the move ordering and
+   * the moves from the input state to the state the search stopped at from a checkpoint of the same search.
+   * 
+   * @return the depth limit to go on with, 0 when the search starts over
+   */
+  private int readCheckpoint() {
+    
+    /* Checks if there is a checkpoint. */
+    if (!checkpointFile.isFile()) {
+      return 0;
+    }
     
-    /* Checks if new state exists and is not in state set. */
-    if(newState!=null && !stateSet.contains(newState)){
+    try (CheckpointReader in = new CheckpointReader(checkpointFile)) {
       
-      /* Add the new state to the state set. */
-      stateSet.add(newState);
+      /* Make sure the checkpoint is of this search. */
+      if (!readState(in, root)) {
+        System.err.println("The checkpoint " + checkpointFile + " is of another search, starting over");
+        return 0;
+      }
       
-      /* Call recursive dfs method to explore next level of states in tree. */
-      dfs(newState, depth - 1);
+      /* Read where the search is. */
+      int savedLimit = in.readInt();
+      long savedExpanded = in.readLong();
       
-      /* When goal exists, leave recursive search. */
-      if(goal != null)
-        return;
+      /* Make sure the moves are tried in the same order as before the checkpoint. */
+      if (!ordering.read(in)) {
+        System.err.println("The checkpoint " + checkpointFile + " was written with another move ordering, starting over");
+        ordering.clear(root.getRows() * root.getColumns());
+        return 0;
+      }
+      int[] savedPath = new int[in.readInt()];
+      int[] savedReached = new int[savedPath.length];
+      int[] savedMoves = new int[savedPath.length];
+      for (int i = 0; i < savedPath.length; i++) {
+        savedPath[i] = in.readByte();
+        savedReached[i] = in.readInt();
+        savedMoves[i] = in.readByte() - 1;
+      }
+      expanded = savedExpanded;
+      resumePath = savedPath;
+      resumeReached = savedReached;
+      resumeMoves = savedMoves;
       
-      /* Remove the new state from the set to save memory. */
-      stateSet.remove(newState);
+      return savedLimit;
+    } catch (IOException ioe) { //Catch exception when reading the checkpoint, the search starts over.
+      System.err.println("Could not resume from the checkpoint " + checkpointFile + ": " + ioe.getMessage());
+      return 0;
     }
   }
   
+  /**
+   * Writes the shape, numbers and goal numbers of a puzzle state to a checkpoint.
+   * 
+   * @param out - the writer of the checkpoint
+   * @param state - the puzzle state to write
+   * @throws IOException when the checkpoint cannot be written
+   */
+  static void writeState(CheckpointWriter out, PuzzleState state) throws IOException {
+    out.writeInt(state.getRows());
+    out.writeInt(state.getColumns());
+    for (int i = 0; i < state.getRows(); i++) {
+      for (int j = 0; j < state.getColumns(); j++) {
+        out.writeInt(state.getNumber(i, j));
+      }
+    }
+    for (int number : state.getGoal().getNumbers()) {
+      out.writeInt(number);
+    }
+  }
+  
+  /**
+   * Reads the shape, numbers and goal numbers of a puzzle state from a checkpoint and compares them to a state.
+   * 
+   * @param in - the reader of the checkpoint
+   * @param state - the puzzle state to compare to
+   * @return whether the checkpoint holds the same state
+   * @throws IOException when the checkpoint cannot be read
+   */
+  static boolean readState(CheckpointReader in, PuzzleState state) throws IOException {
+    if (in.readInt() != state.getRows() || in.readInt() != state.getColumns()) {
+      return false;
+    }
+    for (int i = 0; i < state.getRows(); i++) {
+      for (int j = 0; j < state.getColumns(); j++) {
+        if (in.readInt() != state.getNumber(i, j)) {
+          return false;
+        }
+      }
+    }
+    for (int number : state.getGoal().getNumbers()) {
+      if (in.readInt() != number) {
+        return false;
+      }
+    }
+    return true;
+  }
+  
   /**
    * Solves the input puzzle using depth-first search.
    * Outputs the sequence of moves to get from initial, randomized state to goal state.
@@ -186,13 +497,26 @@ public class DFSSolver extends PuzzleSolver{
     
     /* Initializes goal state to not found. */
     goal = null;
+    expanded = 0;
     
     /* Creates a new state from the input puzzle for solving. */
     PuzzleState state = new PuzzleState(puzzle);
     
+    /* A puzzle of the other parity cannot reach its goal state, so there is nothing to search. */
+    if (!state.getGoal().isReachable(state.getNumbers())) {
+      moves = null;
+      time = System.currentTimeMillis() - startTime;
+      return "The puzzle cannot reach its goal state!";
+    }
+    
     /* Performs recursive depth-first search to find the goal state. */
     iterativeDeepening(state, MAX_DEPTH);
     
+    /* The goal state is not within the depth limit, so the search gave up. */
+    if (goal == null) {
+      giveUp(SolveResult.Status.OUT_OF_RESOURCES);
+    }
+    
     /* Gets the difference between end time and start time to find total time taken to solve puzzle. */
     time = System.currentTimeMillis() - startTime;
     
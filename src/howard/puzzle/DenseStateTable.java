@@ -0,0 +1,122 @@
+package howard.puzzle;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Class for a visited set that has a slot for every reachable state of a small puzzle.
+ * States are numbered with a permutation indexer, a bit set marks the visited numbers and
+ * a parallel array keeps the move into each state, two bits per number. No hashing or
+ * probing is needed, and the 181,440 states of the 8-puzzle take about 68 KB in all.
+ *
+ * @author Shaun Howard
+ */
+public class DenseStateTable implements StateTable {
+
+  /** The largest number of states of a dense table, larger puzzles use a hash table. */
+  public static final long MAX_STATES = 1L << 28;
+
+  /** The indexer numbering the states of the puzzle. */
+  private final PermutationIndexer indexer;
+
+  /** The bit set of visited state numbers. */
+  private final long[] visited;
+
+  /** The moves into the states, two bits per state number. */
+  private final byte[] moves;
+
+  /** The number of states in the table. */
+  private long size;
+
+  /**
+   * Constructor for a dense table of the states numbered by an indexer.
+   *
+   * @param indexer - the indexer numbering the states of the puzzle
+   */
+  public DenseStateTable(PermutationIndexer indexer) {
+
+    /* Make sure the arrays fit into memory. */
+    if (!fits(indexer)) {
+      throw new IllegalArgumentException("Too many states for a dense table: " + indexer.size());
+    }
+
+    this.indexer = indexer;
+    visited = new long[(int) ((indexer.size() + 63) / 64)];
+    moves = new byte[(int) ((indexer.size() + 3) / 4)];
+  }
+
+  /**
+   * Checks whether the states numbered by an indexer fit into a dense table.
+   *
+   * @param indexer - the indexer numbering the states of the puzzle
+   * @return whether a dense table can be made
+   */
+  public static boolean fits(PermutationIndexer indexer) {
+    return indexer.size() <= MAX_STATES;
+  }
+
+  public boolean add(long state, int move) {
+
+    /* The number of the state. */
+    long rank = indexer.rank(state);
+    int word = (int) (rank >>> 6);
+    long bit = 1L << rank;
+
+    /* Checks if the state was already visited. */
+    if ((visited[word] & bit) != 0) {
+      return false;
+    }
+
+    /* Mark the state and keep its move. */
+    visited[word] |= bit;
+    int index = (int) (rank >>> 2);
+    int shift = (int) (rank & 3) << 1;
+    moves[index] = (byte) ((moves[index] & ~(3 << shift)) | (move << shift));
+    size++;
+
+    return true;
+  }
+
+  public boolean contains(long state) {
+    long rank = indexer.rank(state);
+    return (visited[(int) (rank >>> 6)] & (1L << rank)) != 0;
+  }
+
+  public int getMoveInto(long state) {
+    long rank = indexer.rank(state);
+    return (moves[(int) (rank >>> 2)] >> ((int) (rank & 3) << 1)) & 3;
+  }
+
+  public long size() {
+    return size;
+  }
+
+  public boolean isFull() {
+    return false;
+  }
+
+  public void write(CheckpointWriter out) throws IOException {
+
+    /* Write the bit set and moves as they are, every reachable state has its slot. */
+    out.writeLong(size);
+    out.writeInt(visited.length);
+    out.writeLongs(visited, 0, visited.length);
+    out.writeBytes(moves);
+  }
+
+  public void read(CheckpointReader in) throws IOException {
+    size = in.readLong();
+
+    /* Make sure the checkpoint is of a table of the same states. */
+    if (in.readInt() != visited.length) {
+      throw new IOException("Checkpoint is not of a dense table of " + indexer.size() + " states");
+    }
+    in.readLongs(visited, 0, visited.length);
+    in.readBytes(moves);
+  }
+
+  public void clear() {
+    Arrays.fill(visited, 0);
+    size = 0;
+  }
+}
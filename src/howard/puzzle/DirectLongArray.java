@@ -0,0 +1,81 @@
+package howard.puzzle;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+
+/**
+ * Class for a fixed length array of longs kept outside the Java heap, in direct byte buffers.
+ * The garbage collector never scans or moves the values, so an array of many gigabytes adds no
+ * collection pauses. A direct buffer holds at most 2 GB, so the array is split into chunks of
+ * 1 GB, and it may be longer than the largest int. The values start as zero.
+ * The memory is freed when the array is no longer referenced and collected, and the total is
+ * capped by the "-XX:MaxDirectMemorySize" option of the Java virtual machine.
+ *
+ * @author Shaun Howard
+ */
+public class DirectLongArray {
+
+  /** The number of bits of an index within a chunk, 2^27 longs make 1 GB. */
+  private static final int CHUNK_BITS = 27;
+
+  /** The number of longs of a full chunk minus one, for the index within a chunk. */
+  private static final long CHUNK_MASK = (1L << CHUNK_BITS) - 1;
+
+  /** The chunks of the array. */
+  private final LongBuffer[] chunks;
+
+  /** The number of longs of the array. */
+  private final long length;
+
+  /**
+   * Constructor for an array of zeros.
+   *
+   * @param length - the number of longs of the array
+   */
+  public DirectLongArray(long length) {
+
+    /* Make sure the length is positive. */
+    if (length <= 0) {
+      throw new IllegalArgumentException("Length must be positive: " + length);
+    }
+
+    this.length = length;
+
+    /* Allocate full chunks, and a last chunk of the rest. */
+    chunks = new LongBuffer[(int) ((length + CHUNK_MASK) >>> CHUNK_BITS)];
+    for (int chunk = 0; chunk < chunks.length; chunk++) {
+      long longs = Math.min(CHUNK_MASK + 1, length - ((long) chunk << CHUNK_BITS));
+      chunks[chunk] = ByteBuffer.allocateDirect((int) (longs * Long.BYTES)).order(ByteOrder.nativeOrder()).asLongBuffer();
+    }
+  }
+
+  /**
+   * Returns the number of longs of the array.
+   *
+   * @return the length of the array
+   */
+  public long length() {
+    return length;
+  }
+
+  /**
+   * Returns the value at an index.
+   *
+   * @param index - the index, from 0 to length - 1
+   * @return the value at the index
+   */
+  public long get(long index) {
+    return chunks[(int) (index >>> CHUNK_BITS)].get((int) (index & CHUNK_MASK));
+  }
+
+  /**
+   * Sets the value at an index.
+   *
+   * @param index - the index, from 0 to length - 1
+   * @param value - the value to set
+   */
+  public void set(long index, long value) {
+    chunks[(int) (index >>> CHUNK_BITS)].put((int) (index & CHUNK_MASK), value);
+  }
+}
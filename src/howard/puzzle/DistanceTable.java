@@ -0,0 +1,317 @@
+package howard.puzzle;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Class for a table of the shortest distance to the goal state of every reachable state of a
+ * small puzzle. The table is made once by a breadth-first search backwards from the goal state,
+ * and the distance of each state is kept in a byte array at the rank of the state, so the
+ * 181,440 states of the 8-puzzle take about 180 KB. The table is saved to a file and read back
+ * by later runs, so the search is only done once. Each goal configuration has its own table.
+ * 
+ * @author Shaun Howard
+ */
+public class DistanceTable {
+  
+  /** The largest number of states of a table. */
+  public static final long MAX_STATES = 1L << 24;
+  
+  /** The marker at the start of a table file. */
+  private static final int MAGIC = 0x4E504454;
+  
+  /** The version of the table file format. */
+  private static final int VERSION = 2;
+  
+  /** The system property naming the directory of the table files. */
+  public static final String DIRECTORY_PROPERTY = "puzzle.tables";
+  
+  /** The directory of the table files under the home directory of the user, when none is named. */
+  public static final String DEFAULT_DIRECTORY = ".cache/npuzzle";
+  
+  /** The distance of states not reached by the search. */
+  private static final byte UNREACHED = -1;
+  
+  /** The tables already loaded, by goal configuration. */
+  private static Map<GoalConfiguration, DistanceTable> tables = new HashMap<GoalConfiguration, DistanceTable>();
+  
+  /** The packer of the puzzle states. */
+  private final PackedState packer;
+  
+  /** The indexer numbering the puzzle states. */
+  private final PermutationIndexer indexer;
+  
+  /** The packed goal state. */
+  private final long goalState;
+  
+  /** The distance to the goal state of every state, at the rank of the state. */
+  private final byte[] distances;
+  
+  /**
+   * Constructor for an empty table of a goal configuration.
+   * 
+   * @param goal - the goal configuration of the puzzle
+   */
+  private DistanceTable(GoalConfiguration goal) {
+    packer = new PackedState(goal.getRows(), goal.getColumns());
+    indexer = new PermutationIndexer(goal);
+    goalState = packer.goal(goal);
+    distances = new byte[(int) indexer.size()];
+  }
+  
+  /**
+   * Checks whether a table can be made for a puzzle of the given side size.
+   * 
+   * @param size - the side size of the puzzle
+   * @return whether the puzzle is small enough for a table
+   */
+  public static boolean fits(int size) {
+    return fits(size, size);
+  }
+  
+  /**
+   * Checks whether a table can be made for a puzzle of the given rows and columns.
+   * 
+   * @param rows - the number of rows of the puzzle
+   * @param columns - the number of columns of the puzzle
+   * @return whether the puzzle is small enough for a table
+   */
+  public static boolean fits(int rows, int columns) {
+    return PackedState.fits(rows, columns)
+             && new PermutationIndexer(GoalConfiguration.blankFirst(rows, columns)).size() <= MAX_STATES;
+  }
+  
+  /**
+   * Returns the table of a puzzle of the given side size, with the zero in the top left corner
+   * of the goal state.
+   * 
+   * @param size - the side size of the puzzle
+   * @return the distance table of the puzzle
+   */
+  public static DistanceTable getInstance(int size) {
+    return getInstance(GoalConfiguration.blankFirst(size));
+  }
+  
+  /**
+   * Returns the table of a goal configuration. The table is read from its file
+   * when the file exists, otherwise it is made and saved to the file.
+   * 
+   * @param goal - the goal configuration of the puzzle
+   * @return the distance table of the puzzle
+   */
+  public static synchronized DistanceTable getInstance(GoalConfiguration goal) {
+    
+    /* Make sure the puzzle is small enough. */
+    if (!fits(goal.getRows(), goal.getColumns())) {
+      throw new IllegalArgumentException("Puzzle of " + goal.getShape() + " is too large for a distance table");
+    }
+    
+    /* Checks if the table was already loaded. */
+    DistanceTable table = tables.get(goal);
+    if (table != null) {
+      return table;
+    }
+    
+    /* Read the table from its file, or make and save it. */
+    table = new DistanceTable(goal);
+    File file = getFile(goal);
+    if (!table.read(file)) {
+      table.build();
+      table.write(file);
+    }
+    tables.put(goal, table);
+    
+    return table;
+  }
+  
+  /**
+   * Returns the file of the table of a goal configuration.
+   * 
+   * @param goal - the goal configuration of the puzzle
+   * @return the file of the table
+   */
+  private static File getFile(GoalConfiguration goal) {
+    return new File(getDirectory(), "distances-" + goal.getShape() + "-" + goal.getName() + ".bin");
+  }
+  
+  /**
+   * Returns the directory of the table files, the one the directory system property names, or a
+   * cache directory under the home directory of the user, or under the temporary directory when
+   * there is no home directory. The directory is made when it does not exist yet.
+   * 
+   * @return the directory of the table files
+   */
+  static File getDirectory() {
+    String named = System.getProperty(DIRECTORY_PROPERTY);
+    File directory;
+    if (named != null) {
+      directory = new File(named);
+    } else { //Otherwise, use the cache directory of the user.
+      
+      String home = System.getProperty("user.home");
+      directory = home != null && new File(home).isDirectory() ? new File(home, DEFAULT_DIRECTORY)
+                                                               : new File(System.getProperty("java.io.tmpdir"), "npuzzle");
+    }
+    directory.mkdirs();
+    return directory;
+  }
+  
+  /**
+   * Fills the table with a breadth-first search backwards from the goal state.
+   * Every move can be undone, so the distance from the goal state is the distance to it.
+   */
+  private void build() {
+    
+    /* Mark every state as not reached. */
+    Arrays.fill(distances, UNREACHED);
+    
+    /* Start at the goal state. */
+    distances[(int) indexer.rank(goalState)] = 0;
+    
+    /* A first - in - first - out queue (FIFO) of the packed states to expand. */
+    LongQueue queue = new LongQueue();
+    queue.add(goalState);
+    
+    /* Perform breadth-first search while packed states exist in the queue. */
+    while (!queue.isEmpty()) {
+      long packed = queue.poll();
+      int distance = distances[(int) indexer.rank(packed)];
+      int zero = PackedState.zero(packed);
+      
+      /* Try to move zero (blank space) up, down, left and right in the puzzle. */
+      for (int move = 0; move < PackedState.MOVES.length; move++) {
+        
+        /* The position the zero moves to, skipping moves off the board. */
+        int target = packer.neighbor(zero, move);
+        if (target < 0) {
+          continue;
+        }
+        
+        /* Keeps the new state when it is reached for the first time. */
+        long newState = PackedState.move(packed, zero, target);
+        int rank = (int) indexer.rank(newState);
+        if (distances[rank] == UNREACHED) {
+          distances[rank] = (byte) (distance + 1);
+          queue.add(newState);
+        }
+      }
+    }
+  }
+  
+  /**
+   * Reads the table from a file.
+   * 
+   * @param file - the file of the table
+   * @return whether a complete table of this puzzle was read
+   */
+  private boolean read(File file) {
+    
+    /* Checks if the file exists. */
+    if (!file.isFile()) {
+      return false;
+    }
+    
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+      
+      /* Make sure the header matches this puzzle. */
+      if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readInt() != packer.getCells()
+          || in.readLong() != goalState || in.readLong() != distances.length) {
+        return false;
+      }
+      
+      /* Read the distances. */
+      in.readFully(distances);
+      return true;
+    } catch (IOException ioe) { //Catch exception when reading the table, it is made again.
+      return false;
+    }
+  }
+  
+  /**
+   * Writes the table to a file. When the file cannot be written, the table is made again by the next run.
+   * 
+   * @param file - the file of the table
+   */
+  private void write(File file) {
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+      
+      /* Write the header. */
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(packer.getCells());
+      out.writeLong(goalState);
+      out.writeLong(distances.length);
+      
+      /* Write the distances. */
+      out.write(distances);
+    } catch (IOException ioe) { //Catch exception when writing the table.
+      System.err.println("Could not save the distance table to " + file + ": " + ioe.getMessage());
+    }
+  }
+  
+  /**
+   * Returns the shortest distance of a solvable packed state to the goal state.
+   * An unsolvable state has the rank of a solvable state, so its distance means nothing.
+   * 
+   * @param packed - the packed state
+   * @return the number of moves of a shortest solution
+   */
+  public int distance(long packed) {
+    return distances[(int) indexer.rank(packed)];
+  }
+  
+  /**
+   * Returns a shortest solution of a packed state, following moves that lower the distance.
+   * 
+   * @param packed - the packed state
+   * @return the moves of the zero (blank space) to the goal state, null when the state is unsolvable
+   */
+  public String solve(long packed) {
+    
+    /* Builder to make a string of move sequence. */
+    StringBuilder builder = new StringBuilder();
+    
+    /* Move down the distances until the goal state is reached. */
+    for (int distance = distance(packed); distance > 0; distance--) {
+      int zero = PackedState.zero(packed);
+      
+      /* The next state, found among the neighbors. */
+      long next = 0;
+      
+      /* Try to move zero (blank space) up, down, left and right in the puzzle. */
+      for (int move = 0; move < PackedState.MOVES.length && next == 0; move++) {
+        
+        /* The position the zero moves to, skipping moves off the board. */
+        int target = packer.neighbor(zero, move);
+        if (target < 0) {
+          continue;
+        }
+        
+        /* Take the move when it leads one move closer to the goal state. */
+        long newState = PackedState.move(packed, zero, target);
+        if (distance(newState) == distance - 1) {
+          builder.append(PackedState.MOVES[move]);
+          next = newState;
+        }
+      }
+      
+      /* When no neighbor is closer, the state is not in the solvable half. */
+      if (next == 0) {
+        return null;
+      }
+      packed = next;
+    }
+    
+    /* The goal state has distance 0, any other state of distance 0 is unsolvable. */
+    return packed == goalState ? builder.toString() : null;
+  }
+}
@@ -0,0 +1,469 @@
+package howard.puzzle;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Class for the goal state of a puzzle, the number each position must hold when it is solved.
+ * A goal configuration cannot be changed once it is made, so puzzles and solvers of different
+ * board shapes and goal layouts can share them, also on different threads. The goal position
+ * of every number is looked up in tables made with the configuration, so checking a state and
+ * estimating its distance need no division by the number of columns. Boards may be
+ * rectangular, with any number of rows and columns of at least 2.
+ *
+ * Two layouts are made by name: "first", with the zero (blank space) in the top left corner
+ * and number v at position v, and "last", with the tiles 1 to n - 1 in reading order and the
+ * zero in the bottom right corner.
+ *
+ * @author Shaun Howard
+ */
+public final class GoalConfiguration {
+
+  /** The name of the layout with the zero in the top left corner. */
+  public static final String BLANK_FIRST = "first";
+
+  /** The name of the layout with the zero in the bottom right corner. */
+  public static final String BLANK_LAST = "last";
+
+  /** The system property naming the layout of new puzzles, "first" when it is not set. */
+  public static final String LAYOUT_PROPERTY = "puzzle.goal";
+
+  /** The goal configurations already made, by layout name and board shape. */
+  private static final Map<String, GoalConfiguration> configurations = new ConcurrentHashMap<String, GoalConfiguration>();
+
+  /** The number of rows of the puzzle. */
+  private final int rows;
+
+  /** The number of columns of the puzzle. */
+  private final int columns;
+
+  /** The name of the layout. */
+  private final String name;
+
+  /** The number at each position in reading order. */
+  private final int[] numbers;
+
+  /** The goal position of each number. */
+  private final int[] positions;
+
+  /** The goal row of each number. */
+  private final int[] goalRows;
+
+  /** The goal column of each number. */
+  private final int[] goalColumns;
+
+  /** The parity shared by every state that can reach this goal, see parity(int[], int). */
+  private final int parity;
+
+  /**
+   * Constructor for a goal configuration of the given numbers.
+   *
+   * @param rows - the number of rows of the puzzle
+   * @param columns - the number of columns of the puzzle
+   * @param name - the name of the layout
+   * @param numbers - the number at each position in reading order, each number once
+   */
+  private GoalConfiguration(int rows, int columns, String name, int[] numbers) {
+
+    /* Make sure every number of the puzzle is there once. */
+    if (rows < 2 || columns < 2 || numbers.length != rows * columns) {
+      throw new IllegalArgumentException("Expected " + rows * columns + " numbers for a " + rows + "x" + columns + " board");
+    }
+
+    this.rows = rows;
+    this.columns = columns;
+    this.name = name;
+    this.numbers = numbers.clone();
+    positions = new int[numbers.length];
+    goalRows = new int[numbers.length];
+    goalColumns = new int[numbers.length];
+
+    /* Make the lookup tables of the goal positions. */
+    Arrays.fill(positions, -1);
+    for (int position = 0; position < numbers.length; position++) {
+      int number = numbers[position];
+      if (number < 0 || number >= numbers.length || positions[number] >= 0) {
+        throw new IllegalArgumentException("Goal numbers must be 0 to " + (numbers.length - 1) + " once each");
+      }
+      positions[number] = position;
+      goalRows[number] = position / columns;
+      goalColumns[number] = position % columns;
+    }
+
+    parity = parity(this.numbers, columns);
+  }
+
+  /**
+   * Returns the goal configuration of a square puzzle with the zero (blank space) in the top left corner.
+   *
+   * @param size - the side size of the puzzle
+   * @return the goal configuration
+   */
+  public static GoalConfiguration blankFirst(int size) {
+    return of(BLANK_FIRST, size, size);
+  }
+
+  /**
+   * Returns the goal configuration with the zero (blank space) in the top left corner.
+   *
+   * @param rows - the number of rows of the puzzle
+   * @param columns - the number of columns of the puzzle
+   * @return the goal configuration
+   */
+  public static GoalConfiguration blankFirst(int rows, int columns) {
+    return of(BLANK_FIRST, rows, columns);
+  }
+
+  /**
+   * Returns the goal configuration of a square puzzle with the zero (blank space) in the bottom right corner.
+   *
+   * @param size - the side size of the puzzle
+   * @return the goal configuration
+   */
+  public static GoalConfiguration blankLast(int size) {
+    return of(BLANK_LAST, size, size);
+  }
+
+  /**
+   * Returns the goal configuration with the zero (blank space) in the bottom right corner.
+   *
+   * @param rows - the number of rows of the puzzle
+   * @param columns - the number of columns of the puzzle
+   * @return the goal configuration
+   */
+  public static GoalConfiguration blankLast(int rows, int columns) {
+    return of(BLANK_LAST, rows, columns);
+  }
+
+  /**
+   * Returns the goal configuration of new square puzzles, named by the system property "puzzle.goal".
+   *
+   * @param size - the side size of the puzzle
+   * @return the goal configuration
+   */
+  public static GoalConfiguration getDefault(int size) {
+    return getDefault(size, size);
+  }
+
+  /**
+   * Returns the goal configuration of new puzzles, named by the system property "puzzle.goal".
+   *
+   * @param rows - the number of rows of the puzzle
+   * @param columns - the number of columns of the puzzle
+   * @return the goal configuration
+   */
+  public static GoalConfiguration getDefault(int rows, int columns) {
+    return of(System.getProperty(LAYOUT_PROPERTY, BLANK_FIRST), rows, columns);
+  }
+
+  /**
+   * Returns the goal configuration of a layout by name.
+   *
+   * @param name - "first" or "last"
+   * @param rows - the number of rows of the puzzle
+   * @param columns - the number of columns of the puzzle
+   * @return the goal configuration
+   */
+  public static GoalConfiguration of(String name, int rows, int columns) {
+
+    /* Checks if the configuration was already made. */
+    String key = name + rows + "x" + columns;
+    GoalConfiguration configuration = configurations.get(key);
+    if (configuration != null) {
+      return configuration;
+    }
+
+    /* Lay out the numbers of the goal state. */
+    int[] numbers = new int[rows * columns];
+    if (name.equals(BLANK_FIRST)) {
+      for (int position = 0; position < numbers.length; position++) {
+        numbers[position] = position;
+      }
+    } else if (name.equals(BLANK_LAST)) {
+      for (int position = 0; position < numbers.length; position++) {
+        numbers[position] = (position + 1) % numbers.length;
+      }
+    } else { //Otherwise, the layout is unknown.
+
+      throw new IllegalArgumentException("Unknown goal layout " + name + ", use " + BLANK_FIRST + " or " + BLANK_LAST);
+    }
+
+    /* Keep the configuration, another thread may have made the same one meanwhile. */
+    configuration = new GoalConfiguration(rows, columns, name, numbers);
+    GoalConfiguration earlier = configurations.putIfAbsent(key, configuration);
+    return earlier != null ? earlier : configuration;
+  }
+
+  /**
+   * Returns the goal configuration of any layout of numbers.
+   *
+   * @param rows - the number of rows of the puzzle
+   * @param columns - the number of columns of the puzzle
+   * @param numbers - the number at each position in reading order, each number once
+   * @return the goal configuration
+   */
+  public static GoalConfiguration of(int rows, int columns, int[] numbers) {
+    return new GoalConfiguration(rows, columns, "custom-" + Integer.toHexString(Arrays.hashCode(numbers)), numbers);
+  }
+
+  /**
+   * Reads the shape of a board, "RxC" for R rows and C columns or a single side size of a square board.
+   *
+   * @param shape - the shape of the board
+   * @return the number of rows and columns
+   */
+  public static int[] parseShape(String shape) {
+    int split = shape.indexOf('x');
+    if (split < 0) {
+      int size = Integer.parseInt(shape);
+      return new int[] {size, size};
+    }
+    return new int[] {Integer.parseInt(shape.substring(0, split)), Integer.parseInt(shape.substring(split + 1))};
+  }
+
+  /**
+   * Returns the parity every move keeps: the parity of the permutation of the tiles in reading
+   * order, skipping the zero (blank space), plus the row of the zero times columns - 1. Moving the
+   * zero sideways keeps the reading order, while moving it up or down moves a tile past the other
+   * columns - 1 tiles of a row, so a state can only reach the goal states of the same parity.
+   *
+   * @param numbers - the numbers of the puzzle in reading order
+   * @param columns - the number of columns of the puzzle
+   * @return the parity, 0 or 1
+   */
+  public static int parity(int[] numbers, int columns) {
+
+    /* The tiles in reading order, numbered from 0, and the position of the zero. */
+    int[] tiles = new int[numbers.length - 1];
+    int zero = 0;
+    for (int i = 0, k = 0; i < numbers.length; i++) {
+      if (numbers[i] != 0) {
+        tiles[k++] = numbers[i] - 1;
+      } else { //Otherwise, this is the zero.
+
+        zero = i;
+      }
+    }
+
+    /* A cycle of the permutation of length n takes n - 1 swaps, so count the cycles. */
+    boolean[] seen = new boolean[tiles.length];
+    int swaps = 0;
+    for (int i = 0; i < tiles.length; i++) {
+      for (int j = i; !seen[j]; j = tiles[j]) {
+        seen[j] = true;
+        if (j != i) {
+          swaps++;
+        }
+      }
+    }
+
+    return (swaps + (columns - 1) * (zero / columns)) & 1;
+  }
+
+  /**
+   * Returns the number of rows of the puzzle.
+   *
+   * @return the number of rows
+   */
+  public int getRows() {
+    return rows;
+  }
+
+  /**
+   * Returns the number of columns of the puzzle.
+   *
+   * @return the number of columns
+   */
+  public int getColumns() {
+    return columns;
+  }
+
+  /**
+   * Returns the side size of a square puzzle.
+   *
+   * @return the side size
+   * @throws IllegalStateException when the board is not square
+   * @deprecated boards may be rectangular, use getRows() and getColumns()
+   */
+  @Deprecated
+  public int getSize() {
+
+    /* Only a square board has one side size. */
+    if (rows != columns) {
+      throw new IllegalStateException("Goal of " + getShape() + " is not square");
+    }
+    return rows;
+  }
+
+  /**
+   * Returns the number of positions of the puzzle.
+   *
+   * @return the number of positions
+   */
+  public int getCells() {
+    return numbers.length;
+  }
+
+  /**
+   * Returns the shape of the board, "RxC" for R rows and C columns.
+   *
+   * @return the shape of the board
+   */
+  public String getShape() {
+    return rows + "x" + columns;
+  }
+
+  /**
+   * Returns the name of the layout, "first", "last" or "custom-" and a hash of the numbers.
+   *
+   * @return the name of the layout
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Returns the number a position holds in the goal state.
+   *
+   * @param position - the position in reading order
+   * @return the goal number of the position
+   */
+  public int getNumber(int position) {
+    return numbers[position];
+  }
+
+  /**
+   * Returns the number an index holds in the goal state.
+   *
+   * @param row - the row of the index
+   * @param column - the column of the index
+   * @return the goal number of the index
+   */
+  public int getNumber(int row, int column) {
+    return numbers[row * columns + column];
+  }
+
+  /**
+   * Returns the position of a number in the goal state.
+   *
+   * @param number - the number
+   * @return the goal position of the number in reading order
+   */
+  public int getPosition(int number) {
+    return positions[number];
+  }
+
+  /**
+   * Returns the row of a number in the goal state.
+   *
+   * @param number - the number
+   * @return the goal row of the number
+   */
+  public int getRow(int number) {
+    return goalRows[number];
+  }
+
+  /**
+   * Returns the column of a number in the goal state.
+   *
+   * @param number - the number
+   * @return the goal column of the number
+   */
+  public int getColumn(int number) {
+    return goalColumns[number];
+  }
+
+  /**
+   * Returns the parity of the goal state, shared by every state that can reach it.
+   *
+   * @return the parity, 0 or 1
+   */
+  public int getParity() {
+    return parity;
+  }
+
+  /**
+   * Checks whether a puzzle of the given numbers can reach this goal state, which takes the same parity.
+   *
+   * @param numbers - the numbers of the puzzle in reading order, of the shape of this goal
+   * @return whether the goal state can be reached
+   */
+  public boolean isReachable(int[] numbers) {
+    return parity(numbers, columns) == parity;
+  }
+
+  /**
+   * Returns the numbers of the goal state in reading order.
+   *
+   * @return a copy of the goal numbers
+   */
+  public int[] getNumbers() {
+    return numbers.clone();
+  }
+
+  /**
+   * Checks whether the numbers of a puzzle are in this goal state.
+   *
+   * @param numbers - the numbers of the puzzle in reading order
+   * @return whether the numbers are in the goal state
+   */
+  public boolean isGoal(int[] numbers) {
+    return Arrays.equals(this.numbers, numbers);
+  }
+
+  /**
+   * Checks whether a puzzle array is in this goal state.
+   *
+   * @param puzzleArray - the numbers of the puzzle by row and column
+   * @return whether the puzzle array is in the goal state
+   */
+  public boolean isGoal(int[][] puzzleArray) {
+
+    /* Iterate through rows of puzzle. */
+    for (int i = 0, position = 0; i < rows; i++) {
+
+      /* Iterate through columns of puzzle. */
+      for (int j = 0; j < columns; j++, position++) {
+
+        /* When the value at this index is not its goal value, not in goal state. */
+        if (puzzleArray[i][j] != numbers[position]) {
+          return false;
+        }
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Returns a String of the goal layout and board shape.
+   *
+   * @return the name and board shape of the goal configuration
+   */
+  @Override
+  public String toString() {
+    return name + " " + getShape();
+  }
+
+  /**
+   * Generates hash code for this goal configuration from its numbers.
+   *
+   * @return the hash code of this goal configuration
+   */
+  @Override
+  public int hashCode() {
+    return Arrays.hashCode(numbers) * 31 + columns;
+  }
+
+  /**
+   * Goal configurations are equal when they have the same shape and the same numbers at the same positions.
+   *
+   * @return whether o is equal to this goal configuration
+   */
+  @Override
+  public boolean equals(Object o) {
+    return o instanceof GoalConfiguration && columns == ((GoalConfiguration) o).columns
+             && Arrays.equals(numbers, ((GoalConfiguration) o).numbers);
+  }
+}
@@ -0,0 +1,241 @@
+package howard.puzzle;
+
+import java.io.IOException;
+
+/**
+ * Class for a hash set of packed puzzle states that remembers the move into each state.
+ * The states are kept in an open addressing table of longs, and the move into the state in
+ * the same slot of a parallel array, two bits per slot. The search path can then be followed
+ * back from the goal by undoing the moves, without keeping a puzzle state object for each state.
+ *
+ * @author Shaun Howard
+ */
+public class HashStateTable implements StateTable {
+
+  /** The empty slot marker, no packed state of a puzzle is all zeros. */
+  private static final long EMPTY = 0;
+
+  /** The smallest number of slots of the table. */
+  private static final int MIN_CAPACITY = 1 << 10;
+
+  /** The largest number of slots of the table, doubling it would overflow the array length. */
+  private static final int MAX_CAPACITY = 1 << 30;
+
+  /** The part of the largest heap left free when growing, for the queue and the solution path. */
+  private static final double HEAP_RESERVE = .125;
+
+  /** The packed states in the table. */
+  private long[] keys;
+
+  /** The moves into the states, two bits per slot. */
+  private byte[] moves;
+
+  /** The number of states in the table. */
+  private int size;
+
+  /** The number of slots minus one, for wrapping indices. */
+  private int mask;
+
+  /** Whether the table could not grow, so it fills up to its load limit and then the search stops. */
+  private boolean full;
+
+  /** Nullary constructor. */
+  public HashStateTable() {
+    allocate(MIN_CAPACITY);
+  }
+
+  /**
+   * Makes empty arrays for the given number of slots.
+   *
+   * @param capacity - the number of slots, a power of two
+   */
+  private void allocate(int capacity) {
+    keys = new long[capacity];
+    moves = new byte[(capacity + 3) / 4];
+    mask = capacity - 1;
+  }
+
+  /**
+   * Returns the slot a packed state starts probing at.
+   *
+   * @param key - the packed state
+   * @return the first slot to probe
+   */
+  private int slot(long key) {
+
+    /* Spread the bits of the state, so close states fall into distant slots. */
+    long hash = key * 0x9E3779B97F4A7C15L;
+    return (int) (hash ^ (hash >>> 32)) & mask;
+  }
+
+  public boolean add(long key, int move) {
+
+    /* Grow the table when it is half full, keeping the probe sequences short. */
+    if (size >= (mask + 1) / 2 && !full) {
+      grow();
+    }
+
+    /* Make sure an empty slot is left, ending the probe sequences. */
+    if (size >= mask) {
+      throw new OutOfMemoryError("State table of " + (mask + 1) + " slots is full");
+    }
+
+    /* Probe until the state or an empty slot is found. */
+    int index = slot(key);
+    while (keys[index] != EMPTY) {
+      if (keys[index] == key) {
+        return false;
+      }
+      index = (index + 1) & mask;
+    }
+
+    /* Put the state and its move into the empty slot. */
+    keys[index] = key;
+    setMove(index, move);
+    size++;
+
+    return true;
+  }
+
+  /**
+   * Returns the slot of a state in the table.
+   *
+   * @param key - the packed state to find
+   * @return the slot of the state, -1 when it is not in the table
+   */
+  public int indexOf(long key) {
+
+    /* Probe until the state or an empty slot is found. */
+    int index = slot(key);
+    while (keys[index] != EMPTY) {
+      if (keys[index] == key) {
+        return index;
+      }
+      index = (index + 1) & mask;
+    }
+
+    return -1;
+  }
+
+  public boolean contains(long key) {
+    return indexOf(key) >= 0;
+  }
+
+  /**
+   * Returns the move into the state of a slot.
+   *
+   * @param index - the slot of the state
+   * @return the move into the state (0 = up, 1 = down, 2 = left, 3 = right)
+   */
+  public int getMove(int index) {
+    return (moves[index >> 2] >> ((index & 3) << 1)) & 3;
+  }
+
+  public int getMoveInto(long key) {
+    return getMove(indexOf(key));
+  }
+
+  /**
+   * Sets the move into the state of a slot.
+   *
+   * @param index - the slot of the state
+   * @param move - the move into the state (0 = up, 1 = down, 2 = left, 3 = right)
+   */
+  private void setMove(int index, int move) {
+    int shift = (index & 3) << 1;
+    moves[index >> 2] = (byte) ((moves[index >> 2] & ~(3 << shift)) | (move << shift));
+  }
+
+  public long size() {
+    return size;
+  }
+
+  /**
+   * Returns whether the table could not grow and is three quarters full, so the search has to stop
+   * before the probe sequences get long. The rest of the slots take the states of the last chunk.
+   *
+   * @return whether the table is full
+   */
+  public boolean isFull() {
+    return full && size >= (mask + 1) / 4 * 3;
+  }
+
+  public void write(CheckpointWriter out) throws IOException {
+    out.writeLong(size);
+
+    /* Write each state with its move. */
+    for (int i = 0; i < keys.length; i++) {
+      if (keys[i] != EMPTY) {
+        out.writeLong(keys[i]);
+        out.writeByte(getMove(i));
+      }
+    }
+  }
+
+  public void read(CheckpointReader in) throws IOException {
+    for (long left = in.readLong(); left > 0; left--) {
+      add(in.readLong(), in.readByte());
+    }
+  }
+
+  /**
+   * Removes all states, shrinking the table to free memory.
+   */
+  public void clear() {
+    allocate(MIN_CAPACITY);
+    size = 0;
+    full = false;
+  }
+
+  /**
+   * Returns the number of bytes the heap can still hold, up to its largest size.
+   *
+   * @param runtime - the runtime of the heap
+   * @return the bytes left in the heap
+   */
+  private static long available(Runtime runtime) {
+    return runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+  }
+
+  /**
+   * Doubles the number of slots and puts every state and move into its new slot.
+   * The new arrays are made while the old ones are still in use, so the table only grows when
+   * the heap has room for both, keeping a reserve. Otherwise the table stays at its capacity and
+   * is marked full.
+   */
+  private void grow() {
+
+    /* Checks if the capacity can be doubled and the heap holds the new arrays next to the old ones. */
+    long capacity = (long) keys.length * 2;
+    Runtime runtime = Runtime.getRuntime();
+    long needed = capacity * Long.BYTES + capacity / 4 + (long) (HEAP_RESERVE * runtime.maxMemory());
+    if (needed > available(runtime)) {
+
+      /* Collect the garbage once before giving up, the free heap may count dead objects as used. */
+      System.gc();
+    }
+    if (capacity > MAX_CAPACITY || needed > available(runtime)) {
+      full = true;
+      return;
+    }
+
+    /* Keep the old arrays to copy from, they are freed afterwards. */
+    long[] oldKeys = keys;
+    byte[] oldMoves = moves;
+
+    /* Make arrays twice as large. */
+    allocate((int) capacity);
+
+    /* Put every state into the new table with its move. */
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldKeys[i] != EMPTY) {
+        int index = slot(oldKeys[i]);
+        while (keys[index] != EMPTY) {
+          index = (index + 1) & mask;
+        }
+        keys[index] = oldKeys[i];
+        setMove(index, (oldMoves[i >> 2] >> ((i & 3) << 1)) & 3);
+      }
+    }
+  }
+}
@@ -0,0 +1,132 @@
+package howard.puzzle;
+
+import java.util.Arrays;
+
+/**
+ * Interface for heuristics that estimate the distance of a puzzle state to the goal state.
+ * Informed solvers, such as the A*, IDA* and weighted A* solvers, use a heuristic to order the
+ * states they explore. An admissible heuristic never overestimates the number of moves left.
+ *
+ * @author Shaun Howard
+ */
+public interface Heuristic {
+
+  /** The system property naming the heuristic of the informed solvers. */
+  String PROPERTY = "puzzle.heuristic";
+
+  /** The names of the heuristics, from the cheapest to the most informed. */
+  String[] NAMES = {"manhattan", "linear", "walking", "pattern"};
+
+  /**
+   * Estimates the number of moves of the zero (blank space) needed to reach the goal state.
+   *
+   * @param state - the puzzle state to estimate
+   * @return the estimated number of moves from the state to the goal state
+   */
+  int estimate(PuzzleState state);
+
+  /**
+   * Estimates a state made by one move of the zero (blank space) from its previous state,
+   * whose estimate is known. Incremental heuristics only look at the tile that moved and the
+   * rows or columns it moved between; by default the state is estimated in full.
+   *
+   * @param state - the puzzle state to estimate, made by one move from its previous state
+   * @param previousEstimate - the estimate of the previous state
+   * @return the estimated number of moves from the state to the goal state
+   */
+  default int estimate(PuzzleState state, int previousEstimate) {
+    return estimate(state);
+  }
+
+  /**
+   * Estimates a board given by the number at each of its positions in reading order. Searches
+   * over packed states estimate their boards this way, without making puzzle state objects; by
+   * default a puzzle state of the board is made and estimated.
+   *
+   * @param goal - the goal configuration of the board
+   * @param numbers - the number at each position of the board, zero for the blank space
+   * @return the estimated number of moves from the board to the goal state
+   */
+  default int estimate(GoalConfiguration goal, int[] numbers) {
+
+    /* Put every number of the board into a state of the goal configuration. */
+    PuzzleState state = new PuzzleState(goal);
+    for (int position = 0; position < numbers.length; position++) {
+      int row = position / goal.getColumns();
+      int column = position % goal.getColumns();
+      state.setNumber(row, column, numbers[position]);
+      if (numbers[position] == 0) {
+        state.setZeroRow(row);
+        state.setZeroColumn(column);
+      }
+    }
+
+    return estimate(state);
+  }
+
+  /**
+   * Estimates a board made by one move from a board whose estimate is known, the tile at one
+   * position having moved into the blank space. By default the board is estimated in full.
+   *
+   * @param goal - the goal configuration of the board
+   * @param numbers - the number at each position of the board after the move
+   * @param from - the position the tile moved from, the blank space after the move
+   * @param to - the position the tile moved to, the blank space before the move
+   * @param previousEstimate - the estimate of the board before the move
+   * @return the estimated number of moves from the board to the goal state
+   */
+  default int estimate(GoalConfiguration goal, int[] numbers, int from, int to, int previousEstimate) {
+    return estimate(goal, numbers);
+  }
+
+  /**
+   * Returns whether every move changes the estimate by an odd number of moves, as it changes the
+   * distance to the goal state by one. The estimate then has the parity of every solution length,
+   * so a search can round a lower bound up to that parity. By default the parity is not kept.
+   *
+   * @return whether the estimate keeps the parity of the solution lengths
+   */
+  default boolean keepsParity() {
+    return false;
+  }
+
+  /**
+   * Returns the heuristic named by the heuristic system property, the manhattan distance when none is named.
+   *
+   * @return the heuristic of the system property
+   */
+  static Heuristic fromProperty() {
+    String name = System.getProperty(PROPERTY);
+    if (name == null) {
+      return ManhattanHeuristic.getInstance();
+    }
+
+    /* Make sure the heuristic exists. */
+    Heuristic named = forName(name);
+    if (named == null) {
+      throw new IllegalArgumentException("No heuristic named " + name + ", try " + Arrays.toString(NAMES));
+    }
+    return named;
+  }
+
+  /**
+   * Returns the heuristic of a name.
+   *
+   * @param name - "manhattan", "linear" for linear conflict, "walking" for walking distance or "pattern" for pattern databases
+   * @return the heuristic of the name, null when no heuristic has that name
+   */
+  static Heuristic forName(String name) {
+    switch (name) {
+      case "manhattan":
+        return ManhattanHeuristic.getInstance();
+      case "linear":
+        return LinearConflictHeuristic.getInstance();
+      case "walking":
+        return WalkingDistanceHeuristic.getInstance();
+      case "pattern":
+        return PatternHeuristic.getInstance();
+      default:
+        return null;
+    }
+  }
+}
@@ -0,0 +1,966 @@
+package howard.puzzle;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Class for solving the N = n x n - 1 puzzle optimally using iterative deepening A* (IDA*) over packed states.
+ * Each iteration is a depth-first search that cuts off states whose f = g + h exceeds a threshold,
+ * where g is the length of the path to the state and h a lower bound on its distance to the goal
+ * state, and the next iteration raises the threshold to the smallest f value cut off. Only the
+ * path is kept, so the memory use is tiny, but every iteration expands the states of the last one
+ * again, and states reached by several paths (transpositions) are expanded once for each path.
+ *
+ * A transposition table cuts both costs. A state reached again in the same iteration by a path no
+ * shorter than before is skipped, since its states were searched already. After the states below
+ * a state are searched, the smallest f value cut off below it gives a better lower bound on its
+ * distance, which is kept in the table, so later iterations cut the state off sooner. The bound
+ * starts at the heuristic estimate of the state. The table is lossy and of fixed size, by default
+ * 64 MB or the size given by "-Dpuzzle.transpositions=256m", 0 for plain IDA*.
+ *
+ * The fringe mode (fringe search) keeps the states cut off in an iteration in a list and goes on
+ * from them in the next one instead of starting over at the input state. The path length and parent
+ * of every generated state are kept in a node pool, so each state is only expanded again when it
+ * is reached by a shorter path, for the memory of A* without its ordered open list.
+ *
+ * When checkpoints are set, IDA* writes its threshold, the moves from the input state to the
+ * current state and, for each state on that path, the moves searched below it and the smallest f
+ * value cut off so far, to a checkpoint every interval and when it stops early. In resume mode it
+ * goes on from the checkpoint with that threshold, going down the path again and skipping the
+ * moves searched before. The transposition table is not kept, so the bounds it held are learned again.
+ * A puzzle that cannot reach its goal state, having the other parity, is not searched.
+ *
+ * Both modes count the distinct states expanded, so the ratio of states expanded to distinct
+ * states shows how much work is repeated. IDA* finds the distinct states with a hash set of the
+ * states expanded, which takes memory, so they are only counted when asked to.
+ * IDA* tries the moves of each state in the order of its move ordering, fixed by default.
+ *
+ * The heuristic is the manhattan distance by default, or the one named by "-Dpuzzle.heuristic"
+ * (manhattan, linear, walking or pattern). The manhattan distance of a new state is found on the
+ * packed state from that of its parent; other heuristics estimate the unpacked board of the new
+ * state from that of its parent. When the heuristic keeps the parity of the solution lengths, as
+ * the manhattan distance and linear conflict do, the bounds are rounded up to that parity and
+ * the threshold rises by two moves at a time.
+ * Puzzles of up to 16 positions are searched, larger puzzles do not fit into packed states.
+ *
+ * @author Shaun Howard
+ */
+public class IDAStarSolver extends PuzzleSolver {
+
+  /** The system property of the bytes of the transposition table, such as 256m, 0 for none. */
+  public static final String TRANSPOSITIONS_PROPERTY = "puzzle.transpositions";
+
+  /** The default bytes of the transposition table. */
+  public static final String DEFAULT_TRANSPOSITIONS = "64m";
+
+  /** An instance of the IDA* solver for solving the puzzle. */
+  private static IDAStarSolver instance = new IDAStarSolver(false);
+
+  /** An instance of the fringe search solver for solving the puzzle. */
+  private static IDAStarSolver fringeInstance = new IDAStarSolver(true);
+
+  /** The number of states expanded between checks of the memory limit, deadline and cancellation. */
+  private static final int CHECK_INTERVAL = 256;
+
+  /** The result of a search below a state that reached the goal state. */
+  private static final int FOUND = -1;
+
+  /** The f value of no state, above every threshold. */
+  private static final int INFINITY = Integer.MAX_VALUE / 2;
+
+  /** The marker of a node that is not in the fringe list. */
+  private static final int NOT_LISTED = -2;
+
+  /** The end of the fringe list. */
+  private static final int END = -1;
+
+  /** Whether this solver runs fringe search instead of IDA*. */
+  private final boolean fringe;
+
+  /** The bytes of the transposition table, 0 for none. */
+  private long transpositionBytes = BFSSolver.parseBytes(System.getProperty(TRANSPOSITIONS_PROPERTY,
+                                                                               DEFAULT_TRANSPOSITIONS));
+
+  /** The transposition table, made by the first search that uses it. */
+  private TranspositionTable table;
+
+  /** Whether IDA* counts the distinct states it expands. */
+  private boolean countDistinct;
+
+  /** The number of distinct states expanded by the last search. */
+  private long distinct;
+
+  /** The packer of the states of the current search. */
+  private PackedState packer;
+
+  /** The heuristic used to estimate the distance of states to the goal state. */
+  private Heuristic heuristic = Heuristic.fromProperty();
+
+  /** Whether the heuristic of the current search is the manhattan distance, found on the packed states. */
+  private boolean manhattan;
+
+  /** Whether the bounds of the current search are rounded up to the parity of the solution lengths. */
+  private boolean parity;
+
+  /** The goal configuration of the current search. */
+  private GoalConfiguration goalConfiguration;
+
+  /** The board of the state being estimated, when the heuristic is not the manhattan distance. */
+  private int[] numbers;
+
+  /** The manhattan distance of number n at position p, at index n * cells + p. */
+  private int[] distances;
+
+  /** The evaluator of the manhattan distance of whole states. */
+  private ManhattanEvaluator evaluator;
+
+  /** The number of positions of the puzzle. */
+  private int cells;
+
+  /** The packed goal state. */
+  private long goalState;
+
+  /** The f value threshold of the current iteration. */
+  private int threshold;
+
+  /** The number of the current iteration, from 1. */
+  private int iteration;
+
+  /** The number of the current search in the transposition table. */
+  private int search;
+
+  /** The lower bound of the input state in the current iteration. */
+  private int startBound;
+
+  /** The moves of the current path, by path length. */
+  private int[] path = new int[TranspositionTable.MAX_VALUE + 1];
+
+  /** The moves searched below the state of each path length so far, a bit for each move. */
+  private int[] searched = new int[TranspositionTable.MAX_VALUE + 1];
+
+  /** The smallest f value cut off below the state of each path length so far, minus its path length. */
+  private int[] bests = new int[TranspositionTable.MAX_VALUE + 1];
+
+  /** The smallest lower bound returned by a new state of the state of each path length so far. */
+  private int[] bestResults = new int[TranspositionTable.MAX_VALUE + 1];
+
+  /** The move of that new state, -1 for none. */
+  private int[] bestMoves = new int[TranspositionTable.MAX_VALUE + 1];
+
+  /** The number of moves to the state of the checkpoint the search goes on from, 0 when not resuming. */
+  private int resumeLength;
+
+  /** The input state of the search. */
+  private PuzzleState root;
+
+  /** The checkpoint file of the search, null when no checkpoints are written. */
+  private File checkpointFile;
+
+  /** Whether the checkpoint of the stopped search was written. */
+  private boolean stopSaved;
+
+  /** The number of moves of the path to the goal state. */
+  private int length;
+
+  /** The order in which IDA* tries the moves of each state. */
+  private MoveOrdering ordering = MoveOrdering.fromProperty();
+
+  /** The new states of the moves of the state of each path length, by path length * 4 + move. */
+  private long[] childStates = new long[(TranspositionTable.MAX_VALUE + 1) * PackedState.MOVES.length];
+
+  /** The heuristic estimates of the new states of the moves of the state of each path length. */
+  private int[] childEstimates = new int[childStates.length];
+
+  /** The lower bounds of the new states of the moves of the state of each path length, the keys of their order. */
+  private int[] keys = new int[childStates.length];
+
+  /** The moves of the state of each path length in the order to try them, from path length * 4 on. */
+  private int[] orders = new int[childStates.length];
+
+  /** The number of states expanded in the last iteration. */
+  private long lastIteration;
+
+  /** Whether the search has to stop. */
+  private boolean halted;
+
+  /** The states expanded by IDA*, when the distinct states are counted. */
+  private HashStateTable seen = new HashStateTable();
+
+  /** The nodes of the states generated by fringe search. */
+  private NodePool pool = new NodePool();
+
+  /** The next node of each node in the fringe list, END for the last. */
+  private int[] next = new int[0];
+
+  /** The previous node of each node in the fringe list, END for the first, NOT_LISTED when not in the list. */
+  private int[] previous = new int[0];
+
+  /** The heuristic estimate of the state of each node. */
+  private byte[] estimates = new byte[0];
+
+  /** The nodes that were expanded at least once by fringe search. */
+  private BitSet expandedNodes = new BitSet();
+
+  /**
+   * Constructor for an IDA* or fringe search solver.
+   *
+   * @param fringe - whether the solver runs fringe search
+   */
+  IDAStarSolver(boolean fringe) {
+    this.fringe = fringe;
+  }
+
+  /**
+   * Returns the instance of the IDA* solver.
+   *
+   * @return the instance of the IDA* solver
+   */
+  public static IDAStarSolver getInstance() {
+    return instance;
+  }
+
+  /**
+   * Returns the instance of the fringe search solver.
+   *
+   * @return the instance of the fringe search solver
+   */
+  public static IDAStarSolver getFringeInstance() {
+    return fringeInstance;
+  }
+
+  /**
+   * Sets the bytes of the transposition table of IDA*, which is made again by the next search.
+   *
+   * @param bytes - the number of bytes, 0 for plain IDA* without a table
+   */
+  public void setTranspositionBytes(long bytes) {
+
+    /* Make sure the size is not negative. */
+    if (bytes < 0) {
+      throw new IllegalArgumentException("Transposition table size must not be negative: " + bytes);
+    }
+    transpositionBytes = bytes;
+    table = null;
+  }
+
+  /**
+   * Returns the bytes of the transposition table of IDA*.
+   *
+   * @return the number of bytes, 0 when IDA* runs without a table
+   */
+  public long getTranspositionBytes() {
+    return transpositionBytes;
+  }
+
+  /**
+   * Sets whether IDA* counts the distinct states it expands, keeping a hash set of them.
+   * Fringe search always counts them, since it keeps every state anyway.
+   *
+   * @param countDistinct - whether to count the distinct states
+   */
+  public void setCountDistinct(boolean countDistinct) {
+    this.countDistinct = countDistinct;
+  }
+
+  /**
+   * Sets the order in which IDA* tries the moves of each state.
+   *
+   * @param ordering - the move ordering
+   */
+  public void setMoveOrdering(MoveOrdering ordering) {
+    this.ordering = ordering;
+  }
+
+  /**
+   * Returns the order in which IDA* tries the moves of each state.
+   *
+   * @return the move ordering
+   */
+  public MoveOrdering getMoveOrdering() {
+    return ordering;
+  }
+
+  /**
+   * Returns the heuristic used to estimate the distance of states to the goal state.
+   *
+   * @return the heuristic of this solver
+   */
+  public Heuristic getHeuristic() {
+    return heuristic;
+  }
+
+  /**
+   * Sets the heuristic used to estimate the distance of states to the goal state.
+   * The heuristic has to be admissible for the solutions to be optimal.
+   *
+   * @param heuristic - the heuristic to estimate states with
+   */
+  public void setHeuristic(Heuristic heuristic) {
+    this.heuristic = heuristic;
+  }
+
+  /**
+   * Returns the number of states expanded in the last iteration of the last search, the one
+   * that reached the goal state when it was found. Fringe search counts the states of its last round.
+   *
+   * @return the states expanded in the last iteration
+   */
+  public long getLastIterationExpanded() {
+    return lastIteration;
+  }
+
+  /**
+   * Returns the number of distinct states expanded by the last search.
+   *
+   * @return the distinct states expanded, 0 when they were not counted
+   */
+  public long getDistinct() {
+    return distinct;
+  }
+
+  /**
+   * Returns the ratio of the states expanded to the distinct states expanded by the last search,
+   * 1 when no state was expanded twice.
+   *
+   * @return the re-expansion ratio, 0 when the distinct states were not counted
+   */
+  public double getReexpansionRatio() {
+    return distinct == 0 ? 0 : (double) expanded / distinct;
+  }
+
+  /**
+   * Returns the heuristic estimate of a packed state.
+   *
+   * @param packed - the packed state
+   * @return the estimate of the state
+   */
+  private int estimate(long packed) {
+    if (manhattan) {
+      return evaluator.distance(packed);
+    }
+    PackedState.unpack(packed, numbers);
+    return heuristic.estimate(goalConfiguration, numbers);
+  }
+
+  /**
+   * Returns the heuristic estimate of a packed state made by one move, from the estimate of the state before the move.
+   *
+   * @param packed - the packed state before the move
+   * @param newState - the packed state after the move
+   * @param zero - the position of the zero before the move
+   * @param target - the position the zero moved to
+   * @param h - the estimate of the state before the move
+   * @return the estimate of the state after the move
+   */
+  private int estimate(long packed, long newState, int zero, int target, int h) {
+    if (manhattan) {
+      int number = PackedState.get(packed, target);
+      return h + distances[number * cells + zero] - distances[number * cells + target];
+    }
+    PackedState.unpack(newState, numbers);
+    return heuristic.estimate(goalConfiguration, numbers, target, zero, h);
+  }
+
+  /**
+   * Checks whether the search has to stop, every few states expanded.
+   *
+   * @param g - the path length of the state expanded
+   * @return whether the search has to stop
+   */
+  private boolean checkStop(int g) {
+    if (expanded % CHECK_INTERVAL == 0) {
+      searchDepth = g;
+      if (isOutOfMemory() || shouldStop()) {
+        halted = true;
+      }
+    }
+    return halted;
+  }
+
+  /**
+   * Performs the IDA* search from the given state, using packed states.
+   *
+   * @param state - the puzzle state to search from
+   * @return the moves from the state to the goal state, or null when the goal state was not found
+   */
+  private String idaStar(PuzzleState state) {
+
+    /* Make the transposition table when there is none of the right size. */
+    if (transpositionBytes == 0) {
+      table = null;
+    } else if (table == null) {
+      table = new TranspositionTable(transpositionBytes);
+    }
+    search = table != null ? table.newSearch() : 0;
+
+    /* The packed input state and its lower bound. */
+    long start = packer.pack(state);
+    int h = estimate(start);
+    startBound = h;
+    threshold = startBound;
+
+    /* Forget the move statistics of the last search. */
+    ordering.clear(cells);
+
+    /* The first iteration, the one of the checkpoint in resume mode. */
+    root = state;
+    stopSaved = false;
+    resumeLength = 0;
+    checkpointFile = checkpoints != null ? checkpoints.getFile("idastar", state) : null;
+    int first = 1;
+    if (checkpointFile != null) {
+      if (checkpoints.isResume()) {
+        first = Math.max(1, readCheckpoint());
+      }
+      checkpoints.start();
+    }
+
+    /* Search deeper each iteration until the goal state is reached. */
+    for (iteration = first; threshold <= TranspositionTable.MAX_VALUE; iteration++) {
+      searchDepth = threshold;
+
+      /* Order the moves by what the last iteration learned. */
+      if (iteration > first) {
+        ordering.nextIteration();
+      }
+      long before = expanded;
+      int result = search(start, PackedState.zero(start), 0, h, startBound, -1, 0);
+      lastIteration = expanded - before;
+
+      /* When the goal state is reached, the path holds its moves. */
+      if (result == FOUND) {
+        if (checkpointFile != null) {
+          checkpoints.delete(checkpointFile);
+        }
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+          builder.append(PackedState.MOVES[path[i]]);
+        }
+        return builder.toString();
+      }
+
+      /* Make sure program doesn't run over memory limit, deadline or cancellation, the checkpoint of the stop is kept. */
+      if (halted) {
+        return null;
+      }
+
+      /* No path of at most the threshold exists, and the solution lengths may have the parity of the estimate. */
+      startBound = result;
+      threshold = Math.max(result, threshold + (parity ? 2 : 1));
+    }
+
+    /* The threshold went past the longest path the table holds, so the search gave up. */
+    if (checkpointFile != null) {
+      checkpoints.delete(checkpointFile);
+    }
+    giveUp(SolveResult.Status.OUT_OF_RESOURCES);
+    return null;
+  }
+
+  /**
+   * Searches the states below a state whose f value is within the threshold, depth-first.
+   *
+   * @param packed - the packed state
+   * @param zero - the position of the zero (blank space) in the state
+   * @param g - the length of the path to the state
+   * @param h - the heuristic estimate of the state
+   * @param bound - the best known lower bound on the distance of the state to the goal state
+   * @param back - the move that would undo the move into the state, -1 for the input state
+   * @param parentBound - the lower bound of the previous state on the path
+   * @return the new lower bound of the state, or FOUND when the goal state was reached
+   */
+  private int search(long packed, int zero, int g, int h, int bound, int back, int parentBound) {
+
+    /* Cut the state off when its f value exceeds the threshold. */
+    if (g + bound > threshold) {
+      return bound;
+    }
+
+    /* When the state is the goal state, the path is complete. */
+    if (packed == goalState) {
+      length = g;
+      return FOUND;
+    }
+
+    /* Count the state as expanded, and as distinct when it is new. */
+    expanded++;
+    if (countDistinct && seen.add(packed, 0)) {
+      distinct++;
+    }
+
+    /* Make sure program doesn't run over memory limit, deadline or cancellation. */
+    boolean stop = checkStop(g);
+
+    /* Write a checkpoint at this state when one is due, and before stopping, so the search can go on later. */
+    if (checkpointFile != null && !stopSaved && (stop || (expanded % CHECK_INTERVAL == 0 && checkpoints.isDue()))) {
+      writeCheckpoint(g);
+      stopSaved = stop;
+    }
+    if (stop) {
+      return bound;
+    }
+
+    /* Mark the state as reached at this path length in this iteration. */
+    if (table != null) {
+      table.store(packed, TranspositionTable.entry(bound, g, iteration, threshold - g, search));
+    }
+
+    /* The states on the path to the state of the checkpoint keep what was searched below them before it. */
+    boolean resumed = g < resumeLength;
+    if (!resumed) {
+      resumeLength = 0;
+
+      /* The smallest f value cut off below the state, minus g. The previous state bounds it as well, since
+         the shortest path from the state may lead back through the previous state, which is not searched. */
+      bests[g] = back < 0 ? INFINITY : parentBound + 1;
+      bestResults[g] = INFINITY;
+      bestMoves[g] = -1;
+      searched[g] = 0;
+    }
+
+    /* Make the new states of the moves up, down, left and right, their keys being their lower bounds. */
+    int offset = g * PackedState.MOVES.length;
+    for (int move = 0; move < PackedState.MOVES.length; move++) {
+
+      /* The position the zero moves to, skipping moves off the board and back to the previous state. */
+      int target = packer.neighbor(zero, move);
+      if (target < 0 || move == back) {
+        keys[offset + move] = MoveOrdering.SKIP;
+        continue;
+      }
+
+      /* Make the new state, the tile at the target moves into the old zero position. */
+      long newState = PackedState.move(packed, zero, target);
+      int newH = estimate(packed, newState, zero, target, h);
+      int newBound = newH;
+
+      /* Look up what is known about the new state. */
+      if (table != null) {
+        long entry = table.probe(newState, search);
+        if (entry != TranspositionTable.MISS) {
+          newBound = Math.max(newH, TranspositionTable.bound(entry));
+
+          /* Skip the state when it was reached by a path as short in this iteration. */
+          if (TranspositionTable.iteration(entry) == iteration && TranspositionTable.cost(entry) <= g + 1) {
+            bests[g] = Math.min(bests[g], newBound + 1);
+            keys[offset + move] = MoveOrdering.SKIP;
+            continue;
+          }
+        }
+      }
+
+      childStates[offset + move] = newState;
+      childEstimates[offset + move] = newH;
+      keys[offset + move] = newBound;
+    }
+
+    /* Put the moves in the order to try them. */
+    int count = ordering.order(g, zero, keys, orders, offset);
+
+    /* Go down the path to the state of the checkpoint first, the transposition table may order the moves differently. */
+    if (resumed) {
+      for (int k = 0; k < count; k++) {
+        if (orders[offset + k] == path[g]) {
+          orders[offset + k] = orders[offset];
+          orders[offset] = path[g];
+          break;
+        }
+      }
+    }
+
+    /* Search below the new states in the order of their moves, skipping the ones searched before the checkpoint. */
+    for (int k = 0; k < count; k++) {
+      int move = orders[offset + k];
+      if ((searched[g] & (1 << move)) != 0) {
+        continue;
+      }
+      path[g] = move;
+      int result = search(childStates[offset + move], packer.neighbor(zero, move), g + 1, childEstimates[offset + move],
+                          keys[offset + move], move ^ 1, bound);
+      if (result == FOUND) {
+        return FOUND;
+      }
+      if (halted) {
+        return bound;
+      }
+
+      /* Keep the smallest f value cut off, and the move that led to it. */
+      bests[g] = Math.min(bests[g], result + 1);
+      if (result < bestResults[g]) {
+        bestResults[g] = result;
+        bestMoves[g] = move;
+      }
+      searched[g] |= 1 << move;
+    }
+
+    /* Learn the move that led to the smallest f value cut off. */
+    if (bestMoves[g] >= 0 && ordering.learns()) {
+      ordering.reward(g, zero, bestMoves[g], threshold - g);
+    }
+
+    /* Keep the better lower bound, with the parity of the estimate when every distance to the goal state has it. */
+    int newBound = Math.min(Math.max(bound, bests[g]), TranspositionTable.MAX_VALUE);
+    if (parity) {
+      newBound += (newBound - h) & 1;
+    }
+    if (table != null) {
+      table.store(packed, TranspositionTable.entry(newBound, g, iteration, threshold - g, search));
+    }
+
+    return newBound;
+  }
+
+  /**
+   * Writes the threshold, the number of states expanded, the statistics of the move ordering and
+   * the moves from the input state to the current state, with what was searched below each state
+   * of the path so far, to a checkpoint. When the checkpoint cannot be written, the search goes on.
+   *
+   * @param level - the number of moves from the input state to the current state
+   */
+  private void writeCheckpoint(int level) {
+    try (CheckpointWriter out = new CheckpointWriter(checkpointFile)) {
+
+      /* Write the puzzle of the search. */
+      DFSSolver.writeState(out, root);
+
+      /* Write where the search is. */
+      out.writeInt(iteration);
+      out.writeInt(threshold);
+      out.writeInt(startBound);
+      out.writeLong(expanded);
+      ordering.write(out);
+      out.writeInt(level);
+      for (int i = 0; i < level; i++) {
+        out.writeByte(path[i]);
+        out.writeByte(searched[i]);
+        out.writeInt(bests[i]);
+        out.writeInt(bestResults[i]);
+        out.writeByte(bestMoves[i] + 1);
+      }
+      out.commit();
+    } catch (IOException ioe) { //Catch exception when writing the checkpoint.
+      System.err.println("Could not save the checkpoint to " + checkpointFile + ": " + ioe.getMessage());
+    }
+
+    /* Start the interval of the next checkpoint, also after a failed one. */
+    checkpoints.start();
+  }
+
+  /**
+   * Reads the threshold, the number of states expanded, the statistics of the move ordering and
+   * the moves from the input state to the state the search stopped at, with what was searched
+   * below each state of the path, from a checkpoint of the same search.
+   *
+   * @return the iteration to go on with, 0 when the search starts over
+   */
+  private int readCheckpoint() {
+
+    /* Checks if there is a checkpoint. */
+    if (!checkpointFile.isFile()) {
+      return 0;
+    }
+
+    try (CheckpointReader in = new CheckpointReader(checkpointFile)) {
+
+      /* Make sure the checkpoint is of this search. */
+      if (!DFSSolver.readState(in, root)) {
+        System.err.println("The checkpoint " + checkpointFile + " is of another search, starting over");
+        return 0;
+      }
+
+      /* Read where the search is. */
+      int savedIteration = in.readInt();
+      int savedThreshold = in.readInt();
+      int savedBound = in.readInt();
+      long savedExpanded = in.readLong();
+
+      /* Make sure the moves are tried in the same order as before the checkpoint. */
+      if (!ordering.read(in)) {
+        System.err.println("The checkpoint " + checkpointFile + " was written with another move ordering, starting over");
+        ordering.clear(cells);
+        return 0;
+      }
+      int level = in.readInt();
+      if (level < 0 || level > TranspositionTable.MAX_VALUE) {
+        throw new IOException("Bad path length " + level);
+      }
+      for (int i = 0; i < level; i++) {
+        path[i] = in.readByte();
+        searched[i] = in.readByte();
+        bests[i] = in.readInt();
+        bestResults[i] = in.readInt();
+        bestMoves[i] = in.readByte() - 1;
+      }
+      threshold = savedThreshold;
+      startBound = savedBound;
+      expanded = savedExpanded;
+      resumeLength = level;
+
+      return savedIteration;
+    } catch (IOException ioe) { //Catch exception when reading the checkpoint, the search starts over.
+      System.err.println("Could not resume from the checkpoint " + checkpointFile + ": " + ioe.getMessage());
+      return 0;
+    }
+  }
+
+  /**
+   * Performs the fringe search from the given state, using packed states.
+   *
+   * @param state - the puzzle state to search from
+   * @return the moves from the state to the goal state, or null when the goal state was not found
+   */
+  private String fringeSearch(PuzzleState state) {
+
+    /* Clear the pool to free memory. */
+    pool.clear();
+    expandedNodes.clear();
+
+    /* The fringe list starts with the input state, its move is never read. */
+    long start = packer.pack(state);
+    int first = addNode(start, 0, -1, 0, estimate(start));
+    next[first] = END;
+    previous[first] = END;
+    int head = first;
+
+    /* Search deeper each round until the goal state is reached or the fringe is empty. */
+    for (int limit = estimate(start); head != END; ) {
+      searchDepth = limit;
+
+      /* The smallest f value above the limit in this round. */
+      int smallest = INFINITY;
+      lastIteration = 0;
+
+      /* Go through the fringe list, the new states are put right after the state they were made from. */
+      int node = head;
+      while (node != END) {
+        int g = pool.getCost(node);
+        int h = estimates[node];
+
+        /* Leave states above the limit for the next round. */
+        if (g + h > limit) {
+          smallest = Math.min(smallest, g + h);
+          node = next[node];
+          continue;
+        }
+
+        /* When the state is the goal state, follow the parents back to the input state. */
+        long packed = pool.getState(node);
+        if (packed == goalState) {
+          return followParents(node);
+        }
+
+        /* Count the state as expanded, and as distinct when it is expanded for the first time. */
+        expanded++;
+        lastIteration++;
+        if (!expandedNodes.get(node)) {
+          expandedNodes.set(node);
+          distinct++;
+        }
+
+        /* Make sure program doesn't run over memory limit, deadline or cancellation. */
+        if (checkStop(g)) {
+          return null;
+        }
+
+        /* The position of the zero (blank space) and the move that would undo the move into the state. */
+        int zero = PackedState.zero(packed);
+        int back = pool.getParent(node) < 0 ? -1 : pool.getMove(node) ^ 1;
+
+        /* Try to move zero (blank space) up, down, left and right in the puzzle. */
+        int last = node;
+        for (int move = 0; move < PackedState.MOVES.length; move++) {
+
+          /* The position the zero moves to, skipping moves off the board and back to the parent. */
+          int target = packer.neighbor(zero, move);
+          if (target < 0 || move == back) {
+            continue;
+          }
+
+          /* Make the new state, the tile at the target moves into the old zero position. */
+          long newState = PackedState.move(packed, zero, target);
+          int newH = estimate(packed, newState, zero, target, h);
+
+          /* Checks if the state is new or reached by a shorter path. */
+          int child = pool.find(newState);
+          if (child < 0) {
+            child = addNode(newState, g + 1, node, move, newH);
+          } else if (g + 1 < pool.getCost(child)) {
+            pool.set(child, g + 1, node, move);
+            if (previous[child] != NOT_LISTED) {
+              head = unlink(child, head);
+            }
+          } else { //Otherwise, a path as short to the state is known.
+
+            continue;
+          }
+
+          /* Put the state into the fringe list after the states made before it. */
+          previous[child] = last;
+          next[child] = next[last];
+          if (next[last] != END) {
+            previous[next[last]] = child;
+          }
+          next[last] = child;
+          last = child;
+        }
+
+        /* Take the expanded state out of the fringe list and go on with the next one. */
+        int following = next[node];
+        head = unlink(node, head);
+        node = following;
+      }
+
+      /* Raise the limit to the smallest f value left in the fringe. */
+      limit = smallest;
+    }
+
+    return null;
+  }
+
+  /**
+   * Adds a node to the pool, growing the fringe list arrays with it.
+   *
+   * @param state - the packed state
+   * @param cost - the length of the path to the state
+   * @param parent - the node of the previous state, -1 for the input state
+   * @param move - the move into the state
+   * @param h - the heuristic estimate of the state
+   * @return the number of the node
+   */
+  private int addNode(long state, int cost, int parent, int move, int h) {
+    int node = pool.add(state, cost, parent, move);
+
+    /* Grow the arrays when the node does not fit. */
+    if (node >= next.length) {
+      int capacity = Math.max(1 << 10, next.length * 2);
+      next = Arrays.copyOf(next, capacity);
+      previous = Arrays.copyOf(previous, capacity);
+      estimates = Arrays.copyOf(estimates, capacity);
+    }
+    estimates[node] = (byte) h;
+    previous[node] = NOT_LISTED;
+
+    return node;
+  }
+
+  /**
+   * Takes a node out of the fringe list.
+   *
+   * @param node - the node to take out
+   * @param head - the first node of the list
+   * @return the first node of the list afterwards
+   */
+  private int unlink(int node, int head) {
+    if (previous[node] != END) {
+      next[previous[node]] = next[node];
+    } else { //Otherwise, the node is the first one.
+
+      head = next[node];
+    }
+    if (next[node] != END) {
+      previous[next[node]] = previous[node];
+    }
+    previous[node] = NOT_LISTED;
+
+    return head;
+  }
+
+  /**
+   * Follows the parents of the nodes back from the goal node to the input node.
+   *
+   * @param node - the number of the goal node
+   * @return the moves from the input state to the goal state
+   */
+  private String followParents(int node) {
+
+    /* Builder to make a string of move sequence. */
+    StringBuilder builder = new StringBuilder();
+
+    /* Add the move into each node until the input node is reached. */
+    for (; pool.getParent(node) >= 0; node = pool.getParent(node)) {
+      builder.append(PackedState.MOVES[pool.getMove(node)]);
+    }
+
+    /* Reverses the moves to order them from the input state to the goal state. */
+    return builder.reverse().toString();
+  }
+
+  /**
+   * Solves the input puzzle using IDA* or fringe search.
+   * Also tracks the amount of time taken to solve puzzle.
+   *
+   * @param puzzle - the puzzle to solve
+   * @return the string sequence of moves from initial puzzle state to goal puzzle state
+   */
+  public String solve(Puzzle puzzle) {
+
+    /* Gets the start time of the search. */
+    long startTime = System.currentTimeMillis();
+
+    /* Initializes goal state to not found. */
+    goal = null;
+    expanded = 0;
+    distinct = 0;
+    halted = false;
+
+    /* The puzzle states must fit into packed states. */
+    if (!PackedState.fits(puzzle.getRows(), puzzle.getColumns())) {
+      moves = null;
+      time = System.currentTimeMillis() - startTime;
+      return "The " + (fringe ? "fringe" : "IDA*") + " solver needs a puzzle of at most "
+               + PackedState.MAX_CELLS + " positions!";
+    }
+
+    /* Creates a new state from the input puzzle for solving. */
+    PuzzleState state = new PuzzleState(puzzle);
+
+    /* A puzzle of the other parity cannot reach its goal state, so there is nothing to search. */
+    if (!state.getGoal().isReachable(state.getNumbers())) {
+      moves = null;
+      time = System.currentTimeMillis() - startTime;
+      return "The puzzle cannot reach its goal state!";
+    }
+
+    /* Packs the states of this puzzle shape. */
+    packer = new PackedState(state.getRows(), state.getColumns());
+    cells = packer.getCells();
+    goalConfiguration = state.getGoal();
+    manhattan = heuristic == ManhattanHeuristic.getInstance();
+    parity = heuristic.keepsParity();
+    numbers = new int[cells];
+    distances = AStarSolver.distances(state.getGoal());
+    evaluator = ManhattanEvaluator.forGoal(state.getGoal());
+    goalState = packer.goal(state.getGoal());
+
+    /* Performs IDA* or fringe search on the initial, randomized puzzle state. */
+    String path;
+    try {
+      path = fringe ? fringeSearch(state) : idaStar(state);
+    } finally {
+
+      /* Free the memory of the searched states, also when the search ran out of memory. */
+      pool.clear();
+      seen.clear();
+      next = new int[0];
+      previous = new int[0];
+      estimates = new byte[0];
+      expandedNodes = new BitSet();
+    }
+
+    /* Makes the states of the path for printing, when the goal state was found. */
+    if (path != null) {
+      for (int i = 0; i < path.length(); i++) {
+        state = PuzzleState.move(state, path.charAt(i));
+      }
+      goal = state;
+    }
+
+    /* Gets the difference between end time and start time to find total time taken to solve puzzle. */
+    time = System.currentTimeMillis() - startTime;
+
+    /* Returns the sequence of moves from initial, randomized puzzle state to goal state. */
+    return getSequence();
+  }
+}
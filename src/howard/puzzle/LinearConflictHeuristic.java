@@ -0,0 +1,226 @@
+package howard.puzzle;
+
+/**
+ * Class for the linear conflict heuristic of the puzzle.
+ * The estimate is the manhattan distance plus two moves for every tile that has to leave its
+ * row or column to let the other tiles of that line pass. Two tiles in their goal row are in
+ * conflict when they are in the opposite order of their goal columns, and one of them has to step
+ * out of the row and back. The fewest tiles to take out of a line, so the others are in order,
+ * is the number of its tiles in their goal line less the longest run of them in increasing order.
+ * Columns are counted the same way. This heuristic is admissible, and much more informed than
+ * the manhattan distance on the 15-puzzle.
+ *
+ * A state or board made by one move is estimated from the one before the move: the moved tile
+ * steps one position, and only the conflicts of the two rows (or columns) it moves between change.
+ *
+ * @author Shaun Howard
+ */
+public class LinearConflictHeuristic implements Heuristic {
+
+  /** An instance of the linear conflict heuristic for estimating puzzle states. */
+  private static LinearConflictHeuristic instance = new LinearConflictHeuristic();
+
+  /** Nullary constructor. */
+  private LinearConflictHeuristic() {
+
+  }
+
+  /**
+   * Returns the instance of this heuristic.
+   *
+   * @return the instance of the linear conflict heuristic
+   */
+  public static LinearConflictHeuristic getInstance() {
+    return instance;
+  }
+
+  /**
+   * Returns true, every move takes its tile one step, and the conflicts count two moves each.
+   *
+   * @return true
+   */
+  @Override
+  public boolean keepsParity() {
+    return true;
+  }
+
+  /**
+   * Sums the manhattan distances of the tiles and two moves for each tile taken out of a line.
+   *
+   * @param state - the puzzle state to estimate
+   * @return the linear conflict estimate of the state
+   */
+  public int estimate(PuzzleState state) {
+    return estimate(state.getGoal(), state.getNumbers());
+  }
+
+  /**
+   * Updates the estimate of the previous state by the step of the moved tile and the conflicts
+   * of the two lines it moved between.
+   *
+   * @param state - the puzzle state to estimate, made by one move from its previous state
+   * @param previousEstimate - the estimate of the previous state
+   * @return the linear conflict estimate of the state
+   */
+  @Override
+  public int estimate(PuzzleState state, int previousEstimate) {
+
+    /* The tile moved from the new position of the zero to its old position. */
+    PuzzleState previous = state.getPrev();
+    int columns = state.getColumns();
+    return estimate(state.getGoal(), state.getNumbers(), state.getZeroRow() * columns + state.getZeroColumn(),
+                    previous.getZeroRow() * columns + previous.getZeroColumn(), previousEstimate);
+  }
+
+  /**
+   * Sums the manhattan distances of the tiles of a board and two moves for each tile taken out of a line.
+   *
+   * @param goal - the goal configuration of the board
+   * @param numbers - the number at each position of the board, zero for the blank space
+   * @return the linear conflict estimate of the board
+   */
+  @Override
+  public int estimate(GoalConfiguration goal, int[] numbers) {
+
+    /* Start with the manhattan distance. */
+    int distance = ManhattanHeuristic.getInstance().estimate(goal, numbers);
+
+    /* Add the conflicts of every row and column. */
+    for (int i = 0; i < goal.getRows(); i++) {
+      distance += 2 * rowConflicts(goal, numbers, i);
+    }
+    for (int j = 0; j < goal.getColumns(); j++) {
+      distance += 2 * columnConflicts(goal, numbers, j);
+    }
+
+    return distance;
+  }
+
+  /**
+   * Updates the estimate of the board before the move by the step of the moved tile and the
+   * conflicts of the two lines it moved between.
+   *
+   * @param goal - the goal configuration of the board
+   * @param numbers - the number at each position of the board after the move
+   * @param from - the position the tile moved from, the blank space after the move
+   * @param to - the position the tile moved to, the blank space before the move
+   * @param previousEstimate - the estimate of the board before the move
+   * @return the linear conflict estimate of the board
+   */
+  @Override
+  public int estimate(GoalConfiguration goal, int[] numbers, int from, int to, int previousEstimate) {
+
+    /* The step of the moved tile towards or away from its goal position. */
+    int distance = ManhattanHeuristic.getInstance().estimate(goal, numbers, from, to, previousEstimate);
+    int columns = goal.getColumns();
+
+    /* Checks if the tile moved between rows, its column keeps the same order. */
+    if (from / columns != to / columns) {
+      int conflicts = rowConflicts(goal, numbers, from / columns) + rowConflicts(goal, numbers, to / columns);
+
+      /* Move the tile back for the conflicts before the move. */
+      swap(numbers, from, to);
+      conflicts -= rowConflicts(goal, numbers, from / columns) + rowConflicts(goal, numbers, to / columns);
+      swap(numbers, from, to);
+      distance += 2 * conflicts;
+    } else { //Otherwise, the tile moved between columns, its row keeps the same order.
+
+      int conflicts = columnConflicts(goal, numbers, from % columns) + columnConflicts(goal, numbers, to % columns);
+
+      /* Move the tile back for the conflicts before the move. */
+      swap(numbers, from, to);
+      conflicts -= columnConflicts(goal, numbers, from % columns) + columnConflicts(goal, numbers, to % columns);
+      swap(numbers, from, to);
+      distance += 2 * conflicts;
+    }
+
+    return distance;
+  }
+
+  /**
+   * Swaps the numbers at two positions of a board.
+   *
+   * @param numbers - the number at each position of the board
+   * @param first - the first position
+   * @param second - the second position
+   */
+  private static void swap(int[] numbers, int first, int second) {
+    int number = numbers[first];
+    numbers[first] = numbers[second];
+    numbers[second] = number;
+  }
+
+  /**
+   * Returns the fewest tiles to take out of a row, so its other tiles in their goal row are in
+   * the order of their goal columns.
+   *
+   * @param goal - the goal configuration of the board
+   * @param numbers - the number at each position of the board
+   * @param row - the row of the puzzle
+   * @return the number of tiles to take out of the row
+   */
+  private static int rowConflicts(GoalConfiguration goal, int[] numbers, int row) {
+
+    /* The goal columns of the tiles of the row that are in their goal row, in order. */
+    int[] order = new int[goal.getColumns()];
+    int count = 0;
+    for (int j = 0; j < goal.getColumns(); j++) {
+      int number = numbers[row * goal.getColumns() + j];
+      if (number != 0 && goal.getRow(number) == row) {
+        order[count++] = goal.getColumn(number);
+      }
+    }
+
+    return count - longestIncreasing(order, count);
+  }
+
+  /**
+   * Returns the fewest tiles to take out of a column, so its other tiles in their goal column are
+   * in the order of their goal rows.
+   *
+   * @param goal - the goal configuration of the board
+   * @param numbers - the number at each position of the board
+   * @param column - the column of the puzzle
+   * @return the number of tiles to take out of the column
+   */
+  private static int columnConflicts(GoalConfiguration goal, int[] numbers, int column) {
+
+    /* The goal rows of the tiles of the column that are in their goal column, in order. */
+    int[] order = new int[goal.getRows()];
+    int count = 0;
+    for (int i = 0; i < goal.getRows(); i++) {
+      int number = numbers[i * goal.getColumns() + column];
+      if (number != 0 && goal.getColumn(number) == column) {
+        order[count++] = goal.getRow(number);
+      }
+    }
+
+    return count - longestIncreasing(order, count);
+  }
+
+  /**
+   * Returns the length of the longest increasing subsequence of the first values of an array.
+   * Lines are short, so the quadratic method is used.
+   *
+   * @param values - the values, all different
+   * @param count - the number of values to use from the start of the array
+   * @return the length of the longest increasing subsequence
+   */
+  private static int longestIncreasing(int[] values, int count) {
+
+    /* The length of the longest increasing subsequence ending at each value. */
+    int[] lengths = new int[count];
+    int longest = 0;
+    for (int i = 0; i < count; i++) {
+      lengths[i] = 1;
+      for (int k = 0; k < i; k++) {
+        if (values[k] < values[i] && lengths[k] + 1 > lengths[i]) {
+          lengths[i] = lengths[k] + 1;
+        }
+      }
+      longest = Math.max(longest, lengths[i]);
+    }
+
+    return longest;
+  }
+}
@@ -0,0 +1,182 @@
+package howard.puzzle;
+
+import java.io.IOException;
+
+/**
+ * Class for a first-in-first-out queue of longs, kept in a growable ring buffer.
+ * Adding a packed state allocates no node object, and states can be added and
+ * drained in bulk, so a breadth-first search can move whole chunks of a layer at once.
+ *
+ * @author Shaun Howard
+ */
+public class LongQueue implements StateQueue {
+
+  /** The smallest number of slots of the ring buffer. */
+  private static final int MIN_CAPACITY = 1 << 10;
+
+  /** The ring buffer of values. */
+  private long[] buffer;
+
+  /** The index of the first value in the ring buffer. */
+  private int head;
+
+  /** The number of values in the queue. */
+  private int size;
+
+  /** Nullary constructor. */
+  public LongQueue() {
+    buffer = new long[MIN_CAPACITY];
+  }
+
+  /**
+   * Returns the number of values in the queue.
+   *
+   * @return the number of values
+   */
+  public long size() {
+    return size;
+  }
+
+  /**
+   * Returns whether the queue has no values.
+   *
+   * @return whether the queue is empty
+   */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Adds a value to the end of the queue.
+   *
+   * @param value - the value to add
+   */
+  public void add(long value) {
+
+    /* Grow the buffer when it is full. */
+    if (size == buffer.length) {
+      grow(size + 1);
+    }
+
+    buffer[(head + size) & (buffer.length - 1)] = value;
+    size++;
+  }
+
+  /**
+   * Adds values from an array to the end of the queue.
+   *
+   * @param values - the array of values to add
+   * @param count - the number of values to add from the start of the array
+   */
+  public void addAll(long[] values, int count) {
+
+    /* Grow the buffer when the values do not fit. */
+    if (size + count > buffer.length) {
+      grow(size + count);
+    }
+
+    /* Copy the values up to the end of the buffer, then wrap around to its start. */
+    int tail = (head + size) & (buffer.length - 1);
+    int first = Math.min(count, buffer.length - tail);
+    System.arraycopy(values, 0, buffer, tail, first);
+    System.arraycopy(values, first, buffer, 0, count - first);
+    size += count;
+  }
+
+  /**
+   * Removes the value at the start of the queue.
+   *
+   * @return the value at the start of the queue
+   */
+  public long poll() {
+
+    /* Make sure there is a value to remove. */
+    if (size == 0) {
+      throw new IllegalStateException("Queue is empty");
+    }
+
+    long value = buffer[head];
+    head = (head + 1) & (buffer.length - 1);
+    size--;
+
+    return value;
+  }
+
+  /**
+   * Removes values from the start of the queue into an array.
+   *
+   * @param values - the array to put the values into
+   * @param max - the largest number of values to remove
+   * @return the number of values removed
+   */
+  public int drain(long[] values, int max) {
+
+    /* The number of values to remove. */
+    int count = Math.min(max, size);
+
+    /* Copy the values up to the end of the buffer, then wrap around to its start. */
+    int first = Math.min(count, buffer.length - head);
+    System.arraycopy(buffer, head, values, 0, first);
+    System.arraycopy(buffer, 0, values, first, count - first);
+    head = (head + count) & (buffer.length - 1);
+    size -= count;
+
+    return count;
+  }
+
+  public boolean isFull() {
+    return false;
+  }
+
+  public void write(CheckpointWriter out) throws IOException {
+    out.writeLong(size);
+
+    /* Write the values up to the end of the buffer, then from its start. */
+    int first = Math.min(size, buffer.length - head);
+    out.writeLongs(buffer, head, first);
+    out.writeLongs(buffer, 0, size - first);
+  }
+
+  public void read(CheckpointReader in) throws IOException {
+
+    /* Read the values a chunk at a time. */
+    long[] part = new long[MIN_CAPACITY];
+    for (long left = in.readLong(); left > 0; ) {
+      int count = (int) Math.min(part.length, left);
+      in.readLongs(part, 0, count);
+      addAll(part, count);
+      left -= count;
+    }
+  }
+
+  /**
+   * Removes all values, shrinking the buffer to free memory.
+   */
+  public void clear() {
+    buffer = new long[MIN_CAPACITY];
+    head = 0;
+    size = 0;
+  }
+
+  /**
+   * Grows the buffer to hold at least the given number of values, unwrapping the values.
+   *
+   * @param capacity - the number of values the buffer must hold
+   */
+  private void grow(int capacity) {
+
+    /* Double the buffer until the values fit, keeping its length a power of two. */
+    int length = buffer.length;
+    while (length < capacity) {
+      length *= 2;
+    }
+
+    /* Copy the values in order to the start of the new buffer. */
+    long[] grown = new long[length];
+    int first = Math.min(size, buffer.length - head);
+    System.arraycopy(buffer, head, grown, 0, first);
+    System.arraycopy(buffer, 0, grown, first, size - first);
+    buffer = grown;
+    head = 0;
+  }
+}
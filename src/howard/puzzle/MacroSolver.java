@@ -0,0 +1,584 @@
+package howard.puzzle;
+
+/**
+ * Class for solving very large N = n x n - 1 puzzles with a constructive, macro-operator method.
+ * The tiles are placed row by row, then the last two rows are placed column by column,
+ * and finally the last 2 x 2 square is rotated into place. Each tile is moved along a
+ * shortest path with the zero (blank space) routed around the tiles already placed, and
+ * the last two tiles of each row and column are placed together with a precomputed macro
+ * sequence. The solution is not optimal, but the solver runs in polynomial time and linear
+ * memory, so it solves boards that are far too large for the optimal searches. The solution
+ * can be shortened afterwards with the path shortener.
+ *
+ * The solver works on the board flipped so that the zero of the goal state is in the bottom
+ * right corner, and each tile is renumbered by its goal position on the flipped board, so any
+ * goal configuration with the zero in a corner can be solved. With the zero in the top left
+ * corner, the board is turned upside down and the tiles are placed from the bottom right of the
+ * puzzle to the top left.
+ *
+ * @author Shaun Howard
+ */
+public class MacroSolver extends PuzzleSolver {
+
+  /** The row offsets of the moves up, down, left and right. */
+  private static final int[] ROW_STEPS = {-1, 1, 0, 0};
+
+  /** The column offsets of the moves up, down, left and right. */
+  private static final int[] COLUMN_STEPS = {0, 0, -1, 1};
+
+  /** The characters of the moves up, down, left and right. */
+  private static final char[] MOVES = {'u', 'd', 'l', 'r'};
+
+  /** The number of rows of the 3 x 2 block the last two tiles of a row are placed in. */
+  private static final int BLOCK_ROWS = 3;
+
+  /** The number of columns of the 3 x 2 block the last two tiles of a row are placed in. */
+  private static final int BLOCK_COLUMNS = 2;
+
+  /** The number of cells of the block the last two tiles of a row are placed in. */
+  private static final int BLOCK_CELLS = BLOCK_ROWS * BLOCK_COLUMNS;
+
+  /**
+   * The macro table of the block, the next move of the zero for every position of the first tile,
+   * second tile and zero in the block, -1 when both tiles are placed.
+   */
+  private static final byte[] MACRO = makeMacroTable();
+
+  /** An instance of the macro solver for solving the puzzle. */
+  private static MacroSolver instance = new MacroSolver();
+
+  /** Whether the solution is shortened after it is found. */
+  private boolean postOptimize = true;
+
+  /** The number of rows of the board being solved. */
+  private int rows;
+
+  /** The number of columns of the board being solved. */
+  private int columns;
+
+  /** Whether the rows of the board are flipped, when the goal has the zero in the top row. */
+  private boolean flipRows;
+
+  /** Whether the columns of the board are flipped, when the goal has the zero in the left column. */
+  private boolean flipColumns;
+
+  /** The tile at each position of the flipped board, the zero is the highest tile. */
+  private int[] cells;
+
+  /** The position of each tile of the flipped board. */
+  private int[] positions;
+
+  /** Whether each position of the flipped board holds a placed tile. */
+  private boolean[] locked;
+
+  /** The position the zero (blank space) is reached from in the path search. */
+  private int[] parents;
+
+  /** The queue of positions for the path search. */
+  private int[] queue;
+
+  /** The search number each position was last visited in, so the path search needs no clearing. */
+  private int[] visited;
+
+  /** The number of the current path search. */
+  private int stamp;
+
+  /** Builder for the moves of the zero on the puzzle. */
+  private StringBuilder builder;
+
+  /** Nullary constructor. */
+  MacroSolver() {
+
+  }
+
+  /**
+   * Returns the instance of the macro solver.
+   *
+   * @return the instance of the macro solver
+   */
+  public static MacroSolver getInstance() {
+    return instance;
+  }
+
+  /**
+   * Sets whether the solution is shortened after it is found.
+   *
+   * @param postOptimize - whether to shorten the solution
+   */
+  public void setPostOptimize(boolean postOptimize) {
+    this.postOptimize = postOptimize;
+  }
+
+  /**
+   * Makes the macro table of the 3 x 2 block with a breadth-first search back from the placed tiles.
+   * Only the first tile, the second tile and the zero are told apart, the other tiles of the block
+   * are not placed yet.
+   *
+   * @return the next move of the zero for every position of the tiles and zero in the block
+   */
+  private static byte[] makeMacroTable() {
+
+    /* The table of next moves, indexed by the positions of the first tile, second tile and zero. */
+    byte[] table = new byte[BLOCK_CELLS * BLOCK_CELLS * BLOCK_CELLS];
+
+    /* Whether each state of the block has been reached. */
+    boolean[] reached = new boolean[table.length];
+
+    /* The queue of states for the breadth-first search. */
+    int[] queue = new int[table.length];
+    int head = 0, tail = 0;
+
+    /* The goal states have both tiles placed and the zero anywhere else. */
+    for (int zero = 2; zero < BLOCK_CELLS; zero++) {
+      int state = blockState(0, 1, zero);
+      table[state] = -1;
+      reached[state] = true;
+      queue[tail++] = state;
+    }
+
+    /* Search back from the goal states while states exist in the queue. */
+    while (head < tail) {
+
+      /* Poll the queue to get the next state. */
+      int state = queue[head++];
+      int first = state / (BLOCK_CELLS * BLOCK_CELLS);
+      int second = state / BLOCK_CELLS % BLOCK_CELLS;
+      int zero = state % BLOCK_CELLS;
+
+      /* Try to move the zero in each direction. */
+      for (int move = 0; move < MOVES.length; move++) {
+
+        /* The row and column the zero is moved to. */
+        int row = zero / BLOCK_COLUMNS + ROW_STEPS[move];
+        int column = zero % BLOCK_COLUMNS + COLUMN_STEPS[move];
+
+        /* Checks if the zero stays in the block. */
+        if (row < 0 || row >= BLOCK_ROWS || column < 0 || column >= BLOCK_COLUMNS) {
+          continue;
+        }
+
+        /* The tile at the new zero position swaps with the zero. */
+        int next = row * BLOCK_COLUMNS + column;
+        int previous = blockState(first == next ? zero : first, second == next ? zero : second, next);
+
+        /* Moves are reversible, so the opposite move leads from the new state back to this one. */
+        if (!reached[previous]) {
+          reached[previous] = true;
+          table[previous] = (byte) (move ^ 1);
+          queue[tail++] = previous;
+        }
+      }
+    }
+
+    return table;
+  }
+
+  /**
+   * Returns the index of a state of the 3 x 2 block in the macro table.
+   *
+   * @param first - the block position of the first tile
+   * @param second - the block position of the second tile
+   * @param zero - the block position of the zero
+   * @return the index of the state in the macro table
+   */
+  private static int blockState(int first, int second, int zero) {
+    return (first * BLOCK_CELLS + second) * BLOCK_CELLS + zero;
+  }
+
+  /**
+   * Returns the position of a cell of a 3 x 2 block of the board. Transposed blocks are 2 x 3,
+   * with block rows running along the board columns.
+   *
+   * @param row - the row of the top left cell of the block
+   * @param column - the column of the top left cell of the block
+   * @param cell - the position of the cell in the block
+   * @param transposed - whether the block is transposed
+   * @return the position of the cell on the board
+   */
+  private int blockCell(int row, int column, int cell, boolean transposed) {
+
+    /* The row and column of the cell in the block. */
+    int blockRow = cell / BLOCK_COLUMNS;
+    int blockColumn = cell % BLOCK_COLUMNS;
+
+    /* Checks if the block is transposed. */
+    if (transposed) {
+      return (row + blockColumn) * columns + column + blockRow;
+    }
+
+    return (row + blockRow) * columns + column + blockColumn;
+  }
+
+  /**
+   * Moves the zero (blank space) into an adjacent position of the board.
+   *
+   * @param position - the position adjacent to the zero to move it into
+   */
+  private void slide(int position) {
+
+    /* The position of the zero and the tile it swaps with. */
+    int zero = positions[cells.length - 1];
+    int tile = cells[position];
+
+    /* Swaps the zero with the tile. */
+    cells[zero] = tile;
+    positions[tile] = zero;
+    cells[position] = cells.length - 1;
+    positions[cells.length - 1] = position;
+
+    /* Records the move; up on a board with flipped rows is down on the puzzle, and so on. */
+    if (position == zero - columns) {
+      builder.append(flipRows ? 'd' : 'u');
+    } else if (position == zero + columns) {
+      builder.append(flipRows ? 'u' : 'd');
+    } else if (position == zero - 1) {
+      builder.append(flipColumns ? 'r' : 'l');
+    } else {
+      builder.append(flipColumns ? 'l' : 'r');
+    }
+  }
+
+  /**
+   * Finds a shortest path between two positions with a breadth-first search through the
+   * positions that are not locked. The path can be followed back from the end with the parents.
+   *
+   * @param from - the position to start the path at
+   * @param to - the position to end the path at
+   * @param avoid - a position the path may not pass through, -1 for none
+   * @return whether a path exists
+   */
+  private boolean findPath(int from, int to, int avoid) {
+
+    /* Start a new search, so the positions need not be cleared. */
+    stamp++;
+    int head = 0, tail = 0;
+    visited[from] = stamp;
+    queue[tail++] = from;
+
+    /* Search the board while positions exist in the queue. */
+    while (head < tail) {
+
+      /* Poll the queue to get the next position. */
+      int position = queue[head++];
+      expanded++;
+
+      /* When the end is reached, the path is found. */
+      if (position == to) {
+        return true;
+      }
+
+      /* Try to step in each direction. */
+      for (int move = 0; move < MOVES.length; move++) {
+
+        /* The row and column of the next position. */
+        int row = position / columns + ROW_STEPS[move];
+        int column = position % columns + COLUMN_STEPS[move];
+
+        /* Checks if the next position is on the board. */
+        if (row < 0 || row >= rows || column < 0 || column >= columns) {
+          continue;
+        }
+
+        /* Adds the next position when it is free and not visited yet. */
+        int next = row * columns + column;
+        if (visited[next] != stamp && !locked[next] && next != avoid) {
+          visited[next] = stamp;
+          parents[next] = position;
+          queue[tail++] = next;
+        }
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Moves the zero (blank space) to a position along a shortest path of free positions.
+   *
+   * @param position - the position to move the zero to
+   * @param avoid - a position the zero may not pass through, -1 for none
+   */
+  private void moveZero(int position, int avoid) {
+
+    /* The position of the zero. */
+    int zero = positions[cells.length - 1];
+
+    /* Searches the path back from the target, so it can be followed from the zero. */
+    if (!findPath(position, zero, avoid)) {
+      throw new IllegalStateException("The zero cannot reach position " + position);
+    }
+
+    /* Follows the path from the zero to the target. */
+    while (zero != position) {
+      zero = parents[zero];
+      slide(zero);
+    }
+  }
+
+  /**
+   * Moves a tile to a position along a shortest path of free positions, moving the zero
+   * (blank space) ahead of the tile at every step.
+   *
+   * @param tile - the tile to move
+   * @param position - the position to move the tile to
+   */
+  private void moveTile(int tile, int position) {
+
+    /* Searches the path back from the target, so it can be followed from the tile. */
+    if (!findPath(position, positions[tile], -1)) {
+      throw new IllegalStateException("Tile cannot reach position " + position);
+    }
+
+    /* Copies the path, since moving the zero searches the board again. */
+    int length = 0;
+    for (int step = positions[tile]; step != position; step = parents[step]) {
+      length++;
+    }
+    int[] path = new int[length];
+    int step = positions[tile];
+    for (int i = 0; i < length; i++) {
+      step = parents[step];
+      path[i] = step;
+    }
+
+    /* Follows the path by moving the zero ahead of the tile and sliding it back into the tile. */
+    for (int next : path) {
+      moveZero(next, positions[tile]);
+      slide(positions[tile]);
+    }
+  }
+
+  /**
+   * Places the last two tiles of a row together, since placing them one by one would disturb
+   * the first. The first tile is parked in the corner, the second tile and the zero are brought
+   * into the 3 x 2 block, and the macro table finishes the placement. The last two tiles of the
+   * columns of the last two rows are placed with the same macro in a transposed block.
+   *
+   * @param first - the tile placed in the first block position
+   * @param second - the tile placed in the second block position
+   * @param row - the row of the top left cell of the block
+   * @param column - the column of the top left cell of the block
+   * @param transposed - whether the block is transposed
+   */
+  private void placePair(int first, int second, int row, int column, boolean transposed) {
+
+    /* The board positions of the block cells. */
+    int[] block = new int[BLOCK_CELLS];
+    for (int cell = 0; cell < BLOCK_CELLS; cell++) {
+      block[cell] = blockCell(row, column, cell, transposed);
+    }
+
+    /* Checks if the tiles are not already placed. */
+    if (positions[first] != block[0] || positions[second] != block[1]) {
+
+      /* Park the first tile in the corner, the position of the second tile. */
+      moveTile(first, block[1]);
+      locked[block[1]] = true;
+
+      /* Bring the second tile into the block when it is outside. */
+      if (blockIndex(block, positions[second]) < 0) {
+        moveTile(second, block[2]);
+      }
+
+      /* Bring the zero into the block, around both tiles. */
+      if (blockIndex(block, positions[cells.length - 1]) < 0) {
+        locked[positions[second]] = true;
+        moveZero(block[3] != positions[second] ? block[3] : block[2], -1);
+        locked[positions[second]] = false;
+      }
+      locked[block[1]] = false;
+
+      /* Follow the macro table until both tiles are placed. */
+      while (true) {
+        int move = MACRO[blockState(blockIndex(block, positions[first]), blockIndex(block, positions[second]),
+                                    blockIndex(block, positions[cells.length - 1]))];
+        if (move < 0) {
+          break;
+        }
+
+        /* The block position the zero moves to. */
+        int zero = blockIndex(block, positions[cells.length - 1]);
+        int next = (zero / BLOCK_COLUMNS + ROW_STEPS[move]) * BLOCK_COLUMNS + zero % BLOCK_COLUMNS + COLUMN_STEPS[move];
+        slide(block[next]);
+      }
+    }
+
+    /* Lock both tiles in place. */
+    locked[block[0]] = true;
+    locked[block[1]] = true;
+  }
+
+  /**
+   * Returns the block cell of a board position.
+   *
+   * @param block - the board positions of the block cells
+   * @param position - the board position to find
+   * @return the block cell of the position, -1 when it is outside of the block
+   */
+  private static int blockIndex(int[] block, int position) {
+    for (int cell = 0; cell < block.length; cell++) {
+      if (block[cell] == position) {
+        return cell;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Rotates the last three tiles of the 2 x 2 square in the corner into place.
+   *
+   * @return whether the tiles could be placed, false when the puzzle is unsolvable
+   */
+  private boolean placeSquare() {
+
+    /* The positions of the square, in the order the zero cycles through them. */
+    int corner = cells.length - 1;
+    int[] square = {corner - columns, corner - columns - 1, corner - 1, corner};
+
+    /* Move the zero to the corner of the square. */
+    moveZero(corner, -1);
+
+    /* The tiles of the square can only be rotated, so try each of the three rotations. */
+    for (int rotation = 0; rotation < 3; rotation++) {
+
+      /* Checks if the tiles are in place. */
+      if (cells[square[0]] == square[0] && cells[square[1]] == square[1] && cells[square[2]] == square[2]) {
+        return true;
+      }
+
+      /* Cycle the zero once around the square. */
+      for (int position : square) {
+        slide(position);
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Returns the position on the flipped board of a position on the puzzle.
+   *
+   * @param row - the row on the puzzle
+   * @param column - the column on the puzzle
+   * @return the position on the flipped board
+   */
+  private int flip(int row, int column) {
+    return (flipRows ? rows - 1 - row : row) * columns + (flipColumns ? columns - 1 - column : column);
+  }
+
+  /**
+   * Solves the input puzzle by placing the tiles row by row and column by column.
+   * Also tracks the amount of time taken to solve puzzle.
+   *
+   * @param puzzle - the puzzle to solve with the macro solver
+   * @return the string sequence of moves from initial puzzle state to goal puzzle state
+   */
+  public String solve(Puzzle puzzle) {
+
+    /* Gets the start time of the search. */
+    long startTime = System.currentTimeMillis();
+
+    /* The zero of the goal state must be in a corner. */
+    GoalConfiguration goalConfiguration = puzzle.getGoal();
+    rows = puzzle.getRows();
+    columns = puzzle.getColumns();
+    int zeroRow = goalConfiguration.getRow(0);
+    int zeroColumn = goalConfiguration.getColumn(0);
+    if ((zeroRow != 0 && zeroRow != rows - 1) || (zeroColumn != 0 && zeroColumn != columns - 1)) {
+      moves = null;
+      time = System.currentTimeMillis() - startTime;
+      return "The macro solver needs the zero of the goal state in a corner!";
+    }
+
+    /* Make the flipped board, each tile is numbered by its goal position on the flipped board. */
+    flipRows = zeroRow == 0;
+    flipColumns = zeroColumn == 0;
+    int n = rows * columns;
+    cells = new int[n];
+    positions = new int[n];
+    locked = new boolean[n];
+    parents = new int[n];
+    queue = new int[n];
+    visited = new int[n];
+    stamp = 0;
+    expanded = 0;
+    builder = new StringBuilder();
+    for (int i = 0; i < rows; i++) {
+      for (int j = 0; j < columns; j++) {
+        int number = puzzle.getNumber(i, j);
+        int position = flip(i, j);
+        cells[position] = flip(goalConfiguration.getRow(number), goalConfiguration.getColumn(number));
+        positions[cells[position]] = position;
+      }
+    }
+
+    /* Place the rows one by one, except for the last two, while the deadline allows. */
+    boolean stopped = false;
+    for (int row = 0; row < rows - 2 && !stopped; row++) {
+
+      /* Place the tiles of the row one by one, except for the last two. */
+      for (int column = 0; column < columns - 2 && !stopped; column++) {
+        moveTile(row * columns + column, row * columns + column);
+        locked[row * columns + column] = true;
+        searchDepth = row * columns + column;
+        stopped = shouldStop();
+      }
+
+      /* Place the last two tiles of the row together. */
+      if (!stopped) {
+        placePair(row * columns + columns - 2, row * columns + columns - 1, row, columns - 2, false);
+      }
+    }
+
+    /* Place the columns of the last two rows, except for the last two. */
+    for (int column = 0; column < columns - 2 && !stopped; column++) {
+      placePair((rows - 2) * columns + column, (rows - 1) * columns + column, rows - 2, column, true);
+      stopped = shouldStop();
+    }
+
+    /* Rotate the last square into place. */
+    boolean solved = !stopped && placeSquare();
+
+    /* Gets the difference between end time and start time to find total time taken to solve puzzle. */
+    time = System.currentTimeMillis() - startTime;
+
+    /* Free the memory of the board. */
+    cells = positions = parents = queue = visited = null;
+    locked = null;
+
+    /* The search stopped at its deadline or was cancelled. */
+    if (stopped) {
+      moves = null;
+      builder = null;
+      return "The macro solver was stopped before placing every tile!";
+    }
+
+    /* When the last square cannot be placed, the puzzle is unsolvable. */
+    if (!solved) {
+      moves = null;
+      return "This puzzle is unsolvable!";
+    }
+
+    /* The moves of the solution. */
+    moves = builder.toString();
+    builder = null;
+    if (verbose) {
+      System.out.println("Solution length: " + moves.length() + " moves");
+    }
+
+    /* Shorten the solution, if wanted and the deadline allows. */
+    if (postOptimize && !shouldStop()) {
+      moves = PathShortener.getInstance().shorten(puzzle, moves);
+      if (verbose) {
+        System.out.println("Solution length after post-optimization: " + moves.length() + " moves");
+      }
+    }
+
+    /* Print time taken to solve puzzle. */
+    if (verbose) {
+      System.out.println("This solving technique took: " + time + " ms");
+    }
+
+    return "This is the sequence of moves from randomized to goal states: " + moves;
+  }
+}
@@ -0,0 +1,71 @@
+package howard.puzzle;
+
+/**
+ * Interface for evaluating the manhattan distance of whole boards to one goal configuration.
+ * The searches update the distance by the one tile that moves, but the boards they start from,
+ * and the tables built over many boards, are evaluated tile by tile. The vector evaluator does
+ * the row and column differences of many tiles at once with the incubating vector API of the
+ * Java runtime, when it was compiled from its own source directory and the runtime is started with
+ * "--add-modules jdk.incubator.vector", and the scalar evaluator adds up a table of distances
+ * otherwise, or when "-Dpuzzle.vector=false" is given. The vector evaluator is looked up by name,
+ * so the other sources compile without the module. An evaluator keeps buffers of its own, so each
+ * search makes its own.
+ *
+ * @author Shaun Howard
+ */
+public interface ManhattanEvaluator {
+
+  /** The system property turning the vector evaluator off. */
+  String PROPERTY = "puzzle.vector";
+
+  /** The module of the vector API. */
+  String VECTOR_MODULE = "jdk.incubator.vector";
+
+  /** The class of the vector evaluator, compiled from its own source directory. */
+  String VECTOR_CLASS = "howard.puzzle.VectorManhattanEvaluator";
+
+  /**
+   * Returns the manhattan distance of a board.
+   *
+   * @param numbers - the number at each position of the board in reading order
+   * @return the sum of the distances of the tiles, not the zero, from their goal positions
+   */
+  int distance(int[] numbers);
+
+  /**
+   * Returns the manhattan distance of a packed state.
+   *
+   * @param packed - the packed state, of a board of at most 16 positions
+   * @return the sum of the distances of the tiles, not the zero, from their goal positions
+   */
+  int distance(long packed);
+
+  /**
+   * Checks whether the vector API is there and not turned off.
+   *
+   * @return whether the vector evaluator can be used
+   */
+  static boolean isVectorAvailable() {
+    return !"false".equals(System.getProperty(PROPERTY)) && ModuleLayer.boot().findModule(VECTOR_MODULE).isPresent();
+  }
+
+  /**
+   * Returns an evaluator of a goal configuration, the vector evaluator when it was compiled and
+   * the vector API is there.
+   *
+   * @param goal - the goal configuration
+   * @return the evaluator of the goal
+   */
+  static ManhattanEvaluator forGoal(GoalConfiguration goal) {
+    if (isVectorAvailable()) {
+      try {
+        return (ManhattanEvaluator) Class.forName(VECTOR_CLASS).getConstructor(GoalConfiguration.class)
+                                      .newInstance(goal);
+      } catch (ClassNotFoundException cnfe) { //Catch a build without the vector evaluator, the scalar evaluator is used.
+      } catch (ReflectiveOperationException | LinkageError e) { //Catch a runtime whose vector API cannot be linked.
+        System.err.println("The vector API could not be used: " + e);
+      }
+    }
+    return new ScalarManhattanEvaluator(goal);
+  }
+}
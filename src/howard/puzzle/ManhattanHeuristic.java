@@ -0,0 +1,152 @@
+package howard.puzzle;
+
+/**
+ * Class for the manhattan distance heuristic of the puzzle.
+ * The estimate is the sum of the row and column distances of every tile
+ * (not the zero) from its position in the goal state.
+ * This heuristic is admissible, so it never overestimates the moves left.
+ * A state made by one move is estimated from its previous state by the one step the moved tile
+ * makes towards or away from its goal position.
+ *
+ * @author Shaun Howard
+ */
+public class ManhattanHeuristic implements Heuristic {
+
+  /** An instance of the manhattan heuristic for estimating puzzle states. */
+  private static ManhattanHeuristic instance = new ManhattanHeuristic();
+
+  /** Nullary constructor. */
+  private ManhattanHeuristic() {
+
+  }
+
+  /**
+   * Returns the instance of this heuristic.
+   *
+   * @return the instance of the manhattan heuristic
+   */
+  public static ManhattanHeuristic getInstance() {
+    return instance;
+  }
+
+  /**
+   * Returns true, every move takes its tile one step towards or away from its goal position.
+   *
+   * @return true
+   */
+  @Override
+  public boolean keepsParity() {
+    return true;
+  }
+
+  /**
+   * Sums the manhattan distances of every tile from its goal position.
+   *
+   * @param state - the puzzle state to estimate
+   * @return the sum of the manhattan distances of the tiles in the state
+   */
+  public int estimate(PuzzleState state) {
+
+    /* The goal of the puzzle state. */
+    GoalConfiguration goal = state.getGoal();
+
+    /* The running sum of the tile distances. */
+    int distance = 0;
+
+    /* Iterate through rows of puzzle. */
+    for (int i = 0; i < goal.getRows(); i++) {
+
+      /* Iterate through columns of puzzle. */
+      for (int j = 0; j < goal.getColumns(); j++) {
+
+        /* The tile at this index of the puzzle. */
+        int number = state.getNumber(i, j);
+
+        /* The zero (blank space) does not count towards the distance. */
+        if (number != 0) {
+
+          /* Add the row and column distances of the tile from its goal index. */
+          distance += Math.abs(i - goal.getRow(number)) + Math.abs(j - goal.getColumn(number));
+        }
+      }
+    }
+
+    return distance;
+  }
+
+  /**
+   * Adds the step the moved tile makes towards or away from its goal position to the estimate
+   * of the previous state.
+   *
+   * @param state - the puzzle state to estimate, made by one move from its previous state
+   * @param previousEstimate - the estimate of the previous state
+   * @return the sum of the manhattan distances of the tiles in the state
+   */
+  @Override
+  public int estimate(PuzzleState state, int previousEstimate) {
+
+    /* The tile moved from the new position of the zero to its old position. */
+    PuzzleState previous = state.getPrev();
+    GoalConfiguration goal = state.getGoal();
+    int number = state.getNumber(previous.getZeroRow(), previous.getZeroColumn());
+
+    /* The distances of the tile from its goal position before and after the move. */
+    int before = Math.abs(state.getZeroRow() - goal.getRow(number))
+                   + Math.abs(state.getZeroColumn() - goal.getColumn(number));
+    int after = Math.abs(previous.getZeroRow() - goal.getRow(number))
+                  + Math.abs(previous.getZeroColumn() - goal.getColumn(number));
+
+    return previousEstimate + after - before;
+  }
+
+  /**
+   * Sums the manhattan distances of every tile of a board from its goal position.
+   *
+   * @param goal - the goal configuration of the board
+   * @param numbers - the number at each position of the board, zero for the blank space
+   * @return the sum of the manhattan distances of the tiles of the board
+   */
+  @Override
+  public int estimate(GoalConfiguration goal, int[] numbers) {
+
+    /* The running sum of the tile distances, the zero does not count. */
+    int distance = 0;
+    for (int position = 0; position < numbers.length; position++) {
+      if (numbers[position] != 0) {
+        distance += distance(goal, numbers[position], position);
+      }
+    }
+
+    return distance;
+  }
+
+  /**
+   * Adds the step the moved tile of a board makes towards or away from its goal position to
+   * the estimate of the board before the move.
+   *
+   * @param goal - the goal configuration of the board
+   * @param numbers - the number at each position of the board after the move
+   * @param from - the position the tile moved from, the blank space after the move
+   * @param to - the position the tile moved to, the blank space before the move
+   * @param previousEstimate - the estimate of the board before the move
+   * @return the sum of the manhattan distances of the tiles of the board
+   */
+  @Override
+  public int estimate(GoalConfiguration goal, int[] numbers, int from, int to, int previousEstimate) {
+    int number = numbers[to];
+    return previousEstimate + distance(goal, number, to) - distance(goal, number, from);
+  }
+
+  /**
+   * Returns the manhattan distance of a tile at a position from its goal position.
+   *
+   * @param goal - the goal configuration
+   * @param number - the tile
+   * @param position - the position of the tile in reading order
+   * @return the row and column distance of the tile from its goal position
+   */
+  private static int distance(GoalConfiguration goal, int number, int position) {
+    return Math.abs(position / goal.getColumns() - goal.getRow(number))
+             + Math.abs(position % goal.getColumns() - goal.getColumn(number));
+  }
+}
@@ -0,0 +1,269 @@
+package howard.puzzle;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Class for the order in which a depth-first search tries the moves of a state. In the last
+ * iteration of an iterative deepening search, the goal state is reached as soon as the search
+ * tries the right move at every state of the path, so trying the most promising moves first
+ * saves most of the states expanded in that iteration.
+ *
+ * The "fixed" order tries up, down, left and right. The "heuristic" order tries the moves that
+ * lower the estimate of the state first. The "history" order tries the killer move of the level
+ * first, the move that led to the best state below the last state of that level, then the moves
+ * by their history score, which adds up how often and how deep each move of the zero (blank
+ * space) from each position led to the best state below, then the moves by their estimates.
+ * The history and killer moves learned in an iteration are only used from the next iteration on,
+ * so the order of the moves of a state does not change within an iteration, and older iterations
+ * count half as much as each newer one.
+ *
+ * Each solver keeps its own order, since it holds the statistics of its search. The order of the
+ * depth-first solvers is "fixed" by default, or the one named by "-Dpuzzle.moveOrder=history".
+ * Ordering allocates no memory, the moves are sorted into arrays of the search.
+ *
+ * @author Shaun Howard
+ */
+public class MoveOrdering {
+
+  /** The system property naming the move order of the depth-first solvers. */
+  public static final String PROPERTY = "puzzle.moveOrder";
+
+  /** The names of the move orders. */
+  public static final String[] NAMES = {"fixed", "heuristic", "history"};
+
+  /** The key of a move that is not tried, such as a move off the board. */
+  public static final int SKIP = Integer.MAX_VALUE;
+
+  /** The number of levels with a killer move, the longest path of the searches. */
+  private static final int LEVELS = TranspositionTable.MAX_VALUE + 1;
+
+  /** The number of the order in NAMES. */
+  private final int kind;
+
+  /** The history scores used in this iteration, by position of the zero * 4 + move. */
+  private long[] history = new long[0];
+
+  /** The history scores learned in this iteration. */
+  private long[] learned = new long[0];
+
+  /** The killer moves used in this iteration, by level, -1 for none. */
+  private final byte[] killers = new byte[LEVELS];
+
+  /** The killer moves learned in this iteration. */
+  private final byte[] newKillers = new byte[LEVELS];
+
+  /**
+   * Constructor for a move order.
+   *
+   * @param kind - the number of the order in NAMES
+   */
+  private MoveOrdering(int kind) {
+    this.kind = kind;
+  }
+
+  /**
+   * Returns a new move order of a name.
+   *
+   * @param name - "fixed", "heuristic" or "history"
+   * @return the move order of the name, null when no order has that name
+   */
+  public static MoveOrdering forName(String name) {
+    int kind = Arrays.asList(NAMES).indexOf(name);
+    return kind < 0 ? null : new MoveOrdering(kind);
+  }
+
+  /**
+   * Returns a new move order named by the move order system property, the fixed order when none is named.
+   *
+   * @return the default move order
+   */
+  public static MoveOrdering fromProperty() {
+    String name = System.getProperty(PROPERTY, NAMES[0]);
+
+    /* Make sure the order exists. */
+    MoveOrdering ordering = forName(name);
+    if (ordering == null) {
+      throw new IllegalArgumentException("No move order named " + name + ", try " + Arrays.toString(NAMES));
+    }
+    return ordering;
+  }
+
+  /**
+   * Returns the name of the move order.
+   *
+   * @return the name of the move order
+   */
+  public String getName() {
+    return NAMES[kind];
+  }
+
+  /**
+   * Returns whether the order looks at the estimates of the states the moves lead to.
+   * The searches only need to estimate the new states before trying them when it does.
+   *
+   * @return whether the order needs the estimates of the moves
+   */
+  public boolean usesEstimates() {
+    return kind != 0;
+  }
+
+  /**
+   * Returns whether the order learns from the best moves, so the searches report them.
+   *
+   * @return whether the order needs the best moves
+   */
+  public boolean learns() {
+    return kind == 2;
+  }
+
+  /**
+   * Forgets the statistics of the last search, when a new search starts.
+   *
+   * @param cells - the number of positions of the puzzle searched
+   */
+  public void clear(int cells) {
+
+    /* Make the history scores of the positions of this puzzle. */
+    if (history.length != cells * PackedState.MOVES.length) {
+      history = new long[cells * PackedState.MOVES.length];
+      learned = new long[history.length];
+    }
+
+    Arrays.fill(history, 0);
+    Arrays.fill(learned, 0);
+    Arrays.fill(killers, (byte) -1);
+    Arrays.fill(newKillers, (byte) -1);
+  }
+
+  /**
+   * Starts using the statistics learned in the last iteration, when a new iteration starts.
+   * The older history scores are halved, so the newer iterations count most.
+   */
+  public void nextIteration() {
+    for (int i = 0; i < history.length; i++) {
+      history[i] = history[i] / 2 + learned[i];
+      learned[i] = 0;
+    }
+    System.arraycopy(newKillers, 0, killers, 0, LEVELS);
+  }
+
+  /**
+   * Learns the move that led to the best state below a state, the smallest estimate or bound.
+   *
+   * @param level - the number of moves from the input state to the state
+   * @param zero - the position of the zero (blank space) in the state
+   * @param move - the best move
+   * @param depth - the number of levels searched below the state
+   */
+  public void reward(int level, int zero, int move, int depth) {
+    learned[zero * PackedState.MOVES.length + move] += (long) depth * depth;
+    if (level < LEVELS) {
+      newKillers[level] = (byte) move;
+    }
+  }
+
+  /**
+   * Puts the moves of a state in the order to try them. Each move has a key, which is lower for
+   * the more promising moves, such as the estimate of the state it leads to, or SKIP when it is
+   * not tried. The moves tried are written in order to the moves array.
+   *
+   * @param level - the number of moves from the input state to the state
+   * @param zero - the position of the zero (blank space) in the state
+   * @param keys - the keys of the moves up, down, left and right, from the offset on
+   * @param moves - the array to write the moves to, from the offset on
+   * @param offset - the index of the first key and move
+   * @return the number of moves to try
+   */
+  public int order(int level, int zero, int[] keys, int[] moves, int offset) {
+
+    /* The killer move of the level, -1 for none. */
+    int killer = kind == 2 && level < LEVELS ? killers[level] : -1;
+
+    /* Insert each move tried after the moves that come before it. */
+    int count = 0;
+    for (int move = 0; move < PackedState.MOVES.length; move++) {
+      if (keys[offset + move] == SKIP) {
+        continue;
+      }
+      int i = offset + count++;
+      while (i > offset && before(move, moves[i - 1], zero, killer, keys, offset)) {
+        moves[i] = moves[i - 1];
+        i--;
+      }
+      moves[i] = move;
+    }
+
+    return count;
+  }
+
+  /**
+   * Checks whether a move comes before another move in the order.
+   *
+   * @param move - the move to place
+   * @param other - the move already placed, of a lower number
+   * @param zero - the position of the zero (blank space) in the state
+   * @param killer - the killer move of the level, -1 for none
+   * @param keys - the keys of the moves
+   * @param offset - the index of the first key
+   * @return whether the move is tried before the other move
+   */
+  private boolean before(int move, int other, int zero, int killer, int[] keys, int offset) {
+
+    /* The fixed order keeps the moves by number. */
+    if (kind == 0) {
+      return false;
+    }
+
+    /* The history order tries the killer move first, then the moves of higher scores. */
+    if (kind == 2) {
+      if (move == killer || other == killer) {
+        return move == killer;
+      }
+      long score = history[zero * PackedState.MOVES.length + move];
+      long otherScore = history[zero * PackedState.MOVES.length + other];
+      if (score != otherScore) {
+        return score > otherScore;
+      }
+    }
+
+    /* Then the moves of lower keys, keeping the moves of equal keys by number. */
+    return keys[offset + move] < keys[offset + other];
+  }
+
+  /**
+   * Writes the name, the statistics used in this iteration and the ones learned so far to a
+   * checkpoint, so a search that goes on from it tries the moves of each state in the same order.
+   *
+   * @param out - the writer of the checkpoint
+   * @throws IOException when the checkpoint cannot be written
+   */
+  public void write(CheckpointWriter out) throws IOException {
+    out.writeByte(kind);
+    out.writeInt(history.length);
+    out.writeLongs(history, 0, history.length);
+    out.writeLongs(learned, 0, learned.length);
+    out.writeBytes(killers);
+    out.writeBytes(newKillers);
+  }
+
+  /**
+   * Reads the statistics used in an iteration and the ones learned so far from a checkpoint, when it was written with this order
+   * for a puzzle of as many positions as the one cleared for.
+   *
+   * @param in - the reader of the checkpoint
+   * @return whether the checkpoint was written with this order
+   * @throws IOException when the checkpoint cannot be read
+   */
+  public boolean read(CheckpointReader in) throws IOException {
+    if (in.readByte() != kind || in.readInt() != history.length) {
+      return false;
+    }
+    clear(history.length / PackedState.MOVES.length);
+    in.readLongs(history, 0, history.length);
+    in.readLongs(learned, 0, learned.length);
+    in.readBytes(killers);
+    in.readBytes(newKillers);
+    return true;
+  }
+}
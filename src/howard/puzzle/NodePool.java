@@ -0,0 +1,358 @@
+package howard.puzzle;
+
+import java.util.Arrays;
+
+/**
+ * Class for the nodes of a search over packed puzzle states, kept as a structure of arrays.
+ * Node i is the packed state in slot i of one array, its path length in the same slot of
+ * another, and so on for the parent node and the move into the state, so no node object is
+ * made. An open addressing table of node numbers finds the node of a state, comparing the
+ * packed states of the nodes while probing, so each state is stored once.
+ * A node takes about 23 bytes, with the index table at most half full.
+ * States too large for one long, such as wide packed states, take several longs each, the
+ * width of the pool, and are found, added and read through arrays of that width.
+ *
+ * @author Shaun Howard
+ */
+public final class NodePool {
+
+  /** The smallest number of nodes the arrays hold. */
+  private static final int MIN_CAPACITY = 1 << 10;
+
+  /** The largest path length of a node. */
+  public static final int MAX_COST = Short.MAX_VALUE;
+
+  /** The bit of the move byte marking a node as explored. */
+  private static final int CLOSED = 4;
+
+  /** The number of longs of each packed state. */
+  private final int width;
+
+  /** The packed states of the nodes, the width of the pool each. */
+  private long[] states;
+
+  /** The path lengths of the nodes, their g values. */
+  private short[] costs;
+
+  /** The parent node numbers of the nodes, -1 for the root. */
+  private int[] parents;
+
+  /** The moves into the states of the nodes, with the explored bit. */
+  private byte[] moves;
+
+  /** The number of nodes in the pool. */
+  private int size;
+
+  /** The node numbers plus one by the slot of their state, 0 for an empty slot. */
+  private int[] slots;
+
+  /** The number of slots minus one, for wrapping indices. */
+  private int mask;
+
+  /** Nullary constructor, for packed states of one long. */
+  public NodePool() {
+    this(1);
+  }
+
+  /**
+   * Constructor for packed states of several longs.
+   *
+   * @param width - the number of longs of each packed state
+   */
+  public NodePool(int width) {
+    this.width = width;
+    clear();
+  }
+
+  /**
+   * Returns the number of nodes in the pool.
+   *
+   * @return the number of nodes
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Removes all nodes, shrinking the arrays to free memory.
+   */
+  public void clear() {
+    states = new long[MIN_CAPACITY * width];
+    costs = new short[MIN_CAPACITY];
+    parents = new int[MIN_CAPACITY];
+    moves = new byte[MIN_CAPACITY];
+    slots = new int[MIN_CAPACITY * 2];
+    mask = slots.length - 1;
+    size = 0;
+  }
+
+  /**
+   * Returns the slot a packed state starts probing at.
+   *
+   * @param state - the packed state
+   * @return the first slot to probe
+   */
+  private int slot(long state) {
+
+    /* Spread the bits of the state, so close states fall into distant slots. */
+    long hash = state * 0x9E3779B97F4A7C15L;
+    return (int) (hash ^ (hash >>> 32)) & mask;
+  }
+
+  /**
+   * Returns the slot a packed state of the width of the pool starts probing at, the same slot
+   * as a state of one long.
+   *
+   * @param array - the array holding the packed state
+   * @param offset - the index of the first long of the state in the array
+   * @return the first slot to probe
+   */
+  private int slot(long[] array, int offset) {
+
+    /* Spread the bits of each long of the state, so close states fall into distant slots. */
+    long hash = 0;
+    for (int k = 0; k < width; k++) {
+      hash = (hash + array[offset + k]) * 0x9E3779B97F4A7C15L;
+    }
+    return (int) (hash ^ (hash >>> 32)) & mask;
+  }
+
+  /**
+   * Returns whether the state of a node is a packed state of the width of the pool.
+   *
+   * @param node - the number of the node
+   * @param state - the packed state
+   * @return whether the node has the state
+   */
+  private boolean hasState(int node, long[] state) {
+    for (int k = 0; k < width; k++) {
+      if (states[node * width + k] != state[k]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the node of a packed state.
+   *
+   * @param state - the packed state to find
+   * @return the number of the node of the state, -1 when it is not in the pool
+   */
+  public int find(long state) {
+
+    /* Probe until the state or an empty slot is found. */
+    for (int index = slot(state); slots[index] != 0; index = (index + 1) & mask) {
+      if (states[slots[index] - 1] == state) {
+        return slots[index] - 1;
+      }
+    }
+
+    return -1;
+  }
+
+  /**
+   * Returns the node of a packed state of the width of the pool.
+   *
+   * @param state - the packed state to find
+   * @return the number of the node of the state, -1 when it is not in the pool
+   */
+  public int find(long[] state) {
+
+    /* Probe until the state or an empty slot is found. */
+    for (int index = slot(state, 0); slots[index] != 0; index = (index + 1) & mask) {
+      if (hasState(slots[index] - 1, state)) {
+        return slots[index] - 1;
+      }
+    }
+
+    return -1;
+  }
+
+  /**
+   * Adds a node of a packed state that is not in the pool.
+   *
+   * @param state - the packed state of the node
+   * @param cost - the path length of the node
+   * @param parent - the number of the parent node, -1 for the root
+   * @param move - the move into the state (0 = up, 1 = down, 2 = left, 3 = right)
+   * @return the number of the new node
+   */
+  public int add(long state, int cost, int parent, int move) {
+
+    /* Grow the arrays when they are full, keeping the index table at most half full. */
+    if (size == parents.length) {
+      grow();
+    }
+
+    /* Put the node into the arrays. */
+    int node = size++;
+    states[node] = state;
+    set(node, cost, parent, move);
+
+    /* Put the node number into the first empty slot of its state. */
+    int index = slot(state);
+    while (slots[index] != 0) {
+      index = (index + 1) & mask;
+    }
+    slots[index] = node + 1;
+
+    return node;
+  }
+
+  /**
+   * Adds a node of a packed state of the width of the pool that is not in the pool.
+   *
+   * @param state - the packed state of the node
+   * @param cost - the path length of the node
+   * @param parent - the number of the parent node, -1 for the root
+   * @param move - the move into the state (0 = up, 1 = down, 2 = left, 3 = right)
+   * @return the number of the new node
+   */
+  public int add(long[] state, int cost, int parent, int move) {
+
+    /* Grow the arrays when they are full, keeping the index table at most half full. */
+    if (size == parents.length) {
+      grow();
+    }
+
+    /* Put the node into the arrays. */
+    int node = size++;
+    System.arraycopy(state, 0, states, node * width, width);
+    set(node, cost, parent, move);
+
+    /* Put the node number into the first empty slot of its state. */
+    int index = slot(state, 0);
+    while (slots[index] != 0) {
+      index = (index + 1) & mask;
+    }
+    slots[index] = node + 1;
+
+    return node;
+  }
+
+  /**
+   * Sets the path to a node, when a shorter path to its state is found.
+   * The node is marked as not explored.
+   *
+   * @param node - the number of the node
+   * @param cost - the path length of the node
+   * @param parent - the number of the parent node, -1 for the root
+   * @param move - the move into the state (0 = up, 1 = down, 2 = left, 3 = right)
+   */
+  public void set(int node, int cost, int parent, int move) {
+
+    /* Make sure the path length fits. */
+    if (cost > MAX_COST) {
+      throw new IllegalArgumentException("Path of " + cost + " moves is too long");
+    }
+
+    costs[node] = (short) cost;
+    parents[node] = parent;
+    moves[node] = (byte) move;
+  }
+
+  /**
+   * Returns the packed state of a node.
+   *
+   * @param node - the number of the node
+   * @return the packed state
+   */
+  public long getState(int node) {
+    return states[node];
+  }
+
+  /**
+   * Copies the packed state of a node of a pool of several longs per state.
+   *
+   * @param node - the number of the node
+   * @param state - the array of the width of the pool to copy the state into
+   */
+  public void getState(int node, long[] state) {
+    System.arraycopy(states, node * width, state, 0, width);
+  }
+
+  /**
+   * Returns the path length of a node.
+   *
+   * @param node - the number of the node
+   * @return the g value of the node
+   */
+  public int getCost(int node) {
+    return costs[node];
+  }
+
+  /**
+   * Returns the parent of a node.
+   *
+   * @param node - the number of the node
+   * @return the number of the parent node, -1 for the root
+   */
+  public int getParent(int node) {
+    return parents[node];
+  }
+
+  /**
+   * Returns the move into the state of a node.
+   *
+   * @param node - the number of the node
+   * @return the move into the state (0 = up, 1 = down, 2 = left, 3 = right)
+   */
+  public int getMove(int node) {
+    return moves[node] & 3;
+  }
+
+  /**
+   * Marks a node as explored.
+   *
+   * @param node - the number of the node
+   */
+  public void close(int node) {
+    moves[node] |= CLOSED;
+  }
+
+  /**
+   * Marks a node as not explored, so a search that starts over can explore it again.
+   *
+   * @param node - the number of the node
+   */
+  public void reopen(int node) {
+    moves[node] &= ~CLOSED;
+  }
+
+  /**
+   * Returns whether a node has been explored.
+   *
+   * @param node - the number of the node
+   * @return whether the node is explored
+   */
+  public boolean isClosed(int node) {
+    return (moves[node] & CLOSED) != 0;
+  }
+
+  /**
+   * Doubles the number of nodes the arrays hold and puts every node number into its new slot.
+   */
+  private void grow() {
+
+    /* Copy the nodes into arrays twice as large. */
+    int capacity = parents.length * 2;
+    states = Arrays.copyOf(states, capacity * width);
+    costs = Arrays.copyOf(costs, capacity);
+    parents = Arrays.copyOf(parents, capacity);
+    moves = Arrays.copyOf(moves, capacity);
+
+    /* Make an index table of twice the slots of the nodes. */
+    slots = new int[capacity * 2];
+    mask = slots.length - 1;
+
+    /* Put every node number into the new table. */
+    for (int node = 0; node < size; node++) {
+      int index = slot(states, node * width);
+      while (slots[index] != 0) {
+        index = (index + 1) & mask;
+      }
+      slots[index] = node + 1;
+    }
+  }
+}
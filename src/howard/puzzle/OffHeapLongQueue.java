@@ -0,0 +1,181 @@
+package howard.puzzle;
+
+import java.io.IOException;
+
+/**
+ * Class for a first-in-first-out queue of packed puzzle states outside the Java heap.
+ * The states are kept in a ring buffer of longs in direct memory, of the most longs that fit
+ * into a byte budget, so a frontier of many gigabytes makes no garbage. The queue does not grow,
+ * it is full when less than an eighth of its slots are free, and the search stops there.
+ * The memory is allocated with the first state added and given up when the queue is cleared.
+ *
+ * @author Shaun Howard
+ */
+public class OffHeapLongQueue implements StateQueue {
+
+  /** The smallest number of slots of the ring buffer, leaving room for the states of a chunk of the search past full. */
+  private static final long MIN_CAPACITY = 1 << 16;
+
+  /** The number of slots of the ring buffer. */
+  private final long capacity;
+
+  /** The ring buffer of states, null until the first state is added. */
+  private DirectLongArray buffer;
+
+  /** The index of the first state in the ring buffer. */
+  private long head;
+
+  /** The number of states in the queue. */
+  private long size;
+
+  /**
+   * Constructor for a queue of the most states that fit into a byte budget.
+   *
+   * @param bytes - the number of bytes the queue may take
+   */
+  public OffHeapLongQueue(long bytes) {
+    this.capacity = Math.max(MIN_CAPACITY, bytes / Long.BYTES);
+  }
+
+  /**
+   * Returns the number of slots of the ring buffer.
+   *
+   * @return the number of slots
+   */
+  public long capacity() {
+    return capacity;
+  }
+
+  /**
+   * Returns the number of states in the queue.
+   *
+   * @return the number of states
+   */
+  @Override
+  public long size() {
+    return size;
+  }
+
+  /**
+   * Returns whether the queue has no states.
+   *
+   * @return whether the queue is empty
+   */
+  @Override
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Adds a state to the end of the queue. The memory of the queue is allocated with the first state.
+   *
+   * @param state - the packed state to add
+   * @throws OutOfMemoryError when every slot holds a state
+   */
+  @Override
+  public void add(long state) {
+
+    /* Allocate the memory with the first state. */
+    if (buffer == null) {
+      buffer = new DirectLongArray(capacity);
+    }
+
+    /* Make sure there is a free slot. */
+    if (size == capacity) {
+      throw new OutOfMemoryError("Off-heap queue of " + capacity + " slots is full");
+    }
+
+    /* Put the state after the last one, wrapping around to the start of the buffer. */
+    long tail = head + size;
+    buffer.set(tail >= capacity ? tail - capacity : tail, state);
+    size++;
+  }
+
+  /**
+   * Adds states from an array to the end of the queue.
+   *
+   * @param states - the array of packed states to add
+   * @param count - the number of states to add from the start of the array
+   */
+  @Override
+  public void addAll(long[] states, int count) {
+    for (int i = 0; i < count; i++) {
+      add(states[i]);
+    }
+  }
+
+  /**
+   * Removes states from the start of the queue into an array.
+   *
+   * @param states - the array to put the packed states into
+   * @param max - the largest number of states to remove
+   * @return the number of states removed
+   */
+  @Override
+  public int drain(long[] states, int max) {
+
+    /* The number of states to remove. */
+    int count = (int) Math.min(max, size);
+
+    /* Copy the states from the start of the queue, wrapping around to the start of the buffer. */
+    for (int i = 0; i < count; i++) {
+      states[i] = buffer.get(head);
+      head = head + 1 == capacity ? 0 : head + 1;
+    }
+    size -= count;
+
+    return count;
+  }
+
+  /**
+   * Returns whether less than an eighth of the slots are free, so the search has to stop.
+   * The free slots take the states of the last chunk.
+   *
+   * @return whether the queue is full
+   */
+  @Override
+  public boolean isFull() {
+    return capacity - size < capacity / 8;
+  }
+
+  /**
+   * Writes the number of states and then the states in order to a checkpoint, leaving them in the queue.
+   *
+   * @param out - the writer of the checkpoint
+   * @throws IOException when the checkpoint cannot be written
+   */
+  @Override
+  public void write(CheckpointWriter out) throws IOException {
+    out.writeLong(size);
+
+    /* Write the states from the start of the queue, wrapping around to the start of the buffer. */
+    long index = head;
+    for (long i = 0; i < size; i++) {
+      out.writeLong(buffer.get(index));
+      index = index + 1 == capacity ? 0 : index + 1;
+    }
+  }
+
+  /**
+   * Adds the states written to a checkpoint by a queue to the end of this queue.
+   *
+   * @param in - the reader of the checkpoint
+   * @throws IOException when the checkpoint cannot be read
+   */
+  @Override
+  public void read(CheckpointReader in) throws IOException {
+    for (long left = in.readLong(); left > 0; left--) {
+      add(in.readLong());
+    }
+  }
+
+  /**
+   * Removes all states, giving up the memory of the queue until a state is added again.
+   */
+  @Override
+  public void clear() {
+    buffer = null;
+    head = 0;
+    size = 0;
+  }
+}
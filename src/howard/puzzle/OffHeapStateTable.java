@@ -0,0 +1,230 @@
+package howard.puzzle;
+
+import java.io.IOException;
+
+/**
+ * Class for a hash set of packed puzzle states outside the Java heap, with the move into each state.
+ * The states are kept in an open addressing table of longs in direct memory, and the moves in a
+ * parallel array of two bits per slot, as in the hash state table. The table does not grow: its
+ * number of slots is the largest power of two that fits into a byte budget, so a search of many
+ * gigabytes of states makes no garbage and its memory use is known up front. The table is full
+ * at three quarters of its slots, keeping the probe sequences short, and the search stops there.
+ * The memory is allocated with the first state added and given up when the table is cleared.
+ *
+ * @author Shaun Howard
+ */
+public class OffHeapStateTable implements StateTable {
+
+  /** The empty slot marker, no packed state of a puzzle is all zeros. */
+  private static final long EMPTY = 0;
+
+  /** The bytes of a slot: a long for the state and two bits for the move. */
+  private static final double SLOT_BYTES = Long.BYTES + 0.25;
+
+  /** The smallest number of slots of the table, leaving room for the states of a chunk of the search past full. */
+  private static final long MIN_CAPACITY = 1 << 16;
+
+  /** The number of slots of the table. */
+  private final long capacity;
+
+  /** The number of slots minus one, for wrapping indices. */
+  private final long mask;
+
+  /** The packed states in the table, null until the first state is added. */
+  private DirectLongArray keys;
+
+  /** The moves into the states, two bits per slot, 32 slots per long. */
+  private DirectLongArray moves;
+
+  /** The number of states in the table. */
+  private long size;
+
+  /**
+   * Constructor for a table of the most slots that fit into a byte budget.
+   *
+   * @param bytes - the number of bytes the table may take
+   */
+  public OffHeapStateTable(long bytes) {
+
+    /* The largest power of two of slots that fits the budget. */
+    long slots = Long.highestOneBit(Math.max(MIN_CAPACITY, (long) (bytes / SLOT_BYTES)));
+    this.capacity = slots;
+    this.mask = slots - 1;
+  }
+
+  /**
+   * Returns the number of slots of the table.
+   *
+   * @return the number of slots
+   */
+  public long capacity() {
+    return capacity;
+  }
+
+  /**
+   * Returns the slot a packed state starts probing at.
+   *
+   * @param key - the packed state
+   * @return the first slot to probe
+   */
+  private long slot(long key) {
+
+    /* Spread the bits of the state, so close states fall into distant slots. */
+    long hash = key * 0x9E3779B97F4A7C15L;
+    return (hash ^ (hash >>> 32)) & mask;
+  }
+
+  /**
+   * Adds a state and the move into it, when the state is not in the table.
+   * The memory of the table is allocated with the first state.
+   *
+   * @param key - the packed state to add
+   * @param move - the move into the state (0 = up, 1 = down, 2 = left, 3 = right)
+   * @return whether the state was added, false when it was already in the table
+   * @throws OutOfMemoryError when only the last empty slot is left
+   */
+  @Override
+  public boolean add(long key, int move) {
+
+    /* Allocate the memory with the first state. */
+    if (keys == null) {
+      keys = new DirectLongArray(capacity);
+      moves = new DirectLongArray((capacity + 31) / 32);
+    }
+
+    /* Make sure an empty slot is left, ending the probe sequences. */
+    if (size >= capacity - 1) {
+      throw new OutOfMemoryError("Off-heap state table of " + capacity + " slots is full");
+    }
+
+    /* Probe until the state or an empty slot is found. */
+    long index = slot(key);
+    for (long stored = keys.get(index); stored != EMPTY; stored = keys.get(index)) {
+      if (stored == key) {
+        return false;
+      }
+      index = (index + 1) & mask;
+    }
+
+    /* Put the state and its move into the empty slot. */
+    keys.set(index, key);
+    long word = moves.get(index >>> 5);
+    int shift = (int) (index & 31) << 1;
+    moves.set(index >>> 5, (word & ~(3L << shift)) | ((long) move << shift));
+    size++;
+
+    return true;
+  }
+
+  /**
+   * Returns the slot of a state in the table.
+   *
+   * @param key - the packed state to find
+   * @return the slot of the state, -1 when it is not in the table
+   */
+  private long indexOf(long key) {
+
+    /* An empty table has no states. */
+    if (keys == null) {
+      return -1;
+    }
+
+    /* Probe until the state or an empty slot is found. */
+    long index = slot(key);
+    for (long stored = keys.get(index); stored != EMPTY; stored = keys.get(index)) {
+      if (stored == key) {
+        return index;
+      }
+      index = (index + 1) & mask;
+    }
+
+    return -1;
+  }
+
+  /**
+   * Returns whether a state is in the table.
+   *
+   * @param key - the packed state to find
+   * @return whether the state is in the table
+   */
+  @Override
+  public boolean contains(long key) {
+    return indexOf(key) >= 0;
+  }
+
+  /**
+   * Returns the move into a state of the table.
+   *
+   * @param key - the packed state, which must be in the table
+   * @return the move into the state (0 = up, 1 = down, 2 = left, 3 = right)
+   */
+  @Override
+  public int getMoveInto(long key) {
+    long index = indexOf(key);
+    return (int) (moves.get(index >>> 5) >>> ((index & 31) << 1)) & 3;
+  }
+
+  /**
+   * Returns the number of states in the table.
+   *
+   * @return the number of states
+   */
+  @Override
+  public long size() {
+    return size;
+  }
+
+  /**
+   * Returns whether three quarters of the slots hold states, so the search has to stop
+   * before the probe sequences get long. The rest of the slots take the states of the last chunk.
+   *
+   * @return whether the table is full
+   */
+  @Override
+  public boolean isFull() {
+    return size >= capacity / 4 * 3;
+  }
+
+  /**
+   * Writes the number of states and then each state with its move to a checkpoint.
+   *
+   * @param out - the writer of the checkpoint
+   * @throws IOException when the checkpoint cannot be written
+   */
+  @Override
+  public void write(CheckpointWriter out) throws IOException {
+    out.writeLong(size);
+
+    /* Write each state with its move, as the hash state table does. */
+    for (long index = 0; size > 0 && index < capacity; index++) {
+      long key = keys.get(index);
+      if (key != EMPTY) {
+        out.writeLong(key);
+        out.writeByte((int) (moves.get(index >>> 5) >>> ((index & 31) << 1)) & 3);
+      }
+    }
+  }
+
+  /**
+   * Adds the states and moves written to a checkpoint by a hash table, on or off the heap, to this empty table.
+   *
+   * @param in - the reader of the checkpoint
+   * @throws IOException when the checkpoint cannot be read
+   */
+  @Override
+  public void read(CheckpointReader in) throws IOException {
+    for (long left = in.readLong(); left > 0; left--) {
+      add(in.readLong(), in.readByte());
+    }
+  }
+
+  /**
+   * Removes all states, giving up the memory of the table until a state is added again.
+   */
+  @Override
+  public void clear() {
+    keys = null;
+    moves = null;
+    size = 0;
+  }
+}
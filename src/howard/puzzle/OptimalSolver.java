@@ -0,0 +1,659 @@
+package howard.puzzle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Class for finding every optimal solution of the N = n x n - 1 puzzle, to one or several goal
+ * configurations. Other solvers stop at the first goal state found, while this one finishes the
+ * last iteration or layer of its search, so every shortest sequence of moves to any of the goal
+ * states is found. The solutions are counted and, when a consumer is set, streamed to it one at a
+ * time as they are found, so they are never kept all at once. Only goal configurations of the
+ * same parity as the puzzle can be reached, the others are left out.
+ *
+ * The depth-first instance runs IDA* with the smallest manhattan distance to the goal states as
+ * its estimate. It keeps only the path in memory, and in the iteration that reaches the goal
+ * states it goes on searching, walking every optimal solution once. The breadth-first instance
+ * searches layer by layer, keeping each layer as a sorted array of packed states with the number
+ * of shortest paths to each state, the sum of the numbers of the states of the previous layer
+ * it is reached from. The solutions are counted without walking them, and are only walked back
+ * through the layers when a consumer is set. It takes the memory of breadth-first search, but
+ * counts far more solutions than could ever be walked one at a time.
+ * Puzzles of up to 16 positions are searched, larger puzzles do not fit into packed states.
+ *
+ * Usage:
+ * "count|list dfs|bfs shape numbers [goals]" counts or lists the optimal solutions of a puzzle of
+ * the given shape, a side size or "RxC", with the numbers in reading order separated by commas, to
+ * the goals, a list of "first", "last" or numbers separated by commas, separated by semicolons.
+ *
+ * @author Shaun Howard
+ */
+public class OptimalSolver extends PuzzleSolver {
+
+  /** An instance of the depth-first (IDA*) solver for finding all optimal solutions. */
+  private static OptimalSolver instance = new OptimalSolver(false);
+
+  /** An instance of the breadth-first solver for finding all optimal solutions. */
+  private static OptimalSolver breadthFirstInstance = new OptimalSolver(true);
+
+  /** The number of states expanded between checks of the memory limit, deadline and cancellation. */
+  private static final int CHECK_INTERVAL = 256;
+
+  /** The f value of no state, above every threshold. */
+  private static final int INFINITY = Integer.MAX_VALUE / 2;
+
+  /** The longest solution searched for. */
+  private static final int MAX_LENGTH = TranspositionTable.MAX_VALUE;
+
+  /** Whether this solver searches breadth-first instead of with IDA*. */
+  private final boolean breadthFirst;
+
+  /** The goal configurations to solve to, empty for the goal of each puzzle. */
+  private List<GoalConfiguration> goals = Collections.emptyList();
+
+  /** The consumer of the solutions, null to only count them. */
+  private SolutionConsumer consumer;
+
+  /** The number of optimal solutions found by the last search, Long.MAX_VALUE when there are more. */
+  private long count;
+
+  /** The length of the optimal solutions found by the last search, -1 when none were found. */
+  private int length;
+
+  /** The packer of the states of the current search. */
+  private PackedState packer;
+
+  /** The number of positions of the puzzle. */
+  private int cells;
+
+  /** The goal configurations the current search can reach. */
+  private GoalConfiguration[] reachable;
+
+  /** The packed goal states of the current search, in the order of the reachable goal configurations. */
+  private long[] goalStates;
+
+  /** The manhattan distance of number n at position p to each goal state, at index n * cells + p. */
+  private int[][] distances;
+
+  /** The evaluators of the manhattan distance of whole states to each goal state. */
+  private ManhattanEvaluator[] evaluators;
+
+  /** The manhattan distances of the states of the path to each goal state, by path length * goals + goal. */
+  private int[] estimates;
+
+  /** The moves of the current path, by path length. */
+  private int[] path = new int[MAX_LENGTH + 1];
+
+  /** The moves of the first solution found. */
+  private String first;
+
+  /** The f value threshold of the current iteration. */
+  private int threshold;
+
+  /** Whether the search has to stop. */
+  private boolean halted;
+
+  /**
+   * Constructor for a depth-first or breadth-first solver.
+   *
+   * @param breadthFirst - whether the solver searches breadth-first
+   */
+  OptimalSolver(boolean breadthFirst) {
+    this.breadthFirst = breadthFirst;
+  }
+
+  /**
+   * Returns the instance of the depth-first (IDA*) solver.
+   *
+   * @return the instance of the depth-first solver
+   */
+  public static OptimalSolver getInstance() {
+    return instance;
+  }
+
+  /**
+   * Returns the instance of the breadth-first solver.
+   *
+   * @return the instance of the breadth-first solver
+   */
+  public static OptimalSolver getBreadthFirstInstance() {
+    return breadthFirstInstance;
+  }
+
+  /**
+   * Sets the goal configurations to solve to. A solution reaches any one of them.
+   *
+   * @param goals - the goal configurations, of the shape of the puzzles solved, empty for the goal of each puzzle
+   */
+  public void setGoals(List<GoalConfiguration> goals) {
+    this.goals = new ArrayList<GoalConfiguration>(goals);
+  }
+
+  /**
+   * Returns the goal configurations to solve to.
+   *
+   * @return the goal configurations, empty for the goal of each puzzle
+   */
+  public List<GoalConfiguration> getGoals() {
+    return Collections.unmodifiableList(goals);
+  }
+
+  /**
+   * Sets the consumer the optimal solutions are streamed to.
+   *
+   * @param consumer - the consumer of the solutions, null to only count them
+   */
+  public void setConsumer(SolutionConsumer consumer) {
+    this.consumer = consumer;
+  }
+
+  /**
+   * Returns the number of optimal solutions found by the last search. When the consumer stopped
+   * the search or it stopped early, only the solutions found until then are counted.
+   *
+   * @return the number of optimal solutions, Long.MAX_VALUE when there are more
+   */
+  public long getCount() {
+    return count;
+  }
+
+  /**
+   * Returns the length of the optimal solutions found by the last search.
+   *
+   * @return the number of moves of each optimal solution, -1 when none was found
+   */
+  public int getLength() {
+    return length;
+  }
+
+  /**
+   * Adds to the number of solutions, staying at Long.MAX_VALUE when it overflows.
+   *
+   * @param solutions - the number of solutions to add
+   */
+  private void addCount(long solutions) {
+    count = count > Long.MAX_VALUE - solutions ? Long.MAX_VALUE : count + solutions;
+  }
+
+  /**
+   * Makes the moves of a path into a string.
+   *
+   * @param moves - the moves of the path
+   * @param pathLength - the number of moves
+   * @return the moves as u, d, l and r
+   */
+  private static String toMoves(int[] moves, int pathLength) {
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < pathLength; i++) {
+      builder.append(PackedState.MOVES[moves[i]]);
+    }
+    return builder.toString();
+  }
+
+  /**
+   * Passes a solution to the consumer, keeping the first solution found.
+   *
+   * @param goalIndex - the index of the goal state the solution reaches
+   * @param pathLength - the number of moves of the solution
+   */
+  private void emit(int goalIndex, int pathLength) {
+
+    /* Keep the first solution as the solution of the solve. */
+    String moves = first == null || consumer != null ? toMoves(path, pathLength) : null;
+    if (first == null) {
+      first = moves;
+    }
+
+    /* Stream the solution, stopping when the consumer has enough. */
+    if (consumer != null && !consumer.accept(moves, reachable[goalIndex])) {
+      halted = true;
+    }
+  }
+
+  /**
+   * Returns the index of a goal state.
+   *
+   * @param packed - the packed state
+   * @return the index of the goal state, -1 when the state is no goal state
+   */
+  private int goalIndex(long packed) {
+    for (int i = 0; i < goalStates.length; i++) {
+      if (goalStates[i] == packed) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Checks whether the search has to stop, every few states expanded.
+   *
+   * @param depth - the depth of the search
+   * @return whether the search has to stop
+   */
+  private boolean checkStop(int depth) {
+    if (expanded % CHECK_INTERVAL == 0) {
+      searchDepth = depth;
+      if (isOutOfMemory() || shouldStop()) {
+        halted = true;
+      }
+    }
+    return halted;
+  }
+
+  /**
+   * Performs IDA* from the given state, finishing the iteration that reaches the goal states.
+   *
+   * @param start - the packed input state
+   */
+  private void idaStar(long start) {
+
+    /* The manhattan distances of the input state to each goal state. */
+    int goalCount = goalStates.length;
+    estimates = new int[(MAX_LENGTH + 1) * goalCount];
+    int h = INFINITY;
+    for (int i = 0; i < goalCount; i++) {
+      estimates[i] = evaluators[i].distance(start);
+      h = Math.min(h, estimates[i]);
+    }
+
+    /* Search deeper each iteration until an iteration reaches the goal states. */
+    for (threshold = h; threshold <= MAX_LENGTH && !halted; ) {
+      searchDepth = threshold;
+      int result = search(start, PackedState.zero(start), 0, -1);
+
+      /* Every solution of the iteration that reached the goal states is optimal. */
+      if (count > 0) {
+        length = threshold;
+        return;
+      }
+
+      /* Raise the threshold to the smallest f value cut off, goals of both parities may be reached. */
+      if (result >= INFINITY) {
+        return;
+      }
+      threshold = result;
+    }
+  }
+
+  /**
+   * Searches the states below a state whose f value is within the threshold, depth-first,
+   * passing every goal state reached at the threshold to the consumer.
+   *
+   * @param packed - the packed state
+   * @param zero - the position of the zero (blank space) in the state
+   * @param g - the length of the path to the state
+   * @param back - the move that would undo the move into the state, -1 for the input state
+   * @return the smallest f value cut off below the state
+   */
+  private int search(long packed, int zero, int g, int back) {
+
+    /* The estimate of the state, the manhattan distance to the closest goal state. */
+    int goalCount = goalStates.length;
+    int h = INFINITY;
+    for (int i = 0; i < goalCount; i++) {
+      h = Math.min(h, estimates[g * goalCount + i]);
+    }
+
+    /* Cut the state off when its f value exceeds the threshold. */
+    if (g + h > threshold) {
+      return g + h;
+    }
+
+    /* A goal state within the threshold is reached by an optimal solution, since no earlier iteration reached one. */
+    if (h == 0) {
+      int goalIndex = goalIndex(packed);
+      if (goalIndex >= 0) {
+        addCount(1);
+        emit(goalIndex, g);
+        return INFINITY;
+      }
+    }
+
+    /* Count the state as expanded and make sure program doesn't run over memory limit, deadline or cancellation. */
+    expanded++;
+    if (checkStop(threshold)) {
+      return INFINITY;
+    }
+
+    /* The smallest f value cut off below the state. */
+    int smallest = INFINITY;
+
+    /* Try to move zero (blank space) up, down, left and right in the puzzle. */
+    for (int move = 0; move < PackedState.MOVES.length; move++) {
+
+      /* The position the zero moves to, skipping moves off the board and back to the previous state. */
+      int target = packer.neighbor(zero, move);
+      if (target < 0 || move == back) {
+        continue;
+      }
+
+      /* Update the distances to each goal state by the tile that moved into the old zero position. */
+      int number = PackedState.get(packed, target);
+      for (int i = 0; i < goalCount; i++) {
+        estimates[(g + 1) * goalCount + i] = estimates[g * goalCount + i] + distances[i][number * cells + zero]
+                                               - distances[i][number * cells + target];
+      }
+
+      /* Search below the new state. */
+      path[g] = move;
+      smallest = Math.min(smallest, search(PackedState.move(packed, zero, target), target, g + 1, move ^ 1));
+      if (halted) {
+        return INFINITY;
+      }
+    }
+
+    return smallest;
+  }
+
+  /**
+   * Performs the breadth-first search from the given state, finishing the layer of the goal states.
+   *
+   * @param start - the packed input state
+   */
+  private void breadthFirstSearch(long start) {
+
+    /* The layers of states by distance from the input state, sorted, and the number of shortest paths to each. */
+    List<long[]> layers = new ArrayList<long[]>();
+    List<long[]> counts = new ArrayList<long[]>();
+    layers.add(new long[] {start});
+    counts.add(new long[] {1});
+
+    /* The states made from a layer, before they are sorted. */
+    long[] made = new long[16];
+
+    for (int depth = 0; depth <= MAX_LENGTH; depth++) {
+      long[] layer = layers.get(depth);
+      long[] layerCounts = counts.get(depth);
+      long[] previous = depth > 0 ? layers.get(depth - 1) : new long[0];
+      searchDepth = depth;
+
+      /* Count the shortest paths to the goal states of this layer. */
+      for (long goalState : goalStates) {
+        int index = Arrays.binarySearch(layer, goalState);
+        if (index >= 0) {
+          addCount(layerCounts[index]);
+        }
+      }
+
+      /* The first layer holding goal states is the one of the optimal solutions. */
+      if (count > 0) {
+        length = depth;
+        walkSolutions(layers);
+        return;
+      }
+
+      /* Make the states of the next layer, the states one move away that are not in the previous layer. The moves
+         change the parity of the states, so no state one move away is in this layer. */
+      int size = 0;
+      for (int i = 0; i < layer.length; i++) {
+        long packed = layer[i];
+        int zero = PackedState.zero(packed);
+        for (int move = 0; move < PackedState.MOVES.length; move++) {
+          int target = packer.neighbor(zero, move);
+          if (target < 0) {
+            continue;
+          }
+          long newState = PackedState.move(packed, zero, target);
+          if (Arrays.binarySearch(previous, newState) >= 0) {
+            continue;
+          }
+
+          /* Grow the array of the states made when it is full. */
+          if (size == made.length) {
+            made = Arrays.copyOf(made, made.length * 2);
+          }
+          made[size++] = newState;
+        }
+
+        /* Make sure program doesn't run over memory limit, deadline or cancellation. */
+        expanded++;
+        if (checkStop(depth)) {
+          return;
+        }
+      }
+
+      /* Sort the new states and drop the duplicates. */
+      Arrays.sort(made, 0, size);
+      int unique = 0;
+      for (int i = 0; i < size; i++) {
+        if (unique == 0 || made[i] != made[unique - 1]) {
+          made[unique++] = made[i];
+        }
+      }
+
+      /* No goal state can be reached when the search runs out of states. */
+      if (unique == 0) {
+        return;
+      }
+      long[] next = Arrays.copyOf(made, unique);
+
+      /* Add the number of shortest paths to each state to the numbers of the states it leads to. */
+      long[] nextCounts = new long[unique];
+      for (int i = 0; i < layer.length; i++) {
+        long packed = layer[i];
+        int zero = PackedState.zero(packed);
+        for (int move = 0; move < PackedState.MOVES.length; move++) {
+          int target = packer.neighbor(zero, move);
+          if (target < 0) {
+            continue;
+          }
+          int index = Arrays.binarySearch(next, PackedState.move(packed, zero, target));
+          if (index >= 0) {
+            long sum = nextCounts[index] + layerCounts[i];
+            nextCounts[index] = sum < 0 ? Long.MAX_VALUE : sum;
+          }
+        }
+      }
+
+      layers.add(next);
+      counts.add(nextCounts);
+    }
+  }
+
+  /**
+   * Walks the optimal solutions back from the goal states through the layers, passing each one
+   * to the consumer. Without a consumer, only the first solution is walked.
+   *
+   * @param layers - the layers of states by distance from the input state, the last one holding the goal states
+   */
+  private void walkSolutions(List<long[]> layers) {
+    long[] last = layers.get(length);
+    for (int i = 0; i < goalStates.length && !halted; i++) {
+      if (Arrays.binarySearch(last, goalStates[i]) >= 0) {
+        walkBack(layers, length, goalStates[i], i);
+      }
+    }
+  }
+
+  /**
+   * Walks the shortest paths from the input state to a state of a layer backwards, moving to each
+   * state of the previous layer one move away.
+   *
+   * @param layers - the layers of states by distance from the input state
+   * @param depth - the layer of the state
+   * @param packed - the packed state
+   * @param goalIndex - the index of the goal state the paths lead to
+   */
+  private void walkBack(List<long[]> layers, int depth, long packed, int goalIndex) {
+
+    /* At the input state, the path is a whole solution. */
+    if (depth == 0) {
+      emit(goalIndex, length);
+      if (consumer == null) {
+        halted = true;
+      }
+      return;
+    }
+
+    /* Try the moves back to the states of the previous layer. */
+    int zero = PackedState.zero(packed);
+    long[] previous = layers.get(depth - 1);
+    for (int move = 0; move < PackedState.MOVES.length && !halted; move++) {
+      int target = packer.neighbor(zero, move);
+      if (target < 0) {
+        continue;
+      }
+      long earlier = PackedState.move(packed, zero, target);
+      if (Arrays.binarySearch(previous, earlier) >= 0) {
+
+        /* The move from the earlier state to this one undoes this move. */
+        path[depth - 1] = move ^ 1;
+        walkBack(layers, depth - 1, earlier, goalIndex);
+      }
+    }
+  }
+
+  /**
+   * Solves the input puzzle, finding all of its optimal solutions.
+   * The first solution found is the solution of the solve, and the number of solutions is printed after it.
+   * Also tracks the amount of time taken to solve puzzle.
+   *
+   * @param puzzle - the puzzle to solve
+   * @return the string sequence of moves from initial puzzle state to goal puzzle state
+   */
+  public String solve(Puzzle puzzle) {
+
+    /* Gets the start time of the search. */
+    long startTime = System.currentTimeMillis();
+
+    /* Initializes goal state to not found. */
+    goal = null;
+    expanded = 0;
+    count = 0;
+    length = -1;
+    first = null;
+    halted = false;
+
+    /* The puzzle states must fit into packed states. */
+    if (!PackedState.fits(puzzle.getRows(), puzzle.getColumns())) {
+      moves = null;
+      time = System.currentTimeMillis() - startTime;
+      return "The optimal solver needs a puzzle of at most " + PackedState.MAX_CELLS + " positions!";
+    }
+
+    /* Creates a new state from the input puzzle for solving. */
+    PuzzleState state = new PuzzleState(puzzle);
+    packer = new PackedState(state.getRows(), state.getColumns());
+    cells = packer.getCells();
+    long start = packer.pack(state);
+
+    /* Keep the goals of the parity of the puzzle, the others cannot be reached. */
+    int[] numbers = new int[cells];
+    for (int position = 0; position < cells; position++) {
+      numbers[position] = PackedState.get(start, position);
+    }
+    int parity = GoalConfiguration.parity(numbers, state.getColumns());
+    List<GoalConfiguration> targets = goals.isEmpty() ? Collections.singletonList(state.getGoal()) : goals;
+    List<GoalConfiguration> kept = new ArrayList<GoalConfiguration>();
+    for (GoalConfiguration target : targets) {
+
+      /* Make sure the goal is of the shape of the puzzle. */
+      if (target.getRows() != state.getRows() || target.getColumns() != state.getColumns()) {
+        throw new IllegalArgumentException("Goal of shape " + target.getShape() + " for a puzzle of shape "
+                                             + state.getRows() + "x" + state.getColumns());
+      }
+      if (target.getParity() == parity && !kept.contains(target)) {
+        kept.add(target);
+      }
+    }
+    reachable = kept.toArray(new GoalConfiguration[kept.size()]);
+    goalStates = new long[reachable.length];
+    distances = new int[reachable.length][];
+    evaluators = new ManhattanEvaluator[reachable.length];
+    for (int i = 0; i < reachable.length; i++) {
+      goalStates[i] = packer.goal(reachable[i]);
+      distances[i] = AStarSolver.distances(reachable[i]);
+      evaluators[i] = ManhattanEvaluator.forGoal(reachable[i]);
+    }
+
+    /* Performs the search on the initial, randomized puzzle state, when a goal can be reached. */
+    if (reachable.length > 0) {
+      if (breadthFirst) {
+        breadthFirstSearch(start);
+      } else { //Otherwise, search with IDA*.
+
+        idaStar(start);
+      }
+    }
+
+    /* Makes the states of the first solution for printing, when one was found. */
+    if (first != null) {
+      for (int i = 0; i < first.length(); i++) {
+        state = PuzzleState.move(state, first.charAt(i));
+      }
+      goal = state;
+    }
+
+    /* Gets the difference between end time and start time to find total time taken to solve puzzle. */
+    time = System.currentTimeMillis() - startTime;
+
+    /* Returns the sequence of moves of the first solution and the number of optimal solutions. */
+    String sequence = getSequence();
+    return moves == null ? sequence : sequence + "\nThis is the number of optimal solutions: "
+                                        + (count == Long.MAX_VALUE ? "more than " + count : String.valueOf(count));
+  }
+
+  /**
+   * Counts or lists the optimal solutions of a puzzle.
+   *
+   * @param args - "count" or "list", "dfs" or "bfs", the shape, the numbers and optionally the goals
+   */
+  public static void main(String[] args) {
+
+    /* Checks that the command is entered correctly. */
+    if (args.length < 4 || args.length > 5 || !(args[0].equals("count") || args[0].equals("list"))
+        || !(args[1].equals("dfs") || args[1].equals("bfs"))) {
+      System.err.println("Usage: count|list dfs|bfs shape numbers [goals]");
+      System.exit(1);
+    }
+
+    try {
+
+      /* Make the puzzle of the numbers. */
+      int[] shape = GoalConfiguration.parseShape(args[2]);
+      String[] fields = args[3].split(",");
+      int[][] puzzleArray = new int[shape[0]][shape[1]];
+      for (int i = 0; i < fields.length; i++) {
+        puzzleArray[i / shape[1]][i % shape[1]] = Integer.parseInt(fields[i]);
+      }
+      Puzzle puzzle = new Puzzle();
+      puzzle.initialize(puzzleArray, GoalConfiguration.getDefault(shape[0], shape[1]));
+
+      /* Make the goals, by name or by numbers. */
+      List<GoalConfiguration> goalList = new ArrayList<GoalConfiguration>();
+      if (args.length > 4) {
+        for (String goalName : args[4].split(";")) {
+          if (goalName.contains(",")) {
+            String[] goalFields = goalName.split(",");
+            int[] goalNumbers = new int[goalFields.length];
+            for (int i = 0; i < goalFields.length; i++) {
+              goalNumbers[i] = Integer.parseInt(goalFields[i]);
+            }
+            goalList.add(GoalConfiguration.of(shape[0], shape[1], goalNumbers));
+          } else { //Otherwise, the goal is a named layout.
+
+            goalList.add(GoalConfiguration.of(goalName, shape[0], shape[1]));
+          }
+        }
+      }
+
+      /* Stream the solutions to the console when they are listed. */
+      OptimalSolver solver = args[1].equals("bfs") ? getBreadthFirstInstance() : getInstance();
+      solver.setVerbose(false);
+      solver.setGoals(goalList);
+      solver.setConsumer(args[0].equals("list") ? (moves, reached) -> {
+        System.out.println(moves + "\t" + reached.getName());
+        return true;
+      } : null);
+      solver.solve(puzzle);
+      System.out.println("length\t" + solver.getLength() + "\tsolutions\t" + solver.getCount() + "\texpanded\t"
+                           + solver.getExpanded() + "\tms\t" + solver.time);
+    } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) { //Catch exception when making puzzle.
+      System.err.println("Could not make the puzzle: " + e.getMessage());
+      System.exit(1);
+    }
+  }
+}
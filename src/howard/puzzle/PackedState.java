@@ -0,0 +1,235 @@
+package howard.puzzle;
+
+/**
+ * Class for packing puzzle states of up to 16 positions into a single long.
+ * Each position of the board takes four bits (a nibble), position i in bits 4i to 4i + 3,
+ * so a packed state needs no object or array and can be stored in primitive arrays.
+ * Moves are numbered 0 to 3 for up, down, left and right, so the opposite of move m is m ^ 1,
+ * and the position the zero (blank space) moves to is looked up in a move table.
+ *
+ * @author Shaun Howard
+ */
+public class PackedState {
+
+  /** The largest number of positions that fit into a packed state. */
+  public static final int MAX_CELLS = 16;
+
+  /** The characters of the moves up, down, left and right. */
+  public static final char[] MOVES = {'u', 'd', 'l', 'r'};
+
+  /** The row offsets of the moves up, down, left and right. */
+  private static final int[] ROW_STEPS = {-1, 1, 0, 0};
+
+  /** The column offsets of the moves up, down, left and right. */
+  private static final int[] COLUMN_STEPS = {0, 0, -1, 1};
+
+  /** The low bit of every nibble. */
+  private static final long LOW_BITS = 0x1111111111111111L;
+
+  /** The high bit of every nibble. */
+  private static final long HIGH_BITS = 0x8888888888888888L;
+
+  /** The number of rows of the puzzle. */
+  private final int rows;
+
+  /** The number of columns of the puzzle. */
+  private final int columns;
+
+  /** The number of positions of the puzzle. */
+  private final int cells;
+
+  /** The position the zero moves to for every position and move, -1 when it leaves the board. */
+  private final int[] neighbors;
+
+  /**
+   * Constructor for packing states of a puzzle of the given side size.
+   *
+   * @param size - the side size of the puzzle
+   */
+  public PackedState(int size) {
+    this(size, size);
+  }
+
+  /**
+   * Constructor for packing states of a puzzle of the given rows and columns.
+   *
+   * @param rows - the number of rows of the puzzle
+   * @param columns - the number of columns of the puzzle
+   */
+  public PackedState(int rows, int columns) {
+
+    /* Make sure the positions fit into a long. */
+    if (!fits(rows, columns)) {
+      throw new IllegalArgumentException("Puzzle of " + rows + "x" + columns + " does not fit into a packed state");
+    }
+
+    this.rows = rows;
+    this.columns = columns;
+    this.cells = rows * columns;
+
+    /* Make the move table. */
+    neighbors = neighbors(rows, columns);
+  }
+
+  /**
+   * Makes the move table of a puzzle of the given rows and columns.
+   *
+   * @param rows - the number of rows of the puzzle
+   * @param columns - the number of columns of the puzzle
+   * @return the position the zero moves to at index position * 4 + move, -1 when it leaves the board
+   */
+  static int[] neighbors(int rows, int columns) {
+    int cells = rows * columns;
+    int[] neighbors = new int[cells * MOVES.length];
+    for (int position = 0; position < cells; position++) {
+      for (int move = 0; move < MOVES.length; move++) {
+
+        /* The row and column the zero moves to. */
+        int row = position / columns + ROW_STEPS[move];
+        int column = position % columns + COLUMN_STEPS[move];
+
+        /* Checks if the zero stays on the board. */
+        if (row < 0 || row >= rows || column < 0 || column >= columns) {
+          neighbors[position * MOVES.length + move] = -1;
+        } else {
+          neighbors[position * MOVES.length + move] = row * columns + column;
+        }
+      }
+    }
+    return neighbors;
+  }
+
+  /**
+   * Checks whether states of a puzzle of the given side size fit into a packed state.
+   *
+   * @param size - the side size of the puzzle
+   * @return whether the states can be packed
+   */
+  public static boolean fits(int size) {
+    return fits(size, size);
+  }
+
+  /**
+   * Checks whether states of a puzzle of the given rows and columns fit into a packed state.
+   *
+   * @param rows - the number of rows of the puzzle
+   * @param columns - the number of columns of the puzzle
+   * @return whether the states can be packed
+   */
+  public static boolean fits(int rows, int columns) {
+    return rows * columns <= MAX_CELLS;
+  }
+
+  /**
+   * Returns the number of positions of the puzzle.
+   *
+   * @return the number of positions
+   */
+  public int getCells() {
+    return cells;
+  }
+
+  /**
+   * Packs a puzzle state into a long.
+   *
+   * @param state - the puzzle state to pack
+   * @return the packed state
+   */
+  public long pack(PuzzleState state) {
+
+    /* The packed state, filled position by position. */
+    long packed = 0;
+
+    /* Iterate through rows of puzzle. */
+    for (int i = 0; i < rows; i++) {
+
+      /* Iterate through columns of puzzle. */
+      for (int j = 0; j < columns; j++) {
+
+        /* Put the number at this index into the nibble of its position. */
+        packed |= (long) state.getNumber(i, j) << (4 * (i * columns + j));
+      }
+    }
+
+    return packed;
+  }
+
+  /**
+   * Returns the packed goal state of a goal configuration.
+   *
+   * @param goal - the goal configuration, of the shape of this puzzle
+   * @return the packed goal state
+   */
+  public long goal(GoalConfiguration goal) {
+
+    /* The packed goal state, filled position by position. */
+    long packed = 0;
+    for (int position = 0; position < cells; position++) {
+      packed |= (long) goal.getNumber(position) << (4 * position);
+    }
+
+    return packed;
+  }
+
+  /**
+   * Returns the number at a position of a packed state.
+   *
+   * @param packed - the packed state
+   * @param position - the position on the board
+   * @return the number at the position
+   */
+  public static int get(long packed, int position) {
+    return (int) (packed >>> (4 * position)) & 0xF;
+  }
+
+  /**
+   * Unpacks a packed state into the number at each position of the board, for estimating it.
+   *
+   * @param packed - the packed state
+   * @param numbers - the array of the positions of the board to unpack into
+   */
+  public static void unpack(long packed, int[] numbers) {
+    for (int position = 0; position < numbers.length; position++) {
+      numbers[position] = get(packed, position);
+    }
+  }
+
+  /**
+   * Returns the position of the zero (blank space) in a packed state.
+   * The nibbles above the board are zero too, so the lowest zero nibble is the blank space.
+   *
+   * @param packed - the packed state
+   * @return the position of the zero
+   */
+  public static int zero(long packed) {
+    return Long.numberOfTrailingZeros((packed - LOW_BITS) & ~packed & HIGH_BITS) >> 2;
+  }
+
+  /**
+   * Returns the position the zero (blank space) moves to.
+   *
+   * @param zero - the position of the zero
+   * @param move - the move (0 = up, 1 = down, 2 = left, 3 = right)
+   * @return the new position of the zero, -1 when it would leave the board
+   */
+  public int neighbor(int zero, int move) {
+    return neighbors[zero * MOVES.length + move];
+  }
+
+  /**
+   * Moves the zero (blank space) of a packed state into another position.
+   *
+   * @param packed - the packed state
+   * @param zero - the position of the zero
+   * @param target - the position the zero moves to
+   * @return the packed state after the move
+   */
+  public static long move(long packed, int zero, int target) {
+
+    /* The number that swaps with the zero. */
+    long number = (packed >>> (4 * target)) & 0xF;
+
+    /* Clear the target nibble and put the number into the old zero position. */
+    return (packed & ~(0xFL << (4 * target))) | (number << (4 * zero));
+  }
+}
@@ -0,0 +1,362 @@
+package howard.puzzle;
+
+import java.util.Arrays;
+
+/**
+ * Class for shortening solutions of the puzzle after they are found.
+ * Solutions of the depth-limited, weighted and macro solvers, as well as random walks,
+ * often take detours. First, moves that are immediately undone by the next move are removed.
+ * Then a window slides over the moves, and each short subpath is replaced by a shortest
+ * path between the same two states, found with a small depth-first search.
+ * This shortens the solution without solving the whole puzzle again.
+ * The shortener keeps the boards of the window it searches, so it shortens one solution at a
+ * time, and solvers running at once wait for it in turn.
+ *
+ * @author Shaun Howard
+ */
+public class PathShortener {
+
+  /**
+   * The default number of moves in the window of the search. The shortest cycle of moves that
+   * is not undone move by move has twelve moves, so windows of seven or more moves are needed
+   * to find more than immediate inverses.
+   */
+  public static final int DEFAULT_WINDOW = 10;
+
+  /** The characters of the moves up, down, left and right. */
+  private static final char[] MOVES = {'u', 'd', 'l', 'r'};
+
+  /** An instance of the path shortener for shortening solutions. */
+  private static PathShortener instance = new PathShortener();
+
+  /** The number of moves in the window of the search. */
+  private int window = DEFAULT_WINDOW;
+
+  /** The number of columns of the board being shortened. */
+  private int columns;
+
+  /** The number of rows of the board being shortened. */
+  private int rows;
+
+  /** The tile at each position of the board at the start of the window. */
+  private int[] board;
+
+  /** The position of the zero (blank space) on the board. */
+  private int zero;
+
+  /** The hash of the board after the window, relative to the board before it. */
+  private long targetHash;
+
+  /** The board after the window. */
+  private int[] targetBoard;
+
+  /** The position of the zero (blank space) after the window. */
+  private int targetZero;
+
+  /** The moves of the path being searched. */
+  private char[] trail;
+
+  /** Nullary constructor. */
+  private PathShortener() {
+
+  }
+
+  /**
+   * Returns the instance of the path shortener.
+   *
+   * @return the instance of the path shortener
+   */
+  public static PathShortener getInstance() {
+    return instance;
+  }
+
+  /**
+   * Sets the number of moves in the window that is replaced by a shortest path.
+   * Larger windows find more detours, but the search grows exponentially with the window.
+   *
+   * @param window - the number of moves in the window, at least 2
+   */
+  public synchronized void setWindow(int window) {
+
+    /* A window of one move cannot be shortened. */
+    if (window < 2) {
+      throw new IllegalArgumentException("Window must be at least 2 moves: " + window);
+    }
+    this.window = window;
+  }
+
+  /**
+   * Removes moves that are immediately undone by the next move.
+   *
+   * @param sequence - the moves of the zero (blank space) to shorten
+   * @return the moves without immediate inverses
+   */
+  public String removeInverses(String sequence) {
+
+    /* Builder used as a stack of the moves kept so far. */
+    StringBuilder kept = new StringBuilder(sequence.length());
+
+    for (int i = 0; i < sequence.length(); i++) {
+      char move = sequence.charAt(i);
+      int last = kept.length() - 1;
+
+      /* When the move undoes the last kept move, drop both. */
+      if (last >= 0 && kept.charAt(last) == inverse(move)) {
+        kept.setLength(last);
+      } else {
+        kept.append(move);
+      }
+    }
+
+    return kept.toString();
+  }
+
+  /**
+   * Shortens a sequence of moves of the zero (blank space) that starts in the state of the puzzle.
+   * The shortened sequence leads to the same state as the input sequence.
+   * Only one sequence is shortened at a time, since the boards of the window are kept in the shortener.
+   *
+   * @param puzzle - the puzzle in the state the moves start in
+   * @param sequence - the moves of the zero to shorten
+   * @return the shortened moves
+   */
+  public synchronized String shorten(Puzzle puzzle, String sequence) {
+
+    /* Copy the board of the puzzle. */
+    rows = puzzle.getRows();
+    columns = puzzle.getColumns();
+    board = new int[rows * columns];
+    for (int i = 0; i < rows; i++) {
+      for (int j = 0; j < columns; j++) {
+        board[i * columns + j] = puzzle.getNumber(i, j);
+      }
+    }
+    zero = puzzle.getZeroRow() * columns + puzzle.getZeroColumn();
+
+    /* Make room for the moves of the searched paths. */
+    trail = new char[window];
+
+    /* Remove the immediate inverses first, they need no search. */
+    char[] path = removeInverses(sequence).toCharArray();
+    int length = path.length;
+
+    /* Slide the window over the moves, the board is in the state before move i. */
+    int i = 0;
+    while (i < length) {
+
+      /* The end of the window. */
+      int end = Math.min(i + window, length);
+
+      /* Search for a shorter path through the window. */
+      char[] better = end - i > 1 ? search(path, i, end) : null;
+
+      /* Checks if a shorter path was found. */
+      if (better != null) {
+
+        /* Replace the window with the shorter path. */
+        System.arraycopy(path, end, path, i + better.length, length - end);
+        System.arraycopy(better, 0, path, i, better.length);
+        length -= end - i - better.length;
+
+        /* Step back, since the new path may form detours with the moves before it. */
+        for (int back = 0; back < window - 1 && i > 0; back++) {
+          i--;
+          zero = apply(board, zero, inverse(path[i]));
+        }
+      } else { //Otherwise, move the window forward by one move.
+
+        zero = apply(board, zero, path[i]);
+        i++;
+      }
+    }
+
+    /* Free the memory of the boards. */
+    board = null;
+    targetBoard = null;
+
+    return new String(path, 0, length);
+  }
+
+  /**
+   * Searches for a path shorter than the window between the states before and after the window.
+   * Every move changes the parity of the board, so only paths that are two, four, ... moves
+   * shorter can reach the same state. They are tried from the shortest with a depth-first search
+   * that prunes paths on which the zero (blank space) is too far from where the window leaves it.
+   *
+   * @param path - the moves of the zero (blank space)
+   * @param start - the index of the first move of the window
+   * @param end - the index after the last move of the window
+   * @return the shorter path, or null when the window is already shortest
+   */
+  private char[] search(char[] path, int start, int end) {
+
+    /* Find the hash and board of the state after the window, relative to the state before it. */
+    targetHash = 0;
+    int position = zero;
+    for (int i = start; i < end; i++) {
+      int next = apply(board, position, path[i]);
+      targetHash ^= moveHash(position, next, board[position]);
+      position = next;
+    }
+    targetZero = position;
+    targetBoard = board.clone();
+
+    /* Undo the window to return the board to the state before it. */
+    for (int i = end - 1; i >= start; i--) {
+      position = apply(board, position, inverse(path[i]));
+    }
+
+    /* Try the shorter lengths of the same parity, shortest first. */
+    for (int limit = (end - start) % 2; limit < end - start; limit += 2) {
+      if (dfs(zero, 0, limit, 0, ' ')) {
+        return Arrays.copyOf(trail, limit);
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * Depth-first search for a path of an exact length to the state after the window.
+   * States are told apart by a hash of the board, and a matching state is checked against the board.
+   *
+   * @param position - the position of the zero (blank space)
+   * @param depth - the number of moves made so far
+   * @param limit - the length of the paths to search
+   * @param hash - the hash of the board, relative to the state before the window
+   * @param last - the last move made
+   * @return whether a path was found, its moves are in the trail
+   */
+  private boolean dfs(int position, int depth, int limit, long hash, char last) {
+
+    /* When the length is reached, check if the state is the one after the window. */
+    if (depth == limit) {
+      return hash == targetHash && Arrays.equals(board, targetBoard);
+    }
+
+    /* Try to move the zero in each direction. */
+    for (char move : MOVES) {
+
+      /* Never undo the last move. */
+      if (depth > 0 && move == inverse(last)) {
+        continue;
+      }
+
+      /* The position the zero moves to, -1 when it leaves the board. */
+      int next = step(position, move);
+      if (next < 0) {
+        continue;
+      }
+
+      /* Skip the move when the zero cannot get back to its target position in time. */
+      if (Math.abs(next / columns - targetZero / columns) + Math.abs(next % columns - targetZero % columns)
+            > limit - depth - 1) {
+        continue;
+      }
+
+      /* Make the move, search deeper and undo the move. */
+      long childHash = hash ^ moveHash(position, next, board[next]);
+      board[position] = board[next];
+      board[next] = 0;
+      trail[depth] = move;
+      boolean found = dfs(next, depth + 1, limit, childHash, move);
+      board[next] = board[position];
+      board[position] = 0;
+
+      /* When the path is found, leave the search. */
+      if (found) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Returns the position the zero (blank space) moves to.
+   *
+   * @param position - the position of the zero
+   * @param move - the direction of the move (l = left, r = right, u = up, d = down)
+   * @return the new position of the zero, -1 when it would leave the board
+   */
+  private int step(int position, char move) {
+    switch (move) {
+      case 'u':
+        return position >= columns ? position - columns : -1;
+      case 'd':
+        return position < (rows - 1) * columns ? position + columns : -1;
+      case 'l':
+        return position % columns > 0 ? position - 1 : -1;
+      default:
+        return position % columns < columns - 1 ? position + 1 : -1;
+    }
+  }
+
+  /**
+   * Moves the zero (blank space) on a board.
+   *
+   * @param cells - the tiles of the board
+   * @param position - the position of the zero
+   * @param move - the direction of the move (l = left, r = right, u = up, d = down)
+   * @return the new position of the zero
+   */
+  private int apply(int[] cells, int position, char move) {
+
+    /* The position the zero moves to. */
+    int next = step(position, move);
+    if (next < 0) {
+      throw new IllegalArgumentException("Move " + move + " leaves the board");
+    }
+
+    /* Swap the zero with the tile. */
+    cells[position] = cells[next];
+    cells[next] = 0;
+
+    return next;
+  }
+
+  /**
+   * Returns the change of the board hash when the zero (blank space) swaps with a tile.
+   *
+   * @param from - the position of the zero before the move
+   * @param to - the position of the zero after the move
+   * @param tile - the tile that swaps with the zero
+   * @return the change of the board hash
+   */
+  private long moveHash(int from, int to, int tile) {
+    int cells = rows * columns;
+    return mix(from * cells) ^ mix(to * cells + tile) ^ mix(from * cells + tile) ^ mix(to * cells);
+  }
+
+  /**
+   * Mixes the bits of a number, giving every tile at every position its own random hash.
+   *
+   * @param value - the position times the cells plus the tile
+   * @return the hash of the tile at the position
+   */
+  private static long mix(long value) {
+    long z = value * 0x9E3779B97F4A7C15L + 0x9E3779B97F4A7C15L;
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+
+  /**
+   * Returns the move that undoes a move.
+   *
+   * @param move - the direction of the move (l = left, r = right, u = up, d = down)
+   * @return the opposite direction
+   */
+  static char inverse(char move) {
+    switch (move) {
+      case 'u':
+        return 'd';
+      case 'd':
+        return 'u';
+      case 'l':
+        return 'r';
+      default:
+        return 'l';
+    }
+  }
+}
@@ -0,0 +1,1062 @@
+package howard.puzzle;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Class for a pattern database: the fewest moves of a set of tiles, the pattern, needed to bring
+ * them to their goal positions, for every placement of those tiles on the board. The other tiles
+ * are all alike, and only moves of pattern tiles are counted, so the databases of disjoint
+ * patterns can be added up into an admissible estimate, see PatternHeuristic.
+ *
+ * The database is made by a breadth-first search backwards from the goal placement, over the
+ * placements of the pattern tiles and the position of the zero (blank space). Moving the zero
+ * past the other tiles is free, so each level of the search holds whole regions the zero can
+ * walk around in, and the distance of a placement is the level it is first reached at. The
+ * levels are searched one after another by several threads, each taking ranges of placements
+ * from the frontier, and the state of every placement and position of the zero is kept in a
+ * nibble of a long array that the threads set with compare-and-set. The nibble tells whether the
+ * state is not reached yet, reached at the current or next level, or already expanded, so the
+ * search takes half a byte per state, and the database a byte per placement. The 7 tile pattern
+ * of the 15-puzzle has 57,657,600 placements and its search takes about 320 MB, the 8 tile
+ * pattern has 518,918,400 placements and takes about 2.6 GB.
+ *
+ * The distances can be kept in less memory, named by "-Dpuzzle.patternCompression=<name>":
+ * "full" keeps a byte per placement. "mod3" keeps the distance modulo 3 in two bits per
+ * placement, a quarter of the memory. A move changes the distance by at most one when the
+ * database is consistent, so the distance of a placement one move from a placement of known
+ * distance follows from the two residues, and the distance of a placement on its own is
+ * recovered by a search down to the goal placement, taking each move to a residue one lower.
+ * The databases following the regions of the zero are not consistent, the zero may have to
+ * walk around, so the "mod3" databases let the zero be in every free position at once, which
+ * counts the same moves of the pattern tiles but estimates lower. "min4" keeps the smallest
+ * distance of each group of 4 adjacent ranks in a byte, a quarter of the memory, and any group
+ * size may be given; the ranks of a group differ in the position of the last pattern tile,
+ * so the estimate loses the most when that tile is the one furthest from its goal position.
+ * Only the "mod3" databases are consistent; the others never overestimate, but a search that
+ * does not reopen explored states, like weighted A*, may find longer solutions with them.
+ *
+ * The database is saved to a file in the directory of the distance tables and read back by
+ * later runs, like the distance tables. "java howard.puzzle.PatternDatabase build 4x4
+ * 1,2,3,4,5,6,7;8,9,10,11,12,13,14,15" makes the databases of a partition ahead of time,
+ * reporting the progress and the time left, on as many threads as "-Dpuzzle.threads=<n>" says,
+ * every processor by default. "java howard.puzzle.PatternDatabase check 2x3,3x3 full,mod3,min4"
+ * checks the databases of shapes small enough for a distance table against the exact distances.
+ *
+ * @author Shaun Howard
+ */
+public class PatternDatabase {
+
+  /** The system property giving the number of threads making a database. */
+  public static final String THREADS_PROPERTY = "puzzle.threads";
+
+  /** The system property naming the way the distances are kept. */
+  public static final String COMPRESSION_PROPERTY = "puzzle.patternCompression";
+
+  /** The ways to keep the distances, "min" followed by the number of ranks of a group. */
+  public static final String[] COMPRESSIONS = {"full", "mod3", "min"};
+
+  /** The largest number of placements of a database, the longest byte array. */
+  public static final long MAX_PLACEMENTS = Integer.MAX_VALUE - 8;
+
+  /** The marker at the start of a database file. */
+  private static final int MAGIC = 0x4E505044;
+
+  /** The version of the database file format. */
+  private static final int VERSION = 3;
+
+  /** The distance of placements not reached by the search. */
+  private static final byte UNREACHED = -1;
+
+  /** The residue of placements not reached by the search, which no move leads down to. */
+  private static final long UNREACHED_RESIDUE = 3;
+
+  /** The nibble of a state not reached yet. */
+  private static final int UNSEEN = 0;
+
+  /** The nibble of a state already expanded. */
+  private static final int CLOSED = 1;
+
+  /** The number of nibbles of the states reached at a level, 2 + the level modulo this. */
+  private static final int LEVEL_CODES = 14;
+
+  /** The number of ranges of placements each thread takes from a level, on average. */
+  private static final int RANGES_PER_THREAD = 64;
+
+  /** The time between reports of the progress of a search in milliseconds. */
+  private static final long PROGRESS_INTERVAL = 5000;
+
+  /** The shapes checked when none are given, every shape small enough for a distance table. */
+  private static final String CHECK_SHAPES = "2x2,2x3,3x2,2x4,4x2,3x3,2x5,5x2";
+
+  /** The compressions checked when none are given. */
+  private static final String CHECK_COMPRESSIONS = "full,mod3,min4,min16";
+
+  /** The number of random boards of each shape and goal checked. */
+  private static final int CHECK_BOARDS = 20000;
+
+  /** The databases already loaded, by file name. */
+  private static Map<String, PatternDatabase> databases = new HashMap<String, PatternDatabase>();
+
+  /** Whether the progress of making a database is printed, off so servers and benchmarks stay quiet. */
+  private static volatile boolean verbose;
+
+  /** The goal configuration of the puzzle. */
+  private final GoalConfiguration goal;
+
+  /** The tiles of the pattern, in increasing order. */
+  private final int[] tiles;
+
+  /** The number of positions of the puzzle. */
+  private final int cells;
+
+  /** The way the distances are kept, such as "full", "mod3" or "min4". */
+  private final String compression;
+
+  /** Whether the distances are kept modulo 3, in a database that lets the zero be in every free position. */
+  private final boolean modulo;
+
+  /** The number of adjacent ranks sharing the smallest of their distances, 1 to keep every distance. */
+  private final int groupSize;
+
+  /** The number of positions not taken by the pattern, where the zero can be. */
+  private final int free;
+
+  /** The number of placements of the pattern tiles. */
+  private final long placements;
+
+  /** The weight of the position of each pattern tile in the rank of a placement. */
+  private final long[] radix;
+
+  /** The positions next to each position, as a bit mask, so boards have at most 32 positions. */
+  private final int[] neighbors;
+
+  /** All positions of the board, as a bit mask. */
+  private final int board;
+
+  /** The rank of the goal placement. */
+  private final long goalRank;
+
+  /** The index of each number in the pattern, -1 for the other numbers. */
+  private final int[] tileIndices;
+
+  /** The fewest moves of the pattern tiles to the goal placement of every placement, at its rank, or of every group of ranks. */
+  private byte[] distances;
+
+  /** The distance of every placement modulo 3, 32 to a long, when the distances are kept modulo 3. */
+  private long[] residues;
+
+  /**
+   * Constructor for an empty database of a pattern.
+   *
+   * @param goal - the goal configuration of the puzzle
+   * @param tiles - the tiles of the pattern, in increasing order
+   * @param compression - the way the distances are kept
+   */
+  private PatternDatabase(GoalConfiguration goal, int[] tiles, String compression) {
+    this.goal = goal;
+    this.tiles = tiles;
+    this.compression = compression;
+    this.modulo = compression.equals(COMPRESSIONS[1]);
+    this.groupSize = groupSize(compression);
+    this.cells = goal.getCells();
+    this.free = cells - tiles.length;
+    this.placements = placements(cells, tiles.length);
+
+    /* The later tiles of the pattern have fewer positions left, so the rank is a mixed radix number. */
+    radix = new long[tiles.length];
+    for (int i = tiles.length - 1; i >= 0; i--) {
+      radix[i] = i == tiles.length - 1 ? 1 : radix[i + 1] * (cells - i - 1);
+    }
+
+    /* The positions next to each position, above, below, left and right. */
+    int columns = goal.getColumns();
+    neighbors = new int[cells];
+    for (int position = 0; position < cells; position++) {
+      if (position >= columns) {
+        neighbors[position] |= 1 << (position - columns);
+      }
+      if (position + columns < cells) {
+        neighbors[position] |= 1 << (position + columns);
+      }
+      if (position % columns > 0) {
+        neighbors[position] |= 1 << (position - 1);
+      }
+      if (position % columns < columns - 1) {
+        neighbors[position] |= 1 << (position + 1);
+      }
+    }
+
+    board = cells == Integer.SIZE ? -1 : (1 << cells) - 1;
+
+    tileIndices = new int[cells];
+    Arrays.fill(tileIndices, -1);
+    int[] positions = new int[tiles.length];
+    for (int i = 0; i < tiles.length; i++) {
+      tileIndices[tiles[i]] = i;
+      positions[i] = goal.getPosition(tiles[i]);
+    }
+    goalRank = rank(positions);
+  }
+
+  /**
+   * Returns the number of adjacent ranks sharing a distance for a way of keeping the distances.
+   *
+   * @param compression - "full", "mod3" or "min" followed by the group size
+   * @return the number of ranks of a group, 1 to keep every distance
+   */
+  static int groupSize(String compression) {
+    if (compression.equals(COMPRESSIONS[0]) || compression.equals(COMPRESSIONS[1])) {
+      return 1;
+    }
+
+    /* Make sure the group size is a number of at least 2. */
+    try {
+      if (compression.startsWith(COMPRESSIONS[2])) {
+        int size = Integer.parseInt(compression.substring(COMPRESSIONS[2].length()));
+        if (size >= 2) {
+          return size;
+        }
+      }
+    } catch (NumberFormatException nfe) { //Catch a group size that is not a number, the name is unknown.
+    }
+    throw new IllegalArgumentException("No pattern database compression named " + compression
+                                         + ", try full, mod3 or min followed by a group size such as min4");
+  }
+
+  /**
+   * Returns the number of placements of a number of tiles on a board.
+   *
+   * @param cells - the number of positions of the board
+   * @param size - the number of tiles
+   * @return the number of ways to put the tiles on distinct positions, saturating at Long.MAX_VALUE
+   */
+  public static long placements(int cells, int size) {
+    long count = 1;
+    for (int i = 0; i < size; i++) {
+      if (count > Long.MAX_VALUE / cells) {
+        return Long.MAX_VALUE;
+      }
+      count *= cells - i;
+    }
+    return count;
+  }
+
+  /**
+   * Sets whether the progress of making a database is printed to the console, as the solvers
+   * print their solutions. The puzzle maker and the build of the databases turn printing on.
+   *
+   * @param verbose - whether to print the progress
+   */
+  public static void setVerbose(boolean verbose) {
+    PatternDatabase.verbose = verbose;
+  }
+
+  /**
+   * Returns whether the progress of making a database is printed to the console.
+   *
+   * @return whether the progress is printed
+   */
+  public static boolean isVerbose() {
+    return verbose;
+  }
+
+  /**
+   * Returns the database of a pattern. The database is read from its file when the file exists,
+   * otherwise it is made on the threads of the threads system property and saved to the file.
+   *
+   * @param goal - the goal configuration of the puzzle
+   * @param tiles - the tiles of the pattern
+   * @return the pattern database
+   */
+  public static PatternDatabase getInstance(GoalConfiguration goal, int[] tiles) {
+    return getInstance(goal, tiles, System.getProperty(COMPRESSION_PROPERTY, COMPRESSIONS[0]),
+                       Integer.getInteger(THREADS_PROPERTY, Runtime.getRuntime().availableProcessors()));
+  }
+
+  /**
+   * Returns the database of a pattern keeping its distances in a way, made on a number of
+   * threads when its file does not exist.
+   *
+   * @param goal - the goal configuration of the puzzle
+   * @param tiles - the tiles of the pattern
+   * @param compression - "full", "mod3" or "min" followed by the group size, such as "min4"
+   * @param threads - the number of threads making the database
+   * @return the pattern database
+   */
+  public static synchronized PatternDatabase getInstance(GoalConfiguration goal, int[] tiles, String compression,
+                                                         int threads) {
+    groupSize(compression);
+    tiles = tiles.clone();
+    Arrays.sort(tiles);
+
+    /* Make sure the pattern is made of distinct tiles of the puzzle, and is small enough. */
+    for (int i = 0; i < tiles.length; i++) {
+      if (tiles[i] < 1 || tiles[i] >= goal.getCells() || (i > 0 && tiles[i] == tiles[i - 1])) {
+        throw new IllegalArgumentException("Pattern " + Arrays.toString(tiles) + " is not a set of tiles of " + goal);
+      }
+    }
+    if (tiles.length == 0 || goal.getCells() > Integer.SIZE || placements(goal.getCells(), tiles.length) > MAX_PLACEMENTS) {
+      throw new IllegalArgumentException("Pattern of " + tiles.length + " tiles is too large for a database of " + goal);
+    }
+
+    /* Checks if the database was already loaded. */
+    File file = getFile(goal, tiles, compression);
+    PatternDatabase database = databases.get(file.getName());
+    if (database != null) {
+      return database;
+    }
+
+    /* Read the database from its file, or make and save it. */
+    database = new PatternDatabase(goal, tiles, compression);
+    if (!database.read(file)) {
+      database.build(threads);
+      database.write(file);
+    }
+    databases.put(file.getName(), database);
+
+    return database;
+  }
+
+  /**
+   * Returns the file of the database of a pattern.
+   *
+   * @param goal - the goal configuration of the puzzle
+   * @param tiles - the tiles of the pattern, in increasing order
+   * @param compression - the way the distances are kept
+   * @return the file of the database
+   */
+  private static File getFile(GoalConfiguration goal, int[] tiles, String compression) {
+    StringBuilder name = new StringBuilder("pattern-" + goal.getShape() + "-" + goal.getName());
+    for (int i = 0; i < tiles.length; i++) {
+      name.append(i == 0 ? '-' : '.').append(tiles[i]);
+    }
+    if (!compression.equals(COMPRESSIONS[0])) {
+      name.append('-').append(compression);
+    }
+    return new File(DistanceTable.getDirectory(), name.append(".bin").toString());
+  }
+
+  /**
+   * Returns the rank of a placement of the pattern tiles.
+   *
+   * @param positions - the position of each pattern tile, in the order of the tiles
+   * @return the rank of the placement, from 0 to the number of placements - 1
+   */
+  private long rank(int[] positions) {
+    long rank = 0;
+    int used = 0;
+    for (int i = 0; i < positions.length; i++) {
+
+      /* The position among the ones the earlier tiles left. */
+      int position = positions[i];
+      rank += (position - Integer.bitCount(used & ((1 << position) - 1))) * radix[i];
+      used |= 1 << position;
+    }
+    return rank;
+  }
+
+  /**
+   * Finds the placement of a rank.
+   *
+   * @param rank - the rank of the placement
+   * @param positions - the array to write the position of each pattern tile to
+   * @return the positions taken by the pattern tiles, as a bit mask
+   */
+  private int unrank(long rank, int[] positions) {
+    int used = 0;
+    for (int i = 0; i < positions.length; i++) {
+      int index = (int) (rank / radix[i]);
+      rank -= index * radix[i];
+      positions[i] = select(~used, index);
+      used |= 1 << positions[i];
+    }
+    return used;
+  }
+
+  /**
+   * Returns a position of a set of positions by its index among them.
+   *
+   * @param mask - the set of positions, as a bit mask
+   * @param index - the number of positions of the set before it
+   * @return the position
+   */
+  private static int select(int mask, int index) {
+    for (int i = 0; i < index; i++) {
+      mask &= mask - 1;
+    }
+    return Integer.numberOfTrailingZeros(mask);
+  }
+
+  /**
+   * Makes the database with a breadth-first search backwards from the goal placement, each level on a number of threads.
+   *
+   * @param threads - the number of threads
+   */
+  private void build(int threads) {
+    final long start = System.currentTimeMillis();
+
+    /* The state of every placement and position of the zero, 16 to a long. */
+    AtomicLongArray states = new AtomicLongArray((int) ((placements * free + 15) / 16));
+    distances = new byte[(int) placements];
+    Arrays.fill(distances, UNREACHED);
+
+    /* Every state is reached when other tiles are left, since they can swap places; otherwise half are. */
+    long total = free > 1 ? placements * free : placements * free / 2;
+
+    /* Start at the goal placement, with the zero anywhere it can walk to from its goal position. */
+    int[] positions = new int[tiles.length];
+    distances[(int) goalRank] = 0;
+    LongAdder reached = new LongAdder();
+    reached.add(claimRegion(states, goalRank, unrank(goalRank, positions), goal.getPosition(0), code(0)));
+
+    /* Search the levels until one reaches no new states. */
+    long ranges = Math.min(placements, (long) threads * RANGES_PER_THREAD);
+    long lastReport = start;
+    boolean reported = false;
+    for (int level = 0; ; level++) {
+      long before = reached.sum();
+      AtomicLong nextRange = new AtomicLong();
+      AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+      /* Each thread expands the states of the level in the ranges of placements it takes. */
+      final int current = level;
+      Thread[] workers = new Thread[threads];
+      for (int i = 0; i < threads; i++) {
+        workers[i] = new Thread(() -> {
+          try {
+            for (long range = nextRange.getAndIncrement(); range < ranges; range = nextRange.getAndIncrement()) {
+              reached.add(expand(states, placements * range / ranges, placements * (range + 1) / ranges, current));
+            }
+          } catch (Throwable t) { //Catch a failure of the thread, such as running out of memory, to throw it from the search.
+            failure.compareAndSet(null, t);
+            nextRange.set(ranges);
+          }
+        }, "pattern-database-" + i);
+        workers[i].start();
+      }
+
+      /* Wait for the threads, reporting the progress of long searches. */
+      for (Thread worker : workers) {
+        while (worker.isAlive()) {
+          try {
+            worker.join(PROGRESS_INTERVAL);
+          } catch (InterruptedException ie) { //Catch an interrupt, the search goes on and the thread stays interrupted.
+            Thread.currentThread().interrupt();
+          }
+          long now = System.currentTimeMillis();
+          if (verbose && now - lastReport >= PROGRESS_INTERVAL) {
+            report(level, Math.min(nextRange.get(), ranges) * 100 / ranges, reached.sum(), total, now - start);
+            lastReport = now;
+            reported = true;
+          }
+        }
+      }
+
+      /* Throw the failure of a thread. */
+      Throwable t = failure.get();
+      if (t instanceof Error) {
+        throw (Error) t;
+      } else if (t != null) { //Otherwise, the failure is an exception.
+        throw new IllegalStateException("Making the pattern database failed", t);
+      }
+
+      /* The search is over when the level reached no new states. */
+      if (reached.sum() == before) {
+        break;
+      }
+    }
+
+    if (reported) {
+      System.err.println(String.format(Locale.ROOT, "Pattern database %s of %s: %d states in %.1f s",
+                                       Arrays.toString(tiles), goal, reached.sum(),
+                                       (System.currentTimeMillis() - start) / 1000.0));
+    }
+
+    compress();
+  }
+
+  /**
+   * Keeps the distances the way the database was asked to, dropping the byte per placement.
+   */
+  private void compress() {
+    if (modulo) {
+      residues = new long[(int) ((placements + 31) / 32)];
+      for (int rank = 0; rank < distances.length; rank++) {
+        long residue = distances[rank] == UNREACHED ? UNREACHED_RESIDUE : distances[rank] % 3;
+        residues[rank >>> 5] |= residue << ((rank & 31) << 1);
+      }
+      distances = null;
+    } else if (groupSize > 1) { //Otherwise, keep the smallest distance of each group of ranks.
+      byte[] smallest = new byte[(int) ((placements + groupSize - 1) / groupSize)];
+      Arrays.fill(smallest, Byte.MAX_VALUE);
+      for (int rank = 0; rank < distances.length; rank++) {
+        if (distances[rank] != UNREACHED) {
+          smallest[rank / groupSize] = (byte) Math.min(smallest[rank / groupSize], distances[rank]);
+        }
+      }
+
+      /* A group of placements the search never reached estimates nothing. */
+      for (int group = 0; group < smallest.length; group++) {
+        if (smallest[group] == Byte.MAX_VALUE) {
+          smallest[group] = 0;
+        }
+      }
+      distances = smallest;
+    }
+  }
+
+  /**
+   * Prints the progress of a search, and the time left, guessed from the share of the states reached so far.
+   *
+   * @param level - the level being searched
+   * @param levelPercent - the percentage of the placements of the level taken by the threads
+   * @param reached - the number of states reached so far
+   * @param total - the number of states the search will reach
+   * @param elapsed - the time since the search started in milliseconds
+   */
+  private void report(int level, long levelPercent, long reached, long total, long elapsed) {
+    double share = (double) reached / total;
+    System.err.println(String.format(Locale.ROOT, "Pattern database %s of %s: level %d (%d%%), %d of %d states (%.1f%%),"
+                                                    + " %.1f s, about %.0f s left", Arrays.toString(tiles), goal, level,
+                                     levelPercent, reached, total, share * 100, elapsed / 1000.0,
+                                     elapsed * (1 - share) / share / 1000.0));
+  }
+
+  /**
+   * Returns the nibble of the states reached at a level.
+   *
+   * @param level - the level
+   * @return the nibble of the level
+   */
+  private static int code(int level) {
+    return 2 + level % LEVEL_CODES;
+  }
+
+  /**
+   * Expands the states of a level in a range of placements: each move of a pattern tile into
+   * the position of the zero reaches the region of a new placement at the next level.
+   *
+   * @param states - the states of the search
+   * @param first - the rank of the first placement of the range
+   * @param last - the rank after the last placement of the range
+   * @param level - the level expanded
+   * @return the number of new states reached
+   */
+  private long expand(AtomicLongArray states, long first, long last, int level) {
+    int current = code(level);
+    int next = code(level + 1);
+    int[] positions = new int[tiles.length];
+    long count = 0;
+
+    /* The placement worked out last, only when it has states of the level. */
+    long rank = -1;
+    int used = 0;
+
+    /* Look at the nibbles of the range 16 at a time, most levels reach few of them. */
+    long firstEntry = first * free;
+    long lastEntry = last * free;
+    for (long word = firstEntry >>> 4; word << 4 < lastEntry; word++) {
+      for (long found = matches(states.getPlain((int) word), current); found != 0; found &= found - 1) {
+        long entry = (word << 4) + (Long.numberOfTrailingZeros(found) >>> 2);
+        if (entry < firstEntry || entry >= lastEntry) {
+          continue;
+        }
+        if (entry / free != rank) {
+          rank = entry / free;
+          used = unrank(rank, positions);
+        }
+        set(states, entry, current, CLOSED);
+
+        /* Move each pattern tile next to the zero into its position. */
+        int zero = select(~used, (int) (entry - rank * free));
+        for (int i = 0; i < tiles.length; i++) {
+          int position = positions[i];
+          if ((neighbors[zero] & (1 << position)) == 0) {
+            continue;
+          }
+          positions[i] = zero;
+          long newRank = rank(positions);
+          positions[i] = position;
+
+          /* The new placement is at most one level further, the first level reaching it is its distance. */
+          long claimed = claimRegion(states, newRank, used & ~(1 << position) | (1 << zero), position, next);
+          if (claimed > 0 && distances[(int) newRank] == UNREACHED) {
+            distances[(int) newRank] = (byte) (level + 1);
+          }
+          count += claimed;
+        }
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Finds the nibbles of a long equal to a code.
+   *
+   * @param word - the long of 16 nibbles
+   * @param code - the nibble to find
+   * @return the top bit of each nibble equal to the code
+   */
+  private static long matches(long word, int code) {
+
+    /* The nibbles equal to the code become zero, and only zero nibbles keep their top bit clear. */
+    long x = word ^ (code * 0x1111111111111111L);
+    return ~(((x & 0x7777777777777777L) + 0x7777777777777777L) | x) & 0x8888888888888888L;
+  }
+
+  /**
+   * Reaches the states of a placement with the zero in the region around a position, the
+   * positions it can walk to past the other tiles. When the state of the zero at that position
+   * was reached before, so was its region.
+   *
+   * @param states - the states of the search
+   * @param rank - the rank of the placement
+   * @param used - the positions taken by the pattern tiles, as a bit mask
+   * @param zero - the position of the zero
+   * @param code - the nibble of the level
+   * @return the number of new states reached
+   */
+  private long claimRegion(AtomicLongArray states, long rank, int used, int zero, int code) {
+
+    /* Checks if the state was reached before. */
+    long base = rank * free;
+    if (!set(states, base + zero - Integer.bitCount(used & ((1 << zero) - 1)), UNSEEN, code)) {
+      return 0;
+    }
+
+    /* The zero is in every free position at once when the distances are kept modulo 3, so the database is consistent. */
+    int region = 1 << zero;
+    if (modulo) {
+      region = board & ~used;
+    } else { //Otherwise, grow the region by the free positions next to it until it stops growing.
+
+      for (int grown = region; grown != 0; ) {
+        int border = 0;
+        for (int mask = grown; mask != 0; mask &= mask - 1) {
+          border |= neighbors[Integer.numberOfTrailingZeros(mask)];
+        }
+        grown = border & ~used & ~region;
+        region |= grown;
+      }
+    }
+
+    /* Reach the states of the other positions of the region. */
+    long count = 1;
+    for (int mask = region & ~(1 << zero); mask != 0; mask &= mask - 1) {
+      int position = Integer.numberOfTrailingZeros(mask);
+      if (set(states, base + position - Integer.bitCount(used & ((1 << position) - 1)), UNSEEN, code)) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Changes the nibble of a state when it has the expected nibble, with compare-and-set, since
+   * other threads change the other nibbles of the same long.
+   *
+   * @param states - the states of the search
+   * @param entry - the index of the state
+   * @param expected - the nibble the state must have
+   * @param code - the new nibble
+   * @return whether the nibble was changed
+   */
+  private static boolean set(AtomicLongArray states, long entry, int expected, int code) {
+    int index = (int) (entry >>> 4);
+    int shift = (int) (entry & 15) << 2;
+    while (true) {
+      long word = states.get(index);
+      if ((int) (word >>> shift & 0xF) != expected) {
+        return false;
+      }
+      if (states.compareAndSet(index, word, word & ~(0xFL << shift) | (long) code << shift)) {
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Reads the database from a file.
+   *
+   * @param file - the file of the database
+   * @return whether a complete database of this pattern was read
+   */
+  private boolean read(File file) {
+
+    /* Checks if the file exists. */
+    if (!file.isFile()) {
+      return false;
+    }
+
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+
+      /* Make sure the header matches this pattern. */
+      if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readInt() != goal.getRows()
+          || in.readInt() != goal.getColumns()) {
+        return false;
+      }
+      for (int position = 0; position < cells; position++) {
+        if (in.readInt() != goal.getNumber(position)) {
+          return false;
+        }
+      }
+      if (in.readInt() != tiles.length) {
+        return false;
+      }
+      for (int tile : tiles) {
+        if (in.readInt() != tile) {
+          return false;
+        }
+      }
+      if (in.readLong() != placements || !in.readUTF().equals(compression)) {
+        return false;
+      }
+
+      /* Read the distances the way they are kept. */
+      if (modulo) {
+        residues = new long[(int) ((placements + 31) / 32)];
+        for (int i = 0; i < residues.length; i++) {
+          residues[i] = in.readLong();
+        }
+      } else { //Otherwise, a byte per placement or group of ranks.
+
+        distances = new byte[(int) ((placements + groupSize - 1) / groupSize)];
+        in.readFully(distances);
+      }
+      return true;
+    } catch (IOException ioe) { //Catch exception when reading the database, it is made again.
+      return false;
+    }
+  }
+
+  /**
+   * Writes the database to a file. When the file cannot be written, the database is made again by the next run.
+   *
+   * @param file - the file of the database
+   */
+  private void write(File file) {
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+
+      /* Write the header. */
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(goal.getRows());
+      out.writeInt(goal.getColumns());
+      for (int position = 0; position < cells; position++) {
+        out.writeInt(goal.getNumber(position));
+      }
+      out.writeInt(tiles.length);
+      for (int tile : tiles) {
+        out.writeInt(tile);
+      }
+      out.writeLong(placements);
+      out.writeUTF(compression);
+
+      /* Write the distances the way they are kept. */
+      if (modulo) {
+        for (long word : residues) {
+          out.writeLong(word);
+        }
+      } else { //Otherwise, a byte per placement or group of ranks.
+
+        out.write(distances);
+      }
+    } catch (IOException ioe) { //Catch exception when writing the database.
+      System.err.println("Could not save the pattern database to " + file + ": " + ioe.getMessage());
+    }
+  }
+
+  /**
+   * Returns the tiles of the pattern.
+   *
+   * @return the tiles of the pattern, in increasing order
+   */
+  public int[] getTiles() {
+    return tiles.clone();
+  }
+
+  /**
+   * Returns the number of placements of the pattern tiles, the entries of the database.
+   *
+   * @return the number of placements
+   */
+  public long getPlacements() {
+    return placements;
+  }
+
+  /**
+   * Checks whether a tile is in the pattern.
+   *
+   * @param number - the number of the tile
+   * @return whether the tile is one of the pattern tiles
+   */
+  public boolean contains(int number) {
+    return tileIndices[number] >= 0;
+  }
+
+  /**
+   * Returns whether the distances are kept modulo 3, so the distance of a board is best found
+   * from the distance of the board one move before it.
+   *
+   * @return whether the distances are kept modulo 3
+   */
+  public boolean isModulo() {
+    return modulo;
+  }
+
+  /**
+   * Returns the way the distances are kept.
+   *
+   * @return "full", "mod3" or "min" followed by the group size
+   */
+  public String getCompression() {
+    return compression;
+  }
+
+  /**
+   * Returns the number of bytes the distances take.
+   *
+   * @return the size of the table of distances in bytes
+   */
+  public long getBytes() {
+    return modulo ? residues.length * 8L : distances.length;
+  }
+
+  /**
+   * Returns the fewest moves of the pattern tiles to their goal positions in a board, or a lower
+   * bound of it when the smallest distances of groups of ranks are kept. Modulo 3 distances are
+   * recovered by a search down to the goal placement, so a state made by one move is better
+   * estimated from its previous state.
+   *
+   * @param numbers - the number at each position of the board in reading order
+   * @return the distance of the placement of the pattern tiles
+   */
+  public int distance(int[] numbers) {
+    long rank = rank(placement(numbers));
+    return modulo ? descend(rank) : distances[(int) (rank / groupSize)];
+  }
+
+  /**
+   * Returns the distance of the placement of the pattern tiles in a board made by one move from
+   * a board whose distance is known. The distance of consistent modulo 3 databases changes by
+   * at most one with a move, so it follows from the residue of the new placement.
+   *
+   * @param numbers - the number at each position of the board in reading order
+   * @param previous - the distance of the board the move was made from
+   * @return the distance of the placement of the pattern tiles
+   */
+  public int distance(int[] numbers, int previous) {
+    if (!modulo) {
+      return distance(numbers);
+    }
+
+    /* The residue is one more for a step away from the goal placement, one less for a step towards it. */
+    int step = (residue(rank(placement(numbers))) - previous % 3 + 3) % 3;
+    return step == 2 ? previous - 1 : previous + step;
+  }
+
+  /**
+   * Returns the fewest moves of the pattern tiles to their goal positions in a packed state.
+   *
+   * @param packed - the packed state
+   * @return the distance of the placement of the pattern tiles
+   */
+  public int distance(long packed) {
+    int[] numbers = new int[cells];
+    for (int position = 0; position < cells; position++) {
+      numbers[position] = PackedState.get(packed, position);
+    }
+    return distance(numbers);
+  }
+
+  /**
+   * Returns the positions of the pattern tiles in a board.
+   *
+   * @param numbers - the number at each position of the board in reading order
+   * @return the position of each pattern tile, in the order of the tiles
+   */
+  private int[] placement(int[] numbers) {
+    int[] positions = new int[tiles.length];
+    for (int position = 0; position < cells; position++) {
+      int i = tileIndices[numbers[position]];
+      if (i >= 0) {
+        positions[i] = position;
+      }
+    }
+    return positions;
+  }
+
+  /**
+   * Returns the distance modulo 3 of a placement.
+   *
+   * @param rank - the rank of the placement
+   * @return the residue of the distance
+   */
+  private int residue(long rank) {
+    return (int) (residues[(int) (rank >>> 5)] >>> ((rank & 31) << 1)) & 3;
+  }
+
+  /**
+   * Recovers the distance of a placement from the residues, moving a pattern tile to a free
+   * position next to it each step, to a placement whose residue is one lower, until the goal
+   * placement. Every placement has a move one closer, and no move changes the distance by more
+   * than one, so that placement is one closer.
+   *
+   * @param rank - the rank of the placement
+   * @return the distance of the placement
+   */
+  private int descend(long rank) {
+    int[] positions = new int[tiles.length];
+    int distance = 0;
+    while (rank != goalRank) {
+      int used = unrank(rank, positions);
+      int closer = (residue(rank) + 2) % 3;
+
+      /* Find a move of a pattern tile to a placement one closer. */
+      long next = -1;
+      for (int i = 0; i < tiles.length && next < 0; i++) {
+        int position = positions[i];
+        for (int mask = neighbors[position] & ~used; mask != 0 && next < 0; mask &= mask - 1) {
+          positions[i] = Integer.numberOfTrailingZeros(mask);
+          long newRank = rank(positions);
+          if (residue(newRank) == closer) {
+            next = newRank;
+          }
+        }
+        positions[i] = position;
+      }
+      rank = next;
+      distance++;
+    }
+    return distance;
+  }
+
+  /**
+   * Checks that the pattern databases of the partition of a goal configuration never overestimate,
+   * against the exact distances of the distance table, on random boards that can reach the goal.
+   *
+   * @param goal - the goal configuration, small enough for a distance table
+   * @param compression - the way the distances are kept
+   * @param boards - the number of random boards
+   * @param threads - the number of threads making the databases
+   * @return the largest amount the sum of the databases is below the exact distance
+   * @throws IllegalStateException when the sum is negative or above the exact distance of a board
+   */
+  public static int check(GoalConfiguration goal, String compression, int boards, int threads) {
+    int[][] partition = PatternHeuristic.partition(goal);
+    PatternDatabase[] patterns = new PatternDatabase[partition.length];
+    for (int i = 0; i < partition.length; i++) {
+      patterns[i] = getInstance(goal, partition[i], compression, threads);
+    }
+    DistanceTable table = DistanceTable.getInstance(goal);
+    SplittableRandom random = new SplittableRandom(boards);
+
+    int worst = 0;
+    int cells = goal.getCells();
+    for (int board = 0; board < boards; board++) {
+
+      /* A random board, with two tiles swapped when it cannot reach the goal. */
+      int[] numbers = goal.getNumbers();
+      for (int position = cells - 1; position > 0; position--) {
+        int other = random.nextInt(position + 1);
+        int number = numbers[position];
+        numbers[position] = numbers[other];
+        numbers[other] = number;
+      }
+      if (GoalConfiguration.parity(numbers, goal.getColumns()) != goal.getParity()) {
+        int first = numbers[0] == 0 ? 2 : 0;
+        int second = numbers[1] == 0 ? 2 : 1;
+        int number = numbers[first];
+        numbers[first] = numbers[second];
+        numbers[second] = number;
+      }
+
+      /* The sum of the databases must be between 0 and the exact distance. */
+      long packed = 0;
+      for (int position = 0; position < cells; position++) {
+        packed |= (long) numbers[position] << (4 * position);
+      }
+      int exact = table.distance(packed);
+      int estimate = 0;
+      for (PatternDatabase pattern : patterns) {
+        estimate += pattern.distance(numbers);
+      }
+      if (estimate < 0 || estimate > exact) {
+        throw new IllegalStateException("The " + compression + " pattern databases of " + goal + " estimate "
+                                        + estimate + " for " + Arrays.toString(numbers) + " at distance " + exact);
+      }
+      worst = Math.max(worst, exact - estimate);
+    }
+    return worst;
+  }
+
+  /**
+   * Makes the pattern databases of a partition ahead of time, saving them to their files, or
+   * checks that the databases of the shapes small enough for a distance table never overestimate.
+   *
+   * @param args - "build", the shape such as "4x4", the patterns such as "1,2,3,4,5,6,7;8,9,10,11,12,13,14,15"
+   *               or none for the default partition of PatternHeuristic, and the number of threads;
+   *               the compression system property names the way the distances are kept; or "check",
+   *               the shapes such as "2x3,3x3" and the compressions such as "full,mod3,min4"
+   */
+  public static void main(String[] args) {
+    int threads = Integer.getInteger(THREADS_PROPERTY, Runtime.getRuntime().availableProcessors());
+    setVerbose(true);
+
+    /* Checks if the databases are checked instead of made. */
+    if (args.length >= 1 && args.length <= 3 && args[0].equals("check")) {
+      for (String shape : (args.length > 1 ? args[1] : CHECK_SHAPES).split(",")) {
+        for (String name : new String[] {"first", "last"}) {
+          int[] dimensions = GoalConfiguration.parseShape(shape);
+          GoalConfiguration goal = GoalConfiguration.of(name, dimensions[0], dimensions[1]);
+          for (String compression : (args.length > 2 ? args[2] : CHECK_COMPRESSIONS).split(",")) {
+            int worst = check(goal, compression, CHECK_BOARDS, threads);
+            System.out.println(goal + "\t" + compression + "\tadmissible\tat most " + worst + " below");
+          }
+        }
+      }
+      return;
+    }
+
+    /* Make sure the arguments are entered correctly. */
+    if (args.length < 2 || args.length > 4 || !args[0].equals("build")) {
+      System.err.println("Usage: build shape [patterns] [threads]");
+      System.err.println("   or: check [shapes] [compressions]");
+      System.exit(1);
+    }
+
+    int[] shape = GoalConfiguration.parseShape(args[1]);
+    GoalConfiguration goal = GoalConfiguration.getDefault(shape[0], shape[1]);
+    int[][] partition = args.length > 2 ? PatternHeuristic.parsePartition(args[2]) : PatternHeuristic.partition(goal);
+    if (args.length > 3) {
+      threads = Integer.parseInt(args[3]);
+    }
+
+    /* Make or read each database of the partition. */
+    for (int[] pattern : partition) {
+      long start = System.currentTimeMillis();
+      PatternDatabase database = getInstance(goal, pattern, System.getProperty(COMPRESSION_PROPERTY, COMPRESSIONS[0]),
+                                             threads);
+      System.out.println(String.format(Locale.ROOT, "%s\t%s\t%s\t%d placements\t%d bytes\t%.1f s",
+                                       goal, Arrays.toString(database.tiles), database.compression,
+                                       database.placements, database.getBytes(),
+                                       (System.currentTimeMillis() - start) / 1000.0));
+    }
+  }
+}
@@ -0,0 +1,228 @@
+package howard.puzzle;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Class for the additive pattern database heuristic of the puzzle.
+ * The tiles are split into disjoint patterns, and the estimate is the sum of the distances of
+ * the placements of each pattern in its pattern database. Each database only counts the moves
+ * of its own tiles, so the sum never overestimates the moves left, and it is at least the
+ * manhattan distance. The databases of a goal configuration are made or read the first time a
+ * state of that goal is estimated.
+ *
+ * The partition is given with "-Dpuzzle.patterns=1,2,3,4,5,6,7;8,9,10,11,12,13,14,15", the
+ * patterns separated by semicolons. By default the tiles are split in order into patterns of
+ * at most 6 tiles of about equal size, so the 15-puzzle has the 5-5-5 partition and the
+ * 24-puzzle the 6-6-6-6 partition.
+ *
+ * The databases keep their distances the way "-Dpuzzle.patternCompression" names, see
+ * PatternDatabase, and each way has its own instance. With "mod3" the distance of each pattern
+ * is kept with the state as its heuristic key, so a state made by one move only looks up the
+ * residue of the pattern of the tile that moved, instead of searching for its distance.
+ * Boards of the searches over packed states have no heuristic key and are estimated in full.
+ *
+ * @author Shaun Howard
+ */
+public class PatternHeuristic implements Heuristic {
+
+  /** The system property giving the partition of the tiles into patterns. */
+  public static final String PROPERTY = "puzzle.patterns";
+
+  /** The most tiles of a pattern of the default partition. */
+  public static final int DEFAULT_PATTERN_SIZE = 6;
+
+  /** The most patterns whose distances fit in the heuristic key of a state, a byte each. */
+  private static final int KEYED_PATTERNS = 7;
+
+  /** The instances of the pattern database heuristic by the way the distances are kept. */
+  private static final Map<String, PatternHeuristic> instances = new ConcurrentHashMap<String, PatternHeuristic>();
+
+  /** The way the distances of the databases are kept. */
+  private final String compression;
+
+  /** The pattern databases of the partition by goal configuration. */
+  private final Map<GoalConfiguration, PatternDatabase[]> databases = new ConcurrentHashMap<GoalConfiguration, PatternDatabase[]>();
+
+  /**
+   * Constructor for the heuristic of databases keeping their distances in a way.
+   *
+   * @param compression - the way the distances are kept
+   */
+  private PatternHeuristic(String compression) {
+    this.compression = compression;
+  }
+
+  /**
+   * Returns the instance of this heuristic keeping the distances the way the compression system property names.
+   *
+   * @return the instance of the pattern database heuristic
+   */
+  public static PatternHeuristic getInstance() {
+    return getInstance(System.getProperty(PatternDatabase.COMPRESSION_PROPERTY, PatternDatabase.COMPRESSIONS[0]));
+  }
+
+  /**
+   * Returns the instance of this heuristic keeping the distances in a way.
+   *
+   * @param compression - "full", "mod3" or "min" followed by the group size, such as "min4"
+   * @return the instance of the pattern database heuristic
+   */
+  public static PatternHeuristic getInstance(String compression) {
+    PatternDatabase.groupSize(compression);
+    return instances.computeIfAbsent(compression, PatternHeuristic::new);
+  }
+
+  /**
+   * Reads a partition of the tiles into patterns.
+   *
+   * @param partition - the patterns separated by semicolons, each a comma separated list of tiles
+   * @return the tiles of each pattern
+   */
+  public static int[][] parsePartition(String partition) {
+    String[] patterns = partition.split(";");
+    int[][] tiles = new int[patterns.length][];
+    for (int i = 0; i < patterns.length; i++) {
+      String[] fields = patterns[i].split(",");
+      tiles[i] = new int[fields.length];
+      for (int j = 0; j < fields.length; j++) {
+        tiles[i][j] = Integer.parseInt(fields[j].trim());
+      }
+    }
+    return tiles;
+  }
+
+  /**
+   * Returns the partition of the tiles of a goal configuration, the one of the patterns system
+   * property or the default one.
+   *
+   * @param goal - the goal configuration
+   * @return the tiles of each pattern
+   */
+  public static int[][] partition(GoalConfiguration goal) {
+    String property = System.getProperty(PROPERTY);
+    if (property != null) {
+      return parsePartition(property);
+    }
+
+    /* Split the tiles in order into patterns of about equal size. */
+    int count = goal.getCells() - 1;
+    int[][] tiles = new int[(count + DEFAULT_PATTERN_SIZE - 1) / DEFAULT_PATTERN_SIZE][];
+    for (int i = 0, tile = 1; i < tiles.length; i++) {
+      tiles[i] = new int[(count - tile + 1) / (tiles.length - i)];
+      for (int j = 0; j < tiles[i].length; j++) {
+        tiles[i][j] = tile++;
+      }
+    }
+    return tiles;
+  }
+
+  /**
+   * Returns the databases of a goal configuration, making or reading them the first time on the
+   * threads of the threads system property.
+   *
+   * @param goal - the goal configuration
+   * @return the pattern databases of the partition
+   */
+  public PatternDatabase[] getDatabases(GoalConfiguration goal) {
+    return databases.computeIfAbsent(goal, g -> {
+
+      /* Make sure the patterns do not share tiles, or the sum could overestimate. */
+      int[][] partition = partition(g);
+      boolean[] used = new boolean[g.getCells()];
+      PatternDatabase[] patterns = new PatternDatabase[partition.length];
+      for (int i = 0; i < partition.length; i++) {
+        for (int tile : partition[i]) {
+          if (tile > 0 && tile < used.length) {
+            if (used[tile]) {
+              throw new IllegalArgumentException("Tile " + tile + " is in two patterns of " + Arrays.deepToString(partition));
+            }
+            used[tile] = true;
+          }
+        }
+        patterns[i] = PatternDatabase.getInstance(g, partition[i], compression,
+                                                  Integer.getInteger(PatternDatabase.THREADS_PROPERTY,
+                                                                     Runtime.getRuntime().availableProcessors()));
+      }
+      return patterns;
+    });
+  }
+
+  /**
+   * Sums the distances of the placements of the patterns in their databases, and keeps the
+   * distance of each pattern with the state when the distances are kept modulo 3.
+   *
+   * @param state - the puzzle state to estimate
+   * @return the sum of the pattern distances of the state
+   */
+  public int estimate(PuzzleState state) {
+    PatternDatabase[] patterns = getDatabases(state.getGoal());
+    int[] numbers = state.getNumbers();
+
+    int distance = 0;
+    long key = 0;
+    for (int i = 0; i < patterns.length; i++) {
+      int patternDistance = patterns[i].distance(numbers);
+      distance += patternDistance;
+      key |= (long) patternDistance << (8 * i);
+    }
+    if (patterns[0].isModulo() && patterns.length <= KEYED_PATTERNS) {
+      state.setHeuristicKey(key);
+    }
+    return distance;
+  }
+
+  /**
+   * Sums the distances of the placements of the patterns of a board in their databases.
+   *
+   * @param goal - the goal configuration of the board
+   * @param numbers - the number at each position of the board, zero for the blank space
+   * @return the sum of the pattern distances of the board
+   */
+  @Override
+  public int estimate(GoalConfiguration goal, int[] numbers) {
+    int distance = 0;
+    for (PatternDatabase pattern : getDatabases(goal)) {
+      distance += pattern.distance(numbers);
+    }
+    return distance;
+  }
+
+  /**
+   * Estimates a state made by one move from the distances of the patterns of its previous
+   * state, when the distances are kept modulo 3; only the pattern of the tile that moved changes.
+   *
+   * @param state - the puzzle state to estimate, made by one move from its previous state
+   * @param previousEstimate - the estimate of the previous state
+   * @return the sum of the pattern distances of the state
+   */
+  @Override
+  public int estimate(PuzzleState state, int previousEstimate) {
+
+    /* Estimate in full when the previous state has no pattern distances, or the distances are all kept. */
+    PatternDatabase[] patterns = getDatabases(state.getGoal());
+    PuzzleState previous = state.getPrev();
+    if (!patterns[0].isModulo() || previous == null || previous.getHeuristicKey() < 0
+        || patterns.length > KEYED_PATTERNS) {
+      return estimate(state);
+    }
+
+    /* The tile that moved into the old position of the zero. */
+    int number = state.getNumber(previous.getZeroRow(), previous.getZeroColumn());
+    int[] numbers = state.getNumbers();
+
+    int distance = 0;
+    long key = 0;
+    for (int i = 0; i < patterns.length; i++) {
+      int patternDistance = (int) (previous.getHeuristicKey() >>> (8 * i)) & 0xFF;
+      if (patterns[i].contains(number)) {
+        patternDistance = patterns[i].distance(numbers, patternDistance);
+      }
+      distance += patternDistance;
+      key |= (long) patternDistance << (8 * i);
+    }
+    state.setHeuristicKey(key);
+    return distance;
+  }
+}
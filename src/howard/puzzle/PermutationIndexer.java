@@ -0,0 +1,182 @@
+package howard.puzzle;
+
+/**
+ * Class for numbering the reachable states of a puzzle with a perfect hash.
+ * A state is numbered by the position of the zero (blank space) and the rank of the
+ * permutation of the other tiles in reading order. The permutation is ranked with the
+ * linear-time Myrvold-Ruskey method. Only half of the permutations are reachable for each
+ * position of the zero, since their parity is fixed by the row of the zero, so the last
+ * digit of the rank is dropped and recovered from the parity when unranking. Which half is
+ * reachable depends on the goal configuration.
+ * The numbers run from 0 to n! / 2 - 1, so visited states can be kept in dense arrays.
+ *
+ * @author Shaun Howard
+ */
+public class PermutationIndexer {
+
+  /** The number of columns of the puzzle. */
+  private final int columns;
+
+  /** The number of positions of the puzzle. */
+  private final int cells;
+
+  /** The number of half permutations of the tiles for each position of the zero. */
+  private final long half;
+
+  /** The parity of the goal configuration, shared by every reachable state. */
+  private final int goalParity;
+
+  /**
+   * Constructor for numbering the states of a puzzle of the given side size that reach the
+   * goal state with the zero in the top left corner.
+   *
+   * @param size - the side size of the puzzle
+   */
+  public PermutationIndexer(int size) {
+    this(GoalConfiguration.blankFirst(size));
+  }
+
+  /**
+   * Constructor for numbering the states of a puzzle that reach a goal configuration.
+   *
+   * @param goal - the goal configuration of the puzzle
+   */
+  public PermutationIndexer(GoalConfiguration goal) {
+
+    /* Make sure the states fit into packed states. */
+    if (!PackedState.fits(goal.getRows(), goal.getColumns())) {
+      throw new IllegalArgumentException("Puzzle of " + goal.getShape() + " is too large to index");
+    }
+
+    this.columns = goal.getColumns();
+    this.cells = goal.getCells();
+
+    /* Half of the permutations of the tiles other than the zero. */
+    long permutations = 1;
+    for (int n = 3; n < cells; n++) {
+      permutations *= n;
+    }
+    this.half = permutations;
+    this.goalParity = goal.getParity();
+  }
+
+  /**
+   * Returns the number of reachable states, the numbers run from 0 to this count - 1.
+   *
+   * @return the number of reachable states
+   */
+  public long size() {
+    return cells * half;
+  }
+
+  /**
+   * Returns the number of a packed state.
+   *
+   * @param packed - the packed state
+   * @return the number of the state
+   */
+  public long rank(long packed) {
+
+    /* The permutation of the tiles other than the zero, numbered from 0, and its inverse. */
+    int[] permutation = new int[cells - 1];
+    int[] inverse = new int[cells - 1];
+
+    /* The position of the zero. */
+    int zero = 0;
+
+    /* Collect the tiles in reading order, skipping the zero. */
+    for (int position = 0, k = 0; position < cells; position++) {
+      int number = PackedState.get(packed, position);
+      if (number == 0) {
+        zero = position;
+      } else {
+        permutation[k] = number - 1;
+        inverse[number - 1] = k;
+        k++;
+      }
+    }
+
+    /* Rank the permutation, dropping the last digit, which the parity fixes. */
+    long rank = 0;
+    long weight = 1;
+    for (int n = cells - 1; n > 2; n--) {
+
+      /* The digit of this step is the tile in the last place. */
+      int digit = permutation[n - 1];
+
+      /* Swap the last place with the place of tile n - 1, and update the inverse. */
+      int place = inverse[n - 1];
+      permutation[place] = digit;
+      permutation[n - 1] = n - 1;
+      inverse[digit] = place;
+      inverse[n - 1] = n - 1;
+
+      rank += digit * weight;
+      weight *= n;
+    }
+
+    return zero * half + rank;
+  }
+
+  /**
+   * Returns the packed state of a number.
+   *
+   * @param rank - the number of the state
+   * @return the packed state
+   */
+  public long unrank(long rank) {
+
+    /* The position of the zero and the rank of the permutation. */
+    int zero = (int) (rank / half);
+    long remainder = rank % half;
+
+    /* Start with the identity permutation. */
+    int[] permutation = new int[cells - 1];
+    for (int k = 0; k < permutation.length; k++) {
+      permutation[k] = k;
+    }
+
+    /* Undo the ranking steps, counting the swaps for the parity. */
+    int parity = 0;
+    for (int n = cells - 1; n > 2; n--) {
+      int digit = (int) (remainder % n);
+      remainder /= n;
+      if (digit != n - 1) {
+        int swap = permutation[n - 1];
+        permutation[n - 1] = permutation[digit];
+        permutation[digit] = swap;
+        parity ^= 1;
+      }
+    }
+
+    /* The dropped last step swaps the first two places when the parity does not match the zero. */
+    if (parity != parity(zero)) {
+      int swap = permutation[0];
+      permutation[0] = permutation[1];
+      permutation[1] = swap;
+    }
+
+    /* Put the tiles into the positions in reading order, skipping the zero. */
+    long packed = 0;
+    for (int position = 0, k = 0; position < cells; position++) {
+      if (position != zero) {
+        packed |= (long) (permutation[k++] + 1) << (4 * position);
+      }
+    }
+
+    return packed;
+  }
+
+  /**
+   * Returns the parity of the permutation of the tiles of the reachable states with the zero
+   * (blank space) at the given position. Moving the zero sideways keeps the reading order,
+   * while moving it up or down moves a tile past the other columns - 1 tiles of a row, so the
+   * parity of the goal configuration is kept.
+   *
+   * @param zero - the position of the zero
+   * @return the parity of the permutation, 0 for even and 1 for odd
+   */
+  private int parity(int zero) {
+    return ((columns - 1) * (zero / columns) + goalParity) & 1;
+  }
+}
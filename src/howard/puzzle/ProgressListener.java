@@ -0,0 +1,19 @@
+package howard.puzzle;
+
+/**
+ * Interface for following the progress of a running solve.
+ * The solver calls the listener from its own thread a few times a second.
+ * 
+ * @author Shaun Howard
+ */
+public interface ProgressListener {
+  
+  /**
+   * Reports the progress of the search.
+   * 
+   * @param depth - the current depth of the search, the depth limit or the f value threshold
+   * @param expanded - the number of states expanded so far
+   * @param elapsed - the time since the solve started in milliseconds
+   */
+  void progress(int depth, long expanded, long elapsed);
+}
@@ -4,6 +4,7 @@ import java.util.Random;
 
 /**
  * Class for an n x n - 1 puzzle, in which you input one number, n, to make. 
+ * Rectangular puzzles of r rows and c columns, with r x c - 1 tiles, can be made as well.
  * 
  * @author Shaun Howard
  */
@@ -12,14 +13,20 @@ public class Puzzle {
   /** A static instance of Puzzle for use throughout package. */
   private static Puzzle instance = new Puzzle();
   
-  /** The puzzle length. */
-  private int size;
+  /** The number of rows of the puzzle. */
+  private int rows;
+  
+  /** The number of columns of the puzzle. */
+  private int columns;
   
   /** Array of puzzle numbers. */
   private int[][] puzzleArray;
   
-  /** Array of the goal state of this puzzle. */
-  private static int[][] goalState;
+  /** The goal configuration the puzzle is solved to. */
+  private GoalConfiguration goal;
+  
+  /** The system property of the seed of randomize(). */
+  public static final String SEED_PROPERTY = "puzzle.seed";
   
   /** The column of the puzzle the zero space is in. */
   private int zeroColumn;
@@ -71,61 +78,92 @@ public class Puzzle {
   
   /**
    * Initializes the instance of this puzzle based on input size for n x n - 1 puzzle.
+   * The goal layout is named by the system property "puzzle.goal", with the zero in the
+   * top left corner when it is not set.
    * 
    * @param sizeInput - the size of the side of the puzzle (n in n x n - 1 puzzle)
    */
   public void initialize(int sizeInput){
+    initialize(GoalConfiguration.getDefault(sizeInput));
+  }
+  
+  /**
+   * Initializes this puzzle to a rectangular puzzle of rows x columns - 1 tiles, solved to the
+   * goal layout named by the system property "puzzle.goal".
+   * 
+   * @param rowsInput - the number of rows of the puzzle
+   * @param columnsInput - the number of columns of the puzzle
+   */
+  public void initialize(int rowsInput, int columnsInput){
+    initialize(GoalConfiguration.getDefault(rowsInput, columnsInput));
+  }
+  
+  /**
+   * Initializes this puzzle to the goal state of a goal configuration.
+   * 
+   * @param goalInput - the goal configuration of the puzzle
+   */
+  public void initialize(GoalConfiguration goalInput){
     
-    /* Set the side length of the puzzle. */
-    this.size = sizeInput;
-    
-    /* Make puzzle with sizeInput - 1 amount of columns and rows. */
-    puzzleArray = new int[size][size];
+    /* Set the shape and goal of the puzzle. */
+    this.rows = goalInput.getRows();
+    this.columns = goalInput.getColumns();
+    this.goal = goalInput;
     
-    /* Make puzzle goal state array for future reference when solving. */
-    goalState = new int[size][size];
+    /* Make puzzle with the rows and columns of the goal. */
+    puzzleArray = new int[rows][columns];
     
     /* Iterate through the rows of the array. */
-    for (int i = 0; i < size; i++) {
+    for (int i = 0; i < rows; i++) {
       
       /* Iterate through the columns of the array. */
-      for (int j = 0; j < size; j++){
-        
-        /* Set the value at this index in puzzle array as a function of i and j. */
-        puzzleArray[i][j] = (i * size) + j;
+      for (int j = 0; j < columns; j++){
         
-        /* Set the value at this index in goal state array as a function of i and j. */
-        goalState[i][j] = (i * size) + j;
+        /* Set the value at this index in puzzle array to its goal value. */
+        puzzleArray[i][j] = goal.getNumber(i, j);
       }
     }
     
     /* Set the initial row position of the zero (blank space). */
-    setZeroRow(0);
+    setZeroRow(goal.getRow(0));
     
     /* Set the initial column position of the zero (blank space). */
-    setZeroColumn(0);
+    setZeroColumn(goal.getColumn(0));
     
     /* Initialized to goal state. */
     isGoalState = true;
   }
   
   /**
-   * Makes a new puzzle from a puzzle array and puzzle side size.
+   * Makes a new puzzle from a puzzle array and puzzle side size, solved to the goal layout
+   * named by the system property "puzzle.goal".
    * 
    * @param puzzle - the puzzle array to make the new puzzle state with
    * @param size - the side size of the puzzle
    */
   public void initialize(int[][] puzzle, int sizeInput){
+    initialize(puzzle, GoalConfiguration.getDefault(sizeInput));
+  }
+  
+  /**
+   * Makes a new puzzle from a puzzle array and the goal configuration it is solved to.
+   * 
+   * @param puzzle - the puzzle array to make the new puzzle state with
+   * @param goalInput - the goal configuration of the puzzle, of the shape of the array
+   */
+  public void initialize(int[][] puzzle, GoalConfiguration goalInput){
     
-    /* Set the size of the puzzle array to the puzzle's width. */
-    this.size = sizeInput;
+    /* Set the shape of the puzzle array to that of the goal, and the goal of the puzzle. */
+    this.rows = goalInput.getRows();
+    this.columns = goalInput.getColumns();
+    this.goal = goalInput;
     
     /* Makes a new puzzle from this puzzle's dimensions. */
-    puzzleArray = new int[size][size];
+    puzzleArray = new int[rows][columns];
     
     /* Copies the contents of the input puzzle array to this puzzle array. */
-    for(int i = 0; i < size; i++){
-      for(int j = 0; j < size; j++){
+    for(int i = 0; i < rows; i++){
+      for(int j = 0; j < columns; j++){
         
         /* Copy value at this index of old puzzle to this puzzle array. */
         puzzleArray[i][j] = puzzle[i][j];
@@ -146,6 +184,31 @@ public class Puzzle {
     this.isGoalState = isGoalState();
   }
   
+  /**
+   * Returns the goal configuration this puzzle is solved to.
+   * 
+   * @return the goal configuration of the puzzle
+   */
+  public GoalConfiguration getGoal(){
+    return this.goal;
+  }
+  
+  /**
+   * Sets the goal configuration this puzzle is solved to, keeping its numbers.
+   * 
+   * @param goalInput - the goal configuration, of the shape of the puzzle
+   */
+  public void setGoal(GoalConfiguration goalInput){
+    
+    /* Make sure the goal is of the shape of the puzzle. */
+    if (goalInput.getRows() != rows || goalInput.getColumns() != columns) {
+      throw new IllegalArgumentException("Goal " + goalInput + " does not fit a " + rows + "x" + columns + " puzzle");
+    }
+    
+    this.goal = goalInput;
+    this.isGoalState = isGoalState();
+  }
+  
   /**
    * Gets the number at a specific row and column.
    * Very useful when in a static method.
@@ -191,73 +254,42 @@ public class Puzzle {
   }
   
   /**
-   * Randomizes this puzzle.
+   * Randomizes this puzzle with a random walk of the zero of 100 times the side size of the puzzle
+   * (50 times the rows plus columns of a rectangular puzzle). The walk is seeded with the system
+   * property "puzzle.seed" when it is set, so runs can be repeated, and with a random seed otherwise.
    */
   public void randomize(){
     
-    /* An instance of random to help randomize the n x n - 1 puzzle. */
-    Random random = new Random();
+    /* The seed of the walk, from the system property when it is set. */
+    Long seed = Long.getLong(SEED_PROPERTY);
     
-    /* Randomize 100 times the side size of the puzzle. */
-    for (int i = 0; i < size * 100; i++) {
-      
-      /* Pick a random integer from 0 to 4. */
-      switch (random.nextInt(4)) {                                
-        
-        /* Move the zero to the left, if possible. */
-        case (0):
-          
-          /* Check if zero can be moved left. */
-          if (moveLeft()) {
-          
-        } else { //Otherwise, decrement shuffle counter. 
-          
-          /* This is not considered a shuffle move. */
-          i--;
-        }
-        break;
-        
-        /* Move the zero to the right, if possible. */
-        case (1):
-          
-          /* Check if zero can be moved right. */
-          if (moveRight()) {
-          
-        } else { //Otherwise, decrement shuffle counter.
-          
-          i--;
-        }
-        break;
-        
-        /* Moves the zero up, if possible. */
-        case (2):
-          
-          /* Check if zero can be moved up. */
-          if (moveUp()) {
-          
-        } else { //Otherwise, decrement shuffle counter.
-          
-          i--; 
-        }
-        break;
-        
-        /* Moves the zero down, if possible. */
-        case (3):
-          
-          /* Check if zero can be moved down. */
-          if(moveDown()){
-          
-        } else { //Otherwise, decrement shuffle counter.
-          
-          i--;
-        }
-        break;
-      }        
-    }
+    /* Randomize with the seed, or a random one. */
+    randomize(seed != null ? seed : new Random().nextLong());
+  }
+  
+  /**
+   * Randomizes this puzzle with a seeded random walk of the zero of 100 times the side size of the puzzle
+   * (50 times the rows plus columns of a rectangular puzzle). The same seed always gives the same puzzle.
+   * 
+   * @param seed - the seed of the random walk
+   */
+  public void randomize(long seed){
+    randomize(new Scrambler(seed), (rows + columns) * 50);
+  }
+  
+  /**
+   * Randomizes this puzzle with a random walk of the zero of an exact number of moves, which
+   * never undoes its last move. The walk is made again when it ends in the goal state.
+   * 
+   * @param scrambler - the scrambler making the random walk
+   * @param length - the number of moves of the walk
+   */
+  public void randomize(Scrambler scrambler, int length){
     
-    /* Check if puzzle is in goal state, if so, randomize again. */
-    if (isGoalState())
-      randomize();
+    /* Walk until the puzzle is not in the goal state. */
+    do {
+      scrambler.walk(this, length);
+    } while (length > 0 && isGoalState());
   }
   
   /**
@@ -294,7 +326,7 @@ public class Puzzle {
   public boolean moveRight(){
     
     /* Check if zero can be moved right. */
-    if (getZeroColumn() >= getSize() - 1)
+    if (getZeroColumn() >= getColumns() - 1)
       return false;
     
     /* Stores a temporary copy of the value at right of zero. */
@@ -346,7 +378,7 @@ public class Puzzle {
   public boolean moveDown(){
     
     /* Check if zero can be moved down. */
-    if(getZeroRow() >= getSize() - 1)
+    if(getZeroRow() >= getRows() - 1)
       return false;
     
     /* Stores a temporary copy of the value below zero. */
@@ -365,13 +397,40 @@ public class Puzzle {
   }
   
   /**
-   * Return the array width for the puzzle board.
+   * Returns the number of rows of the puzzle board.
+   * 
+   * @return the number of rows of the puzzle board array
+   */
+  public int getRows(){
+    
+    return this.rows;
+  }
+  
+  /**
+   * Returns the number of columns of the puzzle board.
+   * 
+   * @return the number of columns of the puzzle board array
+   */
+  public int getColumns(){
+    
+    return this.columns;
+  }
+  
+  /**
+   * Returns the side size of a square puzzle board.
    * 
    * @return the width of the puzzle board array
+   * @throws IllegalStateException when the board is not square
+   * @deprecated boards may be rectangular, use getRows() and getColumns()
    */
+  @Deprecated
   public int getSize(){
     
-    return this.size;
+    /* Only a square board has one side size. */
+    if (rows != columns) {
+      throw new IllegalStateException("Puzzle of " + rows + "x" + columns + " is not square");
+    }
+    return this.rows;
   }
   
   /**
@@ -409,25 +468,8 @@ public class Puzzle {
    */
   public boolean isGoalState(){
     
-    /* Iterate through rows of puzzle. */
-    for (int i = 0; i < size; i++){
-      
-      /* Iterate through columns of puzzle. */
-      for (int j = 0; j < size; j++){
-        
-        /* When two values are unequal at the same index, not in goal state. */
-        if (puzzleArray[i][j] != goalState[i][j]){
-          
-          /* Set goal state to false. */
-          isGoalState = false;
-          
-          return isGoalState;
-        }
-      }
-    }
-    
-    /* When this point is reached, puzzle is in goal state. */
-    isGoalState = true;
+    /* Compare every index of the puzzle with its goal value. */
+    isGoalState = goal.isGoal(puzzleArray);
     
     return isGoalState;
   }
@@ -491,18 +533,18 @@ public class Puzzle {
     if (o instanceof Puzzle) {
       Puzzle puzzle = (Puzzle) o;
       
-      /* Compares the size of both puzzles. */
-      if (puzzle.getSize() != this.getSize())
+      /* Compares the shape of both puzzles. */
+      if (puzzle.getRows() != this.getRows() || puzzle.getColumns() != this.getColumns())
         return false;
       
       /* Stores the array of the input puzzle. */
       int[][] tempArray = puzzle.getPuzzleArray();
       
       /* Iterate through rows of puzzles. */
-      for (int i = 0; i < getSize(); i++){
+      for (int i = 0; i < getRows(); i++){
         
         /* Iterate through columns of puzzles. */
-        for (int j = 0; j < getSize(); j++){
+        for (int j = 0; j < getColumns(); j++){
           
           /* When two values at same index are not the same, puzzles are not equal. */
           if (tempArray[i][j] != puzzleArray[i][j])
@@ -1,41 +1,91 @@
 package howard.puzzle;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
 import java.util.Scanner;
 
 /**
- * Class for making an n x n puzzle of integers, randomizing the puzzle, and solving the puzzle.
+ * Class for making an n x n or rows x columns puzzle of integers, randomizing the puzzle, and solving the puzzle.
  * Puzzle is randomized using values adjacent to blank space in puzzle.
- * Solving types are breadth-first search (bfs) and depth-first search (dfs).
+ * Solving types are breadth-first search (bfs), depth-first search (dfs), A* search (astar),
+ * iterative deepening A* search (idastar), fringe search (fringe), weighted A* search (wastar),
+ * anytime weighted A* search (arastar), the constructive macro solver for very large puzzles (macro),
+ * the distance table of small puzzles (table) and the count of all optimal solutions (optimal).
+ * 
+ * Starting the Java runtime takes longer than solving most small puzzles, and much of it is spent
+ * loading classes. A training run, "train", solves a small puzzle with every solver and heuristic,
+ * so a runtime started with "-XX:ArchiveClassesAtExit=Puzzle.jsa" saves every class the puzzle
+ * maker may load into a class data sharing archive. Later runs started with
+ * "-XX:SharedArchiveFile=Puzzle.jsa" map the classes from the archive instead of loading them.
  * 
  * @author Shaun Howard
  */
 public class PuzzleMaker {
   
+  /** The shape of the puzzle of the training run. */
+  private static final String TRAINING_SHAPE = "2x3";
+  
+  /** The seed of the puzzle of the training run. */
+  private static final long TRAINING_SEED = 1;
+  
+  /** The ways of keeping the distances of the pattern databases of the training run, one of each kind. */
+  private static final String[] TRAINING_COMPRESSIONS = {"full", "mod3", "min4"};
+  
   /**
    * Runs the n x n puzzle solver.
    * Takes four parameters:
-   * Puzzle size as number (3, 8, 15, etc.), 
-   * Search type as string (bfs or dfs),
+   * Puzzle size as number (3, 8, 15, etc.) or board shape as rows x columns (2x4, 3x4, etc.), 
+   * Search type as string (bfs, dfs, astar, idastar, fringe, wastar, arastar, macro, table or optimal),
    * State type as string (goal or custom), and
    * if custom, numbers of the puzzle from top row to bottom row in left to right order
    * separated by spaces.
    * 
    * i.e. "8 bfs goal" to run 8-puzzle with goal state as initial puzzle
    * i.e. "8 dfs custom 0 1 2 3 4 5 6 7 8" to manually input goal state
+   * i.e. "2x4 table goal" to run the 7-puzzle of 2 rows and 4 columns
    * 
    * Note: the goal/custom input state will still be randomized to solve.
    * 
-   * @param args - puzzle size, search type, state type, 
+   * With the argument "train", a small puzzle is solved with every solver instead, for making
+   * a class data sharing archive.
+   * 
+   * @param args - puzzle size, search type, state type, or "train" for a training run
    */
   public static void main(String[] args){
     
+    /* Checks if a training run is asked for. */
+    if (args.length == 1 && args[0].equals("train")) {
+      try {
+        train();
+      } catch (IOException ioe) { //Catch exception when making the directory of the tables.
+        System.err.println("Training failed: " + ioe.getMessage());
+        System.exit(1);
+      }
+      return;
+    }
+    
+    /* The solvers print their solutions, and the pattern databases the progress of making them. */
+    PatternDatabase.setVerbose(true);
+    
     try (Scanner scanner = new Scanner(System.in)) {
       
       /* Puzzle to use. */
       Puzzle puzzle = Puzzle.getInstance();
       
-      /* Converts String to Integer for size variable of puzzle. */
-      int size = (int)Math.sqrt(scanner.nextInt() + 1);
+      /* Reads the shape "RxC" of the puzzle, or the number of tiles of a square puzzle. */
+      String shape = scanner.next();
+      int rows, columns;
+      if (shape.indexOf('x') >= 0) {
+        int[] dimensions = GoalConfiguration.parseShape(shape);
+        rows = dimensions[0];
+        columns = dimensions[1];
+      } else { //Otherwise, converts the number of tiles to the side size of the puzzle.
+        
+        rows = columns = (int)Math.sqrt(Integer.parseInt(shape) + 1);
+      }
       
       /* Stores the search type to make sure it is a correct value. */
       String search = scanner.next();
@@ -43,23 +93,25 @@ public class PuzzleMaker {
       /* Stores the state type of the puzzle. */
       String state = scanner.next();
       
+      /* The solver of the search type entered, null when there is none. */
+      PuzzleSolver sol = SolverRegistry.get(search);
+      
       /* Checks to see if the arguments were entered correctly. */
-      if (size < 2 || !(search.equals("bfs") || search.equals("dfs") ||
-                        state.equals("goal") || state.equals("custom"))) {
+      if (rows < 2 || columns < 2 || sol == null || !(state.equals("goal") || state.equals("custom"))) {
         throw new UnsupportedOperationException();
       }
       
       /* Checks if a custom state is entered. */
       if (state.equals("custom")) {
         
-        /* Make a new puzzle array based on puzzle size entered. */
-        int[][] puzzleArray = new int[size][size];
+        /* Make a new puzzle array based on puzzle shape entered. */
+        int[][] puzzleArray = new int[rows][columns];
         
         /* Iterate through rows of puzzle array. */
-        for(int i = 0; i < size; i++){
+        for(int i = 0; i < rows; i++){
           
           /* Iterate through columns of puzzle array. */
-          for(int j = 0; j < size; j++){
+          for(int j = 0; j < columns; j++){
             
             /* Store next scanned integer in the puzzle array at this index. */
             puzzleArray[i][j] = scanner.nextInt();
@@ -67,11 +119,11 @@ public class PuzzleMaker {
         }
         
         /* Initialize the puzzle instance based on entered values for puzzle array. */
-        puzzle.initialize(puzzleArray, size);
-      } else { //Otherwise, make a new puzzle based on input size.
+        puzzle.initialize(puzzleArray, GoalConfiguration.getDefault(rows, columns));
+      } else { //Otherwise, make a new puzzle based on input shape.
         
-        /* Makes a puzzle of the given size. */
-        puzzle.initialize(size);
+        /* Makes a puzzle of the given shape. */
+        puzzle.initialize(rows, columns);
       }
       
       /* Close scanner to avoid memory leak. */
@@ -92,30 +144,110 @@ public class PuzzleMaker {
       /* Print the randomized state to console. */
       System.out.println(puzzle.toString());
       
-      /* Checks if user wants breadth-first solving. */
-      if (search.equals("bfs")) {
-        
-        /* Solve the puzzle with bfs. */
-        PuzzleSolver sol = BFSSolver.getInstance();
-        
-        /* Print solution sequence to console. */
-        System.out.println(sol.solve(puzzle));
-        
-      } else { //Otherwise, user gets depth-first solving. 
+      /* Print solution sequence to console. */
+      System.out.println(sol.solve(puzzle));
+      
+      /* Shorten the solutions of the searches that do not always find the shortest one. */
+      if (sol.getMoves() != null && !search.equals("bfs") && !search.equals("macro")
+          && !search.equals("table")) {
         
-        /* Solve the puzzle with dfs. */
-        PuzzleSolver sol = DFSSolver.getInstance();
+        /* The solution without detours. */
+        String shortened = PathShortener.getInstance().shorten(puzzle, sol.getMoves());
         
-        /* Print solution sequence to console. */
-        System.out.println(sol.solve(puzzle));
+        /* Print the shortened solution when it is shorter. */
+        if (shortened.length() < sol.getMoves().length()) {
+          System.out.println("This is the shortened sequence of moves: " + shortened);
+        }
       }
       
-    } catch (UnsupportedOperationException uoe) { //Catch exception when making puzzle
+    } catch (UnsupportedOperationException | NumberFormatException uoe) { //Catch exception when making puzzle
         System.err.println("Arguments were entered incorrectly. Try entering args again.");
-        System.err.println("Please type a puzzle size greater than 1, hit enter,"
-                           + " and then type a solving type of bfs or dfs, then hit enter again!");
+        System.err.println("Please type a puzzle size greater than 1 or a shape such as 3x4, hit enter,"
+                           + " and then type a solving type of " + SolverRegistry.getNames() + ", then hit enter again!");
     } finally {
       System.exit(1);
     }
   }
+  
+  /**
+   * Solves a small puzzle with every solver, and with the weighted A* solver with every heuristic,
+   * so every class the puzzle maker may load is loaded. The tables made on the way are kept in a
+   * directory of their own, which is deleted afterwards.
+   * 
+   * @throws IOException when the directory of the tables cannot be made
+   */
+  public static void train() throws IOException {
+    
+    /* The tables of the training run are not kept. */
+    File directory = Files.createTempDirectory("puzzle-train").toFile();
+    String tables = System.getProperty(DistanceTable.DIRECTORY_PROPERTY);
+    System.setProperty(DistanceTable.DIRECTORY_PROPERTY, directory.getPath());
+    
+    /* The solvers print their solutions, only the search types trained are shown. */
+    PrintStream out = System.out;
+    System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    
+    try (Scanner scanner = new Scanner(TRAINING_SHAPE)) {
+      
+      /* The shape is read the way the input of a run is. */
+      int[] dimensions = GoalConfiguration.parseShape(scanner.next());
+      Puzzle puzzle = Puzzle.getInstance();
+      for (String search : SolverRegistry.getNames()) {
+        
+        /* Solve the same puzzle with each solver, print it, and shorten its solution. */
+        PuzzleSolver sol = SolverRegistry.get(search);
+        puzzle.initialize(dimensions[0], dimensions[1]);
+        puzzle.randomize(TRAINING_SEED);
+        System.out.println(puzzle.toString());
+        System.out.println(sol.solve(puzzle));
+        if (sol.getMoves() != null) {
+          PathShortener.getInstance().shorten(puzzle, sol.getMoves());
+        }
+        out.println("Trained " + search);
+      }
+      
+      /* Solve with every heuristic, and put the heuristic of the solver back. */
+      WeightedAStarSolver solver = WeightedAStarSolver.getInstance();
+      Heuristic heuristic = solver.getHeuristic();
+      try {
+        for (String name : Heuristic.NAMES) {
+          
+          /* The pattern databases are trained with each compression below, not the one the property names. */
+          if (name.equals("pattern")) {
+            continue;
+          }
+          solver.setHeuristic(Heuristic.forName(name));
+          puzzle.initialize(dimensions[0], dimensions[1]);
+          puzzle.randomize(TRAINING_SEED);
+          solver.solve(puzzle);
+          out.println("Trained " + name);
+        }
+        
+        /* Solve with the pattern databases kept each way, so the classes of every compression are loaded. */
+        for (String compression : TRAINING_COMPRESSIONS) {
+          solver.setHeuristic(PatternHeuristic.getInstance(compression));
+          puzzle.initialize(dimensions[0], dimensions[1]);
+          puzzle.randomize(TRAINING_SEED);
+          solver.solve(puzzle);
+          out.println("Trained pattern " + compression);
+        }
+      } finally {
+        solver.setHeuristic(heuristic);
+      }
+    } finally {
+      
+      /* Put the output back, delete the tables and put the directory of the tables back. */
+      System.setOut(out);
+      File[] files = directory.listFiles();
+      for (int i = 0; files != null && i < files.length; i++) {
+        files[i].delete();
+      }
+      directory.delete();
+      if (tables == null) {
+        System.clearProperty(DistanceTable.DIRECTORY_PROPERTY);
+      } else { //Otherwise, the directory was given.
+        System.setProperty(DistanceTable.DIRECTORY_PROPERTY, tables);
+      }
+    }
+  }
 }
@@ -1,10 +1,14 @@
 package howard.puzzle;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
 /**
  * Abstract class for solving puzzle. 
  * Breadth-first solver and depth-first solver extend this class.
  * Contains method for obtaining the sequence of puzzle states from
- * initial to solution.
+ * initial to solution, and methods for solving with a deadline, a cancellation
+ * token and a progress listener, also on another thread.
  * 
  * @author Shaun Howard
  */
@@ -16,6 +20,45 @@ public abstract class PuzzleSolver {
   /** The length of time taken to solve the puzzle in milliseconds. */
   protected long time;
   
+  /** The moves of the zero (blank space) of the last solution found, null when none was found. */
+  protected String moves;
+  
+  /** The number of states expanded by the last search. */
+  protected long expanded;
+  
+  /** Whether the states and moves of the solution are printed to the console. */
+  protected boolean verbose = true;
+  
+  /** The time in milliseconds between calls of the progress listener. */
+  public static final long PROGRESS_INTERVAL = 250;
+  
+  /** The settings of the checkpoints of long searches, null when no checkpoints are written. */
+  protected Checkpoints checkpoints = Checkpoints.fromProperties();
+  
+  /** The depth the search has reached, reported to the progress listener. */
+  protected int searchDepth;
+  
+  /** The time in milliseconds at which the search has to stop, zero for no deadline. */
+  private long stopTime;
+  
+  /** The token that cancels the search, null when it cannot be cancelled. */
+  private CancellationToken token;
+  
+  /** The listener of the progress of the search, null for none. */
+  private ProgressListener listener;
+  
+  /** The time in milliseconds the bounded solve started. */
+  private long startTime;
+  
+  /** The time in milliseconds of the next call of the progress listener. */
+  private long nextProgress;
+  
+  /** Why the search stopped early, null while it may go on. */
+  private SolveResult.Status stopped;
+  
+  /** Whether a bounded solve is running, so the reason the search stopped is kept. */
+  private boolean bounded;
+  
   /**
    * Outputs a string of the moves of the zero (blank space) to reach the solved puzzle
    * from the initial, randomized starting state.
@@ -25,6 +68,221 @@ public abstract class PuzzleSolver {
    */
   public abstract String solve(Puzzle puzzle);
   
+  /**
+   * Returns the moves of the zero (blank space) of the last solution found, 
+   * from the initial, randomized state to the goal state.
+   * 
+   * @return the moves of the last solution, or null when no solution was found
+   */
+  public String getMoves() {
+    return moves;
+  }
+  
+  /**
+   * Returns the number of states expanded by the last search.
+   * 
+   * @return the number of states expanded
+   */
+  public long getExpanded() {
+    return expanded;
+  }
+  
+  /**
+   * Sets whether the states and moves of the solution are printed to the console.
+   * Benchmarks turn printing off, so only the search is timed.
+   * 
+   * @param verbose - whether to print the solution
+   */
+  public void setVerbose(boolean verbose) {
+    this.verbose = verbose;
+  }
+  
+  /**
+   * Returns whether the states and moves of the solution are printed to the console.
+   * 
+   * @return whether the solution is printed
+   */
+  public boolean isVerbose() {
+    return verbose;
+  }
+  
+  /**
+   * Sets the settings of the checkpoints of long searches. Only the breadth-first and depth-first
+   * solvers write checkpoints, and each solver needs settings of its own.
+   * 
+   * @param checkpoints - the settings of the checkpoints, null to write none
+   */
+  public void setCheckpoints(Checkpoints checkpoints) {
+    this.checkpoints = checkpoints;
+  }
+  
+  /**
+   * Returns the settings of the checkpoints of long searches.
+   * 
+   * @return the settings of the checkpoints, null when none are written
+   */
+  public Checkpoints getCheckpoints() {
+    return checkpoints;
+  }
+  
+  /**
+   * Solves the input puzzle on another thread, with a deadline, a cancellation token and a progress listener.
+   * The puzzle is copied, so it may change while the solve runs. Cancelling the returned future
+   * cancels the solve as well.
+   * 
+   * @param puzzle - the puzzle to solve
+   * @param timeout - the time limit in milliseconds, zero for none
+   * @param token - the token that cancels the solve, null for none
+   * @param listener - the listener of the progress of the search, null for none
+   * @param executor - the executor running the solve
+   * @return the future result of the solve
+   */
+  public CompletableFuture<SolveResult> solveAsync(Puzzle puzzle, final long timeout, CancellationToken token,
+                                                   final ProgressListener listener, Executor executor) {
+    
+    /* Copy the puzzle, the caller may change it while the solve runs. */
+    final Puzzle copy = new Puzzle();
+    copy.initialize(puzzle.getPuzzleArray(), puzzle.getGoal());
+    
+    /* Make a token when none is given, so cancelling the future can stop the search. */
+    final CancellationToken solveToken = token != null ? token : new CancellationToken();
+    
+    /* Run the solve with the executor. */
+    final CompletableFuture<SolveResult> future = CompletableFuture.supplyAsync(
+      () -> solve(copy, timeout, solveToken, listener), executor);
+    
+    /* Cancel the solve when the future is cancelled. */
+    future.whenComplete((result, error) -> {
+      if (future.isCancelled()) {
+        solveToken.cancel();
+      }
+    });
+    
+    return future;
+  }
+  
+  /**
+   * Solves the input puzzle with a deadline, a cancellation token and a progress listener,
+   * without printing. Solves of the same solver run one at a time, since a solver keeps the
+   * state of its search. When the search stops early, the result holds its statistics.
+   * 
+   * @param puzzle - the puzzle to solve
+   * @param timeout - the time limit in milliseconds, zero for none
+   * @param token - the token that cancels the solve, null for none
+   * @param listener - the listener of the progress of the search, null for none
+   * @return the result of the solve
+   */
+  public synchronized SolveResult solve(Puzzle puzzle, long timeout, CancellationToken token,
+                                        ProgressListener listener) {
+    
+    /* Set up the limits of the search. */
+    startTime = System.currentTimeMillis();
+    stopTime = timeout > 0 ? startTime + timeout : 0;
+    nextProgress = startTime + PROGRESS_INTERVAL;
+    searchDepth = 0;
+    stopped = null;
+    bounded = true;
+    this.token = token;
+    this.listener = listener;
+    
+    /* Why the search stopped early, null when it ran to its end. */
+    SolveResult.Status reason;
+    
+    /* Solve without printing. */
+    boolean wasVerbose = verbose;
+    verbose = false;
+    try {
+      solve(puzzle);
+    } catch (OutOfMemoryError oome) { //Catch running out of memory, the search gave up.
+      moves = null;
+      giveUp(SolveResult.Status.OUT_OF_RESOURCES);
+    } finally {
+      
+      /* Remove the limits, so later solves are not bounded. */
+      reason = stopped;
+      verbose = wasVerbose;
+      stopTime = 0;
+      stopped = null;
+      bounded = false;
+      this.token = null;
+      this.listener = null;
+    }
+    
+    /* A solution found before stopping counts as solved. */
+    SolveResult.Status status;
+    if (moves != null) {
+      status = SolveResult.Status.SOLVED;
+    } else if (reason != null) {
+      status = reason;
+    } else { //Otherwise, the search ran to its end without a solution.
+      status = SolveResult.Status.NOT_FOUND;
+    }
+    
+    return new SolveResult(status, moves, expanded, searchDepth, System.currentTimeMillis() - startTime);
+  }
+  
+  /**
+   * Checks whether the search has to stop because it was cancelled or its deadline passed,
+   * and calls the progress listener when it is due. Searches call this next to their memory checks.
+   * 
+   * @return whether the search has to stop
+   */
+  protected boolean shouldStop() {
+    
+    /* Once stopped, the search stays stopped. */
+    if (stopped != null) {
+      return true;
+    }
+    
+    /* Nothing to check when the solve is not bounded. */
+    if (stopTime == 0 && token == null && listener == null) {
+      return false;
+    }
+    
+    long now = System.currentTimeMillis();
+    
+    /* Checks if the solve was cancelled or the deadline passed. */
+    if (token != null && token.isCancelled()) {
+      stopped = SolveResult.Status.CANCELLED;
+    } else if (stopTime > 0 && now >= stopTime) {
+      stopped = SolveResult.Status.TIMED_OUT;
+    }
+    
+    /* Report the progress when it is due. */
+    if (listener != null && now >= nextProgress) {
+      listener.progress(searchDepth, expanded, now - startTime);
+      nextProgress = now + PROGRESS_INTERVAL;
+    }
+    
+    return stopped != null;
+  }
+  
+  /**
+   * Stops the search for a reason of its own, such as running out of memory or its own time limit.
+   * A bounded solve reports the first reason the search stopped for in its result.
+   * 
+   * @param reason - why the search stopped
+   * @return true, so the search can stop with "return giveUp(...)"
+   */
+  protected boolean giveUp(SolveResult.Status reason) {
+    if (bounded && stopped == null) {
+      stopped = reason;
+    }
+    return true;
+  }
+  
+  /**
+   * Checks whether the heap is close to full, so the search has to stop, and gives up when it is.
+   * 
+   * @return whether the search is out of memory
+   */
+  protected boolean isOutOfMemory() {
+    if (Runtime.getRuntime().freeMemory() < (.0001) * Runtime.getRuntime().totalMemory()) {
+      return giveUp(SolveResult.Status.OUT_OF_RESOURCES);
+    }
+    return false;
+  }
+  
   /**
    * Returns the sequence of puzzle states and moves to get from the randomized state to the goal state.
    * 
@@ -39,26 +297,32 @@ public abstract class PuzzleSolver {
     StringBuilder builder = new StringBuilder();
     
     /* Tell user which state is printed. */
-    System.out.println("This is the state sequence from solved state to randomized state(reverse order): ");
-    System.out.println("Solved, Goal State: ");
+    if (verbose) {
+      System.out.println("This is the state sequence from solved state to randomized state(reverse order): ");
+      System.out.println("Solved, Goal State: ");
+    }
     
     /* Iterates through puzzle states and prints their level as well as states. */
     if (current != null) {
       while (true) {
         
-        /* Prints level of this puzzle state in tree. */
-        System.out.println("Level in tree: " + current.getLevel());
-        
-        /* When state is at top of tree, tell user it is starting state. */
-        if (current.getLevel() == 0) {
-          System.out.println("This is the initial, randomized start state of the puzzle: ");
-        } else { //Otherwise, print the direction zero is moved in.
-          System.out.println("Move: " + current.getMove());
+        /* Prints the state only when printing is on. */
+        if (verbose) {
+          
+          /* Prints level of this puzzle state in tree. */
+          System.out.println("Level in tree: " + current.getLevel());
+          
+          /* When state is at top of tree, tell user it is starting state. */
+          if (current.getLevel() == 0) {
+            System.out.println("This is the initial, randomized start state of the puzzle: ");
+          } else { //Otherwise, print the direction zero is moved in.
+            System.out.println("Move: " + current.getMove());
+          }
+          
+          /* Print the current state to console. */
+          System.out.println(current.toString());
         }
         
-        /* Print the current state to console. */
-        System.out.println(current.toString());
-        
         /* Set parent state to current state's previous state. */
         parent = current.getPrev();
         
@@ -74,15 +338,23 @@ public abstract class PuzzleSolver {
       }
       
       /* Print time taken to solve puzzle. */
-      System.out.println("This solving technique took: " + time + " ms");
+      if (verbose) {
+        System.out.println("This solving technique took: " + time + " ms");
+      }
       
       /* Set goal back to null. */
       goal = null;
       
-      /* Reverses and outputs the string builder to order sequence from initial state to goal state. */
-      return "This is the sequence of moves from randomized to goal states: " + builder.reverse().toString();
+      /* Reverses the string builder to order sequence from initial state to goal state. */
+      moves = builder.reverse().toString();
+      
+      /* Outputs the sequence of moves. */
+      return "This is the sequence of moves from randomized to goal states: " + moves;
     } else {//Otherwise, system is out of memory.
       
+      /* No solution was found. */
+      moves = null;
+      
       return "System ran out of memory!";
     }
   }
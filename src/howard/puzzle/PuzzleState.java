@@ -8,14 +8,17 @@ package howard.puzzle;
  */
 public class PuzzleState {
  
-  /** The puzzle length. */
-   private int size;
+  /** The number of rows of the puzzle. */
+   private int rows;
+   
+   /** The number of columns of the puzzle. */
+   private int columns;
    
    /** Array of puzzle numbers. */
    private int[][] puzzleArray;
    
-   /** Array of the goal state of this puzzle state. */
-   private static int[][] goalState;
+   /** The goal configuration of this puzzle state. */
+   private GoalConfiguration goal;
    
    /** The column of the puzzle state the zero space is in. */
    private int zeroColumn;
@@ -35,39 +38,48 @@ public class PuzzleState {
    /** Previous state of this puzzle state. */
    private PuzzleState prev;
    
+   /** The key a heuristic keeps with this state to estimate the next states incrementally, -1 for none. */
+   private long heuristicKey = -1;
+   
    /**
-    * Constructor to make a new Puzzle for solving from puzzle side size.
+    * Constructor to make a new Puzzle for solving from puzzle side size, in the goal state
+    * with the zero in the top left corner.
     * 
     * @param sizeInput - the length and width of the puzzle
     */
    public PuzzleState(int sizeInput){
+     this(GoalConfiguration.blankFirst(sizeInput));
+   }
+   
+   /**
+    * Constructor to make a new puzzle state in the goal state of a goal configuration.
+    * 
+    * @param goalInput - the goal configuration of the puzzle
+    */
+   public PuzzleState(GoalConfiguration goalInput){
      
-     /* Set the length of the puzzle. */
-     this.size = sizeInput;
-     
-     /* Make puzzle with sizeInput - 1 amount of columns and rows. */
-     puzzleArray = new int[size][size];
+     /* Set the shape and goal of the puzzle. */
+     this.rows = goalInput.getRows();
+     this.columns = goalInput.getColumns();
+     this.goal = goalInput;
      
-     /* Make puzzle goal state array for future reference when solving. */
-     goalState = new int[size][size];
+     /* Make puzzle with the rows and columns of the goal. */
+     puzzleArray = new int[rows][columns];
      
      /* Iterate through the rows of the array. */
-     for (int i = 0; i < size; i++) {
+     for (int i = 0; i < rows; i++) {
        
        /* Iterate through the columns of the array. */
-       for (int j = 0; j < size; j++){
+       for (int j = 0; j < columns; j++){
          
-         /* Set the value at this index as a function of i and j. */
-         puzzleArray[i][j] = (i * size) + j;
-         
-         /* Set the value at this index as a function of i and j. */
-         goalState[i][j] = (i * size) + j;
+         /* Set the value at this index to its goal value. */
+         puzzleArray[i][j] = goal.getNumber(i, j);
        }
      }
      
      /* Set the initial positions of the zero. */
-     setZeroRow(0);
-     setZeroColumn(0);
+     setZeroRow(goal.getRow(0));
+     setZeroColumn(goal.getColumn(0));
      
      /* Set goal state, initially true. */
      isGoalState = true;
@@ -87,18 +99,20 @@ public class PuzzleState {
     */
    public PuzzleState(Puzzle puzzle){
      
-     /* Set the size of the puzzle array to the puzzle's width. */
-     this.size = puzzle.getSize();
+     /* Set the shape of the puzzle array to that of the puzzle, and the goal of the puzzle. */
+     this.rows = puzzle.getRows();
+     this.columns = puzzle.getColumns();
+     this.goal = puzzle.getGoal();
      
      /* Makes a new puzzle state from input puzzle's dimensions. */
-     puzzleArray = new int[size][size];
+     puzzleArray = new int[rows][columns];
      
      /* Sets the level of this puzzle state in the search tree. */
      this.level = puzzle.getLevel();
      
      /* Copies the contents of the input puzzle array to this puzzle array. */
-     for(int i = 0; i < size; i++){ //Iterate through rows of puzzle.
-       for(int j = 0; j < size; j++){ //Iterate through columns of puzzle.
+     for(int i = 0; i < rows; i++){ //Iterate through rows of puzzle.
+       for(int j = 0; j < columns; j++){ //Iterate through columns of puzzle.
          
          /* Copy value at this index in the puzzle to the puzzle state array. */
          puzzleArray[i][j] = puzzle.getNumber(i, j);
@@ -122,8 +136,10 @@ public class PuzzleState {
     */
    private void copy(PuzzleState state){
     
-    /* Set size to size of input state. */
-    this.size = state.getSize();
+    /* Set shape and goal to those of input state. */
+    this.rows = state.getRows();
+    this.columns = state.getColumns();
+    this.goal = state.getGoal();
     
     /* Set zero row to that of input state. */
     this.zeroRow = state.getZeroRow();
@@ -134,12 +150,12 @@ public class PuzzleState {
     /* Check and set goal state to that of input state. */
     this.isGoalState = state.getGoalState();
     
-    /* Initialize puzzle array based on input state side size. */
-    puzzleArray = new int[size][size];
+    /* Initialize puzzle array based on input state shape. */
+    puzzleArray = new int[rows][columns];
     
     /* Copies the contents of the input puzzle array to this puzzle array. */
-      for(int i = 0; i < size; i++){ //Iterate through rows of puzzle state.
-        for(int j = 0; j < size; j++){ //Iterate through columns of puzzle state.
+      for(int i = 0; i < rows; i++){ //Iterate through rows of puzzle state.
+        for(int j = 0; j < columns; j++){ //Iterate through columns of puzzle state.
           
           /* Copy value at this index of input puzzle state to this puzzle array. */
           puzzleArray[i][j] = state.getNumber(i, j); 
@@ -171,6 +187,15 @@ public class PuzzleState {
     this.puzzleArray[row][column] = number;
    }
    
+   /**
+    * Returns the goal configuration of this puzzle state.
+    * 
+    * @return the goal configuration
+    */
+   public GoalConfiguration getGoal(){
+    return this.goal;
+   }
+   
    /**
     * Returns whether or not this puzzle state is the goal state.
     * 
@@ -206,6 +231,24 @@ public class PuzzleState {
     this.prev = s;
    }
    
+   /**
+    * Returns the key a heuristic keeps with this state, such as the table indices of the walking distance.
+    * 
+    * @return the key of the heuristic, -1 when none was set
+    */
+   public long getHeuristicKey(){
+    return heuristicKey;
+   }
+   
+   /**
+    * Sets the key a heuristic keeps with this state, so the states made from it can be estimated incrementally.
+    * 
+    * @param key - the key of the heuristic
+    */
+   public void setHeuristicKey(long key){
+    this.heuristicKey = key;
+   }
+   
    /**
     * Sets the column position of the zero.
     * 
@@ -294,7 +337,7 @@ public class PuzzleState {
    public static PuzzleState moveRight(PuzzleState s){
     
       /* Check if zero can be moved right. */
-      if (s.getZeroColumn() >= s.getSize() - 1)
+      if (s.getZeroColumn() >= s.getColumns() - 1)
         return null;
       
       /* Set the next state to null so it's clear. */
@@ -392,7 +435,7 @@ public class PuzzleState {
    public static PuzzleState moveDown(PuzzleState s){
     
       /* Check if zero can be moved down. */
-      if(s.getZeroRow() >= s.getSize() - 1)
+      if(s.getZeroRow() >= s.getRows() - 1)
         return null;
       
       /* Set the next state to null so it's clear. */
@@ -436,13 +479,64 @@ public class PuzzleState {
    }
    
    /**
-    * Return the array width for the puzzle state.
+    * Moves the zero in the puzzle in the given direction.
+    * 
+    * @param s - the puzzle state to move the zero in
+    * @param direction - the direction of the move (l = left, r = right, u = up, d = down)
+    * @return the new puzzle state, or null when the zero cannot move in that direction
+    */
+   public static PuzzleState move(PuzzleState s, char direction){
+     
+     /* Make the move matching the direction. */
+     switch (direction) {
+       case 'u':
+         return moveUp(s);
+       case 'd':
+         return moveDown(s);
+       case 'l':
+         return moveLeft(s);
+       case 'r':
+         return moveRight(s);
+       default:
+         return null;
+     }
+   }
+   
+   /**
+    * Returns the number of rows of the puzzle state.
+    * 
+    * @return the number of rows of the puzzle state array
+    */
+   public int getRows(){
+     
+     return this.rows;
+   }
+   
+   /**
+    * Returns the number of columns of the puzzle state.
+    * 
+    * @return the number of columns of the puzzle state array
+    */
+   public int getColumns(){
+     
+     return this.columns;
+   }
+   
+   /**
+    * Returns the side size of a square puzzle state.
     * 
     * @return the width of the puzzle state array
+    * @throws IllegalStateException when the board is not square
+    * @deprecated boards may be rectangular, use getRows() and getColumns()
     */
+   @Deprecated
    public int getSize(){
      
-     return this.size;
+     /* Only a square board has one side size. */
+     if (rows != columns) {
+       throw new IllegalStateException("Puzzle state of " + rows + "x" + columns + " is not square");
+     }
+     return this.rows;
    }
    
    /**
@@ -455,6 +549,21 @@ public class PuzzleState {
     return this.puzzleArray; 
    }
    
+   /**
+    * Returns the numbers of this puzzle state in reading order, the way heuristics estimate boards.
+    * 
+    * @return the number at each position of this puzzle state
+    */
+   public int[] getNumbers(){
+     
+    /* Copy the rows of the puzzle array one after the other. */
+    int[] numbers = new int[rows * columns];
+    for (int i = 0; i < rows; i++) {
+      System.arraycopy(puzzleArray[i], 0, numbers, i * columns, columns);
+    }
+    return numbers;
+   }
+   
    /**
     * Sets the level of this puzzle in the tree of states.
     * 
@@ -480,25 +589,8 @@ public class PuzzleState {
     */
    public boolean isGoalState(){
     
-    /* Iterate through rows of puzzle. */
-    for (int i = 0; i < size; i++){
-     
-     /* Iterate through columns of puzzle. */
-     for (int j = 0; j < size; j++){
-      
-      /* When value at index is not goal value, not in goal state. */
-      if (puzzleArray[i][j] != (i * getSize() + j)){
-       
-       /* Set goal state to false. */
-       isGoalState = false;
-       
-       return isGoalState;
-      }
-     }
-    }
-    
-    /* Otherwise, to must be in goal state to make it this far. */
-    isGoalState = true;
+    /* Compare every index of the puzzle with its goal value. */
+    isGoalState = goal.isGoal(puzzleArray);
     
     return isGoalState;
    }
@@ -562,14 +654,14 @@ public class PuzzleState {
      if (o instanceof PuzzleState) {
        PuzzleState state = (PuzzleState) o;
        
-       /* Compares the size of both puzzle states. */
-       if (state.getSize() != this.getSize())
+       /* Compares the shape of both puzzle states. */
+       if (state.getRows() != this.getRows() || state.getColumns() != this.getColumns())
         return false;
        /* Iterate through rows of puzzles. */
-       for (int i = 0; i < getSize(); i++){
+       for (int i = 0; i < getRows(); i++){
         
         /* Iterate through columns of puzzles. */
-         for (int j = 0; j < getSize(); j++){
+         for (int j = 0; j < getColumns(); j++){
           
           /* When two values at same index are not the same, puzzles are not equal. */
            if (state.getNumber(i, j) != puzzleArray[i][j])
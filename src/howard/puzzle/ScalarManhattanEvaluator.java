@@ -0,0 +1,43 @@
+package howard.puzzle;
+
+/**
+ * Class for evaluating the manhattan distance of whole boards one tile at a time.
+ * The distance of every number from every position is looked up in a table, so each tile takes
+ * one load and an add. This is the evaluator of runtimes without the vector API.
+ *
+ * @author Shaun Howard
+ */
+public class ScalarManhattanEvaluator implements ManhattanEvaluator {
+
+  /** The number of positions of the board. */
+  private final int cells;
+
+  /** The distance of number n at position p, at index n * cells + p. */
+  private final int[] distances;
+
+  /**
+   * Constructor for an evaluator of a goal configuration.
+   *
+   * @param goal - the goal configuration
+   */
+  public ScalarManhattanEvaluator(GoalConfiguration goal) {
+    this.cells = goal.getCells();
+    this.distances = AStarSolver.distances(goal);
+  }
+
+  public int distance(int[] numbers) {
+    int h = 0;
+    for (int position = 0; position < cells; position++) {
+      h += distances[numbers[position] * cells + position];
+    }
+    return h;
+  }
+
+  public int distance(long packed) {
+    int h = 0;
+    for (int position = 0; position < cells; position++) {
+      h += distances[PackedState.get(packed, position) * cells + position];
+    }
+    return h;
+  }
+}
@@ -0,0 +1,179 @@
+package howard.puzzle;
+
+import java.util.SplittableRandom;
+
+/**
+ * Class for scrambling puzzles reproducibly from a seed.
+ * A puzzle can be scrambled into a uniformly random solvable state, or by a random walk of the
+ * zero (blank space) of an exact number of moves that never undoes its last move, so the
+ * difficulty of the scramble is controlled. The same seed always gives the same scrambles, and
+ * a scrambler can be split into independent scramblers for making many puzzles in parallel.
+ * 
+ * @author Shaun Howard
+ */
+public class Scrambler {
+  
+  /** The characters of the moves up, down, left and right. */
+  private static final char[] MOVES = {'u', 'd', 'l', 'r'};
+  
+  /** The random number generator of the scrambles. */
+  private final SplittableRandom random;
+  
+  /**
+   * Constructor for a scrambler with a seed.
+   * 
+   * @param seed - the seed of the scrambles
+   */
+  public Scrambler(long seed) {
+    this(new SplittableRandom(seed));
+  }
+  
+  /**
+   * Constructor for a scrambler with a random number generator.
+   * 
+   * @param random - the random number generator of the scrambles
+   */
+  private Scrambler(SplittableRandom random) {
+    this.random = random;
+  }
+  
+  /**
+   * Returns a new scrambler independent of this one, for scrambling in another thread.
+   * 
+   * @return the new scrambler
+   */
+  public Scrambler split() {
+    return new Scrambler(random.split());
+  }
+  
+  /**
+   * Puts a puzzle into a uniformly random state other than the goal state that can reach its goal state.
+   * The numbers are shuffled, and two tiles are swapped when the shuffle is unsolvable,
+   * which keeps every solvable state equally likely.
+   * 
+   * @param puzzle - the puzzle to scramble
+   */
+  public void shuffle(Puzzle puzzle) {
+    
+    /* The goal, number of columns and number of positions of the puzzle. */
+    GoalConfiguration goal = puzzle.getGoal();
+    int columns = puzzle.getColumns();
+    int cells = goal.getCells();
+    
+    /* The numbers of the puzzle in reading order. */
+    int[] numbers = new int[cells];
+    
+    do {
+      
+      /* Shuffle the numbers. */
+      for (int i = 0; i < cells; i++) {
+        numbers[i] = i;
+      }
+      for (int i = cells - 1; i > 0; i--) {
+        int j = random.nextInt(i + 1);
+        int swap = numbers[i];
+        numbers[i] = numbers[j];
+        numbers[j] = swap;
+      }
+      
+      /* The shuffle is solvable when its parity matches the parity of the goal state. */
+      if (GoalConfiguration.parity(numbers, columns) != goal.getParity()) {
+        
+        /* Swap the first two tiles to make the shuffle solvable. */
+        int first = numbers[0] == 0 ? 1 : 0;
+        int second = numbers[first + 1] == 0 ? first + 2 : first + 1;
+        int swap = numbers[first];
+        numbers[first] = numbers[second];
+        numbers[second] = swap;
+      }
+    } while (goal.isGoal(numbers));
+    
+    /* Put the numbers into the puzzle. */
+    int[][] puzzleArray = new int[puzzle.getRows()][columns];
+    for (int i = 0; i < cells; i++) {
+      puzzleArray[i / columns][i % columns] = numbers[i];
+    }
+    puzzle.initialize(puzzleArray, goal);
+  }
+  
+  /**
+   * Moves the zero (blank space) of a puzzle on a random walk of an exact number of moves.
+   * Each move is picked among the moves that stay on the board and do not undo the last move.
+   * 
+   * @param puzzle - the puzzle to scramble
+   * @param length - the number of moves of the walk
+   * @return the moves of the zero (l = left, r = right, u = up, d = down)
+   */
+  public String walk(Puzzle puzzle, int length) {
+    
+    /* Builder to make a string of move sequence. */
+    StringBuilder builder = new StringBuilder(length);
+    
+    /* The moves that can be made from the current state. */
+    char[] choices = new char[MOVES.length];
+    
+    /* The last move made, nothing at the start. */
+    char last = ' ';
+    
+    for (int i = 0; i < length; i++) {
+      
+      /* Collect the moves that stay on the board and do not undo the last move. */
+      int count = 0;
+      for (char move : MOVES) {
+        if ((last == ' ' || move != PathShortener.inverse(last)) && canMove(puzzle, move)) {
+          choices[count++] = move;
+        }
+      }
+      
+      /* Make a random one of the moves. */
+      last = choices[random.nextInt(count)];
+      move(puzzle, last);
+      builder.append(last);
+    }
+    
+    return builder.toString();
+  }
+  
+  /**
+   * Checks whether the zero (blank space) of a puzzle can move in a direction.
+   * 
+   * @param puzzle - the puzzle
+   * @param move - the direction of the move (l = left, r = right, u = up, d = down)
+   * @return whether the zero stays on the board
+   */
+  private static boolean canMove(Puzzle puzzle, char move) {
+    switch (move) {
+      case 'u':
+        return puzzle.getZeroRow() > 0;
+      case 'd':
+        return puzzle.getZeroRow() < puzzle.getRows() - 1;
+      case 'l':
+        return puzzle.getZeroColumn() > 0;
+      default:
+        return puzzle.getZeroColumn() < puzzle.getColumns() - 1;
+    }
+  }
+  
+  /**
+   * Moves the zero (blank space) of a puzzle in a direction.
+   * 
+   * @param puzzle - the puzzle
+   * @param move - the direction of the move (l = left, r = right, u = up, d = down)
+   */
+  private static void move(Puzzle puzzle, char move) {
+    switch (move) {
+      case 'u':
+        puzzle.moveUp();
+        break;
+      case 'd':
+        puzzle.moveDown();
+        break;
+      case 'l':
+        puzzle.moveLeft();
+        break;
+      default:
+        puzzle.moveRight();
+        break;
+    }
+  }
+}
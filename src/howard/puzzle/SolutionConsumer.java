@@ -0,0 +1,19 @@
+package howard.puzzle;
+
+/**
+ * Interface for receiving the optimal solutions of a puzzle one at a time, as the search finds them.
+ * The solutions are not kept by the solver, so any number of them can be streamed.
+ *
+ * @author Shaun Howard
+ */
+public interface SolutionConsumer {
+
+  /**
+   * Receives an optimal solution.
+   *
+   * @param moves - the moves of the zero (blank space) from the input state to the goal state
+   * @param goal - the goal configuration the solution reaches
+   * @return whether to go on with the next solution, false to stop the search
+   */
+  boolean accept(String moves, GoalConfiguration goal);
+}
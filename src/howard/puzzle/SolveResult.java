@@ -0,0 +1,119 @@
+package howard.puzzle;
+
+/**
+ * Class for the result of a time-bounded solve. It holds the moves of the solution when one was
+ * found, and the statistics of the search also when it timed out, was cancelled or ran out of memory.
+ * 
+ * @author Shaun Howard
+ */
+public class SolveResult {
+  
+  /**
+   * The ways a solve can end.
+   */
+  public enum Status {
+    
+    /** A solution was found. */
+    SOLVED,
+    
+    /** The search ended without a solution, because the puzzle is unsolvable. */
+    NOT_FOUND,
+    
+    /** The deadline passed before a solution was found. */
+    TIMED_OUT,
+    
+    /** The solve was cancelled before a solution was found. */
+    CANCELLED,
+    
+    /** The search gave up before a solution was found, because the heap or its table or queue ran out of room. */
+    OUT_OF_RESOURCES
+  }
+  
+  /** How the solve ended. */
+  private final Status status;
+  
+  /** The moves of the zero (blank space) of the solution, null when none was found. */
+  private final String moves;
+  
+  /** The number of states expanded by the search. */
+  private final long expanded;
+  
+  /** The depth the search reached, the depth limit or the f value threshold. */
+  private final int depth;
+  
+  /** The length of time the solve took in milliseconds. */
+  private final long time;
+  
+  /**
+   * Constructor for the result of a solve.
+   * 
+   * @param status - how the solve ended
+   * @param moves - the moves of the solution, null when none was found
+   * @param expanded - the number of states expanded
+   * @param depth - the depth the search reached
+   * @param time - the length of time the solve took in milliseconds
+   */
+  public SolveResult(Status status, String moves, long expanded, int depth, long time) {
+    this.status = status;
+    this.moves = moves;
+    this.expanded = expanded;
+    this.depth = depth;
+    this.time = time;
+  }
+  
+  /**
+   * Returns how the solve ended.
+   * 
+   * @return the status of the solve
+   */
+  public Status getStatus() {
+    return status;
+  }
+  
+  /**
+   * Returns the moves of the zero (blank space) of the solution.
+   * 
+   * @return the moves of the solution, null when none was found
+   */
+  public String getMoves() {
+    return moves;
+  }
+  
+  /**
+   * Returns the number of states expanded by the search.
+   * 
+   * @return the number of states expanded
+   */
+  public long getExpanded() {
+    return expanded;
+  }
+  
+  /**
+   * Returns the depth the search reached.
+   * 
+   * @return the depth limit or f value threshold reached
+   */
+  public int getDepth() {
+    return depth;
+  }
+  
+  /**
+   * Returns the length of time the solve took.
+   * 
+   * @return the time in milliseconds
+   */
+  public long getTime() {
+    return time;
+  }
+  
+  /**
+   * Returns a string of the result.
+   * 
+   * @return the status, statistics and moves of the result
+   */
+  @Override
+  public String toString() {
+    return status + " after " + time + " ms, " + expanded + " states expanded, depth " + depth
+             + (moves != null ? ", moves: " + moves : "");
+  }
+}
@@ -0,0 +1,658 @@
+package howard.puzzle;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Class for a local server that solves puzzles for other processes, so they need not start a
+ * Java virtual machine per puzzle. The server listens on a TCP port or a Unix domain socket and
+ * handles each connection on its own thread, a virtual thread when the Java runtime has them.
+ * The searches that can take long (bfs, dfs, astar, idastar, fringe, wastar, arastar, macro and optimal) are bounded by
+ * a semaphore, so a burst of hard puzzles cannot take all of the processors and memory. A solver keeps
+ * the state of its search, so each request takes a solver of its own from a pool of idle solvers of its
+ * search type, and requests for the same search type run at once up to the permits. A solver registered
+ * from outside the package has only its one instance, so requests for it wait for it in turn. The waits
+ * count against the timeout of the request.
+ * 
+ * The protocol has one request and one response per line:
+ * "SOLVE solver shape numbers [timeout [layout]]" solves a puzzle of the given shape, a side size or "RxC"
+ * for R rows and C columns, the numbers in reading order separated by commas, within the timeout in milliseconds
+ * (0 for none), to the goal layout "first" (the zero in the top left corner) or "last" (the zero in the
+ * bottom right corner), the default layout of the server when none is given. The response is
+ * "status moves expanded milliseconds", where the status is SOLVED, NOT_FOUND (no solution exists),
+ * TIMED_OUT, CANCELLED or OUT_OF_RESOURCES (the search gave up when memory, its table or its depth
+ * limit ran out) and the moves are "-" when there are none. "PING" is answered with "PONG", "QUIT"
+ * closes the connection, and bad requests are answered with "ERROR message".
+ * "BINARY" is answered with "OK BINARY", after which the connection carries a stream of the binary
+ * wire format in both directions (see WireFormat), so the client must wait for that line before
+ * sending binary. A request record holds the solver name, the timeout and a board record, and is
+ * answered with a response record holding the status number (255 with a message for errors),
+ * the states expanded, the milliseconds and a solution record.
+ * 
+ * Usage:
+ * "serve endpoint [permits]" runs the server, and
+ * "load endpoint solver shape connections requests [seed] [binary]" runs a load generator that sends
+ * random puzzles over the connections, in the binary format when "binary" is given, and reports the
+ * throughput and latency percentiles.
+ * An endpoint is "tcp:port", "tcp:host:port" or "unix:path".
+ * 
+ * @author Shaun Howard
+ */
+public class SolveServer {
+  
+  /** The time limit of a solve in milliseconds, when the request has none. */
+  public static final long DEFAULT_TIMEOUT = 10000;
+  
+  /** The status number of a binary response to a bad request. */
+  public static final int ERROR = 255;
+  
+  /** The solvers that finish in milliseconds and need no permit, the table only solving boards it has a table of. */
+  private static final List<String> LIGHT_SOLVERS = Arrays.asList("table");
+  
+  /** The permits of the searches that can take long. */
+  private final Semaphore heavy;
+  
+  /** The idle solvers of each search type of the package, made as more requests run at once. */
+  private final Map<String, Queue<PuzzleSolver>> idle = new ConcurrentHashMap<String, Queue<PuzzleSolver>>();
+  
+  /** The permit of each registered solver, since it keeps the state of its search and solves one puzzle at a time. */
+  private final Map<PuzzleSolver, Semaphore> solverPermits = new ConcurrentHashMap<PuzzleSolver, Semaphore>();
+  
+  /** The executor running the connections. */
+  private final ExecutorService executor;
+  
+  /**
+   * Constructor for a server.
+   * 
+   * @param permits - the number of long searches that may run at once
+   */
+  public SolveServer(int permits) {
+    
+    /* Each long search takes a permit, and a solver of its own from the pool of its search type. */
+    heavy = new Semaphore(permits, true);
+    executor = newExecutor();
+  }
+  
+  /**
+   * Runs the server or the load generator.
+   * 
+   * @param args - "serve" or "load" followed by its arguments
+   */
+  public static void main(String[] args) {
+    try {
+      
+      /* Checks which command is entered. */
+      if (args.length >= 2 && args.length <= 3 && args[0].equals("serve")) {
+        int permits = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        new SolveServer(permits).serve(args[1]);
+      } else if (args.length >= 6 && args.length <= 8 && args[0].equals("load")) {
+        int[] shape = GoalConfiguration.parseShape(args[3]);
+        load(args[1], args[2], GoalConfiguration.getDefault(shape[0], shape[1]), Integer.parseInt(args[4]),
+             Integer.parseInt(args[5]),
+             args.length > 6 ? Long.parseLong(args[6]) : 1, args.length > 7 && args[7].equals("binary"));
+      } else { //Otherwise, the arguments were entered incorrectly.
+        
+        System.err.println("Usage: serve endpoint [permits]");
+        System.err.println("   or: load endpoint solver shape connections requests [seed] [binary]");
+        System.err.println("An endpoint is tcp:port, tcp:host:port or unix:path");
+        System.exit(1);
+      }
+    } catch (IOException ioe) { //Catch exception of the sockets.
+      System.err.println("Server failed: " + ioe.getMessage());
+      System.exit(1);
+    }
+  }
+  
+  /**
+   * Makes an executor that runs each task on a new virtual thread. Virtual threads are looked up
+   * by reflection, since they are only in newer Java runtimes, and a cached pool of platform
+   * threads is used otherwise.
+   * 
+   * @return the executor of the connections
+   */
+  static ExecutorService newExecutor() {
+    try {
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (ReflectiveOperationException | RuntimeException e) { //Catch runtimes without virtual threads.
+      return Executors.newCachedThreadPool();
+    }
+  }
+  
+  /**
+   * Returns the socket address of an endpoint.
+   * 
+   * @param endpoint - "tcp:port", "tcp:host:port" or "unix:path"
+   * @return the socket address
+   */
+  private static SocketAddress address(String endpoint) {
+    if (endpoint.startsWith("unix:")) {
+      return UnixDomainSocketAddress.of(endpoint.substring(5));
+    } else if (endpoint.startsWith("tcp:")) {
+      String[] parts = endpoint.substring(4).split(":");
+      return parts.length == 1 ? new InetSocketAddress("localhost", Integer.parseInt(parts[0]))
+                               : new InetSocketAddress(parts[0], Integer.parseInt(parts[1]));
+    }
+    throw new IllegalArgumentException("Unknown endpoint " + endpoint + ", use tcp:port or unix:path");
+  }
+  
+  /**
+   * Accepts connections on an endpoint until the server is stopped.
+   * 
+   * @param endpoint - "tcp:port", "tcp:host:port" or "unix:path"
+   * @throws IOException when the endpoint cannot be bound
+   */
+  public void serve(String endpoint) throws IOException {
+    SocketAddress address = address(endpoint);
+    
+    /* Open a server channel of the family of the endpoint. */
+    ServerSocketChannel server;
+    if (address instanceof UnixDomainSocketAddress) {
+      
+      /* Remove the socket file of an earlier run, and remove this one on exit. */
+      final Path path = ((UnixDomainSocketAddress) address).getPath();
+      Files.deleteIfExists(path);
+      Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+        try {
+          Files.deleteIfExists(path);
+        } catch (IOException ioe) { //Catch exception when the file is already gone.
+        }
+      }));
+      server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+    } else { //Otherwise, listen on a TCP port.
+      
+      server = ServerSocketChannel.open();
+    }
+    server.bind(address);
+    System.out.println("Solving puzzles on " + endpoint);
+    
+    /* Accept the connections, each is handled on its own thread. */
+    while (true) {
+      final SocketChannel channel = server.accept();
+      executor.execute(() -> handle(channel));
+    }
+  }
+  
+  /**
+   * Answers the requests of a connection until it is closed.
+   * 
+   * @param channel - the channel of the connection
+   */
+  private void handle(SocketChannel channel) {
+    try (SocketChannel open = channel;
+         BufferedReader in = new BufferedReader(new InputStreamReader(Channels.newInputStream(open),
+                                                                      StandardCharsets.US_ASCII));
+         PrintWriter out = new PrintWriter(new OutputStreamWriter(Channels.newOutputStream(open),
+                                                                  StandardCharsets.US_ASCII))) {
+      for (String line = in.readLine(); line != null; line = in.readLine()) {
+        line = line.trim();
+        
+        /* Checks which request is sent. */
+        if (line.equals("QUIT")) {
+          break;
+        } else if (line.equals("PING")) {
+          out.println("PONG");
+        } else if (line.startsWith("SOLVE ")) {
+          try {
+            out.println(solve(line.split("\\s+")));
+          } catch (RuntimeException | OutOfMemoryError e) { //Catch a solve that failed, the connection goes on.
+            out.println("ERROR " + describe(e));
+          }
+        } else if (line.equals("BINARY")) {
+          out.println("OK BINARY");
+          out.flush();
+          handleBinary(open);
+          break;
+        } else { //Otherwise, the request is unknown.
+          
+          out.println("ERROR unknown request");
+        }
+        out.flush();
+      }
+    } catch (IOException ioe) { //Catch exception when the client goes away.
+    }
+  }
+  
+  /**
+   * Solves the puzzle of a request.
+   * 
+   * @param request - the words of the request line
+   * @return the response line
+   */
+  private String solve(String[] request) {
+    
+    /* Make sure the request has all of its fields. */
+    if (request.length < 4 || request.length > 6) {
+      return "ERROR expected SOLVE solver shape numbers [timeout [layout]]";
+    }
+    
+    /* Make sure the solver exists. */
+    if (!SolverRegistry.contains(request[1])) {
+      return "ERROR no solver " + request[1];
+    }
+    
+    /* Read the shape, numbers, timeout and goal layout. */
+    Puzzle puzzle;
+    long timeout;
+    try {
+      int[] shape = GoalConfiguration.parseShape(request[2]);
+      puzzle = parsePuzzle(shape[0], shape[1], request[3].split(","), request.length > 5 ? request[5] : null);
+      timeout = request.length > 4 ? Long.parseLong(request[4]) : DEFAULT_TIMEOUT;
+    } catch (IllegalArgumentException iae) { //Catch numbers that are not numbers or not a puzzle.
+      return "ERROR " + iae.getMessage();
+    }
+    
+    /* Solve and format the result. */
+    SolveResult result = solve(request[1], puzzle, timeout);
+    String moves = result.getMoves();
+    return result.getStatus() + " " + (moves == null || moves.isEmpty() ? "-" : moves) + " "
+             + result.getExpanded() + " " + result.getTime();
+  }
+  
+  /**
+   * Answers the binary requests of a connection until it is closed. A request that cannot be
+   * decoded closes the connection, since the rest of the stream cannot be trusted.
+   * 
+   * @param channel - the channel of the connection
+   * @throws IOException when the client goes away or sends a bad record
+   */
+  private void handleBinary(SocketChannel channel) throws IOException {
+    WireWriter out = new WireWriter(channel);
+    out.flush();
+    WireReader in = new WireReader(channel);
+    Puzzle puzzle = new Puzzle();
+    while (in.hasNext()) {
+      
+      /* Read the solver, timeout and board of the request, answering a bad record with an error before closing. */
+      String solverName;
+      long timeout;
+      try {
+        in.expect(WireFormat.REQUEST);
+        solverName = in.readString();
+        timeout = in.readVarLong();
+        in.readBoard(puzzle);
+      } catch (RuntimeException | OutOfMemoryError e) { //Catch a record that cannot be decoded.
+        writeError(out, "bad request: " + describe(e));
+        throw new IOException("Bad request record", e);
+      }
+      
+      /* Answer an unknown solver, a board that cannot be solved or a failed solve with an error, otherwise with the result. */
+      if (!SolverRegistry.contains(solverName)) {
+        writeError(out, "no solver " + solverName);
+      } else if (!puzzle.getGoal().isReachable(new PuzzleState(puzzle).getNumbers())) {
+        writeError(out, "the puzzle cannot reach its goal state");
+      } else { //Otherwise, solve the puzzle.
+        
+        SolveResult result;
+        try {
+          result = solve(solverName, puzzle, timeout);
+        } catch (RuntimeException | OutOfMemoryError e) { //Catch a solve that failed, the connection goes on.
+          writeError(out, describe(e));
+          continue;
+        }
+        out.writeByte(WireFormat.RESPONSE);
+        out.writeByte(result.getStatus().ordinal());
+        out.writeVarLong(result.getExpanded());
+        out.writeVarLong(result.getTime());
+        out.writeSolution(result.getMoves() == null ? "" : result.getMoves());
+        out.flush();
+      }
+    }
+  }
+  
+  /**
+   * Writes the response record of a bad request.
+   * 
+   * @param out - the writer of the connection
+   * @param message - why the request failed
+   * @throws IOException when the client goes away
+   */
+  private static void writeError(WireWriter out, String message) throws IOException {
+    out.writeByte(WireFormat.RESPONSE);
+    out.writeByte(ERROR);
+    out.writeString(message);
+    out.flush();
+  }
+  
+  /**
+   * Describes why a request failed, for the error response.
+   * 
+   * @param failure - the exception or error of the request
+   * @return the description, running out of memory told apart from other failures
+   */
+  private static String describe(Throwable failure) {
+    if (failure instanceof OutOfMemoryError) {
+      return "out of memory";
+    }
+    return failure.getMessage() == null ? failure.toString() : failure.getClass().getSimpleName() + ": " + failure.getMessage();
+  }
+  
+  /**
+   * Solves a puzzle with a solver of a search type, taking a permit first when the search can take long.
+   * A solver of the package is taken from the idle solvers of its search type, or made when none is idle,
+   * and a registered solver is waited for.
+   * 
+   * @param solverName - the name of the search type
+   * @param puzzle - the puzzle to solve
+   * @param timeout - the time limit in milliseconds, 0 for none
+   * @return the result, its time counting the wait for a permit
+   */
+  private SolveResult solve(String solverName, Puzzle puzzle, long timeout) {
+    boolean isHeavy = !LIGHT_SOLVERS.contains(solverName);
+    Queue<PuzzleSolver> pool = idle.computeIfAbsent(solverName, name -> new ConcurrentLinkedQueue<PuzzleSolver>());
+    PuzzleSolver solver = pool.poll();
+    if (solver == null) {
+      solver = SolverRegistry.newSolver(solverName);
+    }
+    
+    /* A registered solver has no pool, so requests for it share its one instance. */
+    boolean pooled = solver != null;
+    if (!pooled) {
+      solver = SolverRegistry.get(solverName);
+    }
+    Semaphore solverPermit = pooled ? null : solverPermits.computeIfAbsent(solver, s -> new Semaphore(1, true));
+    long start = System.currentTimeMillis();
+    
+    /* Wait for a shared solver, then for a permit of a long search, giving up when the timeout passes first. */
+    boolean hasSolver = false;
+    boolean hasHeavy = false;
+    try {
+      hasSolver = pooled || solverPermit.tryAcquire(left(timeout, start), TimeUnit.MILLISECONDS);
+      hasHeavy = hasSolver && (!isHeavy || heavy.tryAcquire(left(timeout, start), TimeUnit.MILLISECONDS));
+      if (!hasHeavy) {
+        return new SolveResult(SolveResult.Status.TIMED_OUT, null, 0, 0, System.currentTimeMillis() - start);
+      }
+      
+      /* Solve within the rest of the timeout. */
+      SolveResult result = solver.solve(puzzle, timeout > 0 ? left(timeout, start) : 0, null, null);
+      return new SolveResult(result.getStatus(), result.getMoves(), result.getExpanded(), result.getDepth(),
+                             System.currentTimeMillis() - start);
+    } catch (InterruptedException ie) { //Catch the server shutting down.
+      Thread.currentThread().interrupt();
+      return new SolveResult(SolveResult.Status.CANCELLED, null, 0, 0, System.currentTimeMillis() - start);
+    } finally {
+      if (hasHeavy && isHeavy) {
+        heavy.release();
+      }
+      if (pooled) {
+        pool.offer(solver);
+      } else if (hasSolver) {
+        solverPermit.release();
+      }
+    }
+  }
+  
+  /**
+   * Returns the milliseconds left of a timeout.
+   * 
+   * @param timeout - the time limit in milliseconds, 0 for none
+   * @param start - the time in milliseconds the request started
+   * @return the milliseconds left, at least 1, or the longest wait when there is no time limit
+   */
+  private static long left(long timeout, long start) {
+    return timeout > 0 ? Math.max(1, timeout - (System.currentTimeMillis() - start)) : Long.MAX_VALUE;
+  }
+  
+  /**
+   * Makes a puzzle from the numbers of a request.
+   * 
+   * @param rows - the number of rows of the puzzle
+   * @param columns - the number of columns of the puzzle
+   * @param numbers - the numbers of the puzzle in reading order
+   * @param layout - the name of the goal layout, null for the default layout
+   * @return the puzzle
+   * @throws IllegalArgumentException when the numbers are not a puzzle of the shape, the layout is unknown
+   *         or the puzzle cannot reach its goal state
+   */
+  private static Puzzle parsePuzzle(int rows, int columns, String[] numbers, String layout) {
+    
+    /* Make sure every number of the puzzle is there once. */
+    if (rows < 2 || columns < 2 || numbers.length != rows * columns) {
+      throw new IllegalArgumentException("expected " + rows * columns + " numbers for shape " + rows + "x" + columns);
+    }
+    boolean[] seen = new boolean[numbers.length];
+    int[][] puzzleArray = new int[rows][columns];
+    int[] board = new int[numbers.length];
+    for (int position = 0; position < numbers.length; position++) {
+      int number = Integer.parseInt(numbers[position]);
+      if (number < 0 || number >= numbers.length || seen[number]) {
+        throw new IllegalArgumentException("numbers must be 0 to " + (numbers.length - 1) + " once each");
+      }
+      seen[number] = true;
+      puzzleArray[position / columns][position % columns] = number;
+      board[position] = number;
+    }
+    
+    /* Make sure the goal state can be reached, so no search is run to prove that it cannot. */
+    GoalConfiguration goal = layout == null ? GoalConfiguration.getDefault(rows, columns)
+                               : GoalConfiguration.of(layout, rows, columns);
+    if (!goal.isReachable(board)) {
+      throw new IllegalArgumentException("the puzzle cannot reach its goal state");
+    }
+    
+    Puzzle puzzle = new Puzzle();
+    puzzle.initialize(puzzleArray, goal);
+    return puzzle;
+  }
+  
+  /**
+   * Sends random puzzles to a server over several connections at once and prints the throughput,
+   * the latency percentiles and the count of each response status.
+   * 
+   * @param endpoint - "tcp:port", "tcp:host:port" or "unix:path"
+   * @param solverName - the search type to request
+   * @param goal - the goal configuration of the puzzles
+   * @param connections - the number of connections sending at once
+   * @param requests - the number of requests of each connection
+   * @param seed - the seed of the puzzles
+   * @param binary - whether to send the requests in the binary format
+   * @throws IOException when the server cannot be reached
+   */
+  public static void load(final String endpoint, final String solverName, final GoalConfiguration goal, int connections,
+                          final int requests, long seed, final boolean binary) throws IOException {
+    
+    /* The latencies of all requests in nanoseconds and the counts of the statuses. */
+    final long[] latencies = new long[connections * requests];
+    final Map<String, Integer> statuses = new TreeMap<String, Integer>();
+    
+    /* Run the connections on their own threads, each with its own scrambler. */
+    ExecutorService pool = Executors.newFixedThreadPool(connections);
+    List<Future<?>> running = new ArrayList<Future<?>>();
+    Scrambler scrambler = new Scrambler(seed);
+    long start = System.nanoTime();
+    for (int c = 0; c < connections; c++) {
+      final int first = c * requests;
+      final Scrambler own = scrambler.split();
+      running.add(pool.submit(() -> {
+        if (binary) {
+          loadBinaryConnection(endpoint, solverName, goal, own, latencies, first, requests, statuses);
+        } else { //Otherwise, send request lines.
+          
+          loadConnection(endpoint, solverName, goal, own, latencies, first, requests, statuses);
+        }
+        return null;
+      }));
+    }
+    
+    /* Wait for all connections to finish. */
+    try {
+      for (Future<?> future : running) {
+        future.get();
+      }
+    } catch (Exception e) { //Catch a connection that failed.
+      throw new IOException("Load connection failed: " + e.getCause(), e);
+    } finally {
+      pool.shutdown();
+    }
+    double seconds = (System.nanoTime() - start) / 1e9;
+    
+    /* Print the throughput and latency percentiles. */
+    Arrays.sort(latencies);
+    System.out.printf("%d requests in %.2f s, %.1f requests/s%n", latencies.length, seconds,
+                      latencies.length / seconds);
+    System.out.printf("latency ms: p50 %.3f, p90 %.3f, p99 %.3f, p99.9 %.3f, max %.3f%n",
+                      percentile(latencies, 0.5), percentile(latencies, 0.9), percentile(latencies, 0.99),
+                      percentile(latencies, 0.999), latencies[latencies.length - 1] / 1e6);
+    System.out.println("statuses: " + statuses);
+  }
+  
+  /**
+   * Sends the requests of one connection of the load generator.
+   * 
+   * @param endpoint - the endpoint of the server
+   * @param solverName - the search type to request
+   * @param goal - the goal configuration of the puzzles
+   * @param scrambler - the scrambler making the puzzles of this connection
+   * @param latencies - the latencies of all requests, this connection fills its part
+   * @param first - the index of the first latency of this connection
+   * @param requests - the number of requests to send
+   * @param statuses - the counts of the response statuses
+   * @throws IOException when the server cannot be reached
+   */
+  private static void loadConnection(String endpoint, String solverName, GoalConfiguration goal, Scrambler scrambler,
+                                     long[] latencies, int first, int requests, Map<String, Integer> statuses)
+      throws IOException {
+    SocketAddress address = address(endpoint);
+    try (SocketChannel channel = SocketChannel.open(address);
+         BufferedReader in = new BufferedReader(new InputStreamReader(Channels.newInputStream(channel),
+                                                                      StandardCharsets.US_ASCII));
+         PrintWriter out = new PrintWriter(new OutputStreamWriter(Channels.newOutputStream(channel),
+                                                                  StandardCharsets.US_ASCII))) {
+      Puzzle puzzle = new Puzzle();
+      for (int i = 0; i < requests; i++) {
+        
+        /* Make a random puzzle and its request line. */
+        puzzle.initialize(goal);
+        scrambler.shuffle(puzzle);
+        StringBuilder request = new StringBuilder("SOLVE ").append(solverName).append(' ').append(goal.getShape()).append(' ');
+        for (int position = 0; position < goal.getCells(); position++) {
+          request.append(position == 0 ? "" : ",")
+                 .append(puzzle.getNumber(position / goal.getColumns(), position % goal.getColumns()));
+        }
+        request.append(' ').append(DEFAULT_TIMEOUT).append(' ').append(goal.getName());
+        
+        /* Send the request and time the response. */
+        long sent = System.nanoTime();
+        out.println(request);
+        out.flush();
+        String response = in.readLine();
+        latencies[first + i] = System.nanoTime() - sent;
+        
+        /* Count the status of the response. */
+        String status = response == null ? "CLOSED" : response.split(" ")[0];
+        synchronized (statuses) {
+          statuses.merge(status, 1, Integer::sum);
+        }
+      }
+      out.println("QUIT");
+      out.flush();
+    }
+  }
+  
+  /**
+   * Sends the requests of one connection of the load generator in the binary format.
+   * 
+   * @param endpoint - the endpoint of the server
+   * @param solverName - the search type to request
+   * @param goal - the goal configuration of the puzzles
+   * @param scrambler - the scrambler making the puzzles of this connection
+   * @param latencies - the latencies of all requests, this connection fills its part
+   * @param first - the index of the first latency of this connection
+   * @param requests - the number of requests to send
+   * @param statuses - the counts of the response statuses
+   * @throws IOException when the server cannot be reached
+   */
+  private static void loadBinaryConnection(String endpoint, String solverName, GoalConfiguration goal, Scrambler scrambler,
+                                           long[] latencies, int first, int requests, Map<String, Integer> statuses)
+      throws IOException {
+    SocketAddress address = address(endpoint);
+    try (SocketChannel channel = SocketChannel.open(address)) {
+      
+      /* Switch the connection to the binary format, reading the answer line byte by byte. */
+      channel.write(ByteBuffer.wrap("BINARY\n".getBytes(StandardCharsets.US_ASCII)));
+      StringBuilder answer = new StringBuilder();
+      ByteBuffer single = ByteBuffer.allocate(1);
+      while (channel.read(single) > 0 && single.get(0) != '\n') {
+        answer.append((char) single.get(0));
+        single.clear();
+      }
+      if (!answer.toString().trim().equals("OK BINARY")) {
+        throw new IOException("Server did not switch to binary: " + answer);
+      }
+      WireWriter out = new WireWriter(channel);
+      WireReader in = new WireReader(channel);
+      
+      Puzzle puzzle = new Puzzle();
+      for (int i = 0; i < requests; i++) {
+        
+        /* Make a random puzzle. */
+        puzzle.initialize(goal);
+        scrambler.shuffle(puzzle);
+        
+        /* Send the request and time the response. */
+        long sent = System.nanoTime();
+        out.writeByte(WireFormat.REQUEST);
+        out.writeString(solverName);
+        out.writeVarLong(DEFAULT_TIMEOUT);
+        out.writeBoard(puzzle);
+        out.flush();
+        in.expect(WireFormat.RESPONSE);
+        int code = in.readByte();
+        String status;
+        if (code == ERROR) {
+          in.readString();
+          status = "ERROR";
+        } else { //Otherwise, read the rest of the result.
+          
+          in.readVarLong();
+          in.readVarLong();
+          in.readSolution();
+          status = SolveResult.Status.values()[code].toString();
+        }
+        latencies[first + i] = System.nanoTime() - sent;
+        
+        /* Count the status of the response. */
+        synchronized (statuses) {
+          statuses.merge(status, 1, Integer::sum);
+        }
+      }
+    }
+  }
+  
+  /**
+   * Returns a percentile of sorted latencies in milliseconds, by the nearest rank.
+   * 
+   * @param latencies - the sorted latencies in nanoseconds
+   * @param fraction - the percentile as a fraction, 0.5 for the median
+   * @return the latency at the percentile in milliseconds
+   */
+  private static double percentile(long[] latencies, double fraction) {
+    return latencies[Math.max(0, (int) Math.ceil(fraction * latencies.length) - 1)] / 1e6;
+  }
+}
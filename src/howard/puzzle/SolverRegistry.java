@@ -0,0 +1,141 @@
+package howard.puzzle;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Class for looking up the puzzle solvers by the name of their search type.
+ * The puzzle maker and the benchmark find the solvers here, so a new solver only
+ * has to be registered once to be available everywhere.
+ * The solvers of the package are made the first time their search type is looked up, so a run
+ * of the puzzle maker only loads the classes, and makes the tables, of the one solver it runs.
+ * A server running several searches of one type at once makes a new solver for each of them.
+ * 
+ * @author Shaun Howard
+ */
+public class SolverRegistry {
+  
+  /** The search types of the solvers of the package, in the order they are listed. */
+  private static final String[] BUILT_IN = {"bfs", "dfs", "astar", "idastar", "fringe", "wastar", "arastar",
+                                            "macro", "table", "optimal"};
+  
+  /** The names of all search types, in the order they were registered. */
+  private static Set<String> names = new LinkedHashSet<String>();
+  
+  /** The solvers registered or made so far, by the name of their search type. */
+  private static Map<String, PuzzleSolver> solvers = new LinkedHashMap<String, PuzzleSolver>();
+  
+  /** The names of the search types whose solver was registered rather than made by the package. */
+  private static Set<String> registered = new HashSet<String>();
+  
+  /* List the solvers of the package, without making them. */
+  static {
+    Collections.addAll(names, BUILT_IN);
+  }
+  
+  /** Nullary constructor. */
+  private SolverRegistry() {
+    
+  }
+  
+  /**
+   * Registers a solver under the name of its search type, replacing any solver of that name.
+   * 
+   * @param name - the name of the search type
+   * @param solver - the solver of the search type
+   */
+  public static synchronized void register(String name, PuzzleSolver solver) {
+    names.add(name);
+    registered.add(name);
+    solvers.put(name, solver);
+  }
+  
+  /**
+   * Returns the solver of a search type, making it the first time when it is a solver of the package.
+   * 
+   * @param name - the name of the search type
+   * @return the solver of the search type, null when no solver has that name
+   */
+  public static synchronized PuzzleSolver get(String name) {
+    PuzzleSolver solver = solvers.get(name);
+    if (solver == null && names.contains(name)) {
+      solver = make(name, true);
+      solvers.put(name, solver);
+    }
+    return solver;
+  }
+  
+  /**
+   * Makes a new solver of a search type of the package, apart from the one get returns, so several
+   * searches of the same type can run at once, each on a solver of its own.
+   * 
+   * @param name - the name of the search type
+   * @return a new solver of the search type, null when no solver of the package has that name or
+   *         a solver was registered in its place
+   */
+  public static synchronized PuzzleSolver newSolver(String name) {
+    if (registered.contains(name) || !Arrays.asList(BUILT_IN).contains(name)) {
+      return null;
+    }
+    return make(name, false);
+  }
+  
+  /**
+   * Checks whether a solver has the name of a search type, without making it.
+   * 
+   * @param name - the name of the search type
+   * @return whether a solver has that name
+   */
+  public static synchronized boolean contains(String name) {
+    return names.contains(name);
+  }
+  
+  /**
+   * Returns the names of the search types of all registered solvers.
+   * 
+   * @return the names of the search types, in the order they were registered
+   */
+  public static synchronized Set<String> getNames() {
+    return Collections.unmodifiableSet(new LinkedHashSet<String>(names));
+  }
+  
+  /**
+   * Makes the solver of a search type of the package. Each class is only loaded when its
+   * search type is asked for.
+   * 
+   * @param name - the name of the search type
+   * @param shared - whether to return the instance of the solver class rather than a new solver
+   * @return the solver of the search type
+   */
+  private static PuzzleSolver make(String name, boolean shared) {
+    switch (name) {
+      case "bfs":
+        return shared ? BFSSolver.getInstance() : new BFSSolver();
+      case "dfs":
+        return shared ? DFSSolver.getInstance() : new DFSSolver();
+      case "astar":
+        return shared ? AStarSolver.getInstance() : new AStarSolver();
+      case "idastar":
+        return shared ? IDAStarSolver.getInstance() : new IDAStarSolver(false);
+      case "fringe":
+        return shared ? IDAStarSolver.getFringeInstance() : new IDAStarSolver(true);
+      case "wastar":
+        return shared ? WeightedAStarSolver.getInstance() : new WeightedAStarSolver(false);
+      case "arastar":
+        return shared ? WeightedAStarSolver.getAnytimeInstance() : new WeightedAStarSolver(true);
+      case "macro":
+        return shared ? MacroSolver.getInstance() : new MacroSolver();
+      case "table":
+        return shared ? TableSolver.getInstance() : new TableSolver();
+      case "optimal":
+        return shared ? OptimalSolver.getInstance() : new OptimalSolver(false);
+      default:
+        throw new IllegalArgumentException("No solver of the package has the search type " + name);
+    }
+  }
+}
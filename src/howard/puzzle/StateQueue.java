@@ -0,0 +1,80 @@
+package howard.puzzle;
+
+import java.io.IOException;
+
+/**
+ * Interface for the first-in-first-out frontier of a search over packed puzzle states.
+ * States can be added and drained in bulk, so a breadth-first search can move whole
+ * chunks of a layer at once.
+ *
+ * @author Shaun Howard
+ */
+public interface StateQueue {
+
+  /**
+   * Returns the number of states in the queue.
+   *
+   * @return the number of states
+   */
+  long size();
+
+  /**
+   * Returns whether the queue has no states.
+   *
+   * @return whether the queue is empty
+   */
+  boolean isEmpty();
+
+  /**
+   * Adds a state to the end of the queue.
+   *
+   * @param state - the packed state to add
+   */
+  void add(long state);
+
+  /**
+   * Adds states from an array to the end of the queue.
+   *
+   * @param states - the array of packed states to add
+   * @param count - the number of states to add from the start of the array
+   */
+  void addAll(long[] states, int count);
+
+  /**
+   * Removes states from the start of the queue into an array.
+   *
+   * @param states - the array to put the packed states into
+   * @param max - the largest number of states to remove
+   * @return the number of states removed
+   */
+  int drain(long[] states, int max);
+
+  /**
+   * Returns whether the queue is close to its fixed capacity, so the search has to stop.
+   * Queues that grow on the heap are never full, the search watches the free heap instead.
+   *
+   * @return whether the queue is full
+   */
+  boolean isFull();
+
+  /**
+   * Writes the states of the queue in order to a checkpoint, leaving them in the queue.
+   *
+   * @param out - the writer of the checkpoint
+   * @throws IOException when the checkpoint cannot be written
+   */
+  void write(CheckpointWriter out) throws IOException;
+
+  /**
+   * Adds the states written to a checkpoint by a queue to the end of this queue.
+   *
+   * @param in - the reader of the checkpoint
+   * @throws IOException when the checkpoint cannot be read
+   */
+  void read(CheckpointReader in) throws IOException;
+
+  /**
+   * Removes all states from the queue, freeing its memory.
+   */
+  void clear();
+}
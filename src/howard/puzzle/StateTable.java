@@ -0,0 +1,75 @@
+package howard.puzzle;
+
+import java.io.IOException;
+
+/**
+ * Interface for the visited set of a search over packed puzzle states.
+ * The table remembers the move into each visited state, two bits per state, so the
+ * search path can be followed back from the goal state by undoing the moves.
+ *
+ * @author Shaun Howard
+ */
+public interface StateTable {
+
+  /**
+   * Adds a state and the move into it, when the state is not in the table.
+   *
+   * @param state - the packed state to add
+   * @param move - the move into the state (0 = up, 1 = down, 2 = left, 3 = right)
+   * @return whether the state was added, false when it was already in the table
+   */
+  boolean add(long state, int move);
+
+  /**
+   * Returns whether a state is in the table.
+   *
+   * @param state - the packed state to find
+   * @return whether the state is in the table
+   */
+  boolean contains(long state);
+
+  /**
+   * Returns the move into a state of the table.
+   *
+   * @param state - the packed state, which must be in the table
+   * @return the move into the state (0 = up, 1 = down, 2 = left, 3 = right)
+   */
+  int getMoveInto(long state);
+
+  /**
+   * Returns the number of states in the table.
+   *
+   * @return the number of states
+   */
+  long size();
+
+  /**
+   * Returns whether the table is close to its fixed capacity, so the search has to stop.
+   * Tables that grow on the heap are full once the heap has no room to grow them.
+   *
+   * @return whether the table is full
+   */
+  boolean isFull();
+
+  /**
+   * Writes the states of the table and their moves to a checkpoint.
+   *
+   * @param out - the writer of the checkpoint
+   * @throws IOException when the checkpoint cannot be written
+   */
+  void write(CheckpointWriter out) throws IOException;
+
+  /**
+   * Adds the states and moves written to a checkpoint by a table of the same kind to this empty table.
+   * Hash tables on and off the heap write the same entries, so either can read the other.
+   *
+   * @param in - the reader of the checkpoint
+   * @throws IOException when the checkpoint cannot be read or does not fit this table
+   */
+  void read(CheckpointReader in) throws IOException;
+
+  /**
+   * Removes all states from the table.
+   */
+  void clear();
+}
@@ -0,0 +1,79 @@
+package howard.puzzle;
+
+/**
+ * Class for solving small puzzles, such as the 8-puzzle, with a table of the shortest distance
+ * of every state to the goal state. A shortest solution is found by always moving to a neighbor
+ * that is one move closer to the goal state, so no search is needed once the table is made.
+ * Puzzles too large for a table are not solved; the searches solve them instead.
+ * 
+ * @author Shaun Howard
+ */
+public class TableSolver extends PuzzleSolver {
+  
+  /** An instance of the table solver for solving the puzzle. */
+  private static TableSolver instance = new TableSolver();
+  
+  /** Nullary constructor. */
+  TableSolver() {
+    
+  }
+  
+  /**
+   * Returns the instance of this solver.
+   * 
+   * @return the instance of the table solver
+   */
+  public static TableSolver getInstance() {
+    return instance;
+  }
+  
+  /**
+   * Solves the input puzzle by following the distance table of its size.
+   * Also tracks the amount of time taken to solve puzzle, including making or reading the table.
+   * 
+   * @param puzzle - the puzzle to solve with the distance table
+   * @return the string sequence of moves from initial puzzle state to goal puzzle state
+   */
+  public String solve(Puzzle puzzle) {
+    
+    /* Puzzles too large for a table are not solved, a search of them would not be bounded. */
+    if (!DistanceTable.fits(puzzle.getRows(), puzzle.getColumns())) {
+      goal = null;
+      moves = null;
+      expanded = 0;
+      time = 0;
+      return "This puzzle is too large for a distance table! Try another search type.";
+    }
+    
+    /* Gets the start time of the search. */
+    long startTime = System.currentTimeMillis();
+    
+    /* Initializes goal state to not found. */
+    goal = null;
+    expanded = 0;
+    
+    /* Creates a new state from the input puzzle for solving. */
+    PuzzleState state = new PuzzleState(puzzle);
+    
+    /* Follow the distances of the table from the packed input state. */
+    DistanceTable table = DistanceTable.getInstance(puzzle.getGoal());
+    String path = table.solve(new PackedState(puzzle.getRows(), puzzle.getColumns()).pack(state));
+    
+    /* Makes the states of the path for printing, when the goal state was found. */
+    if (path != null) {
+      
+      /* Every state of the path looks up the distances of its neighbors. */
+      expanded = path.length() + 1;
+      for (int i = 0; i < path.length(); i++) {
+        state = PuzzleState.move(state, path.charAt(i));
+      }
+      goal = state;
+    }
+    
+    /* Gets the difference between end time and start time to find total time taken to solve puzzle. */
+    time = System.currentTimeMillis() - startTime;
+    
+    /* Returns the sequence of moves from initial, randomized puzzle state to goal state. */
+    return getSequence();
+  }
+}
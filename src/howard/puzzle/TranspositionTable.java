@@ -0,0 +1,213 @@
+package howard.puzzle;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Class for a fixed size, lossy table of what searches learned about packed puzzle states.
+ * Each slot holds one state and a 64 bit entry: the best known lower bound on the distance of the
+ * state to the goal state, the path length the state was reached at, the iteration and search it
+ * was reached in, and the depth of the search below it. A state hashes to a single slot, and when
+ * two states meet there, the one searched to the greater depth stays (replace-by-depth), so the
+ * table never grows and forgetting a state only costs the search some work again.
+ *
+ * The table is lock-free, so parallel searches can share it. A slot is two longs of an atomic
+ * long array, the state exclusive-or the entry and the entry itself; a slot torn by two writers
+ * at once no longer gives back its state and reads as empty. Every search takes a search number
+ * of its own, and entries of other searches read as empty, so the table is never cleared between
+ * searches, also not between searches to different goal configurations.
+ *
+ * @author Shaun Howard
+ */
+public class TranspositionTable {
+
+  /** The entry read from an empty slot or a slot of another state. */
+  public static final long MISS = 0;
+
+  /** The largest lower bound, path length, iteration or depth of an entry. */
+  public static final int MAX_VALUE = 0xFF;
+
+  /** The bytes of a slot, two longs. */
+  public static final int SLOT_BYTES = 2 * Long.BYTES;
+
+  /** The smallest number of slots of the table. */
+  private static final int MIN_CAPACITY = 1 << 10;
+
+  /** The largest number of slots of the table, the longs of an array are indexed by int. */
+  private static final int MAX_CAPACITY = 1 << 29;
+
+  /** The number of search numbers before they repeat, 16 bits of an entry. */
+  private static final int SEARCHES = 1 << 16;
+
+  /** The slots, the state exclusive-or the entry at 2 * slot and the entry at 2 * slot + 1. */
+  private final AtomicLongArray slots;
+
+  /** The number of slots minus one, for wrapping indices. */
+  private final int mask;
+
+  /** The last search number taken. */
+  private final AtomicInteger searches = new AtomicInteger();
+
+  /**
+   * Constructor for a table of the most slots that fit into a byte budget.
+   *
+   * @param bytes - the number of bytes the table may take
+   */
+  public TranspositionTable(long bytes) {
+
+    /* The largest power of two of slots that fits the budget. */
+    int capacity = (int) Long.highestOneBit(Math.min(MAX_CAPACITY, Math.max(MIN_CAPACITY, bytes / SLOT_BYTES)));
+    slots = new AtomicLongArray(2 * capacity);
+    mask = capacity - 1;
+  }
+
+  /**
+   * Returns the number of slots of the table.
+   *
+   * @return the number of slots
+   */
+  public int capacity() {
+    return mask + 1;
+  }
+
+  /**
+   * Takes the number of a new search, never 0. When the numbers wrap around, the table is cleared,
+   * so entries of an old search with the same number are not mistaken for entries of the new one.
+   *
+   * @return the search number
+   */
+  public int newSearch() {
+    int search = searches.incrementAndGet() & (SEARCHES - 1);
+    if (search == 0) {
+      clear();
+      search = searches.incrementAndGet() & (SEARCHES - 1);
+    }
+    return search;
+  }
+
+  /**
+   * Makes an entry of a state.
+   *
+   * @param bound - the lower bound on the distance of the state to the goal state
+   * @param cost - the path length the state was reached at
+   * @param iteration - the iteration the state was reached in
+   * @param depth - the depth of the search below the state, the threshold minus the path length
+   * @param search - the number of the search
+   * @return the entry
+   */
+  public static long entry(int bound, int cost, int iteration, int depth, int search) {
+    return (long) search << 32 | (long) Math.min(depth, MAX_VALUE) << 24 | (long) Math.min(iteration, MAX_VALUE) << 16
+             | Math.min(cost, MAX_VALUE) << 8 | Math.min(bound, MAX_VALUE);
+  }
+
+  /**
+   * Returns the lower bound on the distance to the goal state of an entry.
+   *
+   * @param entry - the entry
+   * @return the lower bound
+   */
+  public static int bound(long entry) {
+    return (int) entry & 0xFF;
+  }
+
+  /**
+   * Returns the path length of an entry.
+   *
+   * @param entry - the entry
+   * @return the path length the state was reached at
+   */
+  public static int cost(long entry) {
+    return (int) (entry >>> 8) & 0xFF;
+  }
+
+  /**
+   * Returns the iteration of an entry.
+   *
+   * @param entry - the entry
+   * @return the iteration the state was reached in
+   */
+  public static int iteration(long entry) {
+    return (int) (entry >>> 16) & 0xFF;
+  }
+
+  /**
+   * Returns the depth of the search below the state of an entry.
+   *
+   * @param entry - the entry
+   * @return the depth of the search
+   */
+  public static int depth(long entry) {
+    return (int) (entry >>> 24) & 0xFF;
+  }
+
+  /**
+   * Returns the search number of an entry.
+   *
+   * @param entry - the entry
+   * @return the number of the search
+   */
+  public static int search(long entry) {
+    return (int) (entry >>> 32) & (SEARCHES - 1);
+  }
+
+  /**
+   * Returns the slot of a packed state.
+   *
+   * @param state - the packed state
+   * @return the slot of the state
+   */
+  private int slot(long state) {
+
+    /* Spread the bits of the state, so close states fall into distant slots. */
+    long hash = state * 0x9E3779B97F4A7C15L;
+    return (int) (hash ^ (hash >>> 32)) & mask;
+  }
+
+  /**
+   * Returns the entry of a state in a search.
+   *
+   * @param state - the packed state
+   * @param search - the number of the search
+   * @return the entry of the state, MISS when the table holds none of this search
+   */
+  public long probe(long state, int search) {
+    int slot = slot(state) << 1;
+    long entry = slots.getOpaque(slot + 1);
+
+    /* Checks if the slot holds the state, whole, from this search. */
+    if (entry == MISS || (slots.getOpaque(slot) ^ entry) != state || search(entry) != search) {
+      return MISS;
+    }
+    return entry;
+  }
+
+  /**
+   * Stores the entry of a state, unless the slot holds another state of the same search
+   * that was searched to a greater depth.
+   *
+   * @param state - the packed state
+   * @param entry - the entry of the state
+   */
+  public void store(long state, long entry) {
+    int slot = slot(state) << 1;
+    long old = slots.getOpaque(slot + 1);
+
+    /* Keep the other state when it was searched deeper in this search. */
+    if (old != MISS && search(old) == search(entry) && depth(old) > depth(entry)
+        && (slots.getOpaque(slot) ^ old) != state) {
+      return;
+    }
+
+    slots.setOpaque(slot, state ^ entry);
+    slots.setOpaque(slot + 1, entry);
+  }
+
+  /**
+   * Empties every slot.
+   */
+  public void clear() {
+    for (int i = 0; i < slots.length(); i++) {
+      slots.setOpaque(i, 0);
+    }
+  }
+}
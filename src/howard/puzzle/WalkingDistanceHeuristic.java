@@ -0,0 +1,414 @@
+package howard.puzzle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Class for the walking distance heuristic of the puzzle.
+ * Looking only at rows, a state is a table of how many tiles of each goal row are in each row,
+ * and a vertical move swaps the zero (blank space) with a tile of the row above or below. The
+ * vertical walking distance is the fewest such moves from the table of the state to the table of
+ * the goal state, which counts the tiles of the same goal row blocking each other, unlike the
+ * manhattan distance. The horizontal walking distance is the same over columns, and the estimate
+ * is the sum of both, since every move is either vertical or horizontal. This heuristic is
+ * admissible and at least the manhattan distance.
+ *
+ * The distances of all tables are found with a breadth-first search from the table of the goal
+ * state, once per goal configuration; the 15-puzzle has 24,964 tables. The indices of the tables
+ * of a state are kept as its heuristic key, and a move looks up the index of the new table in a
+ * table of moves, so a state made by one move is estimated without looking at the board.
+ * Puzzles of more than 4 rows or columns have too many tables and are estimated with the
+ * linear conflict heuristic instead.
+ *
+ * @author Shaun Howard
+ */
+public class WalkingDistanceHeuristic implements Heuristic {
+
+  /** The most rows or columns of a puzzle with walking distance tables. */
+  public static final int MAX_LINES = 4;
+
+  /** An instance of the walking distance heuristic for estimating puzzle states. */
+  private static WalkingDistanceHeuristic instance = new WalkingDistanceHeuristic();
+
+  /** The tables of the rows and columns by goal configuration. */
+  private final Map<GoalConfiguration, Tables> tables = new ConcurrentHashMap<GoalConfiguration, Tables>();
+
+  /** Nullary constructor. */
+  private WalkingDistanceHeuristic() {
+
+  }
+
+  /**
+   * Returns the instance of this heuristic.
+   *
+   * @return the instance of the walking distance heuristic
+   */
+  public static WalkingDistanceHeuristic getInstance() {
+    return instance;
+  }
+
+  /**
+   * Checks whether walking distance tables can be made for a puzzle of the given rows and columns.
+   *
+   * @param rows - the number of rows of the puzzle
+   * @param columns - the number of columns of the puzzle
+   * @return whether the puzzle is small enough for walking distance tables
+   */
+  public static boolean fits(int rows, int columns) {
+    return rows <= MAX_LINES && columns <= MAX_LINES;
+  }
+
+  /**
+   * Returns the tables of a goal configuration, making them the first time.
+   *
+   * @param goal - the goal configuration
+   * @return the tables of the rows and columns of the goal configuration
+   */
+  private Tables getTables(GoalConfiguration goal) {
+    return tables.computeIfAbsent(goal, Tables::new);
+  }
+
+  /**
+   * Sums the vertical and horizontal walking distances of a state, and keeps the indices of
+   * its tables with the state.
+   *
+   * @param state - the puzzle state to estimate
+   * @return the walking distance of the state
+   */
+  public int estimate(PuzzleState state) {
+
+    /* Larger puzzles are estimated with the linear conflict heuristic. */
+    if (!fits(state.getRows(), state.getColumns())) {
+      return LinearConflictHeuristic.getInstance().estimate(state);
+    }
+
+    /* Look up the tables and keep their indices with the state. */
+    Tables goalTables = getTables(state.getGoal());
+    long key = key(goalTables, state.getGoal(), state.getNumbers());
+    state.setHeuristicKey(key);
+
+    return distance(goalTables, key);
+  }
+
+  /**
+   * Sums the vertical and horizontal walking distances of a board. A board has no heuristic key
+   * to look up the next table from, so its tables are counted from the board.
+   *
+   * @param goal - the goal configuration of the board
+   * @param numbers - the number at each position of the board, zero for the blank space
+   * @return the walking distance of the board
+   */
+  @Override
+  public int estimate(GoalConfiguration goal, int[] numbers) {
+
+    /* Larger puzzles are estimated with the linear conflict heuristic. */
+    if (!fits(goal.getRows(), goal.getColumns())) {
+      return LinearConflictHeuristic.getInstance().estimate(goal, numbers);
+    }
+
+    Tables goalTables = getTables(goal);
+    return distance(goalTables, key(goalTables, goal, numbers));
+  }
+
+  /**
+   * Estimates a board made by one move in full, or incrementally with the linear conflict
+   * heuristic when the puzzle has no tables.
+   *
+   * @param goal - the goal configuration of the board
+   * @param numbers - the number at each position of the board after the move
+   * @param from - the position the tile moved from, the blank space after the move
+   * @param to - the position the tile moved to, the blank space before the move
+   * @param previousEstimate - the estimate of the board before the move
+   * @return the walking distance of the board
+   */
+  @Override
+  public int estimate(GoalConfiguration goal, int[] numbers, int from, int to, int previousEstimate) {
+
+    /* Larger puzzles are estimated with the linear conflict heuristic. */
+    if (!fits(goal.getRows(), goal.getColumns())) {
+      return LinearConflictHeuristic.getInstance().estimate(goal, numbers, from, to, previousEstimate);
+    }
+
+    return estimate(goal, numbers);
+  }
+
+  /**
+   * Returns the heuristic key of the row and column tables of a board.
+   *
+   * @param goalTables - the tables of the goal configuration
+   * @param goal - the goal configuration of the board
+   * @param numbers - the number at each position of the board
+   * @return the heuristic key of the indices of the tables
+   */
+  private static long key(Tables goalTables, GoalConfiguration goal, int[] numbers) {
+
+    /* Count the tiles of each goal row in each row, and of each goal column in each column. */
+    long rowCode = 0;
+    long columnCode = 0;
+    for (int position = 0; position < numbers.length; position++) {
+      int number = numbers[position];
+      if (number != 0) {
+        rowCode += goalTables.rows.unit(position / goal.getColumns(), goal.getRow(number));
+        columnCode += goalTables.columns.unit(position % goal.getColumns(), goal.getColumn(number));
+      }
+    }
+
+    return key(goalTables.rows.indexOf(rowCode), goalTables.columns.indexOf(columnCode));
+  }
+
+  /**
+   * Returns the walking distance of the tables of a heuristic key.
+   *
+   * @param goalTables - the tables of the goal configuration
+   * @param key - the heuristic key of the indices of the tables
+   * @return the sum of the row and column walking distances
+   */
+  private static int distance(Tables goalTables, long key) {
+    return goalTables.rows.distances[(int) (key >>> 32)] + goalTables.columns.distances[(int) key];
+  }
+
+  /**
+   * Looks up the table of the line the moved tile left in the table of moves, and keeps the
+   * indices of the tables with the state.
+   *
+   * @param state - the puzzle state to estimate, made by one move from its previous state
+   * @param previousEstimate - the estimate of the previous state
+   * @return the walking distance of the state
+   */
+  @Override
+  public int estimate(PuzzleState state, int previousEstimate) {
+
+    /* Estimate in full when the previous state has no table indices, or the puzzle has no tables. */
+    PuzzleState previous = state.getPrev();
+    if (previous.getHeuristicKey() < 0 || !fits(state.getRows(), state.getColumns())) {
+      return estimate(state);
+    }
+
+    Tables goalTables = getTables(state.getGoal());
+    GoalConfiguration goal = state.getGoal();
+
+    /* The tables of the previous state, and the tile that moved into the old position of the zero. */
+    int rowIndex = (int) (previous.getHeuristicKey() >>> 32);
+    int columnIndex = (int) previous.getHeuristicKey();
+    int number = state.getNumber(previous.getZeroRow(), previous.getZeroColumn());
+
+    /* Checks if the zero moved between rows, which only changes the row table. */
+    if (state.getZeroRow() != previous.getZeroRow()) {
+      rowIndex = goalTables.rows.next(rowIndex, state.getZeroRow() > previous.getZeroRow(), goal.getRow(number));
+    } else { //Otherwise, the zero moved between columns, which only changes the column table.
+
+      columnIndex = goalTables.columns.next(columnIndex, state.getZeroColumn() > previous.getZeroColumn(),
+                                            goal.getColumn(number));
+    }
+    long key = key(rowIndex, columnIndex);
+    state.setHeuristicKey(key);
+
+    return distance(goalTables, key);
+  }
+
+  /**
+   * Returns the heuristic key of the indices of the row and column tables of a state.
+   *
+   * @param rowIndex - the index of the row table
+   * @param columnIndex - the index of the column table
+   * @return the heuristic key
+   */
+  private static long key(int rowIndex, int columnIndex) {
+    return (long) rowIndex << 32 | columnIndex;
+  }
+
+  /**
+   * Class for the row and column tables of a goal configuration.
+   */
+  private static class Tables {
+
+    /** The tables of the rows. */
+    private final LineTables rows;
+
+    /** The tables of the columns. */
+    private final LineTables columns;
+
+    /**
+     * Constructor for the tables of a goal configuration.
+     *
+     * @param goal - the goal configuration
+     */
+    Tables(GoalConfiguration goal) {
+
+      /* Count the tiles of each goal row and goal column. */
+      int[] rowTiles = new int[goal.getRows()];
+      int[] columnTiles = new int[goal.getColumns()];
+      for (int number = 1; number < goal.getCells(); number++) {
+        rowTiles[goal.getRow(number)]++;
+        columnTiles[goal.getColumn(number)]++;
+      }
+
+      rows = new LineTables(rowTiles, goal.getColumns());
+      columns = new LineTables(columnTiles, goal.getRows());
+    }
+  }
+
+  /**
+   * Class for the walking distances of the tables of one direction, rows or columns.
+   * A table is coded in a long, four bits for the count of tiles of goal line j in line i, at
+   * bit 4 * (i * lines + j). The zero is in the line that holds one tile less than the others.
+   */
+  private static class LineTables {
+
+    /** The number of lines. */
+    private final int lines;
+
+    /** The number of positions of a line. */
+    private final int width;
+
+    /** The codes of the tables, in increasing order. */
+    private final long[] codes;
+
+    /** The walking distance of each table, by index. */
+    private final byte[] distances;
+
+    /** The index of the table after each move, by (index * 2 + direction) * lines + goal line
+        of the moved tile, -1 when the move is not possible. */
+    private final int[] moves;
+
+    /**
+     * Constructor for the tables of one direction, found with a breadth-first search from the goal table.
+     *
+     * @param goalTiles - the number of tiles of each goal line
+     * @param width - the number of positions of a line
+     */
+    LineTables(int[] goalTiles, int width) {
+      this.lines = goalTiles.length;
+      this.width = width;
+
+      /* The goal table has the tiles of each goal line in that line. */
+      long goalCode = 0;
+      for (int i = 0; i < lines; i++) {
+        goalCode += (long) goalTiles[i] * unit(i, i);
+      }
+
+      /* Search the tables in breadth-first order, numbering them as they are found. */
+      List<Long> found = new ArrayList<Long>();
+      List<Byte> depths = new ArrayList<Byte>();
+      Map<Long, Integer> numbers = new HashMap<Long, Integer>();
+      found.add(goalCode);
+      depths.add((byte) 0);
+      numbers.put(goalCode, 0);
+      for (int k = 0; k < found.size(); k++) {
+        long code = found.get(k);
+        int zero = zeroLine(code);
+
+        /* Move a tile of each goal line from the line above or below into the line of the zero. */
+        for (int direction = 0; direction < 2; direction++) {
+          int line = direction == 0 ? zero - 1 : zero + 1;
+          if (line < 0 || line >= lines) {
+            continue;
+          }
+          for (int j = 0; j < lines; j++) {
+            if (count(code, line, j) > 0) {
+              long next = code - unit(line, j) + unit(zero, j);
+              if (!numbers.containsKey(next)) {
+                numbers.put(next, found.size());
+                found.add(next);
+                depths.add((byte) (depths.get(k) + 1));
+              }
+            }
+          }
+        }
+      }
+
+      /* Sort the codes, so tables can be found by binary search. */
+      int n = found.size();
+      codes = new long[n];
+      for (int k = 0; k < n; k++) {
+        codes[k] = found.get(k);
+      }
+      Arrays.sort(codes);
+
+      /* Keep the distances and moves by the sorted index. */
+      distances = new byte[n];
+      moves = new int[n * 2 * lines];
+      for (int index = 0; index < n; index++) {
+        long code = codes[index];
+        distances[index] = depths.get(numbers.get(code));
+        int zero = zeroLine(code);
+        for (int direction = 0; direction < 2; direction++) {
+          int line = direction == 0 ? zero - 1 : zero + 1;
+          for (int j = 0; j < lines; j++) {
+            boolean possible = line >= 0 && line < lines && count(code, line, j) > 0;
+            moves[(index * 2 + direction) * lines + j] =
+              possible ? indexOf(code - unit(line, j) + unit(zero, j)) : -1;
+          }
+        }
+      }
+    }
+
+    /**
+     * Returns the code of one tile of goal line j in line i.
+     *
+     * @param i - the line
+     * @param j - the goal line
+     * @return the code of the tile
+     */
+    long unit(int i, int j) {
+      return 1L << (4 * (i * lines + j));
+    }
+
+    /**
+     * Returns the number of tiles of goal line j in line i of a table.
+     *
+     * @param code - the code of the table
+     * @param i - the line
+     * @param j - the goal line
+     * @return the number of tiles
+     */
+    private int count(long code, int i, int j) {
+      return (int) (code >>> (4 * (i * lines + j))) & 0xF;
+    }
+
+    /**
+     * Returns the line of the zero of a table, the line with one tile less than its width.
+     *
+     * @param code - the code of the table
+     * @return the line of the zero
+     */
+    private int zeroLine(long code) {
+      for (int i = 0; i < lines; i++) {
+        int tiles = 0;
+        for (int j = 0; j < lines; j++) {
+          tiles += count(code, i, j);
+        }
+        if (tiles < width) {
+          return i;
+        }
+      }
+      throw new IllegalStateException("Table " + Long.toHexString(code) + " has no zero");
+    }
+
+    /**
+     * Returns the index of a table.
+     *
+     * @param code - the code of the table
+     * @return the index of the table
+     */
+    int indexOf(long code) {
+      return Arrays.binarySearch(codes, code);
+    }
+
+    /**
+     * Returns the index of the table after the zero moves to the next or previous line.
+     *
+     * @param index - the index of the table
+     * @param forward - whether the zero moves to the next line, down or right
+     * @param goalLine - the goal line of the tile that moves into the line of the zero
+     * @return the index of the table after the move
+     */
+    int next(int index, boolean forward, int goalLine) {
+      return moves[(index * 2 + (forward ? 1 : 0)) * lines + goalLine];
+    }
+  }
+}
@@ -0,0 +1,537 @@
+package howard.puzzle;
+
+import java.util.Arrays;
+
+/**
+ * Class for solving the N = n x n - 1 puzzle using weighted A* search.
+ * States are explored in order of f = g + w * h, where g is the level of the state in the
+ * tree and h is the heuristic estimate of the state. A weight above one finds a solution
+ * much faster, and that solution is at most w times longer than the shortest one.
+ *
+ * The anytime mode (ARA*) first finds a solution quickly with a large weight, then keeps
+ * lowering the weight step by step and improving the solution, reusing the states already
+ * explored, until the solution is optimal or the time limit is reached. The suboptimality
+ * bound of every solution found is reported.
+ *
+ * The search makes no puzzle state or node objects, so it scales to the 24-puzzle and beyond.
+ * Every generated state is packed into a wide packed state and kept in a node pool of that
+ * width, with its heuristic estimate in an array by node number, and the open list is a bucket
+ * queue of node numbers by f value, rounded to a whole number of moves, with ties going to the
+ * deepest node. A node reached by a shorter path is added to the queue again, and the entry of
+ * its longer path is skipped once the node is explored.
+ *
+ * The heuristic is the manhattan distance by default, or the one named by "-Dpuzzle.heuristic"
+ * (manhattan, linear, walking or pattern). Each new board is estimated from the board it was
+ * made from, which takes constant time with the manhattan distance.
+ *
+ * @author Shaun Howard
+ */
+public class WeightedAStarSolver extends PuzzleSolver {
+
+  /** The default weight of the heuristic. */
+  public static final double DEFAULT_WEIGHT = 2.0;
+
+  /** The default starting weight of the anytime solver, high so the first solution comes early. */
+  public static final double DEFAULT_ANYTIME_WEIGHT = 5.0;
+
+  /** The default amount the weight is lowered by after each anytime iteration. */
+  public static final double DEFAULT_WEIGHT_STEP = 0.5;
+
+  /** The default wall time limit of the anytime solver in milliseconds. */
+  public static final long DEFAULT_TIME_LIMIT = 10000;
+
+  /** The number of nodes explored between checks of the memory limit, deadline and cancellation. */
+  private static final int CHECK_INTERVAL = 256;
+
+  /** The smallest number of estimates and improved nodes the arrays hold. */
+  private static final int MIN_CAPACITY = 1 << 10;
+
+  /** An instance of the weighted A* solver for solving the puzzle. */
+  private static WeightedAStarSolver instance = new WeightedAStarSolver(false);
+
+  /** An instance of the anytime (ARA*) solver for solving the puzzle. */
+  private static WeightedAStarSolver anytimeInstance = new WeightedAStarSolver(true);
+
+  /** Whether this solver keeps improving its solution after the first one is found. */
+  private final boolean anytime;
+
+  /** The heuristic used to estimate the distance of states to the goal state. */
+  private Heuristic heuristic = Heuristic.fromProperty();
+
+  /** The weight of the heuristic, the starting weight in anytime mode. */
+  private double weight = DEFAULT_WEIGHT;
+
+  /** The amount the weight is lowered by after each anytime iteration. */
+  private double weightStep = DEFAULT_WEIGHT_STEP;
+
+  /** The weight of the heuristic in the current iteration. */
+  private double currentWeight;
+
+  /** The wall time limit of the search in milliseconds, zero for no limit. */
+  private long timeLimit;
+
+  /** The time in milliseconds at which the search has to stop, zero for no limit. */
+  private long deadline;
+
+  /** The suboptimality bound of the last solution found. */
+  private double bound;
+
+  /** The nodes of the generated states, with the best known path to each, made for the width of the puzzle. */
+  private NodePool pool = new NodePool();
+
+  /** The heuristic estimate of each node. */
+  private int[] estimates = new int[MIN_CAPACITY];
+
+  /** The open list of node numbers, ordered by f value. */
+  private BucketQueue open = new BucketQueue();
+
+  /** The explored nodes that were reached by a shorter path in this iteration. */
+  private int[] incons = new int[MIN_CAPACITY];
+
+  /** The number of improved explored nodes. */
+  private int inconsCount;
+
+  /** The goal configuration of the puzzle being solved. */
+  private GoalConfiguration goalConfiguration;
+
+  /**
+   * Constructor for a weighted A* solver.
+   *
+   * @param anytime - whether the solver keeps improving its first solution
+   */
+  WeightedAStarSolver(boolean anytime) {
+    this.anytime = anytime;
+
+    /* The anytime solver starts high and is capped by default, since proving optimality can take very long. */
+    if (anytime) {
+      weight = DEFAULT_ANYTIME_WEIGHT;
+      timeLimit = DEFAULT_TIME_LIMIT;
+    }
+  }
+
+  /**
+   * Returns the instance of the weighted A* solver.
+   *
+   * @return the instance of the weighted A* solver
+   */
+  public static WeightedAStarSolver getInstance() {
+    return instance;
+  }
+
+  /**
+   * Returns the instance of the anytime (ARA*) solver.
+   *
+   * @return the instance of the anytime solver
+   */
+  public static WeightedAStarSolver getAnytimeInstance() {
+    return anytimeInstance;
+  }
+
+  /**
+   * Returns the heuristic used to estimate the distance of states to the goal state.
+   *
+   * @return the heuristic of this solver
+   */
+  public Heuristic getHeuristic() {
+    return heuristic;
+  }
+
+  /**
+   * Sets the heuristic used to estimate the distance of states to the goal state.
+   *
+   * @param heuristic - the heuristic to estimate states with
+   */
+  public void setHeuristic(Heuristic heuristic) {
+    this.heuristic = heuristic;
+  }
+
+  /**
+   * Sets the weight of the heuristic, the starting weight in anytime mode.
+   *
+   * @param weight - the weight of the heuristic, at least one
+   */
+  public void setWeight(double weight) {
+
+    /* Weights below one do not speed up the search and void the bound. */
+    if (weight < 1) {
+      throw new IllegalArgumentException("Weight must be at least 1: " + weight);
+    }
+    this.weight = weight;
+  }
+
+  /**
+   * Returns the weight of the heuristic, the starting weight in anytime mode.
+   *
+   * @return the weight of the heuristic
+   */
+  public double getWeight() {
+    return weight;
+  }
+
+  /**
+   * Sets the amount the weight is lowered by after each anytime iteration.
+   *
+   * @param weightStep - the positive amount to lower the weight by
+   */
+  public void setWeightStep(double weightStep) {
+
+    /* A step that is not positive never reaches the optimal solution. */
+    if (weightStep <= 0) {
+      throw new IllegalArgumentException("Weight step must be positive: " + weightStep);
+    }
+    this.weightStep = weightStep;
+  }
+
+  /**
+   * Sets the wall time limit of the search. The best solution found so far is
+   * returned when the limit is reached.
+   *
+   * @param timeLimit - the time limit in milliseconds, zero for no limit
+   */
+  public void setTimeLimit(long timeLimit) {
+    this.timeLimit = timeLimit;
+  }
+
+  /**
+   * Returns the suboptimality bound of the last solution found. The solution is at most
+   * this many times longer than the shortest solution.
+   *
+   * @return the suboptimality bound of the last solution
+   */
+  public double getBound() {
+    return bound;
+  }
+
+  /**
+   * Checks whether the search has to stop because of the time limit, memory limit, deadline or cancellation.
+   *
+   * @return whether the search is out of time or memory
+   */
+  private boolean outOfResources() {
+
+    /* Make sure the search stops at the deadline of the solve or when it is cancelled. */
+    if (shouldStop()) {
+      return true;
+    }
+
+    /* Make sure the search does not run over its time limit, which counts as timing out. */
+    if (deadline > 0 && System.currentTimeMillis() >= deadline) {
+      return giveUp(SolveResult.Status.TIMED_OUT);
+    }
+
+    /* Make sure program doesn't run over memory limit. */
+    return isOutOfMemory();
+  }
+
+  /**
+   * Returns the f value of a node under the current weight, rounded to a whole number of moves.
+   *
+   * @param node - the number of the node
+   * @return the f value of the node
+   */
+  private int f(int node) {
+    return pool.getCost(node) + (int) Math.round(currentWeight * estimates[node]);
+  }
+
+  /**
+   * Adds the node of a newly generated state when it is new or reached by a shorter path.
+   *
+   * @param state - the packed state generated
+   * @param numbers - the number at each position of the board of the state
+   * @param parent - the node the state was generated from
+   * @param move - the move into the state
+   * @param from - the position the moved tile came from, the zero of the state
+   * @param to - the position the moved tile went to, the zero of the parent
+   */
+  private void generate(long[] state, int[] numbers, int parent, int move, int from, int to) {
+
+    /* The node of the best known path to this state, and the length of the new path. */
+    int node = pool.find(state);
+    int g = pool.getCost(parent) + 1;
+
+    /* Only keep the state when no path as short to it is known. */
+    if (node >= 0 && pool.getCost(node) <= g) {
+      return;
+    }
+
+    /* Checks if the state is new, estimating it from its parent. */
+    if (node < 0) {
+      int h = heuristic.estimate(goalConfiguration, numbers, from, to, estimates[parent]);
+      node = pool.add(state, g, parent, move);
+      if (node == estimates.length) {
+        estimates = Arrays.copyOf(estimates, node * 2);
+      }
+      estimates[node] = h;
+    } else if (pool.isClosed(node)) { //Otherwise, explored states are not reopened in this iteration, the anytime mode reopens them later.
+
+      pool.set(node, g, parent, move);
+      pool.close(node);
+      if (inconsCount == incons.length) {
+        incons = Arrays.copyOf(incons, inconsCount * 2);
+      }
+      incons[inconsCount++] = node;
+      return;
+    } else { //Otherwise, the open node keeps its entry of the longer path, which is skipped once it is explored.
+
+      pool.set(node, g, parent, move);
+    }
+
+    open.add(node, f(node), g);
+  }
+
+  /**
+   * Explores nodes in order of f value until no open node can improve the solution.
+   *
+   * @param packer - the packer of the states of the puzzle
+   * @param goalState - the packed goal state of the puzzle
+   * @return whether the iteration completed, false when out of time or memory
+   */
+  private boolean improvePath(WidePackedState packer, long[] goalState) {
+
+    /* The board of the explored node and the packed states of the node and its new states. */
+    int[] numbers = new int[packer.getCells()];
+    long[] state = new long[packer.getWidth()];
+    long[] next = new long[packer.getWidth()];
+
+    /* Explore states while nodes exist in the open list. */
+    while (!open.isEmpty()) {
+
+      /* When no open node has a lower f value than the goal, the solution is found. */
+      int goalNode = pool.find(goalState);
+      if (goalNode >= 0 && f(goalNode) <= open.peekF()) {
+        return true;
+      }
+
+      /* Poll the node with the lowest f value, skipping the entries of improved paths. */
+      int node = open.poll();
+      if (pool.isClosed(node)) {
+        continue;
+      }
+
+      /* Make sure the search stays within its time and memory limits. */
+      if (expanded % CHECK_INTERVAL == 0 && outOfResources()) {
+        return false;
+      }
+
+      /* Mark the state as explored in this iteration. */
+      pool.close(node);
+      expanded++;
+      searchDepth = pool.getCost(node);
+
+      /* The board of the node and the move that would undo the move into the state. */
+      pool.getState(node, state);
+      int zero = packer.unpack(state, numbers);
+      int back = pool.getParent(node) < 0 ? -1 : pool.getMove(node) ^ 1;
+
+      /* Try to move zero (blank space) in each direction and add the new states. */
+      for (int move = 0; move < PackedState.MOVES.length; move++) {
+
+        /* The position the zero moves to, skipping moves off the board and back to the parent. */
+        int target = packer.neighbor(zero, move);
+        if (target < 0 || move == back) {
+          continue;
+        }
+
+        /* Move the tile at the target into the zero, add the new state and move the tile back. */
+        numbers[zero] = numbers[target];
+        numbers[target] = 0;
+        packer.pack(numbers, next);
+        generate(next, numbers, node, move, target, zero);
+        numbers[target] = numbers[zero];
+        numbers[zero] = 0;
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Computes the suboptimality bound of the solution found with the current weight.
+   *
+   * @param goalNode - the node of the best known path to the goal state
+   * @return the suboptimality bound of the solution
+   */
+  private double computeBound(int goalNode) {
+
+    /* The lowest unweighted f value of the states that could still be improved. */
+    int lowest = Integer.MAX_VALUE;
+
+    /* Check the open nodes, the nodes not explored in this iteration. */
+    for (int node = 0; node < pool.size(); node++) {
+      if (!pool.isClosed(node)) {
+        lowest = Math.min(lowest, pool.getCost(node) + estimates[node]);
+      }
+    }
+
+    /* Check the explored nodes that were improved in this iteration. */
+    for (int i = 0; i < inconsCount; i++) {
+      lowest = Math.min(lowest, pool.getCost(incons[i]) + estimates[incons[i]]);
+    }
+
+    /* When no path could be shorter, the solution is optimal. */
+    int length = pool.getCost(goalNode);
+    if (lowest >= length) {
+      return 1;
+    }
+
+    return Math.min(currentWeight, (double) length / lowest);
+  }
+
+  /**
+   * Moves the open and improved nodes into a new open list ordered by the current weight,
+   * so the next anytime iteration reuses the states explored by the previous ones.
+   */
+  private void reorder() {
+
+    /* The improved nodes have to be explored again. */
+    for (int i = 0; i < inconsCount; i++) {
+      pool.reopen(incons[i]);
+    }
+    inconsCount = 0;
+
+    /* Add the nodes still to explore with f values of the current weight, and start a fresh iteration. */
+    open.clear();
+    for (int node = 0; node < pool.size(); node++) {
+      if (!pool.isClosed(node)) {
+        open.add(node, f(node), pool.getCost(node));
+      } else { //Otherwise, the node may be explored again in this iteration.
+
+        pool.reopen(node);
+      }
+    }
+  }
+
+  /**
+   * Performs the weighted A* search, or the anytime search, from the given state.
+   *
+   * @param state - the initial state of the puzzle
+   * @return the moves of the best solution found, or null when none was found
+   */
+  private String search(PuzzleState state) {
+
+    /* Packs the states of this puzzle shape. */
+    goalConfiguration = state.getGoal();
+    WidePackedState packer = new WidePackedState(state.getRows(), state.getColumns());
+
+    /* The packed input state and goal state. */
+    long[] start = new long[packer.getWidth()];
+    long[] goalState = new long[packer.getWidth()];
+    packer.pack(state.getNumbers(), start);
+    packer.pack(new PuzzleState(goalConfiguration).getNumbers(), goalState);
+
+    /* Clear the pool and lists to free memory. */
+    clear(packer.getWidth());
+
+    /* Start with the full weight. */
+    currentWeight = weight;
+    bound = Double.POSITIVE_INFINITY;
+
+    /* Add the input state to the pool and open list, its move is never read. */
+    int root = pool.add(start, 0, -1, 0);
+    estimates[root] = heuristic.estimate(goalConfiguration, state.getNumbers());
+    open.add(root, f(root), 0);
+
+    while (true) {
+
+      /* Explore until the solution of this weight is found or resources run out. */
+      boolean completed = improvePath(packer, goalState);
+
+      /* The node of the best known path to the goal state. */
+      int goalNode = pool.find(goalState);
+
+      /* When out of resources or the puzzle is unsolvable, keep the best solution. */
+      if (!completed || goalNode < 0) {
+        break;
+      }
+
+      /* Set the bound of the solution found with this weight. */
+      bound = computeBound(goalNode);
+
+      /* In anytime mode, report every improved solution. */
+      if (anytime && verbose) {
+        System.out.println("Found a solution of " + pool.getCost(goalNode) + " moves with weight "
+                             + currentWeight + ", suboptimality bound: " + bound);
+      }
+
+      /* Stop when the solution is optimal or not in anytime mode. */
+      if (!anytime || bound <= 1 || outOfResources()) {
+        break;
+      }
+
+      /* Lower the weight and continue with the states explored so far. */
+      currentWeight = Math.max(1, currentWeight - weightStep);
+      reorder();
+    }
+
+    /* Follow the parents of the best known path to the goal state, if any. */
+    int node = pool.find(goalState);
+    if (node < 0) {
+      return null;
+    }
+    StringBuilder builder = new StringBuilder();
+    for (; pool.getParent(node) >= 0; node = pool.getParent(node)) {
+      builder.append(PackedState.MOVES[pool.getMove(node)]);
+    }
+    return builder.reverse().toString();
+  }
+
+  /**
+   * Removes all nodes, making the pool for packed states of a width.
+   *
+   * @param width - the number of longs of the packed states
+   */
+  private void clear(int width) {
+    pool = new NodePool(width);
+    estimates = new int[MIN_CAPACITY];
+    open.clear();
+    incons = new int[MIN_CAPACITY];
+    inconsCount = 0;
+  }
+
+  /**
+   * Solves the input puzzle using weighted A* search, or anytime search in anytime mode.
+   * Also tracks the amount of time taken to solve puzzle.
+   *
+   * @param puzzle - the puzzle to solve with weighted A* search
+   * @return the string sequence of moves from initial puzzle state to goal puzzle state
+   */
+  public String solve(Puzzle puzzle) {
+
+    /* Gets the start time of the search. */
+    long startTime = System.currentTimeMillis();
+
+    /* Sets the time at which the search has to stop. */
+    deadline = timeLimit > 0 ? startTime + timeLimit : 0;
+
+    /* Initializes goal state to not found. */
+    goal = null;
+    expanded = 0;
+
+    /* Creates a new state from the input puzzle for solving. */
+    PuzzleState state = new PuzzleState(puzzle);
+
+    /* Performs the search on the initial, randomized puzzle state. */
+    String path;
+    try {
+      path = search(state);
+    } finally {
+
+      /* Free the memory of the pool and lists, also when the search ran out of memory. */
+      clear(1);
+    }
+
+    /* Makes the states of the path for printing, when a solution was found. */
+    if (path != null) {
+      for (int i = 0; i < path.length(); i++) {
+        state = PuzzleState.move(state, path.charAt(i));
+      }
+      goal = state;
+    }
+
+    /* Gets the difference between end time and start time to find total time taken to solve puzzle. */
+    time = System.currentTimeMillis() - startTime;
+
+    /* Returns the sequence of moves from initial, randomized puzzle state to goal state. */
+    return getSequence();
+  }
+}
@@ -0,0 +1,114 @@
+package howard.puzzle;
+
+/**
+ * Class for packing puzzle states of any size into a few longs, for searches over puzzles too
+ * large for a packed state. Each position takes just the bits of the largest number, five bits
+ * on the 24-puzzle, and as many positions as fit go into each long, so the 24-puzzle packs into
+ * two longs and the 35-puzzle into three. The searches unpack a state into the number at each
+ * position to move the zero (blank space) and estimate the board, and pack the new board into
+ * a reused array, so no puzzle state objects are made. Moves are numbered as in a packed state.
+ *
+ * @author Shaun Howard
+ */
+public class WidePackedState {
+
+  /** The number of positions of the puzzle. */
+  private final int cells;
+
+  /** The number of bits of a position. */
+  private final int bits;
+
+  /** The number of positions in each long. */
+  private final int perWord;
+
+  /** The number of longs of a packed state. */
+  private final int width;
+
+  /** The bits of one position. */
+  private final long mask;
+
+  /** The position the zero moves to for every position and move, -1 when it leaves the board. */
+  private final int[] neighbors;
+
+  /**
+   * Constructor for packing states of a puzzle of the given rows and columns.
+   *
+   * @param rows - the number of rows of the puzzle
+   * @param columns - the number of columns of the puzzle
+   */
+  public WidePackedState(int rows, int columns) {
+    this.cells = rows * columns;
+    this.bits = Math.max(1, Integer.SIZE - Integer.numberOfLeadingZeros(cells - 1));
+    this.perWord = Long.SIZE / bits;
+    this.width = (cells + perWord - 1) / perWord;
+    this.mask = (1L << bits) - 1;
+
+    /* Make the move table. */
+    neighbors = PackedState.neighbors(rows, columns);
+  }
+
+  /**
+   * Returns the number of positions of the puzzle.
+   *
+   * @return the number of positions
+   */
+  public int getCells() {
+    return cells;
+  }
+
+  /**
+   * Returns the number of longs of a packed state.
+   *
+   * @return the width of a packed state
+   */
+  public int getWidth() {
+    return width;
+  }
+
+  /**
+   * Packs the numbers of a board into an array.
+   *
+   * @param numbers - the number at each position of the board
+   * @param packed - the array of the width of a packed state to pack into
+   */
+  public void pack(int[] numbers, long[] packed) {
+
+    /* Fill each long with the numbers of its positions. */
+    for (int word = 0, position = 0; word < width; word++) {
+      long value = 0;
+      for (int k = 0; k < perWord && position < cells; k++) {
+        value |= (long) numbers[position++] << (bits * k);
+      }
+      packed[word] = value;
+    }
+  }
+
+  /**
+   * Unpacks a packed state into the number at each position of the board.
+   *
+   * @param packed - the packed state
+   * @param numbers - the array of the positions of the board to unpack into
+   * @return the position of the zero (blank space)
+   */
+  public int unpack(long[] packed, int[] numbers) {
+    int zero = -1;
+    for (int position = 0; position < cells; position++) {
+      numbers[position] = (int) (packed[position / perWord] >>> (bits * (position % perWord)) & mask);
+      if (numbers[position] == 0) {
+        zero = position;
+      }
+    }
+    return zero;
+  }
+
+  /**
+   * Returns the position the zero (blank space) moves to.
+   *
+   * @param zero - the position of the zero
+   * @param move - the move (0 = up, 1 = down, 2 = left, 3 = right)
+   * @return the new position of the zero, -1 when it would leave the board
+   */
+  public int neighbor(int zero, int move) {
+    return neighbors[zero * PackedState.MOVES.length + move];
+  }
+}
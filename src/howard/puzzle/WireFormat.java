@@ -0,0 +1,143 @@
+package howard.puzzle;
+
+/**
+ * Class for the constants and sizes of the binary format of puzzles and solutions.
+ * A stream starts with a magic number and version, followed by records, each starting with
+ * its tag. A board record holds the rows and columns, the number of its goal layout, and then the
+ * numbers of the board in reading order, packed into the fewest bits that hold the largest number,
+ * four bits (a nibble) for puzzles of up to 16 positions. The goal layout is 1 for the zero (blank
+ * space) in the top left corner, 2 for the zero in the bottom right corner, or 0 for the default
+ * layout of the reader. A solution record holds the number of moves and then the
+ * moves, two bits each, numbered 0 to 3 for up, down, left and right as in packed states.
+ * Lengths and counts are written as variable length integers, seven bits per byte.
+ * 
+ * @author Shaun Howard
+ */
+public class WireFormat {
+  
+  /** The magic number at the start of a stream. */
+  public static final int MAGIC = 0x4E505A57;
+  
+  /** The version of the format. */
+  public static final int VERSION = 3;
+  
+  /** The tag of a board record. */
+  public static final int BOARD = 1;
+  
+  /** The tag of a solution record. */
+  public static final int SOLUTION = 2;
+  
+  /** The tag of a solve request record. */
+  public static final int REQUEST = 3;
+  
+  /** The tag of a solve response record. */
+  public static final int RESPONSE = 4;
+  
+  /** The goal layout number of a board solved to the default layout of the reader. */
+  public static final int LAYOUT_DEFAULT = 0;
+  
+  /** The goal layout number of a board solved with the zero in the top left corner. */
+  public static final int LAYOUT_FIRST = 1;
+  
+  /** The goal layout number of a board solved with the zero in the bottom right corner. */
+  public static final int LAYOUT_LAST = 2;
+  
+  /** The largest number of positions of a board record. */
+  public static final int MAX_CELLS = 1 << 24;
+  
+  /** The largest number of moves of a solution record, 64 MB of packed moves. */
+  public static final int MAX_MOVES = 1 << 28;
+  
+  /** Nullary constructor. */
+  private WireFormat() {
+    
+  }
+  
+  /**
+   * Returns the number of bits of each number of a board.
+   * 
+   * @param cells - the number of positions of the puzzle
+   * @return the bits per number, at least 4
+   */
+  public static int bitsPerNumber(int cells) {
+    return Math.max(4, 32 - Integer.numberOfLeadingZeros(cells - 1));
+  }
+  
+  /**
+   * Returns the number of bytes of the numbers of a board.
+   * 
+   * @param cells - the number of positions of the puzzle
+   * @return the bytes of the packed numbers
+   */
+  public static int boardBytes(int cells) {
+    return (cells * bitsPerNumber(cells) + 7) / 8;
+  }
+  
+  /**
+   * Returns the number of bytes of the moves of a solution.
+   * 
+   * @param length - the number of moves
+   * @return the bytes of the packed moves
+   */
+  public static int solutionBytes(int length) {
+    return (length + 3) / 4;
+  }
+  
+  /**
+   * Returns the number of a goal layout, its byte in a board record.
+   * 
+   * @param name - the name of the goal layout, "first" or "last"
+   * @return the number of the goal layout (1 = first, 2 = last)
+   */
+  public static int layoutCode(String name) {
+    if (name.equals(GoalConfiguration.BLANK_FIRST)) {
+      return LAYOUT_FIRST;
+    } else if (name.equals(GoalConfiguration.BLANK_LAST)) {
+      return LAYOUT_LAST;
+    }
+    throw new IllegalArgumentException("Goal layout " + name + " has no number, use " + GoalConfiguration.BLANK_FIRST
+                                         + " or " + GoalConfiguration.BLANK_LAST);
+  }
+  
+  /**
+   * Returns the goal configuration of the number of a goal layout.
+   * 
+   * @param code - the number of the goal layout (0 = default, 1 = first, 2 = last)
+   * @param rows - the number of rows of the board
+   * @param columns - the number of columns of the board
+   * @return the goal configuration, null when the number is not a goal layout
+   */
+  public static GoalConfiguration layout(int code, int rows, int columns) {
+    switch (code) {
+      case LAYOUT_DEFAULT:
+        return GoalConfiguration.getDefault(rows, columns);
+      case LAYOUT_FIRST:
+        return GoalConfiguration.blankFirst(rows, columns);
+      case LAYOUT_LAST:
+        return GoalConfiguration.blankLast(rows, columns);
+      default:
+        return null;
+    }
+  }
+  
+  /**
+   * Returns the number of a move, its two bits in a solution record.
+   * 
+   * @param move - the direction of the move (u = up, d = down, l = left, r = right)
+   * @return the number of the move (0 = up, 1 = down, 2 = left, 3 = right)
+   */
+  public static int moveCode(char move) {
+    switch (move) {
+      case 'u':
+        return 0;
+      case 'd':
+        return 1;
+      case 'l':
+        return 2;
+      case 'r':
+        return 3;
+      default:
+        throw new IllegalArgumentException("Unknown move " + move);
+    }
+  }
+}
@@ -0,0 +1,211 @@
+package howard.puzzle;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Class for reading puzzles and solutions in the binary format from a channel.
+ * Bytes are read from the channel into a buffer as the records need them.
+ * 
+ * @author Shaun Howard
+ */
+public final class WireReader {
+  
+  /** The channel the records are read from. */
+  private final ReadableByteChannel channel;
+  
+  /** The buffer of bytes read from the channel but not yet used. */
+  private final ByteBuffer buffer = ByteBuffer.allocate(WireWriter.BUFFER_SIZE);
+  
+  /**
+   * Constructor for a reader, reading the magic number and version of the stream.
+   * 
+   * @param channel - the channel to read from
+   * @throws IOException when the channel cannot be read or is not a stream of this format
+   */
+  public WireReader(ReadableByteChannel channel) throws IOException {
+    this.channel = channel;
+    buffer.flip();
+    
+    /* Make sure the stream is of this format. */
+    int magic = (readByte() << 24) | (readByte() << 16) | (readByte() << 8) | readByte();
+    int version = readByte();
+    if (magic != WireFormat.MAGIC || version != WireFormat.VERSION) {
+      throw new IOException("Not a puzzle stream of version " + WireFormat.VERSION);
+    }
+  }
+  
+  /**
+   * Reads more bytes from the channel into the buffer.
+   * 
+   * @return whether bytes were read, false at the end of the stream
+   * @throws IOException when the channel cannot be read
+   */
+  private boolean fill() throws IOException {
+    buffer.compact();
+    int read = channel.read(buffer);
+    buffer.flip();
+    return read > 0;
+  }
+  
+  /**
+   * Returns whether another record follows, waiting for it when needed.
+   * 
+   * @return whether a record follows, false at the end of the stream
+   * @throws IOException when the channel cannot be read
+   */
+  public boolean hasNext() throws IOException {
+    while (!buffer.hasRemaining()) {
+      if (!fill()) {
+        return false;
+      }
+    }
+    return true;
+  }
+  
+  /**
+   * Reads a byte.
+   * 
+   * @return the byte, from 0 to 255
+   * @throws IOException when the channel cannot be read or the stream ends
+   */
+  public int readByte() throws IOException {
+    if (!hasNext()) {
+      throw new EOFException("Puzzle stream ended within a record");
+    }
+    return buffer.get() & 0xFF;
+  }
+  
+  /**
+   * Reads a variable length integer, seven bits per byte.
+   * 
+   * @return the number
+   * @throws IOException when the channel cannot be read or the stream ends
+   */
+  public long readVarLong() throws IOException {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      int next = readByte();
+      value |= (long) (next & 0x7F) << shift;
+      if ((next & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IOException("Variable length integer too long");
+  }
+  
+  /**
+   * Reads a short ASCII string.
+   * 
+   * @return the string
+   * @throws IOException when the channel cannot be read or the stream ends
+   */
+  public String readString() throws IOException {
+    byte[] bytes = new byte[readByte()];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = (byte) readByte();
+    }
+    return new String(bytes, StandardCharsets.US_ASCII);
+  }
+  
+  /**
+   * Reads the tag of the next record and makes sure it is the expected one.
+   * 
+   * @param tag - the expected tag
+   * @throws IOException when the channel cannot be read or the record has another tag
+   */
+  public void expect(int tag) throws IOException {
+    int found = readByte();
+    if (found != tag) {
+      throw new IOException("Expected record " + tag + " but found " + found);
+    }
+  }
+  
+  /**
+   * Reads a board record into a puzzle, solved to the goal of the layout of the record.
+   * 
+   * @param puzzle - the puzzle to put the board into
+   * @throws IOException when the channel cannot be read or the record is not a board of a puzzle
+   */
+  public void readBoard(Puzzle puzzle) throws IOException {
+    
+    /* Read the tag and shape. */
+    expect(WireFormat.BOARD);
+    long rows = readVarLong();
+    long columns = readVarLong();
+    
+    /* Bound each side before multiplying, so the number of positions cannot overflow. */
+    if (rows < 2 || columns < 2 || rows > WireFormat.MAX_CELLS || columns > WireFormat.MAX_CELLS
+        || rows * columns > WireFormat.MAX_CELLS) {
+      throw new IOException("Bad board shape " + rows + "x" + columns);
+    }
+    GoalConfiguration goal = WireFormat.layout(readByte(), (int) rows, (int) columns);
+    if (goal == null) {
+      throw new IOException("Bad goal layout of a " + rows + "x" + columns + " board");
+    }
+    int bits = WireFormat.bitsPerNumber((int) (rows * columns));
+    int mask = (1 << bits) - 1;
+    
+    /* Unpack the numbers in reading order, lowest bits first. */
+    int[][] puzzleArray = new int[(int) rows][(int) columns];
+    boolean[] seen = new boolean[(int) (rows * columns)];
+    long pending = 0;
+    int count = 0;
+    for (int i = 0; i < rows; i++) {
+      for (int j = 0; j < columns; j++) {
+        
+        /* Take in bytes until the number is whole. */
+        while (count < bits) {
+          pending |= (long) readByte() << count;
+          count += 8;
+        }
+        int number = (int) pending & mask;
+        pending >>>= bits;
+        count -= bits;
+        
+        /* Make sure every number of the puzzle is there once. */
+        if (number >= seen.length || seen[number]) {
+          throw new IOException("Board numbers must be 0 to " + (seen.length - 1) + " once each");
+        }
+        seen[number] = true;
+        puzzleArray[i][j] = number;
+      }
+    }
+    
+    puzzle.initialize(puzzleArray, goal);
+  }
+  
+  /**
+   * Reads a solution record.
+   * 
+   * @return the moves of the zero (u = up, d = down, l = left, r = right)
+   * @throws IOException when the channel cannot be read, the record is not a solution or it is too long
+   */
+  public String readSolution() throws IOException {
+    
+    /* Read the tag and number of moves. */
+    expect(WireFormat.SOLUTION);
+    long moves = readVarLong();
+    
+    /* Make sure the number of moves is bounded before it is used as a length. */
+    if (moves < 0 || moves > WireFormat.MAX_MOVES) {
+      throw new IOException("Bad solution length " + moves);
+    }
+    int length = (int) moves;
+    
+    /* Unpack four moves from each byte, the first move in the lowest bits. The builder grows
+     * with the bytes read, so a corrupt length does not allocate its capacity up front. */
+    StringBuilder builder = new StringBuilder(Math.min(length, WireWriter.BUFFER_SIZE));
+    for (int i = 0; i < length; i += 4) {
+      int packed = readByte();
+      for (int k = 0; k < 4 && i + k < length; k++) {
+        builder.append(PackedState.MOVES[(packed >> (2 * k)) & 3]);
+      }
+    }
+    
+    return builder.toString();
+  }
+}
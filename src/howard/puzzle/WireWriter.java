@@ -0,0 +1,182 @@
+package howard.puzzle;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Class for writing puzzles and solutions in the binary format to a channel.
+ * Records are gathered in a buffer and written to the channel when it is full or flushed.
+ * 
+ * @author Shaun Howard
+ */
+public class WireWriter {
+  
+  /** The default number of bytes of the buffer. */
+  public static final int BUFFER_SIZE = 1 << 16;
+  
+  /** The channel the records are written to. */
+  private final WritableByteChannel channel;
+  
+  /** The buffer of bytes not yet written to the channel. */
+  private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+  
+  /**
+   * Constructor for a writer, writing the magic number and version of the stream.
+   * 
+   * @param channel - the channel to write to
+   * @throws IOException when the channel cannot be written
+   */
+  public WireWriter(WritableByteChannel channel) throws IOException {
+    this.channel = channel;
+    buffer.putInt(WireFormat.MAGIC);
+    buffer.put((byte) WireFormat.VERSION);
+  }
+  
+  /**
+   * Makes sure the buffer has room for a number of bytes, writing it out or growing it.
+   * 
+   * @param bytes - the number of bytes needed
+   * @throws IOException when the channel cannot be written
+   */
+  private void ensure(int bytes) throws IOException {
+    
+    /* Write the buffer out when the bytes do not fit. */
+    if (buffer.remaining() < bytes) {
+      flush();
+    }
+    
+    /* Grow the buffer when the bytes are more than it holds. */
+    if (buffer.remaining() < bytes) {
+      buffer = ByteBuffer.allocate(bytes);
+    }
+  }
+  
+  /**
+   * Writes a byte.
+   * 
+   * @param value - the byte to write
+   * @throws IOException when the channel cannot be written
+   */
+  public void writeByte(int value) throws IOException {
+    ensure(1);
+    buffer.put((byte) value);
+  }
+  
+  /**
+   * Writes a non-negative number as a variable length integer, seven bits per byte.
+   * 
+   * @param value - the number to write
+   * @throws IOException when the channel cannot be written
+   */
+  public void writeVarLong(long value) throws IOException {
+    ensure(10);
+    while ((value & ~0x7FL) != 0) {
+      buffer.put((byte) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    buffer.put((byte) value);
+  }
+  
+  /**
+   * Writes a short ASCII string, such as the name of a solver.
+   * 
+   * @param value - the string to write, at most 255 characters
+   * @throws IOException when the channel cannot be written
+   */
+  public void writeString(String value) throws IOException {
+    byte[] bytes = value.getBytes(StandardCharsets.US_ASCII);
+    if (bytes.length > 255) {
+      throw new IllegalArgumentException("String too long: " + value.length());
+    }
+    ensure(1 + bytes.length);
+    buffer.put((byte) bytes.length);
+    buffer.put(bytes);
+  }
+  
+  /**
+   * Writes a board record of a puzzle, with the layout of its goal.
+   * 
+   * @param puzzle - the puzzle to write
+   * @throws IOException when the channel cannot be written
+   * @throws IllegalArgumentException when the goal of the puzzle is neither layout "first" nor "last"
+   */
+  public void writeBoard(Puzzle puzzle) throws IOException {
+    
+    /* The shape and number of bits of each number. */
+    int rows = puzzle.getRows();
+    int columns = puzzle.getColumns();
+    int bits = WireFormat.bitsPerNumber(rows * columns);
+    
+    /* Write the tag, shape and goal layout. */
+    writeByte(WireFormat.BOARD);
+    writeVarLong(rows);
+    writeVarLong(columns);
+    writeByte(WireFormat.layoutCode(puzzle.getGoal().getName()));
+    ensure(WireFormat.boardBytes(rows * columns));
+    
+    /* Pack the numbers in reading order, lowest bits first. */
+    long pending = 0;
+    int count = 0;
+    for (int i = 0; i < rows; i++) {
+      for (int j = 0; j < columns; j++) {
+        pending |= (long) puzzle.getNumber(i, j) << count;
+        count += bits;
+        
+        /* Put out every whole byte. */
+        while (count >= 8) {
+          buffer.put((byte) pending);
+          pending >>>= 8;
+          count -= 8;
+        }
+      }
+    }
+    
+    /* Put out the last bits. */
+    if (count > 0) {
+      buffer.put((byte) pending);
+    }
+  }
+  
+  /**
+   * Writes a solution record of moves of the zero (blank space).
+   * 
+   * @param moves - the moves to write (u = up, d = down, l = left, r = right)
+   * @throws IOException when the channel cannot be written or the solution is too long for a reader
+   */
+  public void writeSolution(String moves) throws IOException {
+    
+    /* Make sure a reader takes the number of moves. */
+    if (moves.length() > WireFormat.MAX_MOVES) {
+      throw new IOException("Solution of " + moves.length() + " moves is longer than " + WireFormat.MAX_MOVES);
+    }
+    
+    /* Write the tag and number of moves. */
+    writeByte(WireFormat.SOLUTION);
+    writeVarLong(moves.length());
+    ensure(WireFormat.solutionBytes(moves.length()));
+    
+    /* Pack four moves into each byte, the first move in the lowest bits. */
+    for (int i = 0; i < moves.length(); i += 4) {
+      int packed = 0;
+      for (int k = 0; k < 4 && i + k < moves.length(); k++) {
+        packed |= WireFormat.moveCode(moves.charAt(i + k)) << (2 * k);
+      }
+      buffer.put((byte) packed);
+    }
+  }
+  
+  /**
+   * Writes all buffered bytes to the channel.
+   * 
+   * @throws IOException when the channel cannot be written
+   */
+  public void flush() throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+}